@@ -0,0 +1,70 @@
+package at.nexus.bench;
+
+import at.nexus.audio.AudioConfig;
+
+import java.util.SplittableRandom;
+
+/**
+ * Детерминированные тестовые сигналы для замеров.
+ */
+final class BenchSignals {
+
+    static final int SAMPLE_RATE = 16000;
+
+    private BenchSignals() {
+    }
+
+    /**
+     * Конфигурация 16kHz mono с заданной длиной кадра
+     */
+    static AudioConfig config(int frameMillis) {
+        return new AudioConfig(SAMPLE_RATE, 1, frameMillis, frameMillis * 2, frameMillis * 3);
+    }
+
+    /**
+     * Белый шум с амплитудой {@code amplitude} от полной шкалы
+     */
+    static short[] noise(int samples, double amplitude, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        short[] out = new short[samples];
+        for (int i = 0; i < samples; i++) {
+            out[i] = (short) ((random.nextDouble() * 2 - 1) * amplitude * Short.MAX_VALUE);
+        }
+        return out;
+    }
+
+    /**
+     * Похожий на речь сигнал: 300ms модулированного тона с шумом,
+     * 300ms тихого фона, по кругу. VAD проходит и речевую, и тихую ветку.
+     */
+    static short[] speechLike(int samples, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        int segment = SAMPLE_RATE * 300 / 1000;
+        short[] out = new short[samples];
+        for (int i = 0; i < samples; i++) {
+            boolean voiced = (i / segment) % 2 == 0;
+            double background = (random.nextDouble() * 2 - 1) * 60;
+            double voice = 0;
+            if (voiced) {
+                double envelope = 0.5 + 0.5 * Math.sin(2 * Math.PI * 4 * i / SAMPLE_RATE);
+                voice = envelope * (Math.sin(2 * Math.PI * 180 * i / SAMPLE_RATE) * 6000
+                        + Math.sin(2 * Math.PI * 720 * i / SAMPLE_RATE) * 2500
+                        + (random.nextDouble() * 2 - 1) * 800);
+            }
+            out[i] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Math.round(voice + background)));
+        }
+        return out;
+    }
+
+    /**
+     * Сэмплы -> байты little-endian
+     */
+    static byte[] toBytes(short[] samples) {
+        byte[] out = new byte[samples.length * 2];
+        for (int i = 0; i < samples.length; i++) {
+            out[i * 2] = (byte) samples[i];
+            out[i * 2 + 1] = (byte) (samples[i] >> 8);
+        }
+        return out;
+    }
+}
@@ -0,0 +1,75 @@
+package at.nexus.bench;
+
+import at.nexus.audio.PcmRingBuffer;
+import at.nexus.dsp.EchoCancellerStage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Эхоподавление, нс на кадр: опорный сигнал через кольцевой буфер,
+ * как от AudioOutputManager, адаптивный фильтр с хвостом 128ms.
+ * Near-end - тот же сигнал с задержкой и ослаблением (чистое эхо),
+ * так что фильтр всё время адаптируется.
+ * Прогрев длиннее остальных: до компиляции C2 кадр стоит в разы дороже.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EchoCancellerBenchmark {
+
+    private static final int SIGNAL_SECONDS = 10;
+    private static final int ECHO_DELAY_SAMPLES = 800;
+
+    @Param({"10", "20", "30"})
+    int frameMillis;
+
+    private short[] far;
+    private short[] near;
+    private short[] work;
+    private int frame;
+    private int position;
+    private PcmRingBuffer reference;
+    private EchoCancellerStage aec;
+
+    @Setup
+    public void setup() {
+        var config = BenchSignals.config(frameMillis);
+        frame = config.frameSamples();
+        int frames = BenchSignals.SAMPLE_RATE * SIGNAL_SECONDS / frame;
+        far = BenchSignals.speechLike(frames * frame, 5);
+        near = new short[far.length];
+        for (int i = ECHO_DELAY_SAMPLES; i < near.length; i++) {
+            near[i] = (short) (far[i - ECHO_DELAY_SAMPLES] / 2);
+        }
+        work = new short[frame];
+        reference = new PcmRingBuffer(config.samplesForMillis(1000), PcmRingBuffer.OverflowPolicy.DROP_OLDEST);
+        aec = new EchoCancellerStage(config, reference, 128, 300);
+    }
+
+    @Benchmark
+    public short[] process() {
+        int offset = position;
+        position += frame;
+        if (position >= far.length) {
+            position = 0;
+        }
+        reference.write(far, offset, frame);
+        System.arraycopy(near, offset, work, 0, frame);
+        aec.process(work, 0, frame);
+        return work;
+    }
+}
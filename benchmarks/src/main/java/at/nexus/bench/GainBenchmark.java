@@ -0,0 +1,72 @@
+package at.nexus.bench;
+
+import at.nexus.dsp.PcmOps;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Усиление с ограничением (как {@code AudioInputDemo.amplifyAudio}), нс на кадр.
+ *
+ * Кадр каждый раз копируется из исходника, иначе после нескольких
+ * вызовов все сэмплы упираются в предел и замер теряет смысл.
+ * Копия входит в результат - её цена видна в {@link #copyOnly()}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class GainBenchmark {
+
+    private static final float GAIN = 2.0f; // около половины сэмплов ограничивается
+
+    @Param({"10", "20", "30", "60"})
+    int frameMillis;
+
+    private int samples;
+    private short[] sourceShorts;
+    private short[] shorts;
+    private byte[] sourceBytes;
+    private byte[] bytes;
+
+    @Setup
+    public void setup() {
+        samples = BenchSignals.config(frameMillis).frameSamples();
+        sourceShorts = BenchSignals.noise(samples, 0.8, 2);
+        shorts = new short[samples];
+        sourceBytes = BenchSignals.toBytes(sourceShorts);
+        bytes = new byte[sourceBytes.length];
+    }
+
+    @Benchmark
+    public short[] copyOnly() {
+        System.arraycopy(sourceShorts, 0, shorts, 0, samples);
+        return shorts;
+    }
+
+    @Benchmark
+    public short[] gainShorts() {
+        System.arraycopy(sourceShorts, 0, shorts, 0, samples);
+        PcmOps.applyGain(shorts, 0, samples, GAIN);
+        return shorts;
+    }
+
+    @Benchmark
+    public byte[] gainBytes() {
+        System.arraycopy(sourceBytes, 0, bytes, 0, bytes.length);
+        PcmOps.applyGain(bytes, 0, bytes.length, GAIN);
+        return bytes;
+    }
+}
@@ -0,0 +1,93 @@
+package at.nexus.bench;
+
+import at.nexus.dsp.AutomaticGainControl;
+import at.nexus.dsp.ConditioningConfig;
+import at.nexus.dsp.InputConditioningStage;
+import at.nexus.dsp.NoiseSuppressor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Подготовка звука, нс на кадр: шумоподавление, АРУ и весь этап.
+ * Сигнал - похожий на речь с белым шумом, кадры по кругу из 10 секунд;
+ * каждый кадр копируется в рабочий буфер (обработка на месте).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InputConditioningBenchmark {
+
+    private static final int SIGNAL_SECONDS = 10;
+
+    @Param({"10", "20", "30"})
+    int frameMillis;
+
+    private short[] signal;
+    private short[] work;
+    private int frame;
+    private int position;
+    private NoiseSuppressor suppressor;
+    private AutomaticGainControl agc;
+    private InputConditioningStage stage;
+
+    @Setup
+    public void setup() {
+        var config = BenchSignals.config(frameMillis);
+        frame = config.frameSamples();
+        int frames = BenchSignals.SAMPLE_RATE * SIGNAL_SECONDS / frame;
+        signal = BenchSignals.speechLike(frames * frame, 6);
+        short[] noise = BenchSignals.noise(signal.length, 0.02, 7);
+        for (int i = 0; i < signal.length; i++) {
+            signal[i] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, signal[i] + noise[i]));
+        }
+        work = new short[frame];
+        ConditioningConfig conditioning = ConditioningConfig.defaults();
+        suppressor = new NoiseSuppressor(config.sampleRate(), conditioning);
+        agc = new AutomaticGainControl(config.sampleRate(), 1, conditioning);
+        stage = new InputConditioningStage(config, conditioning);
+    }
+
+    private short[] nextFrame() {
+        System.arraycopy(signal, position, work, 0, frame);
+        position += frame;
+        if (position >= signal.length) {
+            position = 0;
+        }
+        return work;
+    }
+
+    @Benchmark
+    public short[] noiseSuppressor() {
+        short[] samples = nextFrame();
+        suppressor.process(samples, 0, frame);
+        return samples;
+    }
+
+    @Benchmark
+    public short[] agc() {
+        short[] samples = nextFrame();
+        agc.process(samples, 0, frame);
+        return samples;
+    }
+
+    @Benchmark
+    public short[] stage() {
+        short[] samples = nextFrame();
+        stage.process(samples, 0, frame);
+        return samples;
+    }
+}
@@ -0,0 +1,109 @@
+package at.nexus.bench;
+
+import at.nexus.audio.AudioConfig;
+import at.nexus.audio.mix.MixerConfig;
+import at.nexus.audio.mix.MixerStream;
+import at.nexus.audio.mix.OutputMixer;
+import at.nexus.audio.mix.StreamPriority;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Смешивание кадра {@link OutputMixer}, нс на кадр 20ms.
+ *
+ * Первый поток - речь, остальные - фон под ней (приглушён).
+ * {@link #renderRamping()} каждый кадр меняет громкость речи,
+ * так что она идёт через плавное изменение, а не через одно умножение.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class OutputMixerBenchmark {
+
+    private static final int FRAME_MILLIS = 20;
+
+    @Param({"1", "2", "4", "8"})
+    int streams;
+
+    private OutputMixer mixer;
+    private MixerStream speech;
+    private short[] out;
+    private boolean quiet;
+
+    @Setup
+    public void setup() {
+        AudioConfig config = BenchSignals.config(FRAME_MILLIS);
+        mixer = new OutputMixer(config, MixerConfig.defaults());
+        for (int i = 0; i < streams; i++) {
+            MixerStream stream = new Loop(BenchSignals.speechLike(BenchSignals.SAMPLE_RATE, i),
+                    i == 0 ? StreamPriority.SPEECH : StreamPriority.BACKGROUND);
+            if (i == 0) {
+                speech = stream;
+            }
+            mixer.add(stream);
+        }
+        out = new short[config.frameSamples()];
+        // Приглушение фона устоялось
+        for (int i = 0; i < 100; i++) {
+            mixer.render(out);
+        }
+    }
+
+    @Benchmark
+    public short[] render() {
+        mixer.render(out);
+        return out;
+    }
+
+    @Benchmark
+    public short[] renderRamping() {
+        quiet = !quiet;
+        speech.setGain(quiet ? 0.5f : 1f);
+        mixer.render(out);
+        return out;
+    }
+
+    /**
+     * Секунда сигнала по кругу
+     */
+    private static final class Loop extends MixerStream {
+        private final short[] signal;
+        private int position;
+
+        Loop(short[] signal, StreamPriority priority) {
+            super(priority);
+            this.signal = signal;
+        }
+
+        @Override
+        public int read(short[] dst, int offset, int length) {
+            int done = 0;
+            while (done < length) {
+                int n = Math.min(length - done, signal.length - position);
+                System.arraycopy(signal, position, dst, offset + done, n);
+                position = (position + n) % signal.length;
+                done += n;
+            }
+            return length;
+        }
+
+        @Override
+        public int cancel() {
+            return 0;
+        }
+    }
+}
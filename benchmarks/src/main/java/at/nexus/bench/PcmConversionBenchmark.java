@@ -0,0 +1,55 @@
+package at.nexus.bench;
+
+import at.nexus.dsp.PcmOps;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Преобразование PCM байтов в сэмплы и обратно, нс на кадр.
+ * Этим путём проходит каждый кадр между линиями и кольцевыми буферами.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class PcmConversionBenchmark {
+
+    @Param({"10", "20", "30", "60"})
+    int frameMillis;
+
+    private int samples;
+    private byte[] bytes;
+    private short[] shorts;
+
+    @Setup
+    public void setup() {
+        samples = BenchSignals.config(frameMillis).frameSamples();
+        shorts = BenchSignals.noise(samples, 0.5, 1);
+        bytes = BenchSignals.toBytes(shorts);
+    }
+
+    @Benchmark
+    public short[] bytesToShorts() {
+        PcmOps.toShorts(bytes, 0, shorts, 0, samples);
+        return shorts;
+    }
+
+    @Benchmark
+    public byte[] shortsToBytes() {
+        PcmOps.toBytes(shorts, 0, bytes, 0, samples);
+        return bytes;
+    }
+}
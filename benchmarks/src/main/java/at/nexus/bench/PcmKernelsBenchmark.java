@@ -0,0 +1,119 @@
+package at.nexus.bench;
+
+import at.nexus.dsp.PcmKernels;
+import at.nexus.dsp.PcmOps;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Скалярные и векторные PCM ядра бок о бок, нс на кадр.
+ * Каждое значение {@code impl} идёт в своём форке, поэтому вызовы
+ * мономорфны, как у {@link PcmOps} в рабочем коде.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class PcmKernelsBenchmark {
+
+    @Param({"scalar", "vector"})
+    String impl;
+
+    @Param({"10", "20", "60"})
+    int frameMillis;
+
+    private PcmKernels kernels;
+    private int samples;
+    private short[] source;
+    private short[] work;
+    private short[] stereo;
+    private byte[] bytes;
+    private float[] floats;
+
+    @Setup
+    public void setup() {
+        kernels = "vector".equals(impl) ? PcmOps.vectorized() : PcmOps.scalar();
+        if (kernels == null) {
+            throw new IllegalStateException("Векторные ядра недоступны: нужен --add-modules jdk.incubator.vector");
+        }
+        samples = BenchSignals.config(frameMillis).frameSamples();
+        source = BenchSignals.noise(samples, 0.8, 6);
+        work = new short[samples];
+        stereo = BenchSignals.noise(samples * 2, 0.5, 7);
+        bytes = BenchSignals.toBytes(source);
+        floats = new float[samples];
+        kernels.toFloats(source, 0, floats, 0, samples);
+    }
+
+    @Benchmark
+    public short[] bytesToShorts() {
+        kernels.toShorts(bytes, 0, work, 0, samples);
+        return work;
+    }
+
+    @Benchmark
+    public byte[] shortsToBytes() {
+        kernels.toBytes(source, 0, bytes, 0, samples);
+        return bytes;
+    }
+
+    @Benchmark
+    public float[] shortsToFloats() {
+        kernels.toFloats(source, 0, floats, 0, samples);
+        return floats;
+    }
+
+    @Benchmark
+    public short[] floatsToShorts() {
+        kernels.fromFloats(floats, 0, work, 0, samples);
+        return work;
+    }
+
+    @Benchmark
+    public short[] gain() {
+        System.arraycopy(source, 0, work, 0, samples);
+        kernels.applyGain(work, 0, samples, 2.0f);
+        return work;
+    }
+
+    @Benchmark
+    public short[] mix() {
+        kernels.mix(source, 0, work, 0, samples, 0.5f);
+        return work;
+    }
+
+    @Benchmark
+    public double rms() {
+        return kernels.rms(source, 0, samples);
+    }
+
+    @Benchmark
+    public int peak() {
+        return kernels.peak(source, 0, samples);
+    }
+
+    @Benchmark
+    public short[] downmixStereo() {
+        kernels.downmixStereo(stereo, 0, work, 0, samples);
+        return work;
+    }
+
+    @Benchmark
+    public short[] upmixMono() {
+        kernels.upmixMono(source, 0, stereo, 0, samples);
+        return stereo;
+    }
+}
@@ -0,0 +1,79 @@
+package at.nexus.bench;
+
+import at.nexus.dsp.ChannelMixer;
+import at.nexus.dsp.Resampler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Смена частоты и каналов между устройством и конвейером, мкс CPU
+ * на секунду звука: одна операция - секунда входа кадрами по 20ms.
+ * Формат параметра: {@code вход Hz x каналы - выход Hz x каналы}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class ResamplerBenchmark {
+
+    private static final int FRAME_MILLIS = 20;
+
+    @Param({"44100x2-16000x1", "48000x2-16000x1", "16000x1-48000x1", "24000x1-16000x1", "22050x1-16000x1"})
+    String conversion;
+
+    private int inChannels;
+    private int outChannels;
+    private int frames;
+    private int framesPerSecond;
+    private short[] input;
+    private short[] mixed;
+    private short[] output;
+    private Resampler resampler;
+
+    @Setup
+    public void setup() {
+        String[] sides = conversion.split("-");
+        String[] in = sides[0].split("x");
+        String[] out = sides[1].split("x");
+        int inRate = Integer.parseInt(in[0]);
+        inChannels = Integer.parseInt(in[1]);
+        outChannels = Integer.parseInt(out[1]);
+        resampler = new Resampler(inRate, Integer.parseInt(out[0]), Math.min(inChannels, outChannels));
+
+        frames = inRate * FRAME_MILLIS / 1000;
+        framesPerSecond = 1000 / FRAME_MILLIS;
+        short[] mono = BenchSignals.speechLike(inRate, 5);
+        input = new short[mono.length * inChannels];
+        ChannelMixer.convert(mono, 0, 1, input, 0, inChannels, mono.length);
+        mixed = new short[frames * inChannels];
+        output = new short[resampler.maxOutputFrames(frames) * Math.max(inChannels, outChannels)];
+    }
+
+    @Benchmark
+    public int second() {
+        int produced = 0;
+        for (int i = 0; i < framesPerSecond; i++) {
+            int offset = i * frames * inChannels;
+            if (outChannels < inChannels) {
+                ChannelMixer.convert(input, offset, inChannels, mixed, 0, outChannels, frames);
+                produced += resampler.process(mixed, 0, frames, output, 0);
+            } else {
+                produced += resampler.process(input, offset, frames, output, 0);
+            }
+        }
+        return produced;
+    }
+}
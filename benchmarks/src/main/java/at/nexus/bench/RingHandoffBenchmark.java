@@ -0,0 +1,78 @@
+package at.nexus.bench;
+
+import at.nexus.audio.PcmRingBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Передача кадров через {@link PcmRingBuffer} - то, что происходит
+ * между потоком захвата, обработкой и потоком воспроизведения.
+ *
+ * <ul>
+ *   <li>{@code roundTrip} - запись и чтение кадра в одном потоке:
+ *       чистая цена копирования и преобразования, нс на кадр;</li>
+ *   <li>{@code spsc} - производитель и потребитель в разных потоках,
+ *       как в менеджерах: добавляется цена обмена кэш-линиями.
+ *       Политика DROP_OLDEST, чтобы производитель не блокировался
+ *       при остановке замера.</li>
+ * </ul>
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class RingHandoffBenchmark {
+
+    private static final int RING_MILLIS = 2000;
+
+    @Param({"10", "20", "30", "60"})
+    int frameMillis;
+
+    private PcmRingBuffer ring;
+    private byte[] producerFrame;
+    private byte[] consumerFrame;
+
+    @Setup
+    public void setup() {
+        var config = BenchSignals.config(frameMillis);
+        ring = new PcmRingBuffer(config.samplesForMillis(RING_MILLIS), PcmRingBuffer.OverflowPolicy.DROP_OLDEST);
+        producerFrame = BenchSignals.toBytes(BenchSignals.noise(config.frameSamples(), 0.5, 3));
+        consumerFrame = new byte[producerFrame.length];
+    }
+
+    @Benchmark
+    @Group("roundTrip")
+    public int roundTrip() {
+        ring.writeBytes(producerFrame, 0, producerFrame.length);
+        return ring.readBytes(consumerFrame, 0, consumerFrame.length);
+    }
+
+    @Benchmark
+    @Group("spsc")
+    @GroupThreads(1)
+    public int produce() {
+        return ring.writeBytes(producerFrame, 0, producerFrame.length);
+    }
+
+    @Benchmark
+    @Group("spsc")
+    @GroupThreads(1)
+    public int consume() {
+        return ring.readBytes(consumerFrame, 0, consumerFrame.length);
+    }
+}
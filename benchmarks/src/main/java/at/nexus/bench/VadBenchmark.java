@@ -0,0 +1,73 @@
+package at.nexus.bench;
+
+import at.nexus.vad.VadConfig;
+import at.nexus.vad.VadStage;
+import at.nexus.vad.VoiceActivityDetector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * VAD на похожем на речь сигнале, нс на кадр: только детектор
+ * и полный этап (pre-roll, onset/hangover, уведомления).
+ * Кадры идут по кругу из 10 секунд сигнала.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VadBenchmark {
+
+    private static final int SIGNAL_SECONDS = 10;
+
+    @Param({"10", "20", "30"})
+    int frameMillis;
+
+    private short[] signal;
+    private int frame;
+    private int position;
+    private VoiceActivityDetector detector;
+    private VadStage stage;
+
+    @Setup
+    public void setup() {
+        var config = BenchSignals.config(frameMillis);
+        frame = config.frameSamples();
+        int frames = BenchSignals.SAMPLE_RATE * SIGNAL_SECONDS / frame;
+        signal = BenchSignals.speechLike(frames * frame, 4);
+        detector = new VoiceActivityDetector(VadConfig.defaults());
+        stage = new VadStage(config, VadConfig.defaults());
+    }
+
+    private int nextFrame() {
+        int offset = position;
+        position += frame;
+        if (position >= signal.length) {
+            position = 0;
+        }
+        return offset;
+    }
+
+    @Benchmark
+    public boolean detector() {
+        return detector.isSpeech(signal, nextFrame(), frame);
+    }
+
+    @Benchmark
+    public boolean stage() {
+        stage.process(signal, nextFrame(), frame);
+        return stage.isInSpeech();
+    }
+}
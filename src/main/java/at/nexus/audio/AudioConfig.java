@@ -0,0 +1,103 @@
+package at.nexus.audio;
+
+import javax.sound.sampled.AudioFormat;
+
+/**
+ * Параметры аудио тракта, общие для захвата и воспроизведения.
+ *
+ * Размер кадра определяет, как часто цикл захвата отдаёт данные дальше,
+ * размеры буферов линий - сколько звука копит сама звуковая карта.
+ * Вместе они дают нижнюю границу задержки микрофон -> динамик.
+ *
+ * Формат всегда 16-bit signed little-endian.
+ *
+ * @param sampleRate           частота дискретизации, Гц
+ * @param channels             количество каналов
+ * @param frameMillis          длительность кадра захвата/воспроизведения
+ * @param captureBufferMillis  буфер TargetDataLine
+ * @param playbackBufferMillis буфер SourceDataLine, {@link #LINE_DEFAULT} - размер
+ *                             по умолчанию самой линии
+ */
+public record AudioConfig(int sampleRate, int channels, int frameMillis,
+                          int captureBufferMillis, int playbackBufferMillis) {
+
+    public static final int SAMPLE_SIZE_BITS = 16;
+    public static final int BYTES_PER_SAMPLE = SAMPLE_SIZE_BITS / 8;
+    /** Размер буфера линии не задаётся, линия открывается со своим */
+    public static final int LINE_DEFAULT = 0;
+    // Буфер по умолчанию у линий JDK (DirectAudioDevice) - для оценки задержки
+    private static final int LINE_DEFAULT_MILLIS = 500;
+
+    public AudioConfig {
+        if (sampleRate <= 0 || channels <= 0 || frameMillis <= 0) {
+            throw new IllegalArgumentException("Некорректные параметры аудио: "
+                    + sampleRate + "Hz, " + channels + " канал(ов), кадр " + frameMillis + "ms");
+        }
+        if (captureBufferMillis < frameMillis
+                || playbackBufferMillis != LINE_DEFAULT && playbackBufferMillis < frameMillis) {
+            throw new IllegalArgumentException("Буфер линии не может быть меньше кадра");
+        }
+    }
+
+    /**
+     * Конфигурация по умолчанию: 16kHz mono, профиль {@link LatencyProfile#SAFE}
+     */
+    public static AudioConfig defaults() {
+        return LatencyProfile.SAFE.toConfig();
+    }
+
+    /**
+     * Формат для javax.sound.sampled
+     */
+    public AudioFormat toAudioFormat() {
+        return new AudioFormat(sampleRate, SAMPLE_SIZE_BITS, channels, true, false);
+    }
+
+    /**
+     * Сэмплов (по всем каналам) за указанное время. Округляются вниз
+     * кадры сэмплов, а не сэмплы: у 22050Hz стерео за 10ms это 220 кадров
+     * (440 сэмплов), а не 441 сэмпл с разорванной парой каналов
+     */
+    public int samplesForMillis(int millis) {
+        return (int) ((long) sampleRate * millis / 1000) * channels;
+    }
+
+    /**
+     * Байт за указанное время (всегда целое число кадров сэмплов)
+     */
+    public int bytesForMillis(int millis) {
+        return samplesForMillis(millis) * BYTES_PER_SAMPLE;
+    }
+
+    public int frameSamples() {
+        return samplesForMillis(frameMillis);
+    }
+
+    public int frameBytes() {
+        return bytesForMillis(frameMillis);
+    }
+
+    public int captureBufferBytes() {
+        return bytesForMillis(captureBufferMillis);
+    }
+
+    public int playbackBufferBytes() {
+        return bytesForMillis(playbackBufferMillis);
+    }
+
+    /**
+     * Та же конфигурация с другим форматом
+     */
+    public AudioConfig withFormat(int sampleRate, int channels) {
+        return new AudioConfig(sampleRate, channels, frameMillis, captureBufferMillis, playbackBufferMillis);
+    }
+
+    /**
+     * Теоретическая задержка микрофон -> динамик без учёта обработки:
+     * кадр захвата + оба буфера линий
+     */
+    public int bufferedLatencyMillis() {
+        return frameMillis + captureBufferMillis
+                + (playbackBufferMillis == LINE_DEFAULT ? LINE_DEFAULT_MILLIS : playbackBufferMillis);
+    }
+}
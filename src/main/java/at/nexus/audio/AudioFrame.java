@@ -0,0 +1,68 @@
+package at.nexus.audio;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Переиспользуемый аудио кадр из {@link FramePool}.
+ *
+ * Буфер выделяется один раз при создании пула. Потребитель, получивший
+ * кадр, обязан вернуть его через {@link #release()} - после этого данные
+ * кадра могут быть перезаписаны захватом. Повторный {@link #release()}
+ * отдал бы один кадр двум владельцам, поэтому он бросает исключение.
+ */
+public final class AudioFrame {
+    private final FramePool pool;
+    private final byte[] data;
+    // Заполнен и ещё не возвращён в пул
+    private final AtomicBoolean inUse = new AtomicBoolean();
+    private int length;
+    private long timestampNanos;
+
+    AudioFrame(FramePool pool, int capacity) {
+        this.pool = pool;
+        this.data = new byte[capacity];
+    }
+
+    /**
+     * Буфер кадра (валидны только первые {@link #length()} байт)
+     */
+    public byte[] data() {
+        return data;
+    }
+
+    /**
+     * Количество валидных байт в кадре
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Момент захвата кадра ({@link System#nanoTime()})
+     */
+    public long timestampNanos() {
+        return timestampNanos;
+    }
+
+    /**
+     * Вернуть кадр в пул
+     * @throws IllegalStateException кадр уже возвращён
+     */
+    public void release() {
+        if (!inUse.compareAndSet(true, false)) {
+            throw new IllegalStateException("Кадр уже возвращён в пул");
+        }
+        pool.release(this);
+    }
+
+    void fill(int length, long timestampNanos) {
+        this.length = length;
+        this.timestampNanos = timestampNanos;
+        inUse.set(true);
+    }
+
+    void clear() {
+        length = 0;
+        timestampNanos = 0;
+    }
+}
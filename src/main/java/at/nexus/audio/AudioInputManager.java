@@ -1,65 +1,123 @@
 package at.nexus.audio;
 
+import at.nexus.audio.io.AudioSource;
+import at.nexus.audio.io.ClockMode;
+import at.nexus.audio.io.LineSource;
+import at.nexus.metrics.PipelineMetrics;
+import at.nexus.metrics.SampleTimeline;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import javax.sound.sampled.*;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import javax.sound.sampled.LineUnavailableException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Менеджер для захвата аудио с микрофона.
  *
  * Захватывает звук с микрофона в реальном времени и помещает
- * аудио данные в очередь для последующей обработки (STT, VAD).
+ * аудио данные в кольцевой буфер для последующей обработки (STT, VAD).
+ * Буфер ограничен: если потребитель зависнет, старые сэмплы
+ * выкидываются и учитываются в счётчиках переполнения.
  *
- * Формат: 16kHz, 16-bit, mono - стандарт для speech-to-text.
+ * Формат и размер кадра задаются {@link AudioConfig}; по умолчанию
+ * 16kHz, 16-bit, mono - стандарт для speech-to-text.
  * Работает в отдельном потоке для минимальной задержки.
+ *
+ * В режиме пула ({@link #enablePooledCapture(int)}) кадры берутся из
+ * {@link FramePool} и не аллоцируются на каждый чанк.
+ *
+ * Откуда берётся звук, решает {@link AudioSource}: по умолчанию микрофон,
+ * но можно подставить WAV файл или генератор. Источник без ожидания
+ * ({@link ClockMode#AS_FAST_AS_POSSIBLE}) не теряет данные: буфер
+ * в этом случае ждёт потребителя, а не выкидывает старое.
+ *
+ * Каждая запись в буфер помечается моментом захвата, поэтому
+ * {@link #readFrame} знает, сколько кадр пролежал в очереди.
+ * Задержки и потери пишутся в {@link PipelineMetrics}, если он задан.
+ *
+ * Через {@link #setTap} весь захваченный звук дублируется во второй
+ * буфер - например, для записи сессии на диск.
  */
 
 public class AudioInputManager {
     private static final Logger log = LoggerFactory.getLogger(AudioInputManager.class);
 
-    // Аудио параметры
-    private static final int SAMPLE_RATE = 16000; // 16kHz оптимально для речи
-    private static final int SAMPLE_SIZE_BITS = 16;
-    private static final int CHANNELS = 1; // mono
+    private static final int RING_MILLIS = 2000; // запас на отставание потребителя
+    private static final int TIMELINE_MARKS = 1024;
 
-    private TargetDataLine microphone;
-    private final BlockingQueue<byte[]> audioQueue;
+    private final AudioConfig config;
+    private final AudioSource source;
+    private final PcmRingBuffer ringBuffer;
+    private FramePool framePool; // null - запись в ringBuffer
     private volatile boolean isRecording;
+    private volatile boolean sourceEnded;
     private Thread recordingThread;
 
+    private final SampleTimeline timeline = new SampleTimeline(TIMELINE_MARKS);
+    private volatile PipelineMetrics metrics;
+    private long reportedOverruns;
+    private long reportedDroppedSamples;
+    private long reportedDroppedFrames;
+    private long lastFrameCaptureNanos;
+
+    // Копия всего прочитанного из источника (см. setTap)
+    private volatile PcmRingBuffer tap;
+    private final PcmReader tappedSource = this::readSource;
+
     public AudioInputManager() {
-        this.audioQueue = new LinkedBlockingQueue<>();
+        this(AudioConfig.defaults());
+    }
+
+    public AudioInputManager(AudioConfig config) {
+        this(config, new LineSource());
+    }
+
+    public AudioInputManager(AudioConfig config, AudioSource source) {
+        this.config = config;
+        this.source = source;
+        PcmRingBuffer.OverflowPolicy policy = source.getClockMode() == ClockMode.AS_FAST_AS_POSSIBLE
+                ? PcmRingBuffer.OverflowPolicy.BLOCK
+                : PcmRingBuffer.OverflowPolicy.DROP_OLDEST;
+        this.ringBuffer = new PcmRingBuffer(config.samplesForMillis(RING_MILLIS), policy);
         this.isRecording = false;
     }
 
     /**
-     * Инициализация микрофона
+     * Инициализация источника (микрофона)
      */
     public void initialize() throws LineUnavailableException {
-        AudioFormat format = new AudioFormat(
-                SAMPLE_RATE,
-                SAMPLE_SIZE_BITS,
-                CHANNELS,
-                true, // signed
-                false // little endian
-        );
-
-        DataLine.Info info = new DataLine.Info(TargetDataLine.class, format);
-
-        if (!AudioSystem.isLineSupported(info)) {
-            throw new LineUnavailableException("Микрофон не поддерживается");
-        }
+        source.open(config);
+    }
 
-        microphone = (TargetDataLine) AudioSystem.getLine(info);
+    /**
+     * Включить захват через пул переиспользуемых кадров.
+     * Вызывается до {@link #startRecording()}; кадры читаются из {@link #getFramePool()}.
+     */
+    public void enablePooledCapture(int frameCount) {
+        if (isRecording) {
+            throw new IllegalStateException("Нельзя сменить режим во время записи");
+        }
+        framePool = new FramePool(frameCount, config.frameBytes());
+        log.info("Захват через пул: {} кадров по {} байт", frameCount, config.frameBytes());
+    }
 
-        // ИСПРАВЛЕНО: Увеличен буфер до 1 секунды для стабильности
-        int bufferSize = SAMPLE_RATE * SAMPLE_SIZE_BITS * CHANNELS / 8; // 1 секунда
-        microphone.open(format, bufferSize);
+    /**
+     * Писать задержки захвата и потери в {@code metrics} (null - не писать)
+     */
+    public void setMetrics(PipelineMetrics metrics) {
+        this.metrics = metrics;
+        if (metrics != null) {
+            metrics.gauge(PipelineMetrics.Gauge.CAPTURE_QUEUE_MILLIS,
+                    () -> ringBuffer.available() * 1000L / ((long) config.sampleRate() * config.channels()));
+        }
+    }
 
-        log.info("Микрофон инициализирован: {}Hz, {} бит, {} канал(ов), буфер {} байт",
-                SAMPLE_RATE, SAMPLE_SIZE_BITS, CHANNELS, bufferSize);
+    /**
+     * Дублировать захваченный звук в {@code tap} (null - отключить).
+     * Запись в него не должна ждать: буфер с политикой BLOCK
+     * остановит захват, пока его не прочитают.
+     */
+    public void setTap(PcmRingBuffer tap) {
+        this.tap = tap;
     }
 
     /**
@@ -72,7 +130,8 @@ public class AudioInputManager {
         }
 
         isRecording = true;
-        microphone.start();
+        sourceEnded = false;
+        source.start();
 
         recordingThread = new Thread(this::recordingLoop, "AudioInput-Thread");
         recordingThread.start();
@@ -91,6 +150,8 @@ public class AudioInputManager {
         isRecording = false;
 
         if (recordingThread != null) {
+            // Будим поток, если он ждёт места в буфере (источник без ожидания)
+            recordingThread.interrupt();
             try {
                 recordingThread.join(1000);
             } catch (InterruptedException e) {
@@ -98,54 +159,163 @@ public class AudioInputManager {
             }
         }
 
-        microphone.stop();
+        source.stop();
         log.info("Запись остановлена");
     }
 
     /**
-     * Закрыть микрофон
+     * Закрыть источник (микрофон)
      */
     public void close() {
         stopRecording();
-        if (microphone != null) {
-            microphone.close();
-            log.info("Микрофон закрыт");
+        source.close();
+    }
+
+    /**
+     * Источник закончился (конец файла); всё прочитанное уже в буфере
+     */
+    public boolean isSourceEnded() {
+        return sourceEnded;
+    }
+
+    /**
+     * Забрать кадр из буфера захвата, ожидая его не дольше {@code timeout}.
+     * Время в очереди пишется в метрики, момент захвата доступен через
+     * {@link #getLastFrameCaptureNanos()}. Только из потока-потребителя.
+     * @return количество сэмплов или 0, если кадр не набрался
+     */
+    public int readFrame(short[] frame, int offset, int length, long timeout, TimeUnit unit)
+            throws InterruptedException {
+        if (!ringBuffer.awaitAvailable(length, timeout, unit)) {
+            return 0;
         }
+        int count = ringBuffer.read(frame, offset, length);
+        long capturedAt = timeline.timeOf(ringBuffer.getReadPosition());
+        lastFrameCaptureNanos = capturedAt;
+        PipelineMetrics m = metrics;
+        if (m != null && capturedAt != 0) {
+            m.record(PipelineMetrics.Stage.CAPTURE_QUEUE, System.nanoTime() - capturedAt);
+        }
+        return count;
     }
 
     /**
-     * Получить очередь аудио данных
+     * Момент захвата последнего сэмпла кадра из {@link #readFrame}
+     * ({@link System#nanoTime()}), 0 если неизвестен
      */
-    public BlockingQueue<byte[]> getAudioQueue() {
-        return audioQueue;
+    public long getLastFrameCaptureNanos() {
+        return lastFrameCaptureNanos;
+    }
+
+    /**
+     * Получить кольцевой буфер захваченных сэмплов
+     */
+    public PcmRingBuffer getRingBuffer() {
+        return ringBuffer;
+    }
+
+    /**
+     * Получить пул кадров (null, если режим пула не включён)
+     */
+    public FramePool getFramePool() {
+        return framePool;
+    }
+
+    public AudioConfig getConfig() {
+        return config;
+    }
+
+    public AudioSource getSource() {
+        return source;
     }
 
     /**
      * Основной цикл записи
      */
     private void recordingLoop() {
-        // ИСПРАВЛЕНО: Читаем порциями по 100ms для плавности
-        int chunkSize = SAMPLE_RATE * SAMPLE_SIZE_BITS * CHANNELS / 8 / 10; // 100ms
-        byte[] buffer = new byte[chunkSize];
+        if (framePool != null) {
+            pooledRecordingLoop();
+            return;
+        }
 
-        log.info("Цикл записи запущен (размер чанка: {} байт)", chunkSize);
+        // Читаем порциями по длительности кадра из профиля
+        byte[] buffer = new byte[config.frameBytes()];
+
+        log.info("Цикл записи запущен (размер чанка: {} байт, {}ms)", buffer.length, config.frameMillis());
 
         while (isRecording) {
-            int bytesRead = microphone.read(buffer, 0, buffer.length);
+            long readStart = System.nanoTime();
+            int bytesRead = readSource(buffer, 0, buffer.length);
+            long capturedAt = System.nanoTime();
 
             if (bytesRead > 0) {
-                byte[] audioData = new byte[bytesRead];
-                System.arraycopy(buffer, 0, audioData, 0, bytesRead);
-
-                try {
-                    audioQueue.put(audioData);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    break;
-                }
+                // Метка раньше данных: потребитель не должен увидеть сэмплы без неё
+                timeline.mark(ringBuffer.getWritePosition() + bytesRead / AudioConfig.BYTES_PER_SAMPLE, capturedAt);
+                ringBuffer.writeBytes(buffer, 0, bytesRead);
+                reportCapture(capturedAt - readStart);
+            } else if (bytesRead == AudioSource.END_OF_STREAM) {
+                sourceEnded = true;
+                log.info("Источник закончился");
+                break;
+            }
+        }
+
+        log.info("Цикл записи завершён, переполнений буфера: {} ({} сэмплов потеряно)",
+                ringBuffer.getOverruns(), ringBuffer.getDroppedSamples());
+    }
+
+    /**
+     * Цикл записи через пул: кадры переиспользуются, аллокаций на чанк нет
+     */
+    private void pooledRecordingLoop() {
+        log.info("Цикл записи (пул) запущен (размер чанка: {} байт)", framePool.getFrameSize());
+
+        while (isRecording) {
+            long readStart = System.nanoTime();
+            int result = framePool.capture(tappedSource);
+            reportCapture(System.nanoTime() - readStart);
+            if (result == AudioSource.END_OF_STREAM) {
+                sourceEnded = true;
+                log.info("Источник закончился");
+                break;
             }
         }
 
-        log.info("Цикл записи завершён");
+        log.info("Цикл записи (пул) завершён, потеряно кадров: {}", framePool.getDroppedFrames());
+    }
+
+    /**
+     * Чтение источника с копией в tap
+     */
+    private int readSource(byte[] buffer, int offset, int length) {
+        int bytesRead = source.read(buffer, offset, length);
+        PcmRingBuffer t = tap;
+        if (t != null && bytesRead > 0) {
+            t.writeBytes(buffer, offset, bytesRead);
+        }
+        return bytesRead;
+    }
+
+    /**
+     * Время чтения источника и новые потери с прошлого раза
+     */
+    private void reportCapture(long readNanos) {
+        PipelineMetrics m = metrics;
+        if (m == null) {
+            return;
+        }
+        m.record(PipelineMetrics.Stage.CAPTURE_READ, readNanos);
+
+        long overruns = ringBuffer.getOverruns();
+        long dropped = ringBuffer.getDroppedSamples();
+        m.add(PipelineMetrics.Counter.CAPTURE_OVERRUNS, overruns - reportedOverruns);
+        m.add(PipelineMetrics.Counter.CAPTURE_DROPPED_SAMPLES, dropped - reportedDroppedSamples);
+        reportedOverruns = overruns;
+        reportedDroppedSamples = dropped;
+        if (framePool != null) {
+            long frames = framePool.getDroppedFrames();
+            m.add(PipelineMetrics.Counter.DROPPED_FRAMES, frames - reportedDroppedFrames);
+            reportedDroppedFrames = frames;
+        }
     }
 }
\ No newline at end of file
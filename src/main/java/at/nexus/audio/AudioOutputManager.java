@@ -1,61 +1,116 @@
 package at.nexus.audio;
 
+import at.nexus.audio.drift.DriftCompensator;
+import at.nexus.audio.drift.DriftConfig;
+import at.nexus.audio.io.AudioSink;
+import at.nexus.audio.io.LineSink;
+import at.nexus.audio.mix.MixerConfig;
+import at.nexus.audio.mix.MixerStream;
+import at.nexus.audio.mix.OutputMixer;
+import at.nexus.audio.mix.StreamPriority;
+import at.nexus.dsp.PcmOps;
+import at.nexus.metrics.PipelineMetrics;
+import at.nexus.metrics.SampleTimeline;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.sound.sampled.*;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import javax.sound.sampled.LineUnavailableException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Менеджер для воспроизведения аудио через динамики.
  * 
- * Принимает аудио данные в очередь и воспроизводит их
+ * Принимает аудио данные в кольцевой буфер и воспроизводит их
  * в отдельном потоке. Используется для озвучки ответов AI (TTS).
+ * Буфер ограничен: если он заполнен, запись ждёт освобождения места.
  * 
  * Поддерживает остановку воспроизведения и очистку очереди.
+ * Формат, размер чанка и буфер линии задаются {@link AudioConfig}.
+ *
+ * Для перебивания (barge-in) есть {@link #interrupt()}: текущий звук
+ * обрывается в пределах одного чанка, очередь выкидывается, а линия
+ * остаётся открытой и сразу готова к новому ответу.
+ *
+ * Куда уходит звук, решает {@link AudioSink}: по умолчанию динамики,
+ * но можно подставить заглушку или виртуальный вывод.
+ *
+ * Всё, что звучит, смешивается {@link OutputMixer}: очередь, потоковый
+ * TTS ({@link #play(JitterBuffer)}) и короткие сигналы
+ * ({@link #play(short[], StreamPriority)}) играют одновременно, фон
+ * приглушается под речью. Кадр собирается из того, что есть к его
+ * началу; когда всё молчит, цикл проверяет новые потоки каждые
+ * {@value #IDLE_WAIT_MILLIS} ms, а запись в очередь будит его сразу.
+ *
+ * Если очередь непрерывно пишет поток с другими часами (захват без
+ * пауз), её задержку держит постоянной {@link #setDriftCompensation}.
+ *
+ * Время в очереди, блокировку записи в приёмник и недогрузы можно
+ * писать в {@link PipelineMetrics} ({@link #setMetrics}).
  */
 public class AudioOutputManager {
     private static final Logger log = LoggerFactory.getLogger(AudioOutputManager.class);
     
-    // Аудио параметры (совпадают с input для совместимости)
-    private static final int SAMPLE_RATE = 16000;
-    private static final int SAMPLE_SIZE_BITS = 16;
-    private static final int CHANNELS = 1;
+    private static final int RING_MILLIS = 4000; // запас под ответ TTS
+    private static final int TIMELINE_MARKS = 1024;
+    private static final int IDLE_WAIT_MILLIS = 5;
     
-    private SourceDataLine speaker;
-    private final BlockingQueue<byte[]> audioQueue;
+    private final AudioConfig config;
+    private final AudioSink sink;
+    private final PcmRingBuffer ringBuffer;
+    private final OutputMixer mixer;
     private volatile boolean isPlaying;
     private Thread playbackThread;
     
+    // Увеличивается при каждом interrupt(): речь, прочитанная до
+    // перебивания, не должна попасть в линию
+    private volatile long interruptGeneration;
+    private volatile long lastInterruptNanos;
+    
+    // Копия всего, что ушло в динамики - опорный сигнал для эхоподавления
+    private volatile PcmRingBuffer echoReference;
+    
+    // Текущий потоковый ответ (см. play)
+    private volatile JitterBuffer stream;
+    
+    // Подстройка очереди под часы производителя, null - читать как есть
+    private volatile DriftCompensator drift;
+    
+    // Момент постановки в очередь по позиции в ringBuffer
+    private final SampleTimeline timeline = new SampleTimeline(TIMELINE_MARKS);
+    private volatile PipelineMetrics metrics;
+    
     public AudioOutputManager() {
-        this.audioQueue = new LinkedBlockingQueue<>();
+        this(AudioConfig.defaults());
+    }
+    
+    public AudioOutputManager(AudioConfig config) {
+        this(config, new LineSink());
+    }
+    
+    public AudioOutputManager(AudioConfig config, AudioSink sink) {
+        this.config = config;
+        this.sink = sink;
+        this.ringBuffer = new PcmRingBuffer(config.samplesForMillis(RING_MILLIS),
+                PcmRingBuffer.OverflowPolicy.BLOCK);
+        this.mixer = new OutputMixer(config, MixerConfig.defaults());
+        // Очередь - постоянный поток микшера, на уровне речи
+        mixer.add(new QueueStream());
         this.isPlaying = false;
     }
     
     /**
-     * Инициализация динамиков
+     * Воспроизведение в виртуальный вывод вместо динамиков
+     * ({@link #initialize()} в этом случае не нужен)
+     */
+    public AudioOutputManager(AudioConfig config, PcmWriter virtualOutput) {
+        this(config, (AudioSink) virtualOutput::write);
+    }
+    
+    /**
+     * Инициализация приёмника (динамиков)
      */
     public void initialize() throws LineUnavailableException {
-        AudioFormat format = new AudioFormat(
-            SAMPLE_RATE,
-            SAMPLE_SIZE_BITS,
-            CHANNELS,
-            true,
-            false
-        );
-        
-        DataLine.Info info = new DataLine.Info(SourceDataLine.class, format);
-        
-        if (!AudioSystem.isLineSupported(info)) {
-            throw new LineUnavailableException("Динамики не поддерживаются");
-        }
-        
-        speaker = (SourceDataLine) AudioSystem.getLine(info);
-        speaker.open(format);
-        
-        log.info("Динамики инициализированы: {}Hz, {} бит, {} канал(ов)", 
-                 SAMPLE_RATE, SAMPLE_SIZE_BITS, CHANNELS);
+        sink.open(config);
     }
     
     /**
@@ -68,7 +123,7 @@ public class AudioOutputManager {
         }
         
         isPlaying = true;
-        speaker.start();
+        sink.start();
         
         playbackThread = new Thread(this::playbackLoop, "AudioOutput-Thread");
         playbackThread.start();
@@ -94,50 +149,181 @@ public class AudioOutputManager {
             }
         }
         
-        speaker.stop();
-        speaker.flush(); // Очищаем буфер
-        audioQueue.clear(); // Очищаем очередь
+        sink.stop();
+        sink.flush(); // Очищаем буфер
+        mixer.cancelAll(); // Очередь и все потоки
+        stream = null;
         
         log.info("Воспроизведение остановлено");
     }
     
     /**
-     * Закрыть динамики
+     * Перебить текущий ответ: выкинуть очередь, речь и звук в буфере линии.
+     * Фон и сигналы в микшере остаются. Воспроизведение продолжает
+     * работать, новые данные играют сразу.
+     *
+     * @return сколько сэмплов из очереди было выкинуто
+     */
+    public int interrupt() {
+        interruptGeneration++;
+        lastInterruptNanos = System.nanoTime();
+        
+        int discarded = mixer.cancel(StreamPriority.SPEECH);
+        // Приёмник не останавливается - только сбрасывает накопленное
+        sink.flush();
+        
+        PipelineMetrics m = metrics;
+        if (m != null) {
+            m.add(PipelineMetrics.Counter.PLAYBACK_DISCARDED_SAMPLES, discarded);
+        }
+        log.info("Воспроизведение перебито, выкинуто {} ms звука",
+                discarded * 1000L / ((long) config.sampleRate() * config.channels()));
+        return discarded;
+    }
+    
+    /**
+     * Играть потоковый ответ. Предыдущий поток, если он ещё звучит,
+     * отменяется; очередь {@link #enqueueAudio} звучит вместе с ним.
+     */
+    public void play(JitterBuffer jitterBuffer) {
+        if (jitterBuffer.getConfig().sampleRate() != config.sampleRate()
+                || jitterBuffer.getConfig().channels() != config.channels()) {
+            throw new IllegalArgumentException("Формат потока не совпадает с выводом: "
+                    + jitterBuffer.getConfig() + " vs " + config);
+        }
+        JitterBuffer previous = stream;
+        stream = jitterBuffer;
+        if (previous != null) {
+            previous.cancel();
+        }
+        mixer.add(MixerStream.of(jitterBuffer, StreamPriority.SPEECH));
+    }
+    
+    /**
+     * Сыграть готовый звук (например, {@link at.nexus.audio.mix.Earcons})
+     * поверх всего остального, не дожидаясь очереди
+     * @return поток в микшере (громкость, отмена)
+     */
+    public MixerStream play(short[] clip, StreamPriority priority) {
+        MixerStream mixerStream = MixerStream.of(clip, priority);
+        mixer.add(mixerStream);
+        return mixerStream;
+    }
+    
+    /**
+     * Добавить свой поток в микшер
+     */
+    public void play(MixerStream mixerStream) {
+        mixer.add(mixerStream);
+    }
+    
+    /**
+     * Подстраивать очередь {@link #enqueueAudio} под часы того, кто в неё
+     * пишет: задержка очереди держится на {@link DriftConfig#targetMillis()},
+     * очередь не растёт и не пустеет от расхождения кварцев. Звук очереди
+     * начинает играть, набрав этот запас. null - читать как есть.
+     */
+    public void setDriftCompensation(DriftConfig driftConfig) {
+        drift = driftConfig != null ? new DriftCompensator(config, driftConfig, ringBuffer) : null;
+    }
+    
+    /**
+     * @return null, если подстройка выключена
+     */
+    public DriftCompensator getDriftCompensator() {
+        return drift;
+    }
+    
+    /**
+     * Писать задержки вывода и недогрузы в {@code metrics} (null - не писать)
+     */
+    public void setMetrics(PipelineMetrics metrics) {
+        this.metrics = metrics;
+        if (metrics != null) {
+            metrics.gauge(PipelineMetrics.Gauge.PLAYBACK_QUEUE_MILLIS, () -> {
+                JitterBuffer current = stream;
+                long samples = ringBuffer.available() + (current != null ? current.getBufferedSamples() : 0);
+                return samples * 1000L / ((long) config.sampleRate() * config.channels());
+            });
+            metrics.gauge(PipelineMetrics.Gauge.PLAYBACK_DRIFT_PPM, () -> {
+                DriftCompensator compensator = drift;
+                return compensator != null ? Math.round(compensator.getDriftPpm()) : 0;
+            });
+        }
+    }
+    
+    /**
+     * Дублировать воспроизводимый звук в буфер опорного сигнала AEC.
+     * Буфер читает поток захвата; при его отставании старое выкидывается.
+     */
+    public void setEchoReference(PcmRingBuffer reference) {
+        this.echoReference = reference;
+    }
+    
+    /**
+     * Момент последнего {@link #interrupt()} ({@link System#nanoTime()}), 0 если не было
+     */
+    public long getLastInterruptNanos() {
+        return lastInterruptNanos;
+    }
+    
+    /**
+     * Закрыть приёмник (динамики)
      */
     public void close() {
         stopPlayback();
-        if (speaker != null) {
-            speaker.close();
-            log.info("Динамики закрыты");
-        }
+        sink.close();
     }
     
     /**
      * Добавить аудио данные в очередь для воспроизведения
+     * (ждёт, если буфер заполнен)
      */
     public void enqueueAudio(byte[] audioData) {
         if (audioData != null && audioData.length > 0) {
-            try {
-                audioQueue.put(audioData);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                log.error("Ошибка добавления в очередь", e);
+            // Метка раньше данных: цикл воспроизведения не должен увидеть сэмплы без неё
+            timeline.mark(ringBuffer.getWritePosition() + audioData.length / AudioConfig.BYTES_PER_SAMPLE,
+                    System.nanoTime());
+            int written = ringBuffer.writeBytes(audioData, 0, audioData.length);
+            if (written < audioData.length - 1) {
+                log.error("Добавление в очередь прервано: записано {} из {} байт", written, audioData.length);
             }
         }
     }
     
     /**
-     * Получить очередь аудио данных (для прямой записи)
+     * Добавить сэмплы в очередь для воспроизведения (ждёт, если буфер заполнен)
+     */
+    public void enqueueAudio(short[] samples, int offset, int length) {
+        timeline.mark(ringBuffer.getWritePosition() + length, System.nanoTime());
+        ringBuffer.write(samples, offset, length);
+    }
+    
+    /**
+     * Получить кольцевой буфер воспроизведения (для прямой записи сэмплов)
      */
-    public BlockingQueue<byte[]> getAudioQueue() {
-        return audioQueue;
+    public PcmRingBuffer getRingBuffer() {
+        return ringBuffer;
+    }
+    
+    public AudioConfig getConfig() {
+        return config;
+    }
+    
+    public AudioSink getSink() {
+        return sink;
+    }
+    
+    public OutputMixer getMixer() {
+        return mixer;
     }
     
     /**
      * Проверить играет ли что-то сейчас
      */
     public boolean isPlaying() {
-        return isPlaying && !audioQueue.isEmpty();
+        // Очередь - постоянный поток микшера, кроме неё звучит что-то ещё
+        return isPlaying && (ringBuffer.available() > 0 || mixer.getStreamCount() > 1);
     }
     
     /**
@@ -145,15 +331,41 @@ public class AudioOutputManager {
      */
     private void playbackLoop() {
         log.info("Цикл воспроизведения запущен");
+        short[] mixed = new short[config.frameSamples()];
+        byte[] chunk = new byte[config.frameBytes()];
         
         while (isPlaying) {
             try {
-                // Берём данные из очереди (ждём если пусто)
-                byte[] audioData = audioQueue.poll(100, java.util.concurrent.TimeUnit.MILLISECONDS);
+                long generation = interruptGeneration;
+                long queueRead = ringBuffer.getReadPosition();
+                JitterBuffer current = stream;
+                int underruns = current != null ? current.getUnderruns() : 0;
+                int samples = mixer.render(mixed);
+                if (current != null) {
+                    reportUnderruns(current.getUnderruns() - underruns);
+                }
+                if (samples == 0) {
+                    // Тишина: ждём очередь, но недолго - могли добавить поток
+                    ringBuffer.awaitAvailable(1, IDLE_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+                    continue;
+                }
                 
-                if (audioData != null) {
-                    speaker.write(audioData, 0, audioData.length);
+                long readPosition = ringBuffer.getReadPosition();
+                PipelineMetrics m = metrics;
+                if (m != null && readPosition != queueRead) {
+                    long queuedAt = timeline.timeOf(readPosition);
+                    if (queuedAt != 0) {
+                        m.record(PipelineMetrics.Stage.PLAYBACK_QUEUE, System.nanoTime() - queuedAt);
+                    }
+                }
+                // Перебили между смешиванием и записью: речь из кадра убрать,
+                // а сигналы и фон уже продвинулись на кадр - их доиграть
+                if (generation != interruptGeneration
+                        && (samples = mixer.remix(mixed, StreamPriority.SPEECH)) == 0) {
+                    continue;
                 }
+                PcmOps.toBytes(mixed, 0, chunk, 0, samples);
+                output(chunk, samples * AudioConfig.BYTES_PER_SAMPLE);
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
                 break;
@@ -162,4 +374,57 @@ public class AudioOutputManager {
         
         log.info("Цикл воспроизведения завершён");
     }
-}
\ No newline at end of file
+    
+    private void output(byte[] chunk, int bytes) {
+        long start = System.nanoTime();
+        sink.write(chunk, 0, bytes);
+        PipelineMetrics m = metrics;
+        if (m != null) {
+            m.record(PipelineMetrics.Stage.PLAYBACK_WRITE, System.nanoTime() - start);
+        }
+        
+        PcmRingBuffer reference = echoReference;
+        if (reference != null) {
+            reference.writeBytes(chunk, 0, bytes);
+        }
+    }
+    
+    private void reportUnderruns(int underruns) {
+        PipelineMetrics m = metrics;
+        if (m != null) {
+            m.add(PipelineMetrics.Counter.PLAYBACK_UNDERRUNS, underruns);
+        }
+    }
+    
+    /**
+     * Очередь в микшере: напрямую или через подстройку часов
+     */
+    private final class QueueStream extends MixerStream {
+        
+        QueueStream() {
+            super(StreamPriority.SPEECH);
+        }
+        
+        @Override
+        public int read(short[] dst, int offset, int length) {
+            DriftCompensator compensator = drift;
+            return compensator != null ? compensator.read(dst, offset, length) : ringBuffer.read(dst, offset, length);
+        }
+        
+        @Override
+        public int cancel() {
+            DriftCompensator compensator = drift;
+            return compensator != null ? compensator.clear() : ringBuffer.clear();
+        }
+        
+        @Override
+        protected boolean isPersistent() {
+            return true;
+        }
+        
+        @Override
+        public String toString() {
+            return "queue/" + getPriority();
+        }
+    }
+}
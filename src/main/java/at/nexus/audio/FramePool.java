@@ -0,0 +1,243 @@
+package at.nexus.audio;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Фиксированный пул аудио кадров для захвата без аллокаций.
+ *
+ * Все кадры создаются в конструкторе. Производитель берёт свободный кадр
+ * ({@link #acquire()}), заполняет его и публикует ({@link #publish(AudioFrame)}),
+ * потребитель забирает готовый кадр ({@link #take()}/{@link #poll()})
+ * и возвращает его через {@link AudioFrame#release()}.
+ *
+ * Очереди свободных и готовых кадров - lock-free массивы фиксированного
+ * размера, поэтому в установившемся режиме не создаётся ни буферов,
+ * ни узлов очереди. Если потребитель отстаёт, самый старый готовый кадр
+ * переиспользуется под новые данные (см. {@link #getDroppedFrames()}).
+ */
+public class FramePool {
+
+    // Максимальное время сна потребителя между проверками очереди
+    private static final long PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final int frameSize;
+    private final int frameCount;
+    private final FrameRing free;
+    private final FrameRing ready;
+    // Сюда читаются данные, если все кадры на руках у потребителя
+    private final byte[] overflowBuffer;
+    private final AtomicLong droppedFrames = new AtomicLong();
+    private volatile Thread waiter;
+
+    public FramePool(int frameCount, int frameSize) {
+        if (frameCount <= 0 || frameSize <= 0) {
+            throw new IllegalArgumentException("Размер пула и кадра должны быть положительными");
+        }
+        this.frameSize = frameSize;
+        this.frameCount = frameCount;
+        this.free = new FrameRing(frameCount);
+        this.ready = new FrameRing(frameCount);
+        this.overflowBuffer = new byte[frameSize];
+
+        for (int i = 0; i < frameCount; i++) {
+            free.offer(new AudioFrame(this, frameSize));
+        }
+    }
+
+    /**
+     * Взять пустой кадр для заполнения.
+     * Если свободных нет, переиспользуется самый старый неразобранный кадр.
+     *
+     * @return кадр или null, если все кадры удерживает потребитель
+     */
+    public AudioFrame acquire() {
+        AudioFrame frame = free.poll();
+        if (frame == null) {
+            frame = ready.poll();
+            if (frame != null) {
+                droppedFrames.incrementAndGet();
+            }
+        }
+        return frame;
+    }
+
+    /**
+     * Опубликовать заполненный кадр для потребителя
+     */
+    public void publish(AudioFrame frame) {
+        ready.offer(frame);
+        Thread w = waiter;
+        if (w != null) {
+            LockSupport.unpark(w);
+        }
+    }
+
+    /**
+     * Один шаг захвата: взять кадр, прочитать в него данные и опубликовать.
+     *
+     * @return количество прочитанных байт
+     */
+    public int capture(PcmReader reader) {
+        AudioFrame frame = acquire();
+        if (frame == null) {
+            // Потребитель держит все кадры - вычитываем источник вхолостую,
+            // чтобы не переполнить буфер устройства
+            droppedFrames.incrementAndGet();
+            return reader.read(overflowBuffer, 0, frameSize);
+        }
+
+        int bytesRead = reader.read(frame.data(), 0, frameSize);
+        if (bytesRead <= 0) {
+            release(frame);
+            return bytesRead;
+        }
+
+        frame.fill(bytesRead, System.nanoTime());
+        publish(frame);
+        return bytesRead;
+    }
+
+    /**
+     * Забрать готовый кадр без ожидания
+     * @return кадр или null, если очередь пуста
+     */
+    public AudioFrame poll() {
+        return ready.poll();
+    }
+
+    /**
+     * Забрать готовый кадр, ожидая не дольше указанного времени
+     * @return кадр или null по таймауту
+     */
+    public AudioFrame poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        AudioFrame frame;
+        while ((frame = ready.poll()) == null) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return null;
+            }
+            park(Math.min(remaining, PARK_NANOS));
+        }
+        return frame;
+    }
+
+    /**
+     * Забрать готовый кадр (ждём если пусто)
+     */
+    public AudioFrame take() throws InterruptedException {
+        AudioFrame frame;
+        while ((frame = ready.poll()) == null) {
+            park(PARK_NANOS);
+        }
+        return frame;
+    }
+
+    /**
+     * Количество кадров, ожидающих потребителя
+     */
+    public int readyCount() {
+        return ready.size();
+    }
+
+    /**
+     * Количество кадров, потерянных из-за отставания потребителя
+     */
+    public long getDroppedFrames() {
+        return droppedFrames.get();
+    }
+
+    public int getFrameSize() {
+        return frameSize;
+    }
+
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    void release(AudioFrame frame) {
+        frame.clear();
+        free.offer(frame);
+    }
+
+    private void park(long nanos) throws InterruptedException {
+        waiter = Thread.currentThread();
+        if (ready.size() == 0) {
+            LockSupport.parkNanos(this, nanos);
+        }
+        waiter = null;
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+    }
+
+    /**
+     * Ограниченная lock-free очередь кадров (алгоритм Вьюкова).
+     * Ёмкость округляется до степени двойки, ничего не аллоцирует после создания.
+     */
+    private static final class FrameRing {
+        private final AudioFrame[] slots;
+        private final AtomicLongArray sequences;
+        private final int mask;
+        private final AtomicLong head = new AtomicLong();
+        private final AtomicLong tail = new AtomicLong();
+
+        FrameRing(int minCapacity) {
+            int capacity = Integer.highestOneBit(Math.max(2, minCapacity - 1)) << 1;
+            this.slots = new AudioFrame[capacity];
+            this.sequences = new AtomicLongArray(capacity);
+            this.mask = capacity - 1;
+            for (int i = 0; i < capacity; i++) {
+                sequences.set(i, i);
+            }
+        }
+
+        boolean offer(AudioFrame frame) {
+            long pos = tail.get();
+            while (true) {
+                int index = (int) (pos & mask);
+                long diff = sequences.getAcquire(index) - pos;
+                if (diff == 0) {
+                    if (tail.compareAndSet(pos, pos + 1)) {
+                        slots[index] = frame;
+                        sequences.setRelease(index, pos + 1);
+                        return true;
+                    }
+                    pos = tail.get();
+                } else if (diff < 0) {
+                    return false; // очередь заполнена
+                } else {
+                    pos = tail.get();
+                }
+            }
+        }
+
+        AudioFrame poll() {
+            long pos = head.get();
+            while (true) {
+                int index = (int) (pos & mask);
+                long diff = sequences.getAcquire(index) - (pos + 1);
+                if (diff == 0) {
+                    if (head.compareAndSet(pos, pos + 1)) {
+                        AudioFrame frame = slots[index];
+                        slots[index] = null;
+                        sequences.setRelease(index, pos + mask + 1);
+                        return frame;
+                    }
+                    pos = head.get();
+                } else if (diff < 0) {
+                    return null; // очередь пуста
+                } else {
+                    pos = head.get();
+                }
+            }
+        }
+
+        int size() {
+            return (int) Math.max(0, tail.get() - head.get());
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package at.nexus.audio;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Адаптивный буфер воспроизведения для звука, который приходит
+ * по сети неровными пачками (потоковый TTS).
+ *
+ * Производитель (сетевой поток) пишет PCM по мере декодирования,
+ * потребитель (цикл воспроизведения) забирает целые чанки через
+ * {@link #read}. Буфер работает в двух состояниях:
+ * <ul>
+ *   <li>накопление - звук не отдаётся, пока не набран целевой запас
+ *       (или поток не закончился);</li>
+ *   <li>воспроизведение - отдаются целые чанки; если очередного чанка
+ *       нет, а поток не закончен, это недогруз: счётчик растёт, запас
+ *       увеличивается, буфер снова копит.</li>
+ * </ul>
+ *
+ * Целевой запас: минимальный плюс двойной джиттер прихода данных
+ * (оценка как в RFC 3550 - насколько пачки опаздывают относительно
+ * длительности предыдущей), после недогруза - в полтора раза больше.
+ * Без недогрузов запас медленно возвращается к расчётному.
+ *
+ * Если буфер заполнен, запись ждёт - это даёт обратное давление на сеть.
+ * Один производитель и один потребитель; {@link #cancel()} - из любого потока.
+ */
+public class JitterBuffer implements PcmWriter {
+
+    /** {@link #read} больше ничего не вернёт: поток доигран или отменён */
+    public static final int END = -1;
+
+    // Сглаживание оценки джиттера, как в RFC 3550
+    private static final double JITTER_GAIN = 1.0 / 16;
+    // Во сколько раз растёт запас после недогруза
+    private static final double UNDERRUN_BOOST = 1.5;
+    // На сколько уменьшается запас за секунду воспроизведения без недогрузов
+    private static final double DECAY_PER_SECOND = 0.9;
+    // Записи ближе этого считаются одной пачкой
+    private static final long SAME_ARRIVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+
+    /**
+     * События потока для метрик
+     */
+    public interface Listener {
+
+        /**
+         * Зазвучал первый чанк
+         * @param bufferingNanos от первых данных до начала воспроизведения
+         */
+        default void onFirstAudio(long bufferingNanos) {
+        }
+
+        /**
+         * Данные кончились посреди воспроизведения
+         */
+        default void onUnderrun(int targetLeadMillis) {
+        }
+
+        /**
+         * Поток доигран до конца или отменён
+         */
+        default void onFinished(JitterBuffer buffer, boolean cancelled) {
+        }
+    }
+
+    private static final Listener NO_LISTENER = new Listener() {
+    };
+
+    private final AudioConfig config;
+    private final PcmRingBuffer buffer;
+    private final int minLead;
+    private final int maxLead;
+    private final int writePiece;
+    private final Listener listener;
+
+    // Производитель
+    private long firstArrivalNanos;
+    private long lastArrivalNanos;
+    private long lastChunkNanos;
+    private volatile double jitterNanos;
+    private volatile boolean ended;
+    private volatile boolean cancelled;
+
+    // Потребитель
+    private volatile int targetLead;
+    private boolean playing;
+    private boolean finished;
+    private long firstAudioNanos;
+    private long rebufferStartNanos;
+    private long rebufferNanos;
+    private long playedSamples;
+    private long stableSamples;
+    private volatile int underruns;
+
+    /**
+     * @param minLeadMillis  запас перед стартом при ровной сети
+     * @param maxLeadMillis  предел адаптивного запаса
+     * @param capacityMillis ёмкость буфера (сколько можно принять впрок)
+     */
+    public JitterBuffer(AudioConfig config, int minLeadMillis, int maxLeadMillis, int capacityMillis,
+                        Listener listener) {
+        if (minLeadMillis < 0 || maxLeadMillis < minLeadMillis || capacityMillis < maxLeadMillis) {
+            throw new IllegalArgumentException("Нужно 0 <= minLead <= maxLead <= capacity, получено "
+                    + minLeadMillis + "/" + maxLeadMillis + "/" + capacityMillis);
+        }
+        this.config = config;
+        this.buffer = new PcmRingBuffer(Math.max(config.samplesForMillis(capacityMillis), config.frameSamples() * 2),
+                PcmRingBuffer.OverflowPolicy.BLOCK);
+        this.minLead = config.samplesForMillis(minLeadMillis);
+        this.maxLead = config.samplesForMillis(maxLeadMillis);
+        this.writePiece = buffer.capacity() / 2;
+        this.targetLead = minLead;
+        this.listener = listener != null ? listener : NO_LISTENER;
+    }
+
+    // ========== Производитель ==========
+
+    /**
+     * Записать PCM байты (формат {@link AudioConfig} буфера).
+     * Ждёт, если буфер заполнен; после {@link #cancel()} данные выкидываются.
+     * @return сколько байт принято
+     */
+    @Override
+    public int write(byte[] data, int offset, int length) {
+        trackArrival(length);
+        // По частям не больше половины ёмкости: после cancel() буфер
+        // очищается, и недописанная часть гарантированно влезает
+        int written = 0;
+        while (written + 1 < length && !cancelled) {
+            int n = buffer.writeBytes(data, offset + written, Math.min(length - written, writePiece * 2));
+            if (n <= 0) {
+                break;
+            }
+            written += n;
+        }
+        return cancelled ? length : written;
+    }
+
+    /**
+     * Поток закончился: остаток доигрывается без ожидания запаса
+     */
+    public void end() {
+        ended = true;
+    }
+
+    /**
+     * Прекратить поток: непроигранное выкидывается, запись больше не ждёт
+     */
+    public void cancel() {
+        cancelled = true;
+        ended = true;
+        buffer.clear();
+    }
+
+    /**
+     * Джиттер прихода: насколько пачка пришла позже, чем закончилась
+     * бы предыдущая при воспроизведении. Ранние пачки не в счёт.
+     */
+    private void trackArrival(int bytes) {
+        long now = System.nanoTime();
+        long duration = bytes / AudioConfig.BYTES_PER_SAMPLE * 1_000_000_000L
+                / ((long) config.sampleRate() * config.channels());
+        if (firstArrivalNanos == 0) {
+            firstArrivalNanos = now;
+        } else if (now - lastArrivalNanos < SAME_ARRIVAL_NANOS) {
+            // Декодер режет одну сетевую пачку на несколько записей
+            lastChunkNanos += duration;
+            return;
+        } else {
+            long late = (now - lastArrivalNanos) - lastChunkNanos;
+            jitterNanos += (Math.max(0, late) - jitterNanos) * JITTER_GAIN;
+        }
+        lastArrivalNanos = now;
+        lastChunkNanos = duration;
+    }
+
+    // ========== Потребитель ==========
+
+    /**
+     * Забрать до {@code length} байт для воспроизведения (целыми сэмплами).
+     * Пока буфер копит запас, ждёт не дольше {@code timeout} и возвращает 0.
+     * Чанк больше половины ёмкости буфера урезается до половины.
+     * @return количество байт, 0 если играть пока нечего, или {@link #END}
+     */
+    public int read(byte[] dst, int offset, int length, long timeout, TimeUnit unit) throws InterruptedException {
+        if (finished) {
+            return END;
+        }
+        if (cancelled) {
+            return finish(true);
+        }
+
+        // Чанк больше ёмкости буфер не наберёт никогда - вечный недогруз;
+        // с половиной вторая половина копится, пока играет первая
+        int chunk = Math.min(length / AudioConfig.BYTES_PER_SAMPLE, writePiece);
+        if (!playing) {
+            if (!awaitLead(chunk, timeout, unit)) {
+                return ended && buffer.available() == 0 ? finish(cancelled) : 0;
+            }
+            startPlaying();
+        }
+
+        int available = buffer.available();
+        if (available < chunk && !ended) {
+            // Недогруз: остаток не играем, чтобы не рвать звук на мелкие куски
+            underrun();
+            return 0;
+        }
+        if (available == 0) {
+            return finish(cancelled);
+        }
+
+        int n = buffer.readBytes(dst, offset, Math.min(chunk, available) * AudioConfig.BYTES_PER_SAMPLE);
+        playedSamples += n / AudioConfig.BYTES_PER_SAMPLE;
+        relaxTarget(n / AudioConfig.BYTES_PER_SAMPLE);
+        return n;
+    }
+
+    /**
+     * Ждать целевой запас. Конец потока не будит потребителя,
+     * поэтому ожидание нарезано на короткие отрезки.
+     */
+    private boolean awaitLead(int chunk, long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        long slice = TimeUnit.MILLISECONDS.toNanos(config.frameMillis());
+        while (true) {
+            if (ended) {
+                return buffer.available() > 0;
+            }
+            // Не меньше чанка, иначе сразу снова недогруз
+            int needed = Math.clamp(targetLead, Math.max(chunk, 1), buffer.capacity());
+            long remaining = deadline - System.nanoTime();
+            if (buffer.awaitAvailable(needed, Math.min(Math.max(remaining, 0), slice), TimeUnit.NANOSECONDS)) {
+                return true;
+            }
+            if (remaining <= 0) {
+                return false;
+            }
+        }
+    }
+
+    private void startPlaying() {
+        playing = true;
+        long now = System.nanoTime();
+        if (firstAudioNanos == 0) {
+            firstAudioNanos = now;
+            listener.onFirstAudio(now - firstArrivalNanos);
+        } else {
+            rebufferNanos += now - rebufferStartNanos;
+        }
+    }
+
+    private void underrun() {
+        playing = false;
+        rebufferStartNanos = System.nanoTime();
+        stableSamples = 0;
+        underruns++;
+        targetLead = Math.min(maxLead, (int) (Math.max(targetLead, baseLead()) * UNDERRUN_BOOST)
+                + config.frameSamples());
+        listener.onUnderrun(getTargetLeadMillis());
+    }
+
+    private void relaxTarget(int samples) {
+        stableSamples += samples;
+        int second = config.samplesForMillis(1000);
+        if (stableSamples >= second) {
+            stableSamples -= second;
+            targetLead = Math.max(baseLead(), (int) (targetLead * DECAY_PER_SECOND));
+        }
+    }
+
+    // Запас по текущему джиттеру без учёта недогрузов
+    private int baseLead() {
+        long jitterSamples = (long) (2 * jitterNanos) * config.sampleRate() * config.channels() / 1_000_000_000L;
+        return (int) Math.min(maxLead, minLead + jitterSamples);
+    }
+
+    private int finish(boolean wasCancelled) {
+        finished = true;
+        listener.onFinished(this, wasCancelled);
+        return END;
+    }
+
+    // ========== Состояние ==========
+
+    public AudioConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Сколько сэмплов сейчас в буфере
+     */
+    public int getBufferedSamples() {
+        return buffer.available();
+    }
+
+    /**
+     * Текущий целевой запас, ms
+     */
+    public int getTargetLeadMillis() {
+        return (int) (targetLead * 1000L / ((long) config.sampleRate() * config.channels()));
+    }
+
+    /**
+     * Оценка джиттера прихода данных, ms
+     */
+    public double getJitterMillis() {
+        return jitterNanos / 1e6;
+    }
+
+    public int getUnderruns() {
+        return underruns;
+    }
+
+    /**
+     * Суммарное время повторного накопления после недогрузов, ms
+     */
+    public long getRebufferMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(rebufferNanos);
+    }
+
+    public long getPlayedMillis() {
+        return playedSamples * 1000L / ((long) config.sampleRate() * config.channels());
+    }
+
+    /**
+     * Момент начала воспроизведения ({@link System#nanoTime()}), 0 если ещё не звучало
+     */
+    public long getFirstAudioNanos() {
+        return firstAudioNanos;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
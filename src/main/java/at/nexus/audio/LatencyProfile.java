@@ -0,0 +1,46 @@
+package at.nexus.audio;
+
+/**
+ * Готовые профили задержки для {@link AudioConfig}.
+ *
+ * Чем меньше кадр и буферы линий, тем ниже задержка, но тем выше риск
+ * щелчков на медленных или загруженных системах.
+ */
+public enum LatencyProfile {
+    /** 10ms кадры, минимальные буферы - для быстрых машин */
+    ULTRA_LOW(10, 20, 30),
+    /** 20ms кадры - разумный выбор для голосового ассистента */
+    LOW(20, 40, 60),
+    /** 30ms кадры с запасом под нагрузку */
+    BALANCED(30, 90, 120),
+    /** 100ms кадры, секундный буфер захвата, динамики со своим буфером - прежнее поведение */
+    SAFE(100, 1000, AudioConfig.LINE_DEFAULT);
+
+    public static final int DEFAULT_SAMPLE_RATE = 16000; // 16kHz оптимально для речи
+    public static final int DEFAULT_CHANNELS = 1; // mono
+
+    private final int frameMillis;
+    private final int captureBufferMillis;
+    private final int playbackBufferMillis;
+
+    LatencyProfile(int frameMillis, int captureBufferMillis, int playbackBufferMillis) {
+        this.frameMillis = frameMillis;
+        this.captureBufferMillis = captureBufferMillis;
+        this.playbackBufferMillis = playbackBufferMillis;
+    }
+
+    /**
+     * Конфигурация 16kHz mono с параметрами профиля
+     */
+    public AudioConfig toConfig() {
+        return toConfig(DEFAULT_SAMPLE_RATE, DEFAULT_CHANNELS);
+    }
+
+    public AudioConfig toConfig(int sampleRate, int channels) {
+        return new AudioConfig(sampleRate, channels, frameMillis, captureBufferMillis, playbackBufferMillis);
+    }
+
+    public int getFrameMillis() {
+        return frameMillis;
+    }
+}
@@ -0,0 +1,18 @@
+package at.nexus.audio;
+
+/**
+ * Источник PCM байтов для цикла захвата.
+ *
+ * Сигнатура совпадает с {@code TargetDataLine.read}, поэтому микрофон
+ * подключается ссылкой на метод, а в демо и замерах можно подставить
+ * синтетический источник без железа.
+ */
+@FunctionalInterface
+public interface PcmReader {
+
+    /**
+     * Прочитать до {@code length} байт в буфер
+     * @return количество прочитанных байт (0 или меньше - данных нет)
+     */
+    int read(byte[] buffer, int offset, int length);
+}
@@ -0,0 +1,377 @@
+package at.nexus.audio;
+
+import at.nexus.dsp.PcmOps;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Кольцевой буфер 16-bit PCM для передачи между двумя потоками.
+ *
+ * Один производитель и один потребитель, без блокировок и без аллокаций
+ * после создания. Ёмкость и все операции - в сэмплах (сэмпл никогда не
+ * разрывается), ёмкость округляется до степени двойки.
+ *
+ * Поведение при переполнении задаётся {@link OverflowPolicy}. Потерянные
+ * сэмплы и сами события переполнения считаются, так что зависший
+ * потребитель виден в счётчиках, а не в росте кучи.
+ */
+public class PcmRingBuffer {
+
+    /**
+     * Что делать, если потребитель не успевает
+     */
+    public enum OverflowPolicy {
+        /** Выкинуть самые старые сэмплы и записать новые */
+        DROP_OLDEST,
+        /** Записать сколько влезает, остаток выкинуть */
+        DROP_NEWEST,
+        /** Ждать, пока потребитель освободит место */
+        BLOCK
+    }
+
+    /** Максимальное время сна ожидающего потока между проверками по умолчанию */
+    public static final long DEFAULT_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final short[] buffer;
+    private final int capacity;
+    private final int mask;
+    private final OverflowPolicy policy;
+    private final long parkNanos;
+
+    // Позиции растут монотонно, индекс в массиве - позиция & mask.
+    // head двигает потребитель, а при DROP_OLDEST ещё и производитель (CAS)
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    private final AtomicLong overruns = new AtomicLong();
+    private final AtomicLong droppedSamples = new AtomicLong();
+
+    private volatile Thread waitingConsumer;
+    private volatile Thread waitingProducer;
+
+    public PcmRingBuffer(int minCapacitySamples, OverflowPolicy policy) {
+        this(minCapacitySamples, policy, DEFAULT_PARK_NANOS);
+    }
+
+    /**
+     * @param parkNanos сколько ожидающий поток спит между проверками. Будит его
+     *                  unpark от второй стороны, таймаут только страхует; длиннее -
+     *                  меньше холостых пробуждений, но дольше реакция там, где unpark нет
+     */
+    public PcmRingBuffer(int minCapacitySamples, OverflowPolicy policy, long parkNanos) {
+        if (minCapacitySamples <= 0 || minCapacitySamples > (1 << 30)) {
+            throw new IllegalArgumentException("Недопустимая ёмкость: " + minCapacitySamples);
+        }
+        if (parkNanos <= 0) {
+            throw new IllegalArgumentException("Время сна должно быть положительным: " + parkNanos);
+        }
+        this.capacity = minCapacitySamples == 1 ? 1 : Integer.highestOneBit(minCapacitySamples - 1) << 1;
+        this.mask = capacity - 1;
+        this.buffer = new short[capacity];
+        this.policy = policy;
+        this.parkNanos = parkNanos;
+    }
+
+    // ========== Производитель ==========
+
+    /**
+     * Записать сэмплы
+     * @return сколько сэмплов принято (меньше length только при DROP_NEWEST или прерывании)
+     */
+    public int write(short[] src, int offset, int length) {
+        if (length > capacity && policy == OverflowPolicy.DROP_OLDEST) {
+            // Всё равно сохранятся только последние capacity сэмплов
+            int skipped = length - capacity;
+            recordOverrun(skipped);
+            return skipped + write(src, offset + skipped, capacity);
+        }
+
+        int written = 0;
+        while (written < length) {
+            int writable = reserve(length - written);
+            if (writable <= 0) {
+                break;
+            }
+
+            long t = tail.get();
+            int index = (int) (t & mask);
+            int first = Math.min(writable, capacity - index);
+            System.arraycopy(src, offset + written, buffer, index, first);
+            if (first < writable) {
+                System.arraycopy(src, offset + written + first, buffer, 0, writable - first);
+            }
+            publish(t + writable);
+            written += writable;
+
+            if (policy == OverflowPolicy.DROP_NEWEST) {
+                break;
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Записать PCM байты (16-bit little-endian). Нечётный хвостовой байт игнорируется.
+     * @return сколько байт принято
+     */
+    public int writeBytes(byte[] src, int offset, int lengthBytes) {
+        int samples = lengthBytes / 2;
+        if (samples > capacity && policy == OverflowPolicy.DROP_OLDEST) {
+            int skipped = samples - capacity;
+            recordOverrun(skipped);
+            return skipped * 2 + writeBytes(src, offset + skipped * 2, capacity * 2);
+        }
+
+        int written = 0;
+        while (written < samples) {
+            int writable = reserve(samples - written);
+            if (writable <= 0) {
+                break;
+            }
+
+            long t = tail.get();
+            int base = offset + written * 2;
+            int index = (int) (t & mask);
+            int first = Math.min(writable, capacity - index);
+            PcmOps.toShorts(src, base, buffer, index, first);
+            if (first < writable) {
+                PcmOps.toShorts(src, base + first * 2, buffer, 0, writable - first);
+            }
+            publish(t + writable);
+            written += writable;
+
+            if (policy == OverflowPolicy.DROP_NEWEST) {
+                break;
+            }
+        }
+        return written * 2;
+    }
+
+    /**
+     * Освободить место под запись по политике переполнения
+     * @return сколько сэмплов можно записать
+     */
+    private int reserve(int samples) {
+        long t = tail.get();
+        switch (policy) {
+            case DROP_OLDEST -> {
+                long minHead = t + samples - capacity;
+                long h;
+                while ((h = head.get()) < minHead) {
+                    if (head.compareAndSet(h, minHead)) {
+                        recordOverrun((int) (minHead - h));
+                        break;
+                    }
+                }
+                return samples;
+            }
+            case DROP_NEWEST -> {
+                int free = capacity - (int) (t - head.get());
+                if (free < samples) {
+                    recordOverrun(samples - free);
+                }
+                return Math.min(samples, free);
+            }
+            case BLOCK -> {
+                // Блок больше ёмкости пишется по частям
+                int needed = Math.min(samples, capacity);
+                while (capacity - (int) (t - head.get()) < needed) {
+                    waitingProducer = Thread.currentThread();
+                    if (capacity - (int) (t - head.get()) < needed) {
+                        LockSupport.parkNanos(this, parkNanos);
+                    }
+                    waitingProducer = null;
+                    if (Thread.currentThread().isInterrupted()) {
+                        return 0;
+                    }
+                }
+                return needed;
+            }
+            default -> throw new IllegalStateException("Неизвестная политика: " + policy);
+        }
+    }
+
+    private void publish(long newTail) {
+        tail.set(newTail);
+        Thread consumer = waitingConsumer;
+        if (consumer != null) {
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    private void recordOverrun(int samples) {
+        overruns.incrementAndGet();
+        droppedSamples.addAndGet(samples);
+    }
+
+    // ========== Потребитель ==========
+
+    /**
+     * Прочитать до len сэмплов без ожидания
+     * @return сколько сэмплов прочитано
+     */
+    public int read(short[] dst, int offset, int length) {
+        while (true) {
+            long h = head.get();
+            int count = (int) Math.min(Math.min(length, capacity), tail.get() - h);
+            if (count <= 0) {
+                return 0;
+            }
+
+            int index = (int) (h & mask);
+            int first = Math.min(count, capacity - index);
+            System.arraycopy(buffer, index, dst, offset, first);
+            if (first < count) {
+                System.arraycopy(buffer, 0, dst, offset + first, count - first);
+            }
+
+            // Если производитель успел выкинуть эти сэмплы (DROP_OLDEST),
+            // скопированное могло быть перезаписано - читаем заново
+            if (head.compareAndSet(h, h + count)) {
+                wakeProducer();
+                return count;
+            }
+        }
+    }
+
+    /**
+     * Прочитать до lengthBytes байт PCM (16-bit little-endian) без ожидания
+     * @return сколько байт прочитано
+     */
+    public int readBytes(byte[] dst, int offset, int lengthBytes) {
+        int maxSamples = lengthBytes / 2;
+        while (true) {
+            long h = head.get();
+            int count = (int) Math.min(Math.min(maxSamples, capacity), tail.get() - h);
+            if (count <= 0) {
+                return 0;
+            }
+
+            int index = (int) (h & mask);
+            int first = Math.min(count, capacity - index);
+            PcmOps.toBytes(buffer, index, dst, offset, first);
+            if (first < count) {
+                PcmOps.toBytes(buffer, 0, dst, offset + first * 2, count - first);
+            }
+
+            if (head.compareAndSet(h, h + count)) {
+                wakeProducer();
+                return count * 2;
+            }
+        }
+    }
+
+    /**
+     * Ждать, пока в буфере не наберётся нужное количество сэмплов
+     */
+    public void awaitAvailable(int samples) throws InterruptedException {
+        checkAwaitable(samples);
+        while (available() < samples) {
+            parkConsumer(parkNanos, samples);
+        }
+    }
+
+    /**
+     * Ждать данные не дольше указанного времени
+     * @return true если нужное количество сэмплов доступно
+     */
+    public boolean awaitAvailable(int samples, long timeout, TimeUnit unit) throws InterruptedException {
+        checkAwaitable(samples);
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (available() < samples) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            parkConsumer(Math.min(remaining, parkNanos), samples);
+        }
+        return true;
+    }
+
+    /**
+     * Выкинуть всё непрочитанное (со стороны потребителя)
+     * @return сколько сэмплов выкинуто
+     */
+    public int clear() {
+        while (true) {
+            long h = head.get();
+            long t = tail.get();
+            if (h >= t || head.compareAndSet(h, t)) {
+                wakeProducer();
+                return (int) Math.max(0, t - h);
+            }
+        }
+    }
+
+    private void checkAwaitable(int samples) {
+        if (samples <= 0 || samples > capacity) {
+            throw new IllegalArgumentException("Нельзя ждать " + samples + " сэмплов при ёмкости " + capacity);
+        }
+    }
+
+    private void parkConsumer(long nanos, int samples) throws InterruptedException {
+        waitingConsumer = Thread.currentThread();
+        if (available() < samples) {
+            LockSupport.parkNanos(this, nanos);
+        }
+        waitingConsumer = null;
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+    }
+
+    private void wakeProducer() {
+        Thread producer = waitingProducer;
+        if (producer != null) {
+            LockSupport.unpark(producer);
+        }
+    }
+
+    // ========== Состояние ==========
+
+    /**
+     * Сколько сэмплов доступно для чтения
+     */
+    public int available() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+
+    /**
+     * Сколько сэмплов записано за всё время (позиция производителя)
+     */
+    public long getWritePosition() {
+        return tail.get();
+    }
+
+    /**
+     * Позиция потребителя: следующий сэмпл для чтения
+     * (включая выкинутые при переполнении и {@link #clear()})
+     */
+    public long getReadPosition() {
+        return head.get();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public OverflowPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Количество событий переполнения
+     */
+    public long getOverruns() {
+        return overruns.get();
+    }
+
+    /**
+     * Количество сэмплов, потерянных при переполнении
+     */
+    public long getDroppedSamples() {
+        return droppedSamples.get();
+    }
+}
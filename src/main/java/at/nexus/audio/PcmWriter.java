@@ -0,0 +1,18 @@
+package at.nexus.audio;
+
+/**
+ * Приёмник PCM байтов для цикла воспроизведения.
+ *
+ * Сигнатура совпадает с {@code SourceDataLine.write}: вызов блокируется,
+ * пока данные не приняты. Позволяет подставить виртуальный вывод
+ * вместо динамиков в демо и замерах.
+ */
+@FunctionalInterface
+public interface PcmWriter {
+
+    /**
+     * Записать байты из буфера
+     * @return количество записанных байт
+     */
+    int write(byte[] buffer, int offset, int length);
+}
@@ -0,0 +1,301 @@
+package at.nexus.audio.alsa;
+
+import javax.sound.sampled.LineUnavailableException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.SymbolLookup;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.MethodHandle;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Привязки к {@code libasound.so.2} через Foreign Function &amp; Memory API.
+ *
+ * Только то, что нужно {@link AlsaPcm}: открытие PCM, параметры железа
+ * и программные пороги, чтение/запись (копированием и через mmap),
+ * задержка и восстановление после xrun. Вызовы горячего пути идут
+ * через {@code invokeExact}, настройка - через общий {@link #call}.
+ * Библиотека грузится один раз при первом обращении.
+ */
+final class AlsaLib {
+
+    static final String LIBRARY = "libasound.so.2";
+
+    static final int STREAM_PLAYBACK = 0;
+    static final int STREAM_CAPTURE = 1;
+    static final int ACCESS_MMAP_INTERLEAVED = 0;
+    static final int ACCESS_RW_INTERLEAVED = 3;
+    static final int FORMAT_S16_LE = 2;
+    static final int STATE_PREPARED = 2;
+
+    // errno, которые приходят отрицательными
+    static final int EPIPE = 32; // xrun
+    static final int EAGAIN = 11;
+
+    private static final ValueLayout.OfLong UFRAMES = ValueLayout.JAVA_LONG; // unsigned long на LP64
+    private static final ValueLayout ADDRESS = ValueLayout.ADDRESS;
+    private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT;
+
+    private static AlsaLib instance;
+    private static String loadError;
+
+    // Настройка
+    final MethodHandle open;
+    final MethodHandle close;
+    final MethodHandle hwParamsMalloc;
+    final MethodHandle hwParamsFree;
+    final MethodHandle hwParamsAny;
+    final MethodHandle hwParamsSetAccess;
+    final MethodHandle hwParamsSetFormat;
+    final MethodHandle hwParamsSetChannels;
+    final MethodHandle hwParamsSetRateNear;
+    final MethodHandle hwParamsSetPeriodSizeNear;
+    final MethodHandle hwParamsSetBufferSizeNear;
+    final MethodHandle hwParamsGetPeriodSize;
+    final MethodHandle hwParamsGetBufferSize;
+    final MethodHandle hwParams;
+    final MethodHandle swParamsMalloc;
+    final MethodHandle swParamsFree;
+    final MethodHandle swParamsCurrent;
+    final MethodHandle swParamsSetStartThreshold;
+    final MethodHandle swParamsSetAvailMin;
+    final MethodHandle swParams;
+    final MethodHandle strerror;
+
+    // Горячий путь
+    private final MethodHandle prepare;
+    private final MethodHandle start;
+    private final MethodHandle drop;
+    private final MethodHandle state;
+    private final MethodHandle readi;
+    private final MethodHandle writei;
+    private final MethodHandle recover;
+    private final MethodHandle delay;
+    private final MethodHandle availUpdate;
+    private final MethodHandle mmapBegin;
+    private final MethodHandle mmapCommit;
+    private final MethodHandle pcmWait;
+
+    private AlsaLib(SymbolLookup lib) {
+        Linker linker = Linker.nativeLinker();
+        Binder b = (name, descriptor) -> linker.downcallHandle(
+                lib.find(name).orElseThrow(() -> new IllegalStateException("Нет символа " + name)), descriptor);
+
+        open = b.bind("snd_pcm_open", FunctionDescriptor.of(INT, ADDRESS, ADDRESS, INT, INT));
+        close = b.bind("snd_pcm_close", FunctionDescriptor.of(INT, ADDRESS));
+        hwParamsMalloc = b.bind("snd_pcm_hw_params_malloc", FunctionDescriptor.of(INT, ADDRESS));
+        hwParamsFree = b.bind("snd_pcm_hw_params_free", FunctionDescriptor.ofVoid(ADDRESS));
+        hwParamsAny = b.bind("snd_pcm_hw_params_any", FunctionDescriptor.of(INT, ADDRESS, ADDRESS));
+        hwParamsSetAccess = b.bind("snd_pcm_hw_params_set_access", FunctionDescriptor.of(INT, ADDRESS, ADDRESS, INT));
+        hwParamsSetFormat = b.bind("snd_pcm_hw_params_set_format", FunctionDescriptor.of(INT, ADDRESS, ADDRESS, INT));
+        hwParamsSetChannels = b.bind("snd_pcm_hw_params_set_channels", FunctionDescriptor.of(INT, ADDRESS, ADDRESS, INT));
+        hwParamsSetRateNear = b.bind("snd_pcm_hw_params_set_rate_near",
+                FunctionDescriptor.of(INT, ADDRESS, ADDRESS, ADDRESS, ADDRESS));
+        hwParamsSetPeriodSizeNear = b.bind("snd_pcm_hw_params_set_period_size_near",
+                FunctionDescriptor.of(INT, ADDRESS, ADDRESS, ADDRESS, ADDRESS));
+        hwParamsSetBufferSizeNear = b.bind("snd_pcm_hw_params_set_buffer_size_near",
+                FunctionDescriptor.of(INT, ADDRESS, ADDRESS, ADDRESS));
+        hwParamsGetPeriodSize = b.bind("snd_pcm_hw_params_get_period_size",
+                FunctionDescriptor.of(INT, ADDRESS, ADDRESS, ADDRESS));
+        hwParamsGetBufferSize = b.bind("snd_pcm_hw_params_get_buffer_size",
+                FunctionDescriptor.of(INT, ADDRESS, ADDRESS));
+        hwParams = b.bind("snd_pcm_hw_params", FunctionDescriptor.of(INT, ADDRESS, ADDRESS));
+        swParamsMalloc = b.bind("snd_pcm_sw_params_malloc", FunctionDescriptor.of(INT, ADDRESS));
+        swParamsFree = b.bind("snd_pcm_sw_params_free", FunctionDescriptor.ofVoid(ADDRESS));
+        swParamsCurrent = b.bind("snd_pcm_sw_params_current", FunctionDescriptor.of(INT, ADDRESS, ADDRESS));
+        swParamsSetStartThreshold = b.bind("snd_pcm_sw_params_set_start_threshold",
+                FunctionDescriptor.of(INT, ADDRESS, ADDRESS, UFRAMES));
+        swParamsSetAvailMin = b.bind("snd_pcm_sw_params_set_avail_min",
+                FunctionDescriptor.of(INT, ADDRESS, ADDRESS, UFRAMES));
+        swParams = b.bind("snd_pcm_sw_params", FunctionDescriptor.of(INT, ADDRESS, ADDRESS));
+        strerror = b.bind("snd_strerror", FunctionDescriptor.of(ADDRESS, INT));
+
+        prepare = b.bind("snd_pcm_prepare", FunctionDescriptor.of(INT, ADDRESS));
+        start = b.bind("snd_pcm_start", FunctionDescriptor.of(INT, ADDRESS));
+        drop = b.bind("snd_pcm_drop", FunctionDescriptor.of(INT, ADDRESS));
+        state = b.bind("snd_pcm_state", FunctionDescriptor.of(INT, ADDRESS));
+        readi = b.bind("snd_pcm_readi", FunctionDescriptor.of(UFRAMES, ADDRESS, ADDRESS, UFRAMES));
+        writei = b.bind("snd_pcm_writei", FunctionDescriptor.of(UFRAMES, ADDRESS, ADDRESS, UFRAMES));
+        recover = b.bind("snd_pcm_recover", FunctionDescriptor.of(INT, ADDRESS, INT, INT));
+        delay = b.bind("snd_pcm_delay", FunctionDescriptor.of(INT, ADDRESS, ADDRESS));
+        availUpdate = b.bind("snd_pcm_avail_update", FunctionDescriptor.of(UFRAMES, ADDRESS));
+        mmapBegin = b.bind("snd_pcm_mmap_begin", FunctionDescriptor.of(INT, ADDRESS, ADDRESS, ADDRESS, ADDRESS));
+        mmapCommit = b.bind("snd_pcm_mmap_commit", FunctionDescriptor.of(UFRAMES, ADDRESS, UFRAMES, UFRAMES));
+        pcmWait = b.bind("snd_pcm_wait", FunctionDescriptor.of(INT, ADDRESS, INT));
+    }
+
+    @FunctionalInterface
+    private interface Binder {
+        MethodHandle bind(String name, FunctionDescriptor descriptor);
+    }
+
+    /**
+     * Загрузить библиотеку (один раз)
+     * @throws LineUnavailableException нет libasound или в ней не хватает функций
+     */
+    static synchronized AlsaLib get() throws LineUnavailableException {
+        if (instance == null && loadError == null) {
+            try {
+                instance = new AlsaLib(SymbolLookup.libraryLookup(LIBRARY, Arena.global()));
+            } catch (RuntimeException e) {
+                loadError = e.getMessage();
+            }
+        }
+        if (instance == null) {
+            throw new LineUnavailableException("ALSA недоступна (" + LIBRARY + "): " + loadError);
+        }
+        return instance;
+    }
+
+    /**
+     * Вызов для настройки (не горячий путь): аргументы упаковываются
+     * @return код возврата функции (отрицательный - ошибка), 0 для void
+     */
+    static int call(MethodHandle handle, Object... args) {
+        try {
+            return handle.invokeWithArguments(args) instanceof Integer rc ? rc : 0;
+        } catch (Throwable t) {
+            throw new IllegalStateException("Ошибка вызова ALSA", t);
+        }
+    }
+
+    /**
+     * Текст ошибки ALSA по отрицательному коду
+     */
+    String describe(int error) {
+        try {
+            MemorySegment text = ((MemorySegment) strerror.invokeExact(error)).reinterpret(256);
+            int length = 0;
+            while (length < 256 && text.get(ValueLayout.JAVA_BYTE, length) != 0) {
+                length++;
+            }
+            byte[] bytes = new byte[length];
+            MemorySegment.copy(text, ValueLayout.JAVA_BYTE, 0, bytes, 0, length);
+            return new String(bytes, StandardCharsets.UTF_8) + " (" + error + ")";
+        } catch (Throwable t) {
+            return "код " + error;
+        }
+    }
+
+    /**
+     * C-строка в арене (без {@code allocateUtf8String}/{@code allocateFrom},
+     * которые разошлись между версиями API)
+     */
+    static MemorySegment cString(Arena arena, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        MemorySegment segment = arena.allocate(bytes.length + 1);
+        MemorySegment.copy(bytes, 0, segment, ValueLayout.JAVA_BYTE, 0, bytes.length);
+        segment.set(ValueLayout.JAVA_BYTE, bytes.length, (byte) 0);
+        return segment;
+    }
+
+    // ========== Горячий путь ==========
+
+    int prepare(MemorySegment pcm) {
+        try {
+            return (int) prepare.invokeExact(pcm);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    int start(MemorySegment pcm) {
+        try {
+            return (int) start.invokeExact(pcm);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    int drop(MemorySegment pcm) {
+        try {
+            return (int) drop.invokeExact(pcm);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    int state(MemorySegment pcm) {
+        try {
+            return (int) state.invokeExact(pcm);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    long readi(MemorySegment pcm, MemorySegment buffer, long frames) {
+        try {
+            return (long) readi.invokeExact(pcm, buffer, frames);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    long writei(MemorySegment pcm, MemorySegment buffer, long frames) {
+        try {
+            return (long) writei.invokeExact(pcm, buffer, frames);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    int recover(MemorySegment pcm, int error) {
+        try {
+            return (int) recover.invokeExact(pcm, error, 1); // 1 - без вывода в stderr
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    int delay(MemorySegment pcm, MemorySegment framesOut) {
+        try {
+            return (int) delay.invokeExact(pcm, framesOut);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    long availUpdate(MemorySegment pcm) {
+        try {
+            return (long) availUpdate.invokeExact(pcm);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    int mmapBegin(MemorySegment pcm, MemorySegment areasOut, MemorySegment offsetOut, MemorySegment framesInOut) {
+        try {
+            return (int) mmapBegin.invokeExact(pcm, areasOut, offsetOut, framesInOut);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    long mmapCommit(MemorySegment pcm, long offset, long frames) {
+        try {
+            return (long) mmapCommit.invokeExact(pcm, offset, frames);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    int await(MemorySegment pcm, int timeoutMillis) {
+        try {
+            return (int) pcmWait.invokeExact(pcm, timeoutMillis);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    private static RuntimeException rethrow(Throwable t) {
+        if (t instanceof RuntimeException e) {
+            throw e;
+        }
+        if (t instanceof Error e) {
+            throw e;
+        }
+        return new IllegalStateException("Ошибка вызова ALSA", t);
+    }
+}
@@ -0,0 +1,428 @@
+package at.nexus.audio.alsa;
+
+import at.nexus.audio.AudioConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sound.sampled.LineUnavailableException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+
+/**
+ * Открытое ALSA PCM устройство: захват или воспроизведение 16-bit
+ * interleaved, с явными периодом и размером буфера.
+ *
+ * В режиме mmap звук копируется прямо в кольцевой буфер устройства
+ * ({@code snd_pcm_mmap_begin/commit}) без промежуточного буфера
+ * библиотеки; если устройство так не умеет, используется readi/writei
+ * через нативный буфер. {@link #read} и {@link #write} блокируются, как
+ * у линии javax.sound: до полного объёма или прерывания потока.
+ * xrun восстанавливается сам и считается в {@link #getXruns()}.
+ *
+ * Один поток читает или пишет; {@link #getDelayFrames()} можно звать из любого.
+ */
+public class AlsaPcm implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(AlsaPcm.class);
+
+    // Сколько ждать устройство за один раз, чтобы вовремя заметить прерывание
+    private static final int WAIT_MILLIS = 100;
+
+    private final AlsaLib lib;
+    private final Arena arena;
+    private final MemorySegment pcm;
+    private final String device;
+    private final boolean capture;
+    private final boolean mmap;
+    private final int rate;
+    private final int channels;
+    private final int frameBytes;
+    private final long periodFrames;
+    private final long bufferFrames;
+    private final long startThreshold;
+
+    // Выходные параметры вызовов, выделены один раз
+    private final MemorySegment areasOut;
+    private final MemorySegment offsetOut;
+    private final MemorySegment framesInOut;
+    private final MemorySegment delayOut;
+    private final MemorySegment transfer; // только для readi/writei
+
+    // Область mmap и кольцо устройства: адреса обычно не меняются,
+    // поэтому сегменты переиспользуются, пока совпадает адрес
+    private long areaAddress;
+    private MemorySegment area;
+    private long ringAddress;
+    private MemorySegment ring;
+
+    private volatile long xruns;
+    private boolean closed;
+
+    /**
+     * Открыть и настроить устройство. Частота берётся ближайшая
+     * поддерживаемая ({@link #getRate()}), число каналов - точно как в конфигурации.
+     * @throws LineUnavailableException нет ALSA, устройства или формата
+     */
+    public AlsaPcm(AlsaSettings settings, boolean capture, AudioConfig config) throws LineUnavailableException {
+        this.lib = AlsaLib.get();
+        this.arena = Arena.ofShared();
+        this.device = settings.device();
+        this.capture = capture;
+        this.channels = config.channels();
+        this.frameBytes = channels * AudioConfig.BYTES_PER_SAMPLE;
+
+        MemorySegment pointer = arena.allocate(ValueLayout.ADDRESS);
+        int rc = AlsaLib.call(lib.open, pointer, AlsaLib.cString(arena, device),
+                capture ? AlsaLib.STREAM_CAPTURE : AlsaLib.STREAM_PLAYBACK, 0);
+        if (rc < 0) {
+            arena.close();
+            throw new LineUnavailableException("ALSA: не удалось открыть " + device + ": " + lib.describe(rc));
+        }
+        this.pcm = pointer.get(ValueLayout.ADDRESS, 0);
+
+        try {
+            MemorySegment rateInOut = arena.allocate(ValueLayout.JAVA_INT);
+            MemorySegment periodInOut = arena.allocate(ValueLayout.JAVA_LONG);
+            MemorySegment bufferInOut = arena.allocate(ValueLayout.JAVA_LONG);
+            this.mmap = configureHardware(settings, config, rateInOut, periodInOut, bufferInOut);
+            this.rate = rateInOut.get(ValueLayout.JAVA_INT, 0);
+            this.periodFrames = periodInOut.get(ValueLayout.JAVA_LONG, 0);
+            this.bufferFrames = bufferInOut.get(ValueLayout.JAVA_LONG, 0);
+            // Воспроизведение стартует, когда в буфере два периода: меньше - сразу недогруз
+            this.startThreshold = capture ? 1 : Math.min(bufferFrames, 2 * periodFrames);
+            configureSoftware();
+            check(lib.prepare(pcm), "prepare");
+        } catch (LineUnavailableException | RuntimeException e) {
+            AlsaLib.call(lib.close, pcm);
+            arena.close();
+            throw e;
+        }
+
+        this.areasOut = arena.allocate(ValueLayout.ADDRESS);
+        this.offsetOut = arena.allocate(ValueLayout.JAVA_LONG);
+        this.framesInOut = arena.allocate(ValueLayout.JAVA_LONG);
+        this.delayOut = arena.allocate(ValueLayout.JAVA_LONG);
+        this.transfer = mmap ? MemorySegment.NULL : arena.allocate(bufferFrames * frameBytes);
+
+        log.info("ALSA {} {}: {}Hz, {} канал(ов), период {} кадров, буфер {} кадров ({} ms), {}",
+                capture ? "захват" : "вывод", device, rate, channels, periodFrames, bufferFrames,
+                getBufferMillis(), mmap ? "mmap" : "readi/writei");
+    }
+
+    /**
+     * Параметры железа. Порядок важен: доступ и формат сужают
+     * допустимые частоты, частота - допустимые периоды
+     * @return включён ли mmap
+     */
+    private boolean configureHardware(AlsaSettings settings, AudioConfig config, MemorySegment rateInOut,
+                                      MemorySegment periodInOut, MemorySegment bufferInOut)
+            throws LineUnavailableException {
+        MemorySegment pointer = arena.allocate(ValueLayout.ADDRESS);
+        check(AlsaLib.call(lib.hwParamsMalloc, pointer), "hw_params_malloc");
+        MemorySegment params = pointer.get(ValueLayout.ADDRESS, 0);
+        try {
+            check(AlsaLib.call(lib.hwParamsAny, pcm, params), "hw_params_any");
+
+            boolean useMmap = settings.mmap();
+            if (useMmap && AlsaLib.call(lib.hwParamsSetAccess, pcm, params, AlsaLib.ACCESS_MMAP_INTERLEAVED) < 0) {
+                log.warn("ALSA {}: mmap не поддерживается, используется readi/writei", device);
+                useMmap = false;
+            }
+            if (!useMmap) {
+                check(AlsaLib.call(lib.hwParamsSetAccess, pcm, params, AlsaLib.ACCESS_RW_INTERLEAVED), "access");
+            }
+            check(AlsaLib.call(lib.hwParamsSetFormat, pcm, params, AlsaLib.FORMAT_S16_LE), "format S16_LE");
+            int rc = AlsaLib.call(lib.hwParamsSetChannels, pcm, params, channels);
+            if (rc < 0) {
+                throw new LineUnavailableException("ALSA " + device + ": " + channels
+                        + " канал(ов) не поддерживается (попробуйте plughw:...): " + lib.describe(rc));
+            }
+
+            rateInOut.set(ValueLayout.JAVA_INT, 0, config.sampleRate());
+            check(AlsaLib.call(lib.hwParamsSetRateNear, pcm, params, rateInOut, MemorySegment.NULL), "rate");
+            int actualRate = rateInOut.get(ValueLayout.JAVA_INT, 0);
+
+            long period = Math.max(16, (long) actualRate * settings.periodMillis() / 1000);
+            int periods = capture ? settings.capturePeriods() : settings.playbackPeriods();
+            periodInOut.set(ValueLayout.JAVA_LONG, 0, period);
+            check(AlsaLib.call(lib.hwParamsSetPeriodSizeNear, pcm, params, periodInOut, MemorySegment.NULL),
+                    "period_size");
+            bufferInOut.set(ValueLayout.JAVA_LONG, 0, periodInOut.get(ValueLayout.JAVA_LONG, 0) * periods);
+            check(AlsaLib.call(lib.hwParamsSetBufferSizeNear, pcm, params, bufferInOut), "buffer_size");
+
+            check(AlsaLib.call(lib.hwParams, pcm, params), "hw_params");
+            // Устройство могло округлить - читаем итоговые значения
+            check(AlsaLib.call(lib.hwParamsGetPeriodSize, params, periodInOut, MemorySegment.NULL), "period_size");
+            check(AlsaLib.call(lib.hwParamsGetBufferSize, params, bufferInOut), "buffer_size");
+            return useMmap;
+        } finally {
+            AlsaLib.call(lib.hwParamsFree, params);
+        }
+    }
+
+    /**
+     * Программные пороги: будить по периоду, стартовать по {@code startThreshold}
+     */
+    private void configureSoftware() throws LineUnavailableException {
+        MemorySegment pointer = arena.allocate(ValueLayout.ADDRESS);
+        check(AlsaLib.call(lib.swParamsMalloc, pointer), "sw_params_malloc");
+        MemorySegment params = pointer.get(ValueLayout.ADDRESS, 0);
+        try {
+            check(AlsaLib.call(lib.swParamsCurrent, pcm, params), "sw_params_current");
+            check(AlsaLib.call(lib.swParamsSetStartThreshold, pcm, params, startThreshold), "start_threshold");
+            check(AlsaLib.call(lib.swParamsSetAvailMin, pcm, params, periodFrames), "avail_min");
+            check(AlsaLib.call(lib.swParams, pcm, params), "sw_params");
+        } finally {
+            AlsaLib.call(lib.swParamsFree, params);
+        }
+    }
+
+    private void check(int rc, String what) throws LineUnavailableException {
+        if (rc < 0) {
+            throw new LineUnavailableException("ALSA " + device + ": " + what + ": " + lib.describe(rc));
+        }
+    }
+
+    // ========== Данные ==========
+
+    /**
+     * Записать звук целыми кадрами, ждёт места в буфере устройства
+     * @return сколько байт записано (меньше length только при прерывании потока)
+     */
+    public int write(byte[] buffer, int offset, int length) {
+        long frames = length / frameBytes;
+        long done = 0;
+        while (done < frames && !Thread.currentThread().isInterrupted()) {
+            int position = offset + (int) done * frameBytes;
+            long n = mmap
+                    ? transferMmap(buffer, position, frames - done)
+                    : writeCopy(buffer, position, frames - done);
+            if (n < 0) {
+                recover((int) n);
+            } else {
+                done += n;
+            }
+        }
+        return (int) done * frameBytes;
+    }
+
+    /**
+     * Прочитать звук целыми кадрами, ждёт, пока устройство их накопит
+     * @return сколько байт прочитано (меньше length только при прерывании потока)
+     */
+    public int read(byte[] buffer, int offset, int length) {
+        long frames = length / frameBytes;
+        long done = 0;
+        while (done < frames && !Thread.currentThread().isInterrupted()) {
+            int position = offset + (int) done * frameBytes;
+            long n = mmap
+                    ? transferMmap(buffer, position, frames - done)
+                    : readCopy(buffer, position, frames - done);
+            if (n < 0) {
+                recover((int) n);
+            } else {
+                done += n;
+            }
+        }
+        return (int) done * frameBytes;
+    }
+
+    private long writeCopy(byte[] buffer, int offset, long frames) {
+        long n = Math.min(frames, bufferFrames);
+        MemorySegment.copy(buffer, offset, transfer, ValueLayout.JAVA_BYTE, 0, (int) n * frameBytes);
+        return lib.writei(pcm, transfer, n);
+    }
+
+    private long readCopy(byte[] buffer, int offset, long frames) {
+        long n = lib.readi(pcm, transfer, Math.min(frames, bufferFrames));
+        if (n > 0) {
+            MemorySegment.copy(transfer, ValueLayout.JAVA_BYTE, 0, buffer, offset, (int) n * frameBytes);
+        }
+        return n;
+    }
+
+    /**
+     * Один шаг обмена через mmap: сколько есть места (данных) - столько
+     * и копируется прямо в кольцо устройства (из него)
+     * @return кадров перенесено, 0 если пришлось ждать, или код ошибки
+     */
+    private long transferMmap(byte[] buffer, int offset, long frames) {
+        int state = lib.state(pcm);
+        if (capture && state == AlsaLib.STATE_PREPARED) {
+            int rc = lib.start(pcm);
+            if (rc < 0) {
+                return rc;
+            }
+        }
+        long avail = lib.availUpdate(pcm);
+        if (avail < 0) {
+            return avail;
+        }
+        if (avail == 0) {
+            if (!capture && state == AlsaLib.STATE_PREPARED) {
+                // Буфер полон, а порог старта ещё не сработал
+                int rc = lib.start(pcm);
+                return rc < 0 ? rc : 0;
+            }
+            int rc = lib.await(pcm, WAIT_MILLIS);
+            return rc < 0 ? rc : 0;
+        }
+
+        framesInOut.set(ValueLayout.JAVA_LONG, 0, Math.min(avail, frames));
+        int rc = lib.mmapBegin(pcm, areasOut, offsetOut, framesInOut);
+        if (rc < 0) {
+            return rc;
+        }
+        long areaOffset = offsetOut.get(ValueLayout.JAVA_LONG, 0);
+        long n = framesInOut.get(ValueLayout.JAVA_LONG, 0);
+        long first = Integer.toUnsignedLong(area().get(ValueLayout.JAVA_INT, 8));
+        long step = Integer.toUnsignedLong(area.get(ValueLayout.JAVA_INT, 12));
+        long position = (first + areaOffset * step) / 8;
+        int bytes = (int) n * frameBytes;
+        MemorySegment dma = ring(first, step);
+        if (capture) {
+            MemorySegment.copy(dma, ValueLayout.JAVA_BYTE, position, buffer, offset, bytes);
+        } else {
+            MemorySegment.copy(buffer, offset, dma, ValueLayout.JAVA_BYTE, position, bytes);
+        }
+
+        long committed = lib.mmapCommit(pcm, areaOffset, n);
+        if (committed < 0) {
+            return committed;
+        }
+        if (!capture && state == AlsaLib.STATE_PREPARED && bufferFrames - avail + committed >= startThreshold) {
+            // mmap_commit сам не стартует поток, в отличие от writei
+            rc = lib.start(pcm);
+            if (rc < 0) {
+                return rc;
+            }
+        }
+        return committed;
+    }
+
+    /**
+     * snd_pcm_channel_area_t { void *addr; unsigned first; unsigned step; }, first/step в битах;
+     * при interleaved у всех каналов одна область, первая описывает кадр целиком.
+     * Указатели читаются как числа, чтобы не создавать сегмент на каждый период
+     */
+    private MemorySegment area() {
+        long address = areasOut.get(ValueLayout.JAVA_LONG, 0);
+        if (address != areaAddress) {
+            areaAddress = address;
+            area = MemorySegment.ofAddress(address).reinterpret(16);
+        }
+        return area;
+    }
+
+    private MemorySegment ring(long first, long step) {
+        long address = area.get(ValueLayout.JAVA_LONG, 0);
+        if (address != ringAddress || ring.byteSize() < (first + bufferFrames * step) / 8) {
+            ringAddress = address;
+            ring = MemorySegment.ofAddress(address).reinterpret((first + bufferFrames * step) / 8);
+        }
+        return ring;
+    }
+
+    private void recover(int error) {
+        if (error == -AlsaLib.EAGAIN) {
+            return;
+        }
+        if (error == -AlsaLib.EPIPE) {
+            xruns++;
+        }
+        int rc = lib.recover(pcm, error);
+        if (rc < 0) {
+            throw new IllegalStateException("ALSA " + device + ": " + lib.describe(rc));
+        }
+        if (error != -AlsaLib.EPIPE) {
+            log.warn("ALSA {}: восстановлено после {}", device, lib.describe(error));
+        }
+    }
+
+    // ========== Управление ==========
+
+    /**
+     * Запустить захват (воспроизведение стартует само по порогу)
+     */
+    public void start() {
+        if (capture && lib.state(pcm) == AlsaLib.STATE_PREPARED) {
+            int rc = lib.start(pcm);
+            if (rc < 0) {
+                recover(rc);
+            }
+        }
+    }
+
+    /**
+     * Остановить и выкинуть накопленное; устройство сразу готово к новому старту
+     */
+    public void drop() {
+        lib.drop(pcm);
+        lib.prepare(pcm);
+    }
+
+    /**
+     * Сколько кадров между приложением и ЦАП/АЦП прямо сейчас
+     * (для вывода - сколько ещё проиграется), -1 если неизвестно
+     */
+    public long getDelayFrames() {
+        synchronized (delayOut) {
+            return lib.delay(pcm, delayOut) < 0 ? -1 : delayOut.get(ValueLayout.JAVA_LONG, 0);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        AlsaLib.call(lib.close, pcm);
+        arena.close();
+    }
+
+    // ========== Параметры ==========
+
+    public String getDevice() {
+        return device;
+    }
+
+    public boolean isCapture() {
+        return capture;
+    }
+
+    public boolean isMmap() {
+        return mmap;
+    }
+
+    public int getRate() {
+        return rate;
+    }
+
+    public int getChannels() {
+        return channels;
+    }
+
+    public long getPeriodFrames() {
+        return periodFrames;
+    }
+
+    public long getBufferFrames() {
+        return bufferFrames;
+    }
+
+    public int getBufferMillis() {
+        return (int) (bufferFrames * 1000 / rate);
+    }
+
+    public int getPeriodMillis() {
+        return (int) (periodFrames * 1000 / rate);
+    }
+
+    /**
+     * Сколько раз был недогруз (вывод) или переполнение (захват)
+     */
+    public long getXruns() {
+        return xruns;
+    }
+}
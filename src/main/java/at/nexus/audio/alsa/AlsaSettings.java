@@ -0,0 +1,47 @@
+package at.nexus.audio.alsa;
+
+import at.nexus.audio.AudioConfig;
+
+/**
+ * Параметры ALSA устройства поверх {@link AudioConfig}.
+ *
+ * Задержка воспроизведения - заполненный буфер, то есть
+ * {@code periodMillis * playbackPeriods}; задержка захвата - один период,
+ * поэтому буфер захвата можно держать большим без потерь в задержке.
+ *
+ * @param device          имя PCM: {@code default}, {@code plughw:0,0}, {@code null}...
+ * @param periodMillis    период - как часто устройство будит читателя/писателя
+ * @param playbackPeriods периодов в буфере воспроизведения
+ * @param capturePeriods  периодов в буфере захвата (запас на отставание)
+ * @param mmap            писать и читать прямо в буфер устройства
+ *                        ({@code snd_pcm_mmap_begin}), иначе readi/writei
+ */
+public record AlsaSettings(String device, int periodMillis, int playbackPeriods, int capturePeriods, boolean mmap) {
+
+    public AlsaSettings {
+        if (periodMillis <= 0 || playbackPeriods < 2 || capturePeriods < 2) {
+            throw new IllegalArgumentException("Нужно period > 0 и не меньше 2 периодов: "
+                    + periodMillis + "ms x " + playbackPeriods + "/" + capturePeriods);
+        }
+    }
+
+    /**
+     * Настройки под кадр конфигурации: период - половина кадра (не меньше 5ms),
+     * три периода на воспроизведение, восемь на захват.
+     * Устройство и режим: {@code -Dnexus.alsa.device}, {@code -Dnexus.alsa.mmap}
+     */
+    public static AlsaSettings forConfig(AudioConfig config) {
+        return new AlsaSettings(
+                System.getProperty("nexus.alsa.device", "default"),
+                Math.max(5, config.frameMillis() / 2), 3, 8,
+                Boolean.parseBoolean(System.getProperty("nexus.alsa.mmap", "true")));
+    }
+
+    public AlsaSettings withDevice(String device) {
+        return new AlsaSettings(device, periodMillis, playbackPeriods, capturePeriods, mmap);
+    }
+
+    public AlsaSettings withMmap(boolean mmap) {
+        return new AlsaSettings(device, periodMillis, playbackPeriods, capturePeriods, mmap);
+    }
+}
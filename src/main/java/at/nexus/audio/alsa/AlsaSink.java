@@ -0,0 +1,143 @@
+package at.nexus.audio.alsa;
+
+import at.nexus.audio.AudioConfig;
+import at.nexus.audio.PcmWriter;
+import at.nexus.audio.io.AudioSink;
+import at.nexus.audio.io.FormatAdapter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sound.sampled.LineUnavailableException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Динамики напрямую через ALSA ({@link AlsaPcm}).
+ *
+ * Звука в пути - не больше буфера устройства
+ * ({@code periodMillis * playbackPeriods}); запись ждёт, пока в нём
+ * освободится место. {@link #flush()} выкидывает буфер устройства.
+ *
+ * Ни {@code snd_pcm_t}, ни {@link FormatAdapter} не потокобезопасны, а
+ * {@link #flush()} зовут из чужого потока (barge-in). Поэтому сброс
+ * только заказывается: если запись сейчас не идёт, он выполняется сразу,
+ * иначе - потоком воспроизведения сразу после текущей записи. Перебивающий
+ * поток не ждёт устройство.
+ */
+public class AlsaSink implements AudioSink {
+    private static final Logger log = LoggerFactory.getLogger(AlsaSink.class);
+
+    private final AlsaSettings settings;
+    private AlsaPcm pcm;
+    private PcmWriter deviceWriter;
+    private FormatAdapter adapter;
+
+    // Держит устройство и адаптер на время записи и сброса
+    private final ReentrantLock device = new ReentrantLock();
+    private volatile boolean flushRequested;
+
+    /**
+     * Настройки из {@link AlsaSettings#forConfig} при открытии
+     */
+    public AlsaSink() {
+        this(null);
+    }
+
+    public AlsaSink(AlsaSettings settings) {
+        this.settings = settings;
+    }
+
+    @Override
+    public void open(AudioConfig config) throws LineUnavailableException {
+        pcm = new AlsaPcm(settings != null ? settings : AlsaSettings.forConfig(config), false, config);
+        deviceWriter = pcm::write;
+        AudioConfig device = config.withFormat(pcm.getRate(), pcm.getChannels());
+        adapter = device.equals(config) ? null : FormatAdapter.playback(config, device);
+        if (adapter != null) {
+            log.info("ALSA вывод: частота конвейера не поддерживается, преобразование {}", adapter);
+        }
+    }
+
+    @Override
+    public int write(byte[] buffer, int offset, int length) {
+        int written;
+        device.lock();
+        try {
+            dropIfRequested();
+            written = adapter != null
+                    ? adapter.write(deviceWriter, buffer, offset, length)
+                    : pcm.write(buffer, offset, length);
+            // Сброс, заказанный во время записи, выкидывает и только что записанное
+            dropIfRequested();
+        } finally {
+            device.unlock();
+        }
+        // Заказали между проверкой и unlock: flush() не смог взять устройство
+        if (flushRequested) {
+            tryDrop();
+        }
+        return written;
+    }
+
+    @Override
+    public void stop() {
+        if (pcm != null) {
+            device.lock();
+            try {
+                pcm.drop();
+            } finally {
+                device.unlock();
+            }
+        }
+    }
+
+    @Override
+    public void flush() {
+        if (pcm == null) {
+            return;
+        }
+        flushRequested = true;
+        tryDrop();
+    }
+
+    /**
+     * Сбросить сейчас, если устройство свободно; иначе сбросит пишущий поток
+     */
+    private void tryDrop() {
+        if (device.tryLock()) {
+            try {
+                dropIfRequested();
+            } finally {
+                device.unlock();
+            }
+        }
+    }
+
+    /**
+     * Только под {@link #device}
+     */
+    private void dropIfRequested() {
+        if (!flushRequested) {
+            return;
+        }
+        flushRequested = false;
+        pcm.drop();
+        if (adapter != null) {
+            adapter.reset();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (pcm != null) {
+            log.info("ALSA вывод закрыт, недогрузов: {}", pcm.getXruns());
+            pcm.close();
+        }
+    }
+
+    /**
+     * Открытое устройство (null до {@link #open})
+     */
+    public AlsaPcm getPcm() {
+        return pcm;
+    }
+}
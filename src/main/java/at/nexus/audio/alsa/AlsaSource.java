@@ -0,0 +1,83 @@
+package at.nexus.audio.alsa;
+
+import at.nexus.audio.AudioConfig;
+import at.nexus.audio.PcmReader;
+import at.nexus.audio.io.AudioSource;
+import at.nexus.audio.io.FormatAdapter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sound.sampled.LineUnavailableException;
+
+/**
+ * Микрофон напрямую через ALSA ({@link AlsaPcm}), минуя буферы javax.sound.
+ *
+ * Задержка захвата - один период устройства, а не буфер линии.
+ * Если устройство не дало частоту конвейера, звук приводится к ней
+ * через {@link FormatAdapter}, как у {@link at.nexus.audio.io.LineSource}.
+ */
+public class AlsaSource implements AudioSource {
+    private static final Logger log = LoggerFactory.getLogger(AlsaSource.class);
+
+    private final AlsaSettings settings;
+    private AlsaPcm pcm;
+    private PcmReader deviceReader;
+    private FormatAdapter adapter;
+
+    /**
+     * Настройки из {@link AlsaSettings#forConfig} при открытии
+     */
+    public AlsaSource() {
+        this(null);
+    }
+
+    public AlsaSource(AlsaSettings settings) {
+        this.settings = settings;
+    }
+
+    @Override
+    public void open(AudioConfig config) throws LineUnavailableException {
+        pcm = new AlsaPcm(settings != null ? settings : AlsaSettings.forConfig(config), true, config);
+        deviceReader = pcm::read;
+        AudioConfig device = config.withFormat(pcm.getRate(), pcm.getChannels());
+        adapter = device.equals(config) ? null : FormatAdapter.capture(device, config);
+        if (adapter != null) {
+            log.info("ALSA захват: частота конвейера не поддерживается, преобразование {}", adapter);
+        }
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) {
+        if (adapter != null) {
+            return adapter.read(deviceReader, buffer, offset, length);
+        }
+        return pcm.read(buffer, offset, length);
+    }
+
+    @Override
+    public void start() {
+        pcm.start();
+    }
+
+    @Override
+    public void stop() {
+        if (pcm != null) {
+            pcm.drop();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (pcm != null) {
+            log.info("ALSA захват закрыт, переполнений: {}", pcm.getXruns());
+            pcm.close();
+        }
+    }
+
+    /**
+     * Открытое устройство (null до {@link #open})
+     */
+    public AlsaPcm getPcm() {
+        return pcm;
+    }
+}
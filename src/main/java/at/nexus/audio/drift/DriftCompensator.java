@@ -0,0 +1,144 @@
+package at.nexus.audio.drift;
+
+import at.nexus.audio.AudioConfig;
+import at.nexus.audio.PcmRingBuffer;
+import at.nexus.dsp.AdaptiveResampler;
+
+/**
+ * Чтение очереди с подстройкой под часы производителя.
+ *
+ * Захват и воспроизведение тактуются разными кварцами: если микрофон
+ * чуть быстрее динамиков, очередь между ними за часы вырастает
+ * на секунды, если медленнее - звук рвётся. Здесь очередь читается
+ * через {@link AdaptiveResampler}, а отношение задаёт
+ * {@link DriftEstimator}: динамики забирают чуть больше или чуть меньше
+ * сэмплов, чем играют, и задержка очереди держится на
+ * {@link DriftConfig#targetMillis()}.
+ *
+ * Перед воспроизведением очередь набирает этот запас; если производитель
+ * замолчал раньше (конец фразы), играет то, что есть. Опустевшая
+ * очередь снова набирает запас, оценка дрейфа при этом сохраняется.
+ *
+ * Подстройка для непрерывного производителя (захват без пауз, поток
+ * с другого устройства). Если очередь пишется фразами и пустеет между
+ * ними, оценка дрейфа появляется только после трёх окон
+ * {@link DriftConfig#windowSeconds()} непрерывной игры (по умолчанию
+ * полминуты). Фразы короче этого ничего не выигрывают, а каждая
+ * начинается на {@link DriftConfig#targetMillis()} позже.
+ *
+ * {@link #read} - из потока воспроизведения, {@link #clear()}
+ * и состояние - из любого.
+ */
+public class DriftCompensator {
+
+    // Сколько чтений подряд очередь не растёт, чтобы играть без полного запаса
+    private static final int IDLE_READS = 2;
+
+    private final PcmRingBuffer queue;
+    private final int channels;
+    private final int target;
+    private final int maxFrames;
+    private final DriftEstimator estimator;
+    private final AdaptiveResampler resampler;
+    private final short[] scratch;
+
+    // Поток воспроизведения
+    private boolean primed;
+    private int lastQueued;
+    private int idleReads;
+
+    private volatile boolean flush;
+    private volatile long underruns;
+    private volatile double driftPpm;
+    private volatile double latencyMillis;
+
+    public DriftCompensator(AudioConfig config, DriftConfig drift, PcmRingBuffer queue) {
+        this.queue = queue;
+        this.channels = config.channels();
+        this.target = config.samplesForMillis(drift.targetMillis()) / channels;
+        // Кадр микшера с запасом на поправку и хвост фильтра
+        this.maxFrames = config.frameSamples() / channels * 2;
+        this.estimator = new DriftEstimator(config.sampleRate(), drift);
+        this.resampler = new AdaptiveResampler(channels, maxFrames + maxFrames / 2);
+        this.scratch = new short[(maxFrames + maxFrames / 2) * channels];
+    }
+
+    /**
+     * Забрать до {@code length} сэмплов, не дожидаясь данных
+     * @return количество сэмплов, 0 если очередь набирает запас
+     */
+    public int read(short[] dst, int offset, int length) {
+        if (flush) {
+            flush = false;
+            resampler.reset();
+            primed = false;
+            lastQueued = 0;
+            idleReads = 0;
+        }
+        int frames = Math.min(length / channels, maxFrames);
+        int queued = queue.available() / channels;
+        // Задержка: очередь и то, что уже во входе фильтра
+        double fill = queued + resampler.getPendingFrames();
+        if (!primed) {
+            idleReads = queued > lastQueued ? 0 : idleReads + 1;
+            lastQueued = queued;
+            if (queued == 0 || (fill < target && idleReads < IDLE_READS)) {
+                return 0;
+            }
+            primed = true;
+            estimator.restart(fill);
+        }
+
+        int needed = Math.min(resampler.inputFramesFor(frames), queued);
+        int n = queue.read(scratch, 0, needed * channels) / channels;
+        int produced = resampler.process(scratch, 0, n, dst, offset, frames);
+        if (produced < frames) {
+            // Очередь опустела: недогруз или конец фразы
+            primed = false;
+            lastQueued = 0;
+            idleReads = 0;
+            underruns++;
+        } else {
+            resampler.setRatio(estimator.update(fill, frames));
+            driftPpm = estimator.getDriftPpm();
+            latencyMillis = estimator.getFillMillis();
+        }
+        return produced * channels;
+    }
+
+    /**
+     * Выкинуть очередь (перебивание); запас набирается заново
+     * @return сколько сэмплов выкинуто
+     */
+    public int clear() {
+        int discarded = queue.clear() + (int) resampler.getPendingFrames() * channels;
+        flush = true;
+        return discarded;
+    }
+
+    /**
+     * Оценка дрейфа: насколько производитель быстрее воспроизведения, ppm
+     */
+    public double getDriftPpm() {
+        return driftPpm;
+    }
+
+    /**
+     * Сглаженная задержка очереди, ms
+     */
+    public double getLatencyMillis() {
+        return latencyMillis;
+    }
+
+    /**
+     * Сколько раз очередь опустела посреди воспроизведения
+     * (включая концы фраз)
+     */
+    public long getUnderruns() {
+        return underruns;
+    }
+
+    public PcmRingBuffer getQueue() {
+        return queue;
+    }
+}
@@ -0,0 +1,39 @@
+package at.nexus.audio.drift;
+
+/**
+ * Настройки подстройки под расхождение часов ({@link DriftCompensator}).
+ *
+ * @param targetMillis     постоянная задержка очереди, которую держит подстройка
+ * @param maxPpm           предел поправки скорости, ppm (миллионные доли)
+ * @param windowSeconds    окно замера скорости производителя
+ * @param averagingSeconds усреднение оценки дрейфа; за столько же
+ *                         убирается отклонение задержки от цели
+ */
+public record DriftConfig(int targetMillis, double maxPpm, double windowSeconds, double averagingSeconds) {
+
+    public DriftConfig {
+        if (targetMillis <= 0) {
+            throw new IllegalArgumentException("Задержка должна быть положительной: " + targetMillis);
+        }
+        if (maxPpm <= 0 || maxPpm > 10_000) {
+            throw new IllegalArgumentException("Предел поправки вне (0, 10000] ppm: " + maxPpm);
+        }
+        if (windowSeconds <= 0 || averagingSeconds < windowSeconds) {
+            throw new IllegalArgumentException("Нужно 0 < window <= averaging, получено "
+                    + windowSeconds + "/" + averagingSeconds);
+        }
+    }
+
+    /**
+     * 60 ms запаса (три кадра LOW), поправка до 0.1%: кварцы расходятся
+     * на десятки ppm, а 0.1% на слух незаметны. Дрейф меняется
+     * с температурой за десятки минут - усреднение 5 минут успевает.
+     */
+    public static DriftConfig defaults() {
+        return new DriftConfig(60, 1000, 10, 300);
+    }
+
+    public DriftConfig withTargetMillis(int targetMillis) {
+        return new DriftConfig(targetMillis, maxPpm, windowSeconds, averagingSeconds);
+    }
+}
@@ -0,0 +1,132 @@
+package at.nexus.audio.drift;
+
+/**
+ * Оценка расхождения часов производителя и потребителя очереди
+ * по её заполнению.
+ *
+ * Время - сэмплы потребителя: каждый {@link #update} сообщает, сколько
+ * кадров он забрал, то есть сколько прошло по его часам. За окно
+ * {@link DriftConfig#windowSeconds()} производитель принёс столько,
+ * сколько забрано из очереди (с учётом текущей поправки), плюс прирост
+ * очереди - отношение к прошедшему времени и есть его скорость.
+ * Заполнение сглаживается: пачки записи дают пилу, а не наклон.
+ * Замеры по окнам усредняются, поправка к ним медленно возвращает
+ * задержку к цели.
+ *
+ * Смещение задержки (запас после паузы, застрявший кадр) в оценку
+ * скорости не попадает: оно не меняет наклон. Скачок заполнения
+ * внутри окна (устройство после недогруза продолжило с текущего
+ * момента) даёт один выброс - в оценку идёт медиана трёх последних
+ * окон. Не потокобезопасен: вызывается из потока потребителя.
+ */
+public class DriftEstimator {
+
+    // Сглаживание заполнения: убирает пилу от кадров записи и чтения
+    private static final double FILL_SMOOTHING_SECONDS = 1.0;
+    // После перезапуска окно начинается, когда сглаживание установилось
+    private static final double SETTLE_SECONDS = 3 * FILL_SMOOTHING_SECONDS;
+
+    private final double sampleRate;
+    private final double target;
+    private final double maxDeviation;
+    private final double window;
+    private final double averaging;
+
+    // Секунды звука в очереди, сглаженно
+    private double fill;
+    private double drift;
+    private double ratio = 1;
+
+    // Текущее окно замера
+    private double windowFill;
+    private double windowInput;
+    private double windowOutput;
+    private long windows;
+    private final double[] recent = new double[3];
+
+    public DriftEstimator(int sampleRate, DriftConfig config) {
+        this.sampleRate = sampleRate;
+        this.target = config.targetMillis() / 1000.0;
+        this.maxDeviation = config.maxPpm() / 1e6;
+        this.window = config.windowSeconds();
+        this.averaging = config.averagingSeconds();
+        restart(target * sampleRate);
+    }
+
+    /**
+     * Очередь заново набрала запас: сглаживание и окно начинаются
+     * с её заполнения, оценка дрейфа сохраняется - часы те же
+     */
+    public void restart(double fillFrames) {
+        fill = fillFrames / sampleRate;
+        windowOutput = -SETTLE_SECONDS;
+    }
+
+    private static double median(double[] three) {
+        return Math.max(Math.min(three[0], three[1]), Math.min(Math.max(three[0], three[1]), three[2]));
+    }
+
+    private void startWindow() {
+        windowFill = fill;
+        windowInput = 0;
+        windowOutput = 0;
+    }
+
+    /**
+     * @param fillFrames    заполнение очереди перед чтением, кадры
+     * @param elapsedFrames сколько кадров потребитель забирает сейчас
+     * @return отношение для передискретизации: входных кадров на выходной
+     */
+    public double update(double fillFrames, int elapsedFrames) {
+        double dt = elapsedFrames / sampleRate;
+        fill += (fillFrames / sampleRate - fill) * (1 - Math.exp(-dt / FILL_SMOOTHING_SECONDS));
+
+        boolean settling = windowOutput < 0;
+        if (settling) {
+            windowOutput += dt;
+            settling = windowOutput < 0;
+            if (!settling) {
+                startWindow();
+            }
+        } else if (windowOutput >= window) {
+            // Пришло = забрано + прирост очереди
+            double measured = (windowInput + fill - windowFill) / windowOutput - 1;
+            recent[(int) (windows++ % recent.length)] = Math.clamp(measured, -maxDeviation, maxDeviation);
+            if (windows >= recent.length) {
+                // Первые замеры - среднее по всем, дальше - скользящее
+                double gain = Math.max(1.0 / (windows - recent.length + 1), window / averaging);
+                drift += (median(recent) - drift) * gain;
+            }
+            startWindow();
+        }
+        if (!settling) {
+            // Это чтение идёт с поправкой, заданной прошлым вызовом
+            windowInput += dt * ratio;
+            windowOutput += dt;
+        }
+
+        ratio = 1 + Math.clamp(drift + (fill - target) / averaging, -maxDeviation, maxDeviation);
+        return ratio;
+    }
+
+    /**
+     * Текущее отношение скоростей с поправкой задержки (1 - часы совпадают)
+     */
+    public double getRatio() {
+        return ratio;
+    }
+
+    /**
+     * Оценка дрейфа: насколько производитель быстрее потребителя, ppm
+     */
+    public double getDriftPpm() {
+        return drift * 1e6;
+    }
+
+    /**
+     * Сглаженное заполнение очереди, ms
+     */
+    public double getFillMillis() {
+        return fill * 1000;
+    }
+}
@@ -0,0 +1,54 @@
+package at.nexus.audio.io;
+
+import at.nexus.audio.alsa.AlsaSink;
+import at.nexus.audio.alsa.AlsaSource;
+
+/**
+ * Через что идёт звук устройства: javax.sound или ALSA напрямую.
+ *
+ * javax.sound работает везде, но держит собственные буферы поверх
+ * буферов карты. ALSA (только Linux) даёт явные период и буфер
+ * устройства и mmap, поэтому задержка ниже; настройки - {@link at.nexus.audio.alsa.AlsaSettings}.
+ * Выбор в приложении: {@code -Dnexus.audio=JAVASOUND|ALSA}.
+ */
+public enum AudioBackend {
+    JAVASOUND {
+        @Override
+        public AudioSource source() {
+            return new LineSource();
+        }
+
+        @Override
+        public AudioSink sink() {
+            return new LineSink();
+        }
+    },
+    ALSA {
+        @Override
+        public AudioSource source() {
+            return new AlsaSource();
+        }
+
+        @Override
+        public AudioSink sink() {
+            return new AlsaSink();
+        }
+    };
+
+    /**
+     * Микрофон этого бэкенда (ещё не открыт)
+     */
+    public abstract AudioSource source();
+
+    /**
+     * Динамики этого бэкенда (ещё не открыты)
+     */
+    public abstract AudioSink sink();
+
+    /**
+     * Бэкенд из {@code -Dnexus.audio}, по умолчанию javax.sound
+     */
+    public static AudioBackend fromSystemProperty() {
+        return valueOf(System.getProperty("nexus.audio", JAVASOUND.name()));
+    }
+}
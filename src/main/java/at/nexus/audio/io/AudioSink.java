@@ -0,0 +1,42 @@
+package at.nexus.audio.io;
+
+import at.nexus.audio.AudioConfig;
+import at.nexus.audio.PcmWriter;
+
+import javax.sound.sampled.LineUnavailableException;
+
+/**
+ * Приёмник звука для {@link at.nexus.audio.AudioOutputManager}:
+ * динамики, заглушка или виртуальный вывод демо.
+ *
+ * Жизненный цикл: {@link #open} -> {@link #start} -> {@link #write}... ->
+ * {@link #stop} -> {@link #close}. Методы жизненного цикла по умолчанию
+ * ничего не делают, поэтому любой {@link PcmWriter} превращается
+ * в приёмник ссылкой на метод: {@code (AudioSink) writer::write}.
+ */
+@FunctionalInterface
+public interface AudioSink extends PcmWriter, AutoCloseable {
+
+    /**
+     * Подготовить приёмник под формат конфигурации
+     * @throws LineUnavailableException устройство недоступно или формат не подходит
+     */
+    default void open(AudioConfig config) throws LineUnavailableException {
+    }
+
+    default void start() {
+    }
+
+    default void stop() {
+    }
+
+    /**
+     * Выкинуть то, что приёмник накопил, но ещё не проиграл
+     */
+    default void flush() {
+    }
+
+    @Override
+    default void close() {
+    }
+}
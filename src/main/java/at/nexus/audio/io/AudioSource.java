@@ -0,0 +1,44 @@
+package at.nexus.audio.io;
+
+import at.nexus.audio.AudioConfig;
+import at.nexus.audio.PcmReader;
+
+import javax.sound.sampled.LineUnavailableException;
+
+/**
+ * Источник звука для {@link at.nexus.audio.AudioInputManager}:
+ * микрофон, WAV файл или генератор.
+ *
+ * Жизненный цикл: {@link #open} -> {@link #start} -> {@link #read}... ->
+ * {@link #stop} -> {@link #close}. {@code read} блокируется до появления
+ * данных (в темпе источника) и возвращает -1, когда источник закончился.
+ */
+public interface AudioSource extends PcmReader, AutoCloseable {
+
+    /** Значение {@link #read}: данных больше не будет */
+    int END_OF_STREAM = -1;
+
+    /**
+     * Подготовить источник под формат конфигурации
+     * @throws LineUnavailableException устройство недоступно или формат не подходит
+     */
+    void open(AudioConfig config) throws LineUnavailableException;
+
+    default void start() {
+    }
+
+    default void stop() {
+    }
+
+    @Override
+    default void close() {
+    }
+
+    /**
+     * Темп выдачи данных. Источник без ожидания нельзя терять:
+     * менеджер захвата для него ждёт потребителя вместо выбрасывания
+     */
+    default ClockMode getClockMode() {
+        return ClockMode.REALTIME;
+    }
+}
@@ -0,0 +1,11 @@
+package at.nexus.audio.io;
+
+/**
+ * Темп, в котором файловые и синтетические бэкенды отдают/принимают звук.
+ */
+public enum ClockMode {
+    /** Как настоящее устройство: блок длительностью 20ms занимает 20ms */
+    REALTIME,
+    /** Без ожидания - для замеров пропускной способности и прогонов в CI */
+    AS_FAST_AS_POSSIBLE
+}
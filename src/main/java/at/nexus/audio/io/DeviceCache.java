@@ -0,0 +1,106 @@
+package at.nexus.audio.io;
+
+import at.nexus.audio.AudioConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sound.sampled.DataLine;
+import javax.sound.sampled.TargetDataLine;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/**
+ * Выбор устройства с прошлого запуска: микшер и формат линии для
+ * формата конвейера.
+ *
+ * Перебор форматов по всем микшерам ({@link DeviceFormats}) на старте
+ * стоит десятки-сотни миллисекунд, а результат почти всегда тот же.
+ * Файл - {@code -Dnexus.device.cache} (по умолчанию
+ * {@code ~/.cache/nexus/devices.properties}), пустое значение - без кэша.
+ * Запись: {@code capture.16000.1=48000,2,имя микшера}. Потокобезопасен
+ * (микрофон и динамики открываются параллельно).
+ */
+final class DeviceCache {
+    private static final Logger log = LoggerFactory.getLogger(DeviceCache.class);
+
+    private static final Path FILE = file();
+
+    private static Properties entries;
+
+    /**
+     * @param mixer имя микшера ({@code Mixer.Info.getName()})
+     */
+    record Entry(String mixer, int sampleRate, int channels) {
+    }
+
+    private DeviceCache() {
+    }
+
+    private static Path file() {
+        String path = System.getProperty("nexus.device.cache",
+                Path.of(System.getProperty("user.home"), ".cache", "nexus", "devices.properties").toString());
+        return path.isBlank() ? null : Path.of(path);
+    }
+
+    static String key(Class<? extends DataLine> lineClass, AudioConfig pipeline) {
+        return (TargetDataLine.class.isAssignableFrom(lineClass) ? "capture" : "playback")
+                + "." + pipeline.sampleRate() + "." + pipeline.channels();
+    }
+
+    /**
+     * @return null, если для ключа ничего не сохранено
+     */
+    static synchronized Entry get(String key) {
+        String value = load().getProperty(key);
+        if (value == null) {
+            return null;
+        }
+        String[] parts = value.split(",", 3);
+        try {
+            return new Entry(parts[2], Integer.parseInt(parts[0]), Integer.parseInt(parts[1]));
+        } catch (RuntimeException e) {
+            log.warn("Кэш устройств: непонятная запись {}={}", key, value);
+            return null;
+        }
+    }
+
+    static synchronized void put(String key, Entry entry) {
+        String value = entry.sampleRate() + "," + entry.channels() + "," + entry.mixer();
+        if (FILE == null || value.equals(load().getProperty(key))) {
+            return;
+        }
+        entries.setProperty(key, value);
+        try {
+            Files.createDirectories(FILE.getParent());
+            Path tmp = FILE.resolveSibling(FILE.getFileName() + ".tmp");
+            try (Writer writer = Files.newBufferedWriter(tmp)) {
+                entries.store(writer, "Nexus: устройства с прошлого запуска");
+            }
+            Files.move(tmp, FILE, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            log.warn("Кэш устройств не записан ({}): {}", FILE, e.toString());
+        }
+    }
+
+    private static Properties load() {
+        if (entries == null) {
+            entries = new Properties();
+            if (FILE != null) {
+                try (Reader reader = Files.newBufferedReader(FILE)) {
+                    entries.load(reader);
+                } catch (NoSuchFileException e) {
+                    // Первый запуск
+                } catch (IOException e) {
+                    log.warn("Кэш устройств не прочитан ({}): {}", FILE, e.toString());
+                }
+            }
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,124 @@
+package at.nexus.audio.io;
+
+import at.nexus.audio.AudioConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.DataLine;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.Mixer;
+
+/**
+ * Подбор формата линии, который устройство реально поддерживает.
+ *
+ * Сначала пробуется формат конвейера как есть, затем типичные
+ * родные частоты карт (от 48 kHz вниз) - та, что выше частоты
+ * конвейера, даёт меньше потерь при передискретизации.
+ *
+ * Выбранные микшер и формат запоминаются ({@link DeviceCache}):
+ * при следующем запуске линия берётся сразу у того же микшера
+ * с одной проверкой вместо перебора.
+ */
+final class DeviceFormats {
+    private static final Logger log = LoggerFactory.getLogger(DeviceFormats.class);
+
+    private static final int[] NATIVE_RATES = {48000, 44100, 32000, 24000, 22050, 16000};
+
+    /**
+     * Линия (ещё не открыта) и её формат
+     */
+    record Choice(AudioConfig device, DataLine line) {
+    }
+
+    private DeviceFormats() {
+    }
+
+    /**
+     * Линия в поддерживаемом формате: с микшера прошлого запуска, если
+     * он на месте, иначе перебором форматов и микшеров
+     * @param lineClass {@code TargetDataLine.class} или {@code SourceDataLine.class}
+     * @return null, если ни один формат не поддерживается
+     */
+    static Choice getLine(Class<? extends DataLine> lineClass, AudioConfig pipeline) throws LineUnavailableException {
+        // Микшер по умолчанию задан явно (javax.sound.sampled.*) - выбирает AudioSystem
+        boolean cacheable = System.getProperty(lineClass.getName()) == null;
+        String key = DeviceCache.key(lineClass, pipeline);
+        DeviceCache.Entry cached = cacheable ? DeviceCache.get(key) : null;
+        if (cached != null) {
+            AudioConfig device = pipeline.withFormat(cached.sampleRate(), cached.channels());
+            Choice choice = fromMixer(lineClass, device, cached.mixer());
+            if (choice != null) {
+                return choice;
+            }
+            log.info("Устройство прошлого запуска '{}' недоступно, подбор заново", cached.mixer());
+        }
+
+        AudioConfig device = choose(lineClass, pipeline);
+        if (device == null) {
+            return null;
+        }
+        DataLine.Info info = info(lineClass, device);
+        if (cacheable) {
+            for (Mixer.Info mixerInfo : AudioSystem.getMixerInfo()) {
+                Mixer mixer = AudioSystem.getMixer(mixerInfo);
+                if (mixer.isLineSupported(info)) {
+                    try {
+                        Choice choice = new Choice(device, (DataLine) mixer.getLine(info));
+                        DeviceCache.put(key, new DeviceCache.Entry(mixerInfo.getName(),
+                                device.sampleRate(), device.channels()));
+                        return choice;
+                    } catch (LineUnavailableException e) {
+                        // Все линии микшера заняты - следующий
+                    }
+                }
+            }
+        }
+        return new Choice(device, (DataLine) AudioSystem.getLine(info));
+    }
+
+    private static Choice fromMixer(Class<? extends DataLine> lineClass, AudioConfig device, String name) {
+        DataLine.Info info = info(lineClass, device);
+        for (Mixer.Info mixerInfo : AudioSystem.getMixerInfo()) {
+            if (mixerInfo.getName().equals(name)) {
+                Mixer mixer = AudioSystem.getMixer(mixerInfo);
+                if (mixer.isLineSupported(info)) {
+                    try {
+                        return new Choice(device, (DataLine) mixer.getLine(info));
+                    } catch (LineUnavailableException e) {
+                        return null;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param lineClass {@code TargetDataLine.class} или {@code SourceDataLine.class}
+     * @return конфигурация устройства или null, если ни один формат не поддерживается
+     */
+    private static AudioConfig choose(Class<? extends DataLine> lineClass, AudioConfig pipeline) {
+        if (isSupported(lineClass, pipeline)) {
+            return pipeline;
+        }
+        int[] channels = {pipeline.channels(), 1, 2};
+        for (int rate : NATIVE_RATES) {
+            for (int ch : channels) {
+                AudioConfig candidate = pipeline.withFormat(rate, ch);
+                if (isSupported(lineClass, candidate)) {
+                    return candidate;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static boolean isSupported(Class<? extends DataLine> lineClass, AudioConfig config) {
+        return AudioSystem.isLineSupported(info(lineClass, config));
+    }
+
+    private static DataLine.Info info(Class<? extends DataLine> lineClass, AudioConfig config) {
+        return new DataLine.Info(lineClass, config.toAudioFormat());
+    }
+}
@@ -0,0 +1,160 @@
+package at.nexus.audio.io;
+
+import at.nexus.audio.AudioConfig;
+import at.nexus.audio.PcmReader;
+import at.nexus.audio.PcmWriter;
+import at.nexus.dsp.ChannelMixer;
+import at.nexus.dsp.PcmOps;
+import at.nexus.dsp.Resampler;
+
+/**
+ * Преобразование формата на лету между устройством (или клиентом
+ * сервера) и конвейером: частота через {@link Resampler}, число каналов
+ * через {@link ChannelMixer}.
+ *
+ * Передискретизация идёт по меньшему числу каналов: при сведении
+ * в моно сначала смешиваем, потом меняем частоту, при размножении
+ * каналов - наоборот. Все буферы выделяются в конструкторе.
+ * Устройство отдаёт и принимает только целые кадры. Не потокобезопасен.
+ */
+public final class FormatAdapter {
+
+    private final int inRate;
+    private final int inChannels;
+    private final int outRate;
+    private final int outChannels;
+    private final int inFrameBytes;
+    private final int outFrameBytes;
+    private final int maxInFrames;
+    private final Resampler resampler;
+
+    private final byte[] inBytes;
+    private final short[] inShorts;
+    private final short[] mixed;
+    private final short[] outShorts;
+    private final byte[] outBytes;
+    // Выход, не забранный предыдущим read
+    private int pendingPosition;
+    private int pendingLength;
+
+    /**
+     * @param maxInFrames сколько входных кадров обрабатывать за раз
+     */
+    public FormatAdapter(int inRate, int inChannels, int outRate, int outChannels, int maxInFrames) {
+        this.inRate = inRate;
+        this.inChannels = inChannels;
+        this.outRate = outRate;
+        this.outChannels = outChannels;
+        this.inFrameBytes = inChannels * AudioConfig.BYTES_PER_SAMPLE;
+        this.outFrameBytes = outChannels * AudioConfig.BYTES_PER_SAMPLE;
+        this.maxInFrames = maxInFrames;
+        int channels = Math.min(inChannels, outChannels);
+        this.resampler = new Resampler(inRate, outRate, channels);
+
+        int maxOutFrames = resampler.maxOutputFrames(maxInFrames);
+        this.inBytes = new byte[maxInFrames * inFrameBytes];
+        this.inShorts = new short[maxInFrames * inChannels];
+        this.mixed = new short[Math.max(maxInFrames, maxOutFrames) * channels];
+        this.outShorts = new short[maxOutFrames * outChannels];
+        this.outBytes = new byte[maxOutFrames * outFrameBytes];
+    }
+
+    /**
+     * Адаптер из формата устройства {@code device} в формат конвейера {@code pipeline}
+     */
+    public static FormatAdapter capture(AudioConfig device, AudioConfig pipeline) {
+        return new FormatAdapter(device.sampleRate(), device.channels(),
+                pipeline.sampleRate(), pipeline.channels(), chunkFrames(device));
+    }
+
+    /**
+     * Адаптер из формата конвейера {@code pipeline} в формат устройства {@code device}
+     */
+    public static FormatAdapter playback(AudioConfig pipeline, AudioConfig device) {
+        return new FormatAdapter(pipeline.sampleRate(), pipeline.channels(),
+                device.sampleRate(), device.channels(), chunkFrames(pipeline));
+    }
+
+    // Порция обработки - пара кадров конфигурации
+    private static int chunkFrames(AudioConfig config) {
+        return Math.max(256, config.samplesForMillis(config.frameMillis() * 2) / config.channels());
+    }
+
+    /**
+     * Прочитать из {@code source} (формат входа) до {@code length} байт в формате выхода
+     * @return количество байт или результат {@code source}, если он не дал данных
+     */
+    public int read(PcmReader source, byte[] buffer, int offset, int length) {
+        int wantedFrames = length / outFrameBytes;
+        while (pendingPosition == pendingLength) {
+            int frames = Math.clamp(resampler.inputFramesFor(wantedFrames), 1, maxInFrames);
+            int got = source.read(inBytes, 0, frames * inFrameBytes);
+            if (got <= 0) {
+                return got;
+            }
+            pendingLength = convert(got / inFrameBytes) * outFrameBytes;
+            pendingPosition = 0;
+        }
+        int n = Math.min(wantedFrames * outFrameBytes, pendingLength - pendingPosition);
+        System.arraycopy(outBytes, pendingPosition, buffer, offset, n);
+        pendingPosition += n;
+        return n;
+    }
+
+    /**
+     * Записать {@code length} байт формата входа в {@code sink} в формате выхода
+     * @return количество принятых входных байт
+     */
+    public int write(PcmWriter sink, byte[] buffer, int offset, int length) {
+        int consumed = 0;
+        while (consumed + inFrameBytes <= length) {
+            int frames = Math.min(maxInFrames, (length - consumed) / inFrameBytes);
+            System.arraycopy(buffer, offset + consumed, inBytes, 0, frames * inFrameBytes);
+            consumed += frames * inFrameBytes;
+
+            int bytes = convert(frames) * outFrameBytes;
+            for (int written = 0; written < bytes; ) {
+                int n = sink.write(outBytes, written, bytes - written);
+                if (n <= 0) {
+                    return consumed; // вывод закрыт - остаток теряется
+                }
+                written += n;
+            }
+        }
+        return consumed;
+    }
+
+    /**
+     * Преобразовать {@code frames} кадров из inBytes в outBytes
+     * @return количество выходных кадров
+     */
+    private int convert(int frames) {
+        PcmOps.toShorts(inBytes, 0, inShorts, 0, frames * inChannels);
+        int produced;
+        if (inChannels == outChannels) {
+            produced = resampler.process(inShorts, 0, frames, outShorts, 0);
+        } else if (outChannels < inChannels) {
+            ChannelMixer.convert(inShorts, 0, inChannels, mixed, 0, outChannels, frames);
+            produced = resampler.process(mixed, 0, frames, outShorts, 0);
+        } else {
+            produced = resampler.process(inShorts, 0, frames, mixed, 0);
+            ChannelMixer.convert(mixed, 0, inChannels, outShorts, 0, outChannels, produced);
+        }
+        PcmOps.toBytes(outShorts, 0, outBytes, 0, produced * outChannels);
+        return produced;
+    }
+
+    /**
+     * Забыть историю фильтра и непрочитанный выход (новый поток)
+     */
+    public void reset() {
+        resampler.reset();
+        pendingPosition = 0;
+        pendingLength = 0;
+    }
+
+    @Override
+    public String toString() {
+        return inRate + "Hz/" + inChannels + " кан. -> " + outRate + "Hz/" + outChannels + " кан.";
+    }
+}
@@ -0,0 +1,91 @@
+package at.nexus.audio.io;
+
+import at.nexus.audio.AudioConfig;
+import at.nexus.audio.PcmWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+
+/**
+ * Динамики через {@code javax.sound.sampled.SourceDataLine}.
+ *
+ * Как и {@link LineSource}, при неподдерживаемом формате конвейера
+ * открывает линию в родном формате карты и преобразует звук на лету.
+ */
+public class LineSink implements AudioSink {
+    private static final Logger log = LoggerFactory.getLogger(LineSink.class);
+
+    private SourceDataLine speaker;
+    private PcmWriter lineWriter;
+    private FormatAdapter adapter;
+
+    @Override
+    public void open(AudioConfig config) throws LineUnavailableException {
+        DeviceFormats.Choice choice = DeviceFormats.getLine(SourceDataLine.class, config);
+        if (choice == null) {
+            throw new LineUnavailableException("Динамики не поддерживаются");
+        }
+        AudioConfig device = choice.device();
+        AudioFormat format = device.toAudioFormat();
+
+        speaker = (SourceDataLine) choice.line();
+        // Явный размер буфера из профиля; без него (SAFE) - размер линии по умолчанию
+        if (device.playbackBufferMillis() == AudioConfig.LINE_DEFAULT) {
+            speaker.open(format);
+        } else {
+            speaker.open(format, device.playbackBufferBytes());
+        }
+        lineWriter = speaker::write;
+
+        log.info("Динамики инициализированы: {}Hz, {} бит, {} канал(ов), буфер {} байт (запрошено {})",
+                device.sampleRate(), AudioConfig.SAMPLE_SIZE_BITS, device.channels(),
+                speaker.getBufferSize(), device.playbackBufferBytes());
+
+        adapter = device.equals(config) ? null : FormatAdapter.playback(config, device);
+        if (adapter != null) {
+            log.info("Динамики: формат конвейера не поддерживается, преобразование {}", adapter);
+        }
+    }
+
+    @Override
+    public int write(byte[] buffer, int offset, int length) {
+        if (adapter != null) {
+            return adapter.write(lineWriter, buffer, offset, length);
+        }
+        return speaker.write(buffer, offset, length);
+    }
+
+    @Override
+    public void start() {
+        speaker.start();
+    }
+
+    @Override
+    public void stop() {
+        if (speaker != null) {
+            speaker.stop();
+        }
+    }
+
+    @Override
+    public void flush() {
+        if (speaker != null) {
+            // Линия не останавливается - только сбрасывает накопленное
+            speaker.flush();
+        }
+        if (adapter != null) {
+            adapter.reset();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (speaker != null) {
+            speaker.close();
+            log.info("Динамики закрыты");
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package at.nexus.audio.io;
+
+import at.nexus.audio.AudioConfig;
+import at.nexus.audio.PcmReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.TargetDataLine;
+
+/**
+ * Микрофон через {@code javax.sound.sampled.TargetDataLine}.
+ *
+ * Если карта не умеет формат конвейера (часто только 44.1/48 kHz стерео),
+ * линия открывается в родном формате, а частота и каналы приводятся
+ * к конвейеру на лету через {@link FormatAdapter}.
+ */
+public class LineSource implements AudioSource {
+    private static final Logger log = LoggerFactory.getLogger(LineSource.class);
+
+    private TargetDataLine microphone;
+    private PcmReader lineReader;
+    private FormatAdapter adapter;
+
+    @Override
+    public void open(AudioConfig config) throws LineUnavailableException {
+        DeviceFormats.Choice choice = DeviceFormats.getLine(TargetDataLine.class, config);
+        if (choice == null) {
+            throw new LineUnavailableException("Микрофон не поддерживается");
+        }
+        AudioConfig device = choice.device();
+        AudioFormat format = device.toAudioFormat();
+
+        microphone = (TargetDataLine) choice.line();
+
+        // Размер буфера линии берём из профиля задержки
+        microphone.open(format, device.captureBufferBytes());
+        lineReader = microphone::read;
+
+        log.info("Микрофон инициализирован: {}Hz, {} бит, {} канал(ов), буфер {} байт (запрошено {})",
+                device.sampleRate(), AudioConfig.SAMPLE_SIZE_BITS, device.channels(),
+                microphone.getBufferSize(), device.captureBufferBytes());
+
+        adapter = device.equals(config) ? null : FormatAdapter.capture(device, config);
+        if (adapter != null) {
+            log.info("Микрофон: формат конвейера не поддерживается, преобразование {}", adapter);
+        }
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) {
+        if (adapter != null) {
+            return adapter.read(lineReader, buffer, offset, length);
+        }
+        return microphone.read(buffer, offset, length);
+    }
+
+    @Override
+    public void start() {
+        microphone.start();
+    }
+
+    @Override
+    public void stop() {
+        if (microphone != null) {
+            microphone.stop();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (microphone != null) {
+            microphone.close();
+            log.info("Микрофон закрыт");
+        }
+    }
+}
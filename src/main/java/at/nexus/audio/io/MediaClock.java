@@ -0,0 +1,78 @@
+package at.nexus.audio.io;
+
+import at.nexus.audio.AudioConfig;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Часы медиа-времени для бэкендов без железа.
+ *
+ * Считает отданные байты и в режиме {@link ClockMode#REALTIME} ждёт,
+ * пока настенное время не догонит длительность звука. Отсчёт идёт от
+ * первого блока после {@link #reset()}, поэтому пауза между open и
+ * start не превращается в "долг", который потом выдаётся пачкой.
+ * По той же причине отсчёт сдвигается, если данные опоздали больше
+ * чем на {@code MAX_LATE_NANOS}: настоящая карта после недогруза
+ * играет дальше с текущего момента, а не наверстывает паузу.
+ */
+final class MediaClock {
+
+    private static final long MAX_LATE_NANOS = 50_000_000L;
+
+    private final ClockMode mode;
+    private long bytesPerSecond;
+    private long startNanos = -1;
+    private long bytes;
+
+    MediaClock(ClockMode mode) {
+        this.mode = mode;
+    }
+
+    void configure(AudioConfig config) {
+        this.bytesPerSecond = (long) config.sampleRate() * config.channels() * AudioConfig.BYTES_PER_SAMPLE;
+        reset();
+    }
+
+    void reset() {
+        startNanos = -1;
+        bytes = 0;
+    }
+
+    /**
+     * Учесть {@code length} байт и дождаться момента, когда они "прозвучали"
+     */
+    void advance(int length) {
+        if (mode != ClockMode.REALTIME || bytesPerSecond == 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (startNanos < 0) {
+            startNanos = now;
+        }
+        long late = now - (startNanos + nanosFor(bytes, bytesPerSecond));
+        if (late > MAX_LATE_NANOS) {
+            startNanos += late;
+        }
+        bytes += length;
+        long due = startNanos + nanosFor(bytes, bytesPerSecond);
+        long wait;
+        while ((wait = due - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(wait);
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+        }
+    }
+
+    ClockMode getMode() {
+        return mode;
+    }
+
+    /**
+     * Длительность {@code bytes} байт в нс. Секунды и остаток отдельно:
+     * {@code bytes * 10^9} переполняется уже через 80 часов звука 16kHz моно
+     */
+    static long nanosFor(long bytes, long bytesPerSecond) {
+        return bytes / bytesPerSecond * 1_000_000_000L + bytes % bytesPerSecond * 1_000_000_000L / bytesPerSecond;
+    }
+}
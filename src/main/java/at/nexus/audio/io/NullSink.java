@@ -0,0 +1,53 @@
+package at.nexus.audio.io;
+
+import at.nexus.audio.AudioConfig;
+
+/**
+ * Приёмник-заглушка: звук выкидывается, считаются только байты.
+ *
+ * В режиме {@link ClockMode#REALTIME} запись блокируется на длительность
+ * данных, как звуковая карта без собственного буфера; в режиме
+ * {@link ClockMode#AS_FAST_AS_POSSIBLE} возвращается сразу.
+ */
+public class NullSink implements AudioSink {
+
+    private final MediaClock clock;
+    private volatile long bytesWritten;
+
+    public NullSink(ClockMode mode) {
+        this.clock = new MediaClock(mode);
+    }
+
+    @Override
+    public void open(AudioConfig config) {
+        clock.configure(config);
+    }
+
+    @Override
+    public int write(byte[] buffer, int offset, int length) {
+        clock.advance(length);
+        bytesWritten += length;
+        return length;
+    }
+
+    @Override
+    public void start() {
+        clock.reset();
+    }
+
+    @Override
+    public void flush() {
+        clock.reset();
+    }
+
+    /**
+     * Сколько байт "проиграно" с момента создания
+     */
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    public ClockMode getClockMode() {
+        return clock.getMode();
+    }
+}
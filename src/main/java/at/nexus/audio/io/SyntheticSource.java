@@ -0,0 +1,103 @@
+package at.nexus.audio.io;
+
+import at.nexus.audio.AudioConfig;
+
+import java.util.SplittableRandom;
+
+/**
+ * Генератор тестового сигнала: синус (как beep в AudioOutputDemo),
+ * белый шум или тишина. Каналы получают одинаковый сэмпл.
+ *
+ * Бесконечен, если не задана длительность.
+ */
+public class SyntheticSource implements AudioSource {
+
+    public enum Waveform {
+        SINE,
+        NOISE,
+        SILENCE
+    }
+
+    private final Waveform waveform;
+    private final double frequency;
+    private final double amplitude;
+    private final long durationMillis;
+    private final MediaClock clock;
+    private final SplittableRandom random = new SplittableRandom(42);
+
+    private int sampleRate;
+    private int channels;
+    private long totalFrames; // 0 - бесконечно
+    private long frame;
+
+    /**
+     * @param frequency      частота синуса, Hz (для шума и тишины не используется)
+     * @param amplitude      амплитуда 0..1 от полной шкалы
+     * @param durationMillis длительность, 0 или меньше - бесконечно
+     */
+    public SyntheticSource(Waveform waveform, double frequency, double amplitude,
+                           ClockMode mode, long durationMillis) {
+        this.waveform = waveform;
+        this.frequency = frequency;
+        this.amplitude = amplitude;
+        this.durationMillis = durationMillis;
+        this.clock = new MediaClock(mode);
+    }
+
+    /**
+     * Бесконечный синус умеренной громкости
+     */
+    public static SyntheticSource tone(double frequency, ClockMode mode) {
+        return new SyntheticSource(Waveform.SINE, frequency, 0.5, mode, 0);
+    }
+
+    @Override
+    public void open(AudioConfig config) {
+        this.sampleRate = config.sampleRate();
+        this.channels = config.channels();
+        this.totalFrames = durationMillis > 0 ? durationMillis * sampleRate / 1000 : 0;
+        this.frame = 0;
+        clock.configure(config);
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) {
+        int frameBytes = channels * AudioConfig.BYTES_PER_SAMPLE;
+        int frames = length / frameBytes;
+        if (totalFrames > 0) {
+            if (frame >= totalFrames) {
+                return END_OF_STREAM;
+            }
+            frames = (int) Math.min(frames, totalFrames - frame);
+        }
+
+        double scale = amplitude * Short.MAX_VALUE;
+        double angular = 2.0 * Math.PI * frequency / sampleRate;
+        int pos = offset;
+        for (int i = 0; i < frames; i++, frame++) {
+            short sample = switch (waveform) {
+                case SINE -> (short) (Math.sin(angular * frame) * scale);
+                case NOISE -> (short) ((random.nextDouble() * 2 - 1) * scale);
+                case SILENCE -> 0;
+            };
+            for (int c = 0; c < channels; c++) {
+                buffer[pos++] = (byte) sample;
+                buffer[pos++] = (byte) (sample >> 8);
+            }
+        }
+
+        int n = frames * frameBytes;
+        clock.advance(n);
+        return n;
+    }
+
+    @Override
+    public void start() {
+        clock.reset();
+    }
+
+    @Override
+    public ClockMode getClockMode() {
+        return clock.getMode();
+    }
+}
@@ -0,0 +1,101 @@
+package at.nexus.audio.io;
+
+import at.nexus.audio.AudioConfig;
+import at.nexus.audio.PcmReader;
+import at.nexus.audio.wav.WavReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Источник из WAV файла (например, {@code recording.wav}).
+ *
+ * Файл отображается в память ({@link WavReader}) и читается прямо из
+ * страниц файла, поэтому длина записи не ограничена кучей; поддерживается
+ * 16-bit PCM (WAV и RF64). Если частота или число каналов не совпадают
+ * с конфигурацией захвата, звук приводится к ней на лету
+ * ({@link FormatAdapter}). По окончании файла {@link #read} возвращает
+ * {@link #END_OF_STREAM} или, в режиме повтора, начинает сначала.
+ */
+public class WavFileSource implements AudioSource {
+    private static final Logger log = LoggerFactory.getLogger(WavFileSource.class);
+
+    private final Path path;
+    private final WavReader reader;
+    private final boolean loop;
+    private final MediaClock clock;
+    private final PcmReader fileReader = this::readFile;
+    private FormatAdapter adapter;
+
+    public WavFileSource(Path path, ClockMode mode) throws IOException, UnsupportedAudioFileException {
+        this(path, mode, false);
+    }
+
+    /**
+     * @param loop повторять файл по кругу
+     */
+    public WavFileSource(Path path, ClockMode mode, boolean loop) throws IOException, UnsupportedAudioFileException {
+        this.path = path;
+        this.loop = loop;
+        this.clock = new MediaClock(mode);
+        this.reader = new WavReader(path);
+    }
+
+    @Override
+    public void open(AudioConfig config) throws LineUnavailableException {
+        AudioConfig file = config.withFormat(reader.getSampleRate(), reader.getChannels());
+        adapter = file.equals(config) ? null : FormatAdapter.capture(file, config);
+        clock.configure(config);
+        reader.seek(0);
+        log.info("Источник - файл {}: {} ms звука, {}", path, reader.getDurationMillis(), clock.getMode());
+        if (adapter != null) {
+            log.info("Формат файла не совпадает с конфигурацией, преобразование {}", adapter);
+        }
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) {
+        int n = adapter != null
+                ? adapter.read(fileReader, buffer, offset, length)
+                : readFile(buffer, offset, length);
+        if (n > 0) {
+            clock.advance(n); // темп - по байтам в формате конвейера
+        }
+        return n;
+    }
+
+    private int readFile(byte[] buffer, int offset, int length) {
+        int n = reader.read(buffer, offset, length); // целыми кадрами
+        if (n < 0 && loop && reader.getFrames() > 0) {
+            reader.seek(0);
+            n = reader.read(buffer, offset, length);
+        }
+        return n < 0 ? END_OF_STREAM : n;
+    }
+
+    @Override
+    public void start() {
+        clock.reset();
+    }
+
+    @Override
+    public ClockMode getClockMode() {
+        return clock.getMode();
+    }
+
+    @Override
+    public void close() {
+        reader.close();
+    }
+
+    /**
+     * Длина звука в файле, байт
+     */
+    public long length() {
+        return reader.getDataBytes();
+    }
+}
@@ -0,0 +1,52 @@
+package at.nexus.audio.mix;
+
+import at.nexus.audio.AudioConfig;
+import at.nexus.dsp.PcmOps;
+
+/**
+ * Короткие служебные сигналы для {@link StreamPriority#EARCON}.
+ *
+ * Сигналы синтезируются один раз при старте и дальше играют
+ * из готового массива ({@link MixerStream#of(short[], StreamPriority)}).
+ */
+public final class Earcons {
+
+    private static final double LEVEL = 0.12; // около -18 dBFS
+    private static final int FADE_MILLIS = 5;
+
+    private Earcons() {
+    }
+
+    /**
+     * "Услышал": два коротких восходящих тона, 120 ms
+     */
+    public static short[] acknowledge(AudioConfig config) {
+        return tones(config, new double[] {880, 1320}, 50, 20);
+    }
+
+    /**
+     * Тоны по {@code toneMillis} с паузами {@code gapMillis}, с плавными краями
+     */
+    private static short[] tones(AudioConfig config, double[] frequencies, int toneMillis, int gapMillis) {
+        int rate = config.sampleRate();
+        int tone = rate * toneMillis / 1000;
+        int period = tone + rate * gapMillis / 1000;
+        int fade = rate * FADE_MILLIS / 1000;
+        int frames = period * (frequencies.length - 1) + tone;
+        short[] out = new short[frames * config.channels()];
+        for (int t = 0; t < frames; t++) {
+            int index = t / period;
+            int inTone = t % period;
+            if (inTone >= tone) {
+                continue;
+            }
+            double envelope = Math.min(1, Math.min(inTone, tone - 1 - inTone) / (double) fade);
+            double value = LEVEL * envelope * Math.sin(2 * Math.PI * frequencies[index] * inTone / rate);
+            short sample = PcmOps.clip((int) Math.round(value * Short.MAX_VALUE));
+            for (int c = 0; c < config.channels(); c++) {
+                out[t * config.channels() + c] = sample;
+            }
+        }
+        return out;
+    }
+}
@@ -0,0 +1,36 @@
+package at.nexus.audio.mix;
+
+/**
+ * Настройки {@link OutputMixer}.
+ *
+ * @param maxStreams        сколько потоков звучит одновременно
+ * @param duckDb            ослабление приглушённого потока (отрицательное, dB)
+ * @param duckAttackMillis  постоянная времени приглушения, когда зазвучала речь
+ * @param duckReleaseMillis постоянная времени возврата громкости после речи
+ */
+public record MixerConfig(int maxStreams, double duckDb, int duckAttackMillis, int duckReleaseMillis) {
+
+    public MixerConfig {
+        if (maxStreams < 1) {
+            throw new IllegalArgumentException("Нужен хотя бы один поток: " + maxStreams);
+        }
+        if (duckDb > 0) {
+            throw new IllegalArgumentException("Приглушение не может усиливать: " + duckDb + " dB");
+        }
+        if (duckAttackMillis <= 0 || duckReleaseMillis <= 0) {
+            throw new IllegalArgumentException("Постоянные времени приглушения должны быть положительными");
+        }
+    }
+
+    /**
+     * Фон на 15 dB тише под речью: уходит за ~20ms, возвращается за ~300ms
+     * (не "дышит" в паузах между фразами)
+     */
+    public static MixerConfig defaults() {
+        return new MixerConfig(8, -15.0, 20, 300);
+    }
+
+    public MixerConfig withDuckDb(double duckDb) {
+        return new MixerConfig(maxStreams, duckDb, duckAttackMillis, duckReleaseMillis);
+    }
+}
@@ -0,0 +1,208 @@
+package at.nexus.audio.mix;
+
+import at.nexus.audio.AudioConfig;
+import at.nexus.audio.JitterBuffer;
+import at.nexus.audio.PcmRingBuffer;
+import at.nexus.dsp.PcmOps;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Источник звука для {@link OutputMixer}.
+ *
+ * {@link #read} вызывается из потока воспроизведения раз в кадр и не
+ * должен ни ждать, ни аллоцировать: чего нет к началу кадра, то
+ * прозвучит в следующем. Громкость ({@link #setGain}) меняется
+ * из любого потока, микшер плавно доводит её за один кадр.
+ */
+public abstract class MixerStream {
+
+    /** {@link #read} больше ничего не вернёт: поток доигран или отменён */
+    public static final int END = -1;
+
+    private final StreamPriority priority;
+    private volatile float gain = 1f;
+    private volatile boolean finished;
+
+    protected MixerStream(StreamPriority priority) {
+        this.priority = priority;
+    }
+
+    /**
+     * Забрать до {@code length} сэмплов, не дожидаясь данных
+     * @return количество сэмплов, 0 если пока нечего играть, или {@link #END}
+     */
+    public abstract int read(short[] dst, int offset, int length);
+
+    /**
+     * Прекратить поток из любого потока; следующий {@link #read} вернёт {@link #END}
+     * (кроме постоянных потоков)
+     * @return сколько сэмплов выкинуто
+     */
+    public abstract int cancel();
+
+    /**
+     * Постоянный поток (очередь вывода) не завершается и не вытесняется,
+     * {@link #cancel()} только выкидывает накопленное
+     */
+    protected boolean isPersistent() {
+        return false;
+    }
+
+    public StreamPriority getPriority() {
+        return priority;
+    }
+
+    public float getGain() {
+        return gain;
+    }
+
+    /**
+     * Громкость потока (1 - без изменений); действует со следующего кадра
+     */
+    public void setGain(float gain) {
+        if (gain < 0 || Float.isNaN(gain)) {
+            throw new IllegalArgumentException("Громкость не может быть отрицательной: " + gain);
+        }
+        this.gain = gain;
+    }
+
+    /**
+     * Поток доигран, отменён, вытеснен или не принят микшером
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    void markFinished() {
+        finished = true;
+    }
+
+    // ========== Источники ==========
+
+    /**
+     * Потоковый ответ TTS; дочитывается до {@link JitterBuffer#END},
+     * так что его слушатель узнаёт и о конце, и об отмене
+     */
+    public static MixerStream of(JitterBuffer buffer, StreamPriority priority) {
+        return new JitterStream(buffer, priority);
+    }
+
+    /**
+     * Очередь сэмплов: постоянный поток, играет всё, что в неё пишут
+     */
+    public static MixerStream of(PcmRingBuffer queue, StreamPriority priority) {
+        return new QueueStream(queue, priority);
+    }
+
+    /**
+     * Готовый звук (например, {@link Earcons}): играет один раз.
+     * Массив не копируется и может играть в нескольких потоках сразу.
+     */
+    public static MixerStream of(short[] clip, StreamPriority priority) {
+        return new ClipStream(clip, priority);
+    }
+
+    private static final class JitterStream extends MixerStream {
+        private final JitterBuffer buffer;
+        private byte[] bytes = new byte[0];
+
+        JitterStream(JitterBuffer buffer, StreamPriority priority) {
+            super(priority);
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read(short[] dst, int offset, int length) {
+            if (bytes.length < length * AudioConfig.BYTES_PER_SAMPLE) {
+                bytes = new byte[length * AudioConfig.BYTES_PER_SAMPLE]; // только на первом кадре
+            }
+            try {
+                int n = buffer.read(bytes, 0, length * AudioConfig.BYTES_PER_SAMPLE, 0, TimeUnit.NANOSECONDS);
+                if (n <= 0) {
+                    return n == JitterBuffer.END ? END : 0;
+                }
+                PcmOps.toShorts(bytes, 0, dst, offset, n / AudioConfig.BYTES_PER_SAMPLE);
+                return n / AudioConfig.BYTES_PER_SAMPLE;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return 0;
+            }
+        }
+
+        @Override
+        public int cancel() {
+            int discarded = buffer.getBufferedSamples();
+            buffer.cancel();
+            return discarded;
+        }
+
+        @Override
+        public String toString() {
+            return "tts/" + getPriority();
+        }
+    }
+
+    private static final class QueueStream extends MixerStream {
+        private final PcmRingBuffer queue;
+
+        QueueStream(PcmRingBuffer queue, StreamPriority priority) {
+            super(priority);
+            this.queue = queue;
+        }
+
+        @Override
+        public int read(short[] dst, int offset, int length) {
+            return queue.read(dst, offset, length);
+        }
+
+        @Override
+        public int cancel() {
+            return queue.clear();
+        }
+
+        @Override
+        protected boolean isPersistent() {
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return "queue/" + getPriority();
+        }
+    }
+
+    private static final class ClipStream extends MixerStream {
+        private final short[] clip;
+        private volatile int position;
+        private volatile boolean cancelled;
+
+        ClipStream(short[] clip, StreamPriority priority) {
+            super(priority);
+            this.clip = clip;
+        }
+
+        @Override
+        public int read(short[] dst, int offset, int length) {
+            int start = position;
+            int n = Math.min(length, clip.length - start);
+            if (n <= 0 || cancelled) {
+                return END;
+            }
+            System.arraycopy(clip, start, dst, offset, n);
+            position = start + n;
+            return n;
+        }
+
+        @Override
+        public int cancel() {
+            cancelled = true;
+            return Math.max(0, clip.length - position);
+        }
+
+        @Override
+        public String toString() {
+            return "clip/" + getPriority();
+        }
+    }
+}
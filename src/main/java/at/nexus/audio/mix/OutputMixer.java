@@ -0,0 +1,335 @@
+package at.nexus.audio.mix;
+
+import at.nexus.audio.AudioConfig;
+import at.nexus.dsp.PcmOps;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Микшер вывода: несколько потоков с приоритетами в один кадр.
+ *
+ * Поток воспроизведения раз в кадр вызывает {@link #render}: каждый
+ * поток отдаёт то, что у него есть (не дожидаясь), всё складывается
+ * с насыщением. Так сигнал подтверждения звучит сразу поверх
+ * идущего ответа TTS, а не после него.
+ *
+ * Пока звучит речь ({@link StreamPriority#ducksLower()}), младшие
+ * потоки плавно приглушаются на {@link MixerConfig#duckDb()}; громкость
+ * меняется линейно внутри кадра, без щелчков. Если мест нет, новый
+ * поток вытесняет самый младший из звучащих, если тот ниже его
+ * по приоритету, иначе не принимается.
+ *
+ * {@link #add} и {@link #cancel} - из любого потока; {@link #render},
+ * {@link #remix} и {@link #getDuckGain} - только из потока воспроизведения.
+ * Рендер не аллоцирует.
+ */
+public class OutputMixer {
+    private static final Logger log = LoggerFactory.getLogger(OutputMixer.class);
+
+    private static final StreamPriority[] PRIORITIES = StreamPriority.values();
+    // Громкость ближе этого к цели считается достигнутой
+    private static final float GAIN_EPSILON = 1e-4f;
+
+    private final AudioConfig config;
+    private final MixerConfig mixerConfig;
+    private final int frame;
+
+    private final Queue<MixerStream> pending = new ConcurrentLinkedQueue<>();
+    // Места меняются под lock, читаются потоком воспроизведения без него
+    private final Object lock = new Object();
+    private final MixerStream[] slots;
+    private int streams;
+
+    // Поток воспроизведения
+    private final short[][] scratch;
+    private final int[] lengths;
+    private final float[] appliedGain;
+    // Громкость, с которой поток вошёл в последний кадр (1 - уже в scratch)
+    private final float[] mixGain;
+    private final int[] duckers;
+    private final float[] duck;
+    private final float duckFloor;
+    private final float attack;
+    private final float release;
+
+    private volatile long frames;
+    private volatile long renderNanos;
+    private volatile long evicted;
+    private volatile long rejected;
+
+    public OutputMixer(AudioConfig config, MixerConfig mixerConfig) {
+        this.config = config;
+        this.mixerConfig = mixerConfig;
+        this.frame = config.frameSamples();
+        this.slots = new MixerStream[mixerConfig.maxStreams()];
+        this.scratch = new short[slots.length][frame];
+        this.lengths = new int[slots.length];
+        this.appliedGain = new float[slots.length];
+        this.mixGain = new float[slots.length];
+
+        // Кто кого приглушает: маска старших приоритетов с ducksLower
+        this.duckers = new int[PRIORITIES.length];
+        for (StreamPriority priority : PRIORITIES) {
+            for (StreamPriority higher : PRIORITIES) {
+                if (higher.ordinal() > priority.ordinal() && higher.ducksLower()) {
+                    duckers[priority.ordinal()] |= 1 << higher.ordinal();
+                }
+            }
+        }
+        this.duck = new float[PRIORITIES.length];
+        Arrays.fill(duck, 1f);
+        this.duckFloor = (float) Math.pow(10, mixerConfig.duckDb() / 20);
+        this.attack = (float) (1 - Math.exp(-(double) config.frameMillis() / mixerConfig.duckAttackMillis()));
+        this.release = (float) (1 - Math.exp(-(double) config.frameMillis() / mixerConfig.duckReleaseMillis()));
+    }
+
+    /**
+     * Добавить поток; зазвучит со следующего кадра
+     */
+    public void add(MixerStream stream) {
+        pending.offer(stream);
+    }
+
+    /**
+     * Отменить потоки приоритета {@code priority} (и ещё не добавленные)
+     * @return сколько сэмплов выкинуто
+     */
+    public int cancel(StreamPriority priority) {
+        int discarded = 0;
+        synchronized (lock) {
+            for (MixerStream stream : slots) {
+                if (stream != null && stream.getPriority() == priority) {
+                    discarded += stream.cancel();
+                }
+            }
+            for (MixerStream stream : pending) {
+                if (stream.getPriority() == priority) {
+                    discarded += stream.cancel();
+                }
+            }
+        }
+        return discarded;
+    }
+
+    /**
+     * Отменить все потоки
+     * @return сколько сэмплов выкинуто
+     */
+    public int cancelAll() {
+        int discarded = 0;
+        for (StreamPriority priority : PRIORITIES) {
+            discarded += cancel(priority);
+        }
+        return discarded;
+    }
+
+    /**
+     * Смешать очередной кадр в {@code out} ({@link AudioConfig#frameSamples()} сэмплов).
+     * Хвост после самого длинного потока заполняется нулями.
+     * @return сколько сэмплов кадра занято звуком, 0 - все потоки молчат
+     */
+    public int render(short[] out) {
+        long start = System.nanoTime();
+        if (!pending.isEmpty()) {
+            admitPending();
+        }
+
+        int audible = 0;
+        int rendered = 0;
+        for (int i = 0; i < slots.length; i++) {
+            MixerStream stream = slots[i];
+            lengths[i] = 0;
+            if (stream == null) {
+                continue;
+            }
+            int n = stream.read(scratch[i], 0, frame);
+            if (n == MixerStream.END) {
+                remove(i);
+            } else if (n > 0) {
+                lengths[i] = n;
+                audible |= 1 << stream.getPriority().ordinal();
+                rendered = Math.max(rendered, n);
+            }
+        }
+
+        for (int p = 0; p < duck.length; p++) {
+            float target = (audible & duckers[p]) != 0 ? duckFloor : 1f;
+            float current = duck[p];
+            current += (target - current) * (target < current ? attack : release);
+            duck[p] = Math.abs(target - current) < GAIN_EPSILON ? target : current;
+        }
+
+        Arrays.fill(out, 0, frame, (short) 0);
+        for (int i = 0; i < slots.length; i++) {
+            int n = lengths[i];
+            if (n == 0) {
+                continue;
+            }
+            MixerStream stream = slots[i];
+            float to = stream.getGain() * duck[stream.getPriority().ordinal()];
+            float from = appliedGain[i] < 0 ? to : appliedGain[i];
+            if (Math.abs(to - from) < GAIN_EPSILON) {
+                mixGain[i] = to;
+            } else {
+                ramp(scratch[i], n, from, to);
+                mixGain[i] = 1f;
+            }
+            PcmOps.mix(scratch[i], 0, out, 0, n, mixGain[i]);
+            appliedGain[i] = to;
+        }
+
+        renderNanos += System.nanoTime() - start;
+        frames++;
+        return rendered;
+    }
+
+    /**
+     * Пересобрать последний кадр {@link #render} без потоков приоритета
+     * {@code excluded}: остальные уже продвинулись на этот кадр, и выкинуть
+     * его целиком значило бы потерять их звук. Громкость - та же, что в кадре.
+     * Только из потока воспроизведения.
+     * @return сколько сэмплов кадра занято звуком, 0 - остальные молчали
+     */
+    public int remix(short[] out, StreamPriority excluded) {
+        int rendered = 0;
+        Arrays.fill(out, 0, frame, (short) 0);
+        for (int i = 0; i < slots.length; i++) {
+            int n = lengths[i];
+            if (n == 0 || slots[i].getPriority() == excluded) {
+                continue;
+            }
+            PcmOps.mix(scratch[i], 0, out, 0, n, mixGain[i]);
+            rendered = Math.max(rendered, n);
+        }
+        return rendered;
+    }
+
+    /**
+     * Громкость линейно от {@code from} к {@code to} за {@code length} сэмплов
+     */
+    private static void ramp(short[] samples, int length, float from, float to) {
+        float step = (to - from) / length;
+        float gain = from;
+        for (int i = 0; i < length; i++) {
+            gain += step;
+            samples[i] = PcmOps.clip(Math.round(samples[i] * gain));
+        }
+    }
+
+    private void admitPending() {
+        synchronized (lock) {
+            MixerStream stream;
+            while ((stream = pending.poll()) != null) {
+                int slot = freeSlot();
+                if (slot < 0) {
+                    slot = evictFor(stream);
+                }
+                if (slot < 0) {
+                    // Все места заняты потоками не ниже: новый не звучит
+                    stream.cancel();
+                    stream.read(scratch[0], 0, frame); // дочитать, чтобы источник узнал об отмене
+                    stream.markFinished();
+                    rejected++;
+                    log.warn("Микшер: нет места для потока {}", stream);
+                    continue;
+                }
+                slots[slot] = stream;
+                appliedGain[slot] = -1;
+                streams++;
+            }
+        }
+    }
+
+    private int freeSlot() {
+        for (int i = 0; i < slots.length; i++) {
+            if (slots[i] == null) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Вытеснить самый младший поток ниже {@code stream}
+     * @return освободившееся место или -1
+     */
+    private int evictFor(MixerStream stream) {
+        int victim = -1;
+        for (int i = 0; i < slots.length; i++) {
+            MixerStream candidate = slots[i];
+            if (!candidate.isPersistent() && candidate.getPriority().compareTo(stream.getPriority()) < 0
+                    && (victim < 0 || candidate.getPriority().compareTo(slots[victim].getPriority()) < 0)) {
+                victim = i;
+            }
+        }
+        if (victim >= 0) {
+            MixerStream evictedStream = slots[victim];
+            evictedStream.cancel();
+            evictedStream.read(scratch[victim], 0, frame);
+            remove(victim);
+            evicted++;
+            log.warn("Микшер: поток {} вытеснен потоком {}", evictedStream, stream);
+        }
+        return victim;
+    }
+
+    private void remove(int slot) {
+        synchronized (lock) {
+            slots[slot].markFinished();
+            slots[slot] = null;
+            streams--;
+        }
+    }
+
+    // ========== Состояние ==========
+
+    public AudioConfig getConfig() {
+        return config;
+    }
+
+    public MixerConfig getMixerConfig() {
+        return mixerConfig;
+    }
+
+    /**
+     * Сколько потоков звучит или ждёт первого кадра
+     */
+    public int getStreamCount() {
+        synchronized (lock) {
+            return streams + pending.size();
+        }
+    }
+
+    /**
+     * Текущее приглушение потоков приоритета {@code priority} (1 - без приглушения)
+     */
+    public float getDuckGain(StreamPriority priority) {
+        return duck[priority.ordinal()];
+    }
+
+    /**
+     * Потоки, вытесненные более приоритетными
+     */
+    public long getEvicted() {
+        return evicted;
+    }
+
+    /**
+     * Потоки, не принятые из-за нехватки мест
+     */
+    public long getRejected() {
+        return rejected;
+    }
+
+    /**
+     * Среднее время смешивания кадра, нс
+     */
+    public long getAverageFrameNanos() {
+        long n = frames;
+        return n == 0 ? 0 : renderNanos / n;
+    }
+}
@@ -0,0 +1,30 @@
+package at.nexus.audio.mix;
+
+/**
+ * Приоритет потока в {@link OutputMixer}.
+ *
+ * Поток приглушается, пока звучит поток более высокого приоритета,
+ * который {@link #ducksLower() приглушает младших}. Когда в микшере
+ * нет мест, вытесняется поток самого низкого приоритета.
+ */
+public enum StreamPriority {
+    /** Уведомления и фоновые звуки: под речью приглушаются */
+    BACKGROUND(false),
+    /** Речь ассистента (TTS) и очередь вывода: приглушает фон */
+    SPEECH(true),
+    /** Короткие сигналы (подтверждение, ошибка): сразу, поверх речи, не приглушаются */
+    EARCON(false);
+
+    private final boolean ducksLower;
+
+    StreamPriority(boolean ducksLower) {
+        this.ducksLower = ducksLower;
+    }
+
+    /**
+     * Приглушает ли звучащий поток этого приоритета потоки ниже
+     */
+    public boolean ducksLower() {
+        return ducksLower;
+    }
+}
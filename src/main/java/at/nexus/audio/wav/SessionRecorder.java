@@ -0,0 +1,136 @@
+package at.nexus.audio.wav;
+
+import at.nexus.audio.AudioConfig;
+import at.nexus.audio.AudioInputManager;
+import at.nexus.audio.PcmRingBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Запись сессии в WAV параллельно с обработкой.
+ *
+ * {@link AudioInputManager} дублирует захваченный звук в отдельный буфер
+ * ({@link AudioInputManager#setTap}), фоновый поток переносит его в
+ * {@link WavWriter}. Захват никогда не ждёт диск: если запись отстала
+ * больше чем на {@code TAP_MILLIS}, новые сэмплы выкидываются и
+ * считаются в {@link #getDroppedSamples()}. Заголовок обновляется раз
+ * в секунду, так что после падения процесса файл остаётся читаемым.
+ */
+public class SessionRecorder implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(SessionRecorder.class);
+
+    private static final int TAP_MILLIS = 5000;
+    private static final long HEADER_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final AudioConfig config;
+    private final WavWriter writer;
+    private final PcmRingBuffer tap;
+    private final short[] chunk;
+    private AudioInputManager input;
+    private Thread writerThread;
+    private volatile boolean recording;
+    private boolean closed;
+
+    public SessionRecorder(Path path, AudioConfig config) throws IOException {
+        this.config = config;
+        this.writer = new WavWriter(path, config.sampleRate(), config.channels());
+        this.tap = new PcmRingBuffer(config.samplesForMillis(TAP_MILLIS), PcmRingBuffer.OverflowPolicy.DROP_NEWEST);
+        this.chunk = new short[config.frameSamples()];
+    }
+
+    /**
+     * Начать запись захвата {@code input}. Вызывается до или во время захвата
+     */
+    public void record(AudioInputManager input) {
+        if (recording) {
+            throw new IllegalStateException("Запись сессии уже идёт");
+        }
+        if (!input.getConfig().equals(config)) {
+            throw new IllegalArgumentException("Формат захвата не совпадает с записью: "
+                    + input.getConfig() + " vs " + config);
+        }
+        this.input = input;
+        recording = true;
+        input.setTap(tap);
+
+        writerThread = new Thread(this::writeLoop, "SessionRecorder-Thread");
+        writerThread.setDaemon(true);
+        writerThread.start();
+
+        log.info("Запись сессии в {}", writer.getPath());
+    }
+
+    /**
+     * Остановить запись: дописать накопленное и закрыть файл
+     */
+    public void stop() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (recording) {
+            input.setTap(null);
+            recording = false;
+            try {
+                writerThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        writer.close();
+        log.info("Запись сессии завершена: {} ms, потеряно {} сэмплов",
+                getRecordedMillis(), getDroppedSamples());
+    }
+
+    @Override
+    public void close() throws IOException {
+        stop();
+    }
+
+    /**
+     * Фоновый цикл: буфер -> файл. После остановки дописывает остаток
+     */
+    private void writeLoop() {
+        long lastHeader = System.nanoTime();
+        try {
+            while (true) {
+                boolean stopping = !recording;
+                if (tap.awaitAvailable(1, 100, TimeUnit.MILLISECONDS)) {
+                    int n = tap.read(chunk, 0, chunk.length);
+                    writer.write(chunk, 0, n);
+                } else if (stopping) {
+                    break;
+                }
+                long now = System.nanoTime();
+                if (now - lastHeader >= HEADER_INTERVAL_NANOS) {
+                    writer.flushHeader();
+                    lastHeader = now;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | UncheckedIOException e) {
+            log.error("Ошибка записи сессии в {}", writer.getPath(), e);
+        }
+    }
+
+    public long getRecordedMillis() {
+        return writer.getDurationMillis();
+    }
+
+    /**
+     * Сколько сэмплов не попало в файл из-за отставания записи
+     */
+    public long getDroppedSamples() {
+        return tap.getDroppedSamples();
+    }
+
+    public Path getPath() {
+        return writer.getPath();
+    }
+}
@@ -0,0 +1,149 @@
+package at.nexus.audio.wav;
+
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Разметка WAV (RIFF и RF64) для {@link WavReader} и {@link WavWriter}.
+ *
+ * Пишется канонический заголовок на 80 байт: RIFF, зарезервированный
+ * JUNK на 28 байт, fmt и data. Если данные не влезают в 32-битные
+ * размеры, JUNK превращается в ds64 и файл становится RF64 (EBU Tech 3306)
+ * без сдвига данных.
+ */
+final class Wav {
+
+    static final ValueLayout.OfShort SHORT_LE = ValueLayout.JAVA_SHORT_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+    static final ValueLayout.OfInt INT_LE = ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+    static final ValueLayout.OfLong LONG_LE = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+
+    static final int HEADER_BYTES = 80;
+    static final int BITS_PER_SAMPLE = 16;
+
+    private static final int FORMAT_PCM = 1;
+    private static final int FORMAT_EXTENSIBLE = 0xFFFE;
+    private static final long MAX_32 = 0xFFFFFFFFL;
+
+    /**
+     * Где в файле лежат данные и в каком они формате
+     */
+    record Header(int sampleRate, int channels, long dataOffset, long dataLength) {
+
+        int frameBytes() {
+            return channels * BITS_PER_SAMPLE / 8;
+        }
+    }
+
+    private Wav() {
+    }
+
+    /**
+     * Разобрать заголовок отображённого файла.
+     * Размер data 0 или 0xFFFFFFFF (запись не закрыта) - до конца файла,
+     * обрезанный файл - сколько есть.
+     */
+    static Header parse(MemorySegment file) throws UnsupportedAudioFileException {
+        long size = file.byteSize();
+        if (size < 12) {
+            throw new UnsupportedAudioFileException("Файл короче заголовка WAV");
+        }
+        String riff = fourCc(file, 0);
+        boolean rf64 = riff.equals("RF64");
+        if (!(rf64 || riff.equals("RIFF")) || !fourCc(file, 8).equals("WAVE")) {
+            throw new UnsupportedAudioFileException("Нет сигнатуры RIFF/WAVE");
+        }
+
+        long ds64DataSize = -1;
+        int sampleRate = 0;
+        int channels = 0;
+        long position = 12;
+        while (position + 8 <= size) {
+            String id = fourCc(file, position);
+            long chunkSize = Integer.toUnsignedLong(file.get(INT_LE, position + 4));
+            long body = position + 8;
+            switch (id) {
+                case "ds64" -> ds64DataSize = file.get(LONG_LE, body + 8);
+                case "fmt " -> {
+                    int tag = file.get(SHORT_LE, body) & 0xFFFF;
+                    channels = file.get(SHORT_LE, body + 2);
+                    sampleRate = file.get(INT_LE, body + 4);
+                    int bits = file.get(SHORT_LE, body + 14);
+                    if (tag == FORMAT_EXTENSIBLE && chunkSize >= 26) {
+                        tag = file.get(SHORT_LE, body + 24) & 0xFFFF; // первые байты GUID подформата
+                    }
+                    if (tag != FORMAT_PCM || bits != BITS_PER_SAMPLE) {
+                        throw new UnsupportedAudioFileException(
+                                "Нужен 16-bit PCM, формат 0x" + Integer.toHexString(tag) + ", " + bits + " бит");
+                    }
+                }
+                case "data" -> {
+                    if (channels <= 0 || sampleRate <= 0) {
+                        throw new UnsupportedAudioFileException("data-чанк раньше fmt");
+                    }
+                    long length = rf64 && chunkSize == MAX_32 ? ds64DataSize : chunkSize;
+                    if (length <= 0 || length == MAX_32 || body + length > size) {
+                        length = size - body;
+                    }
+                    int frameBytes = channels * BITS_PER_SAMPLE / 8;
+                    return new Header(sampleRate, channels, body, length - length % frameBytes);
+                }
+                default -> {
+                    // LIST, JUNK, fact и прочее - пропускаем
+                }
+            }
+            position = body + chunkSize + (chunkSize & 1);
+        }
+        throw new UnsupportedAudioFileException("Нет data-чанка");
+    }
+
+    /**
+     * Записать заголовок в начало буфера (порядок байт переключается на little-endian)
+     */
+    static void writeHeader(ByteBuffer header, int sampleRate, int channels, long dataLength) {
+        int frameBytes = channels * BITS_PER_SAMPLE / 8;
+        long riffSize = HEADER_BYTES - 8 + dataLength;
+        boolean rf64 = riffSize > MAX_32;
+
+        header.clear().order(ByteOrder.LITTLE_ENDIAN);
+        putFourCc(header, rf64 ? "RF64" : "RIFF");
+        header.putInt((int) (rf64 ? MAX_32 : riffSize));
+        putFourCc(header, "WAVE");
+
+        putFourCc(header, rf64 ? "ds64" : "JUNK");
+        header.putInt(28);
+        header.putLong(rf64 ? riffSize : 0);
+        header.putLong(rf64 ? dataLength : 0);
+        header.putLong(rf64 ? dataLength / frameBytes : 0);
+        header.putInt(0);
+
+        putFourCc(header, "fmt ");
+        header.putInt(16);
+        header.putShort((short) FORMAT_PCM);
+        header.putShort((short) channels);
+        header.putInt(sampleRate);
+        header.putInt(sampleRate * frameBytes);
+        header.putShort((short) frameBytes);
+        header.putShort((short) BITS_PER_SAMPLE);
+
+        putFourCc(header, "data");
+        header.putInt((int) (rf64 ? MAX_32 : dataLength));
+        header.flip();
+    }
+
+    private static String fourCc(MemorySegment file, long offset) {
+        char[] chars = new char[4];
+        for (int i = 0; i < 4; i++) {
+            chars[i] = (char) (file.get(ValueLayout.JAVA_BYTE, offset + i) & 0xFF);
+        }
+        return new String(chars);
+    }
+
+    private static void putFourCc(ByteBuffer header, String id) {
+        for (int i = 0; i < 4; i++) {
+            header.put((byte) id.charAt(i));
+        }
+    }
+}
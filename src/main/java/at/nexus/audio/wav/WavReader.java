@@ -0,0 +1,137 @@
+package at.nexus.audio.wav;
+
+import at.nexus.audio.PcmReader;
+
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Чтение 16-bit PCM WAV через отображение файла в память.
+ *
+ * Файл целиком отображается одним {@link MemorySegment}, поэтому длина
+ * не ограничена 2GB (поддерживается RF64), а данные идут со страниц
+ * файла прямо в буфер вызывающего - без промежуточных копий в куче
+ * и без аллокаций на чтение. {@link #data()} отдаёт сами данные без
+ * копирования. Отображение снимается в {@link #close()}.
+ *
+ * Позиция одна на экземпляр; читать из одного потока за раз.
+ */
+public class WavReader implements PcmReader, AutoCloseable {
+
+    private final Path path;
+    private final Arena arena;
+    private final MemorySegment data;
+    private final int sampleRate;
+    private final int channels;
+    private final int frameBytes;
+    private long position;
+
+    public WavReader(Path path) throws IOException, UnsupportedAudioFileException {
+        this.path = path;
+        this.arena = Arena.ofShared();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MemorySegment file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena);
+            Wav.Header header = Wav.parse(file);
+            this.sampleRate = header.sampleRate();
+            this.channels = header.channels();
+            this.frameBytes = header.frameBytes();
+            this.data = file.asSlice(header.dataOffset(), header.dataLength());
+        } catch (IOException | UnsupportedAudioFileException | RuntimeException e) {
+            arena.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Прочитать до {@code length} байт целыми кадрами
+     * @return количество байт или -1 в конце данных
+     */
+    @Override
+    public int read(byte[] buffer, int offset, int length) {
+        long remaining = data.byteSize() - position;
+        if (remaining <= 0) {
+            return -1;
+        }
+        int n = (int) Math.min(length - length % frameBytes, remaining);
+        MemorySegment.copy(data, ValueLayout.JAVA_BYTE, position, buffer, offset, n);
+        position += n;
+        return n;
+    }
+
+    /**
+     * Прочитать до {@code length} сэмплов целыми кадрами (каналы чередуются)
+     * @return количество сэмплов или -1 в конце данных
+     */
+    public int read(short[] samples, int offset, int length) {
+        long remaining = (data.byteSize() - position) / Short.BYTES;
+        if (remaining <= 0) {
+            return -1;
+        }
+        int n = (int) Math.min(length - length % channels, remaining);
+        MemorySegment.copy(data, Wav.SHORT_LE, position, samples, offset, n);
+        position += (long) n * Short.BYTES;
+        return n;
+    }
+
+    /**
+     * Перейти к кадру {@code frame} (0 - начало)
+     */
+    public void seek(long frame) {
+        position = Math.clamp(frame * frameBytes, 0, data.byteSize());
+    }
+
+    /**
+     * Данные файла без копирования, только для чтения (до {@link #close()})
+     */
+    public MemorySegment data() {
+        return data.asReadOnly();
+    }
+
+    public long getFramePosition() {
+        return position / frameBytes;
+    }
+
+    public long getFrames() {
+        return data.byteSize() / frameBytes;
+    }
+
+    public long getDataBytes() {
+        return data.byteSize();
+    }
+
+    public long getDurationMillis() {
+        return getFrames() * 1000 / sampleRate;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public int getChannels() {
+        return channels;
+    }
+
+    public int getFrameBytes() {
+        return frameBytes;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Снять отображение. Сегменты из {@link #data()} после этого недоступны
+     */
+    @Override
+    public void close() {
+        if (arena.scope().isAlive()) {
+            arena.close();
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package at.nexus.audio.wav;
+
+import at.nexus.audio.PcmWriter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Запись 16-bit PCM WAV через отображение файла в память.
+ *
+ * Данные копируются прямо в страницы файла окнами по {@code REGION_BYTES};
+ * заполненное окно снимается, следующее отображается дальше по файлу,
+ * так что длина записи не ограничена, а куча не растёт. Больше 4GB
+ * данных - файл становится RF64.
+ *
+ * Заголовок с реальными размерами пишется в {@link #flushHeader()} и
+ * {@link #close()}: если процесс упадёт между ними, {@link WavReader}
+ * всё равно прочитает файл (до конца отображённого окна).
+ * Не потокобезопасен.
+ */
+public class WavWriter implements PcmWriter, AutoCloseable {
+
+    static final long REGION_BYTES = 8L << 20;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final int sampleRate;
+    private final int channels;
+    private final ByteBuffer header = ByteBuffer.allocate(Wav.HEADER_BYTES);
+    private Arena regionArena;
+    private MemorySegment region;
+    private long regionStart;
+    private long dataLength;
+    private boolean closed;
+
+    public WavWriter(Path path, int sampleRate, int channels) throws IOException {
+        if (sampleRate <= 0 || channels <= 0) {
+            throw new IllegalArgumentException("Недопустимый формат: " + sampleRate + "Hz/" + channels);
+        }
+        this.path = path;
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            writeHeader();
+            mapRegion(0);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Записать PCM байты (16-bit little-endian, каналы чередуются)
+     * @return количество записанных байт (всегда {@code length})
+     */
+    @Override
+    public int write(byte[] buffer, int offset, int length) {
+        int done = 0;
+        while (done < length) {
+            int n = (int) Math.min(length - done, writable(1));
+            MemorySegment.copy(buffer, offset + done, region, ValueLayout.JAVA_BYTE, dataLength - regionStart, n);
+            dataLength += n;
+            done += n;
+        }
+        return length;
+    }
+
+    /**
+     * Записать сэмплы (каналы чередуются)
+     */
+    public void write(short[] samples, int offset, int length) {
+        int done = 0;
+        while (done < length) {
+            int n = (int) Math.min(length - done, writable(Short.BYTES) / Short.BYTES);
+            MemorySegment.copy(samples, offset + done, region, Wav.SHORT_LE, dataLength - regionStart, n);
+            dataLength += (long) n * Short.BYTES;
+            done += n;
+        }
+    }
+
+    // Сколько байт влезает в текущее окно; если меньше minimum (после нечётной
+    // записи байтов сэмпл не влез бы), отображает следующее с текущей позиции
+    private long writable(int minimum) {
+        if (closed) {
+            throw new IllegalStateException("WAV уже закрыт: " + path);
+        }
+        long free = regionStart + region.byteSize() - dataLength;
+        if (free < minimum) {
+            try {
+                mapRegion(dataLength);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Не удалось расширить " + path, e);
+            }
+            free = region.byteSize();
+        }
+        return free;
+    }
+
+    private void mapRegion(long start) throws IOException {
+        if (regionArena != null) {
+            regionArena.close();
+        }
+        regionArena = Arena.ofShared();
+        region = channel.map(FileChannel.MapMode.READ_WRITE, Wav.HEADER_BYTES + start, REGION_BYTES, regionArena);
+        regionStart = start;
+    }
+
+    /**
+     * Обновить размеры в заголовке, чтобы файл был корректным уже сейчас
+     */
+    public void flushHeader() throws IOException {
+        writeHeader();
+    }
+
+    private void writeHeader() throws IOException {
+        Wav.writeHeader(header, sampleRate, channels, dataLength);
+        while (header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+    }
+
+    /**
+     * Снять отображение, обрезать хвост окна и записать окончательный заголовок
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            regionArena.close();
+            channel.truncate(Wav.HEADER_BYTES + dataLength);
+            writeHeader();
+        } finally {
+            channel.close();
+        }
+    }
+
+    public long getDataBytes() {
+        return dataLength;
+    }
+
+    public long getFrames() {
+        return dataLength / ((long) channels * Short.BYTES);
+    }
+
+    public long getDurationMillis() {
+        return getFrames() * 1000 / sampleRate;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+}
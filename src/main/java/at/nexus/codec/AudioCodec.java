@@ -0,0 +1,106 @@
+package at.nexus.codec;
+
+import at.nexus.codec.opus.OpusDecoder;
+import at.nexus.codec.opus.OpusEncoder;
+import at.nexus.codec.opus.OpusLib;
+
+/**
+ * Как звук идёт по сети: сырой PCM или Opus.
+ *
+ * PCM есть всегда и ничего не стоит по CPU, но 16kHz моно - это
+ * 256 кбит/с. Opus (libopus через FFM) на речи даёт то же
+ * разборчивым на 16-32 кбит/с; нужна установленная libopus.
+ * Имя кодека в протоколе сервера - {@link #encoding()}.
+ */
+public enum AudioCodec {
+    PCM("pcm_s16le") {
+        @Override
+        public boolean isAvailable() {
+            return true;
+        }
+
+        @Override
+        public boolean supports(CodecConfig config) {
+            return true;
+        }
+
+        @Override
+        public AudioEncoder encoder(CodecConfig config) {
+            return new PcmCodec(config);
+        }
+
+        @Override
+        public AudioDecoder decoder(CodecConfig config) {
+            return new PcmCodec(config);
+        }
+    },
+    OPUS("opus") {
+        @Override
+        public boolean isAvailable() {
+            return OpusLib.isAvailable();
+        }
+
+        @Override
+        public boolean supports(CodecConfig config) {
+            return OpusLib.supports(config);
+        }
+
+        @Override
+        public AudioEncoder encoder(CodecConfig config) {
+            return new OpusEncoder(config);
+        }
+
+        @Override
+        public AudioDecoder decoder(CodecConfig config) {
+            return new OpusDecoder(config);
+        }
+    };
+
+    private final String encoding;
+
+    AudioCodec(String encoding) {
+        this.encoding = encoding;
+    }
+
+    /**
+     * Имя кодека в протоколе ({@code "encoding"} в сообщениях сервера)
+     */
+    public String encoding() {
+        return encoding;
+    }
+
+    /**
+     * Можно ли создать кодер и декодер в этом окружении
+     */
+    public abstract boolean isAvailable();
+
+    /**
+     * Поддерживает ли кодек такой формат
+     */
+    public abstract boolean supports(CodecConfig config);
+
+    /**
+     * @throws IllegalStateException    кодек недоступен ({@link #isAvailable()})
+     * @throws IllegalArgumentException формат не поддерживается
+     */
+    public abstract AudioEncoder encoder(CodecConfig config);
+
+    /**
+     * @throws IllegalStateException    кодек недоступен ({@link #isAvailable()})
+     * @throws IllegalArgumentException формат не поддерживается
+     */
+    public abstract AudioDecoder decoder(CodecConfig config);
+
+    /**
+     * Кодек по имени из протокола
+     * @throws IllegalArgumentException незнакомое имя
+     */
+    public static AudioCodec fromEncoding(String encoding) {
+        for (AudioCodec codec : values()) {
+            if (codec.encoding.equals(encoding)) {
+                return codec;
+            }
+        }
+        throw new IllegalArgumentException("Неизвестный кодек: " + encoding);
+    }
+}
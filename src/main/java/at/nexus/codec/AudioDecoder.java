@@ -0,0 +1,39 @@
+package at.nexus.codec;
+
+/**
+ * Декодер: пакет -> PCM в формате {@link CodecConfig}.
+ *
+ * Пакеты подаются по порядку; на месте потерянного вызывается
+ * {@link #conceal}, чтобы в звуке не было дыры. Не потокобезопасен.
+ */
+public interface AudioDecoder extends AutoCloseable {
+
+    /**
+     * Декодировать пакет
+     * @param pcm куда писать; места нужно не меньше {@link #maxFrameSamples()}
+     * @return сколько сэмплов (всех каналов) записано
+     */
+    int decode(byte[] packet, int offset, int length, short[] pcm, int pcmOffset);
+
+    /**
+     * Пакет потерян: кадр длиной в пакет, продолженный из прошлого звука
+     * (или тишина, если кодек так не умеет)
+     * @return сколько сэмплов записано
+     */
+    int conceal(short[] pcm, int pcmOffset);
+
+    /**
+     * Сколько сэмплов максимум даёт один пакет
+     */
+    int maxFrameSamples();
+
+    CodecConfig config();
+
+    /**
+     * Начать новый поток: забыть предыдущие пакеты
+     */
+    void reset();
+
+    @Override
+    void close();
+}
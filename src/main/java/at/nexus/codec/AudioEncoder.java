@@ -0,0 +1,38 @@
+package at.nexus.codec;
+
+/**
+ * Кодер: кадр PCM фиксированной длины -> один пакет.
+ *
+ * Кадр - ровно {@link CodecConfig#frameSamples()} сэмплов (каналы
+ * чередуются); накопить кадры из кусков другой длины помогает
+ * {@link EncoderStage}. Не потокобезопасен.
+ */
+public interface AudioEncoder extends AutoCloseable {
+
+    /**
+     * Закодировать один кадр
+     * @param packet куда писать; места нужно не меньше {@link #maxPacketBytes()}
+     * @return длина пакета в байтах
+     */
+    int encode(short[] pcm, int offset, byte[] packet, int packetOffset);
+
+    /**
+     * Самый длинный пакет, который может получиться
+     */
+    int maxPacketBytes();
+
+    /**
+     * На сколько сэмплов (на канал) выход декодера отстаёт от входа кодера
+     */
+    int getDelayFrames();
+
+    CodecConfig config();
+
+    /**
+     * Начать новый поток: забыть предыдущие кадры
+     */
+    void reset();
+
+    @Override
+    void close();
+}
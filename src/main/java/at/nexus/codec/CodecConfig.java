@@ -0,0 +1,69 @@
+package at.nexus.codec;
+
+import at.nexus.audio.AudioConfig;
+
+/**
+ * Параметры кодека речи.
+ *
+ * @param sampleRate  частота PCM на входе кодера и на выходе декодера
+ * @param channels    каналов (чередуются)
+ * @param frameMillis длительность одного пакета; у Opus 5, 10, 20, 40 или 60ms
+ * @param bitrate     целевой битрейт, бит/с (PCM его не смотрит)
+ * @param complexity  сложность кодера Opus 0-10: выше - лучше звук и дороже CPU
+ */
+public record CodecConfig(int sampleRate, int channels, int frameMillis, int bitrate, int complexity) {
+
+    public CodecConfig {
+        if (sampleRate <= 0 || channels <= 0 || frameMillis <= 0) {
+            throw new IllegalArgumentException("Недопустимый формат: " + sampleRate + "Hz, "
+                    + channels + " кан., кадр " + frameMillis + "ms");
+        }
+        if (bitrate <= 0 || complexity < 0 || complexity > 10) {
+            throw new IllegalArgumentException("Недопустимые битрейт/сложность: " + bitrate + "/" + complexity);
+        }
+    }
+
+    /**
+     * Речь: пакеты по 20ms, 24 кбит/с, средняя сложность.
+     * Для 16kHz моно это в ~10 раз меньше сырого PCM (256 кбит/с)
+     */
+    public static CodecConfig voice(int sampleRate, int channels) {
+        return new CodecConfig(sampleRate, channels, 20, 24_000, 5);
+    }
+
+    /**
+     * {@link #voice} в формате конвейера
+     */
+    public static CodecConfig voice(AudioConfig config) {
+        return voice(config.sampleRate(), config.channels());
+    }
+
+    public CodecConfig withBitrate(int bitrate) {
+        return new CodecConfig(sampleRate, channels, frameMillis, bitrate, complexity);
+    }
+
+    public CodecConfig withComplexity(int complexity) {
+        return new CodecConfig(sampleRate, channels, frameMillis, bitrate, complexity);
+    }
+
+    /**
+     * Сэмплов на канал в одном пакете
+     */
+    public int frameFrames() {
+        return sampleRate * frameMillis / 1000;
+    }
+
+    /**
+     * Сэмплов всех каналов в одном пакете
+     */
+    public int frameSamples() {
+        return frameFrames() * channels;
+    }
+
+    /**
+     * Битрейт того же звука в сыром 16-bit PCM
+     */
+    public int pcmBitrate() {
+        return sampleRate * channels * 16;
+    }
+}
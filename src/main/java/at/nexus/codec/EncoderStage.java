@@ -0,0 +1,126 @@
+package at.nexus.codec;
+
+import java.util.Arrays;
+
+/**
+ * Этап кодирования: кадры захвата любой длины -> пакеты кодека.
+ *
+ * Кадры конвейера (их длина задаётся профилем задержки) копятся до
+ * кадра кодека (обычно 20ms), целый кадр кодируется и уходит слушателям. Буферы
+ * выделяются в конструкторе, обработка не аллоцирует (если не
+ * аллоцирует кодер). Не потокобезопасен.
+ */
+public class EncoderStage implements AutoCloseable {
+
+    private final AudioEncoder encoder;
+    private final short[] pending;
+    private final byte[] packet;
+    private int filled;
+
+    private volatile PacketListener[] listeners = new PacketListener[0];
+
+    private long position; // сэмплов на канал, отданных в пакеты
+    private long packets;
+    private long encodedBytes;
+    private long encodeNanos;
+
+    public EncoderStage(AudioEncoder encoder) {
+        this.encoder = encoder;
+        this.pending = new short[encoder.config().frameSamples()];
+        this.packet = new byte[encoder.maxPacketBytes()];
+    }
+
+    /**
+     * Добавить получателя пакетов
+     */
+    public synchronized void addListener(PacketListener listener) {
+        PacketListener[] current = listeners;
+        PacketListener[] updated = new PacketListener[current.length + 1];
+        System.arraycopy(current, 0, updated, 0, current.length);
+        updated[current.length] = listener;
+        listeners = updated;
+    }
+
+    /**
+     * Добавить звук (каналы чередуются, длина - целые кадры)
+     */
+    public void process(short[] samples, int offset, int length) {
+        int done = 0;
+        while (done < length) {
+            int n = Math.min(length - done, pending.length - filled);
+            System.arraycopy(samples, offset + done, pending, filled, n);
+            filled += n;
+            done += n;
+            if (filled == pending.length) {
+                encodePending();
+            }
+        }
+    }
+
+    /**
+     * Дописать последний неполный кадр тишиной и отдать его
+     */
+    public void flush() {
+        if (filled > 0) {
+            Arrays.fill(pending, filled, pending.length, (short) 0);
+            encodePending();
+        }
+    }
+
+    private void encodePending() {
+        long start = System.nanoTime();
+        int bytes = encoder.encode(pending, 0, packet, 0);
+        encodeNanos += System.nanoTime() - start;
+        filled = 0;
+        packets++;
+        encodedBytes += bytes;
+        for (PacketListener l : listeners) {
+            l.onPacket(packet, bytes, position);
+        }
+        position += encoder.config().frameFrames();
+    }
+
+    /**
+     * Начать новый поток: недобранный кадр выкидывается
+     */
+    public void reset() {
+        encoder.reset();
+        filled = 0;
+        position = 0;
+    }
+
+    public AudioEncoder getEncoder() {
+        return encoder;
+    }
+
+    public long getPackets() {
+        return packets;
+    }
+
+    public long getEncodedBytes() {
+        return encodedBytes;
+    }
+
+    /**
+     * Время внутри кодера за всё время, нс
+     */
+    public long getEncodeNanos() {
+        return encodeNanos;
+    }
+
+    /**
+     * Средний битрейт получившихся пакетов, бит/с
+     */
+    public long getAverageBitrate() {
+        long frames = packets * encoder.config().frameFrames();
+        return frames == 0 ? 0 : encodedBytes * 8 * encoder.config().sampleRate() / frames;
+    }
+
+    /**
+     * Закрывает кодер
+     */
+    @Override
+    public void close() {
+        encoder.close();
+    }
+}
@@ -0,0 +1,17 @@
+package at.nexus.codec;
+
+/**
+ * Получатель пакетов {@link EncoderStage}.
+ *
+ * Вызывается из потока, который кормит этап звуком. Массив пакета
+ * переиспользуется - данные нужно отправить или скопировать до возврата.
+ */
+@FunctionalInterface
+public interface PacketListener {
+
+    /**
+     * Готов пакет
+     * @param samplePosition позиция первого сэмпла кадра в потоке (на канал)
+     */
+    void onPacket(byte[] packet, int length, long samplePosition);
+}
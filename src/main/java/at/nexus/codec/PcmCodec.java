@@ -0,0 +1,71 @@
+package at.nexus.codec;
+
+import java.util.Arrays;
+
+/**
+ * "Кодек" без сжатия: кадр как есть в 16-bit little-endian.
+ * Кодер и декодер в одном объекте - состояния у них нет.
+ */
+final class PcmCodec implements AudioEncoder, AudioDecoder {
+
+    private final CodecConfig config;
+
+    PcmCodec(CodecConfig config) {
+        this.config = config;
+    }
+
+    @Override
+    public int encode(short[] pcm, int offset, byte[] packet, int packetOffset) {
+        int samples = config.frameSamples();
+        for (int i = 0; i < samples; i++) {
+            short s = pcm[offset + i];
+            packet[packetOffset + i * 2] = (byte) s;
+            packet[packetOffset + i * 2 + 1] = (byte) (s >> 8);
+        }
+        return samples * 2;
+    }
+
+    @Override
+    public int decode(byte[] packet, int offset, int length, short[] pcm, int pcmOffset) {
+        int samples = length / 2;
+        for (int i = 0; i < samples; i++) {
+            pcm[pcmOffset + i] = (short) ((packet[offset + i * 2 + 1] << 8) | (packet[offset + i * 2] & 0xFF));
+        }
+        return samples;
+    }
+
+    @Override
+    public int conceal(short[] pcm, int pcmOffset) {
+        int samples = config.frameSamples();
+        Arrays.fill(pcm, pcmOffset, pcmOffset + samples, (short) 0);
+        return samples;
+    }
+
+    @Override
+    public int maxPacketBytes() {
+        return config.frameSamples() * 2;
+    }
+
+    @Override
+    public int maxFrameSamples() {
+        return config.frameSamples();
+    }
+
+    @Override
+    public int getDelayFrames() {
+        return 0;
+    }
+
+    @Override
+    public CodecConfig config() {
+        return config;
+    }
+
+    @Override
+    public void reset() {
+    }
+
+    @Override
+    public void close() {
+    }
+}
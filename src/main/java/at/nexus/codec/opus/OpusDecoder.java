@@ -0,0 +1,99 @@
+package at.nexus.codec.opus;
+
+import at.nexus.codec.AudioDecoder;
+import at.nexus.codec.CodecConfig;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+
+/**
+ * Декодер Opus поверх libopus.
+ *
+ * Opus декодирует любой поток в любую из своих частот, поэтому
+ * {@link CodecConfig} здесь - формат, нужный получателю, а не тот,
+ * в котором кодировал отправитель. Потерянный пакет заполняется
+ * встроенным маскированием потерь (PLC). Не аллоцирует на пакет.
+ */
+public class OpusDecoder implements AudioDecoder {
+
+    private final OpusLib opus;
+    private final CodecConfig config;
+    private final Arena arena = Arena.ofShared();
+    private final MemorySegment state;
+    private final MemorySegment packet;
+    private final MemorySegment pcm;
+    private final int maxFrames;
+
+    /**
+     * @throws IllegalStateException    нет libopus
+     * @throws IllegalArgumentException формат, который Opus не поддерживает
+     */
+    public OpusDecoder(CodecConfig config) {
+        OpusLib.check(config);
+        this.opus = OpusLib.get();
+        this.config = config;
+        this.maxFrames = config.sampleRate() * OpusLib.MAX_PACKET_MILLIS / 1000;
+        try {
+            this.state = arena.allocate(OpusLib.call(opus.decoderGetSize, config.channels()), 16);
+            this.packet = arena.allocate(OpusLib.MAX_PACKET_BYTES, 16);
+            this.pcm = arena.allocate((long) maxFrames * config.channels() * Short.BYTES, 16);
+            reset();
+        } catch (RuntimeException e) {
+            arena.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public int decode(byte[] data, int offset, int length, short[] out, int outOffset) {
+        if (length > OpusLib.MAX_PACKET_BYTES) {
+            throw new IllegalArgumentException("Пакет Opus не бывает длиннее "
+                    + OpusLib.MAX_PACKET_BYTES + " байт: " + length);
+        }
+        MemorySegment.copy(data, offset, packet, ValueLayout.JAVA_BYTE, 0, length);
+        return copyOut(opus.decode(state, packet, length, pcm, maxFrames), out, outOffset);
+    }
+
+    @Override
+    public int conceal(short[] out, int outOffset) {
+        return copyOut(opus.decode(state, MemorySegment.NULL, 0, pcm, config.frameFrames()), out, outOffset);
+    }
+
+    private int copyOut(int frames, short[] out, int outOffset) {
+        if (frames < 0) {
+            throw new IllegalStateException("opus_decode: " + opus.describe(frames));
+        }
+        int samples = frames * config.channels();
+        MemorySegment.copy(pcm, ValueLayout.JAVA_SHORT, 0, out, outOffset, samples);
+        return samples;
+    }
+
+    /**
+     * Пакет Opus бывает до 120ms, независимо от {@code frameMillis}
+     */
+    @Override
+    public int maxFrameSamples() {
+        return maxFrames * config.channels();
+    }
+
+    @Override
+    public CodecConfig config() {
+        return config;
+    }
+
+    @Override
+    public void reset() {
+        int rc = OpusLib.call(opus.decoderInit, state, config.sampleRate(), config.channels());
+        if (rc != OpusLib.OK) {
+            throw new IllegalArgumentException("Opus init для " + config + ": " + opus.describe(rc));
+        }
+    }
+
+    @Override
+    public void close() {
+        if (arena.scope().isAlive()) {
+            arena.close();
+        }
+    }
+}
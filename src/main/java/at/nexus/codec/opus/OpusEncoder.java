@@ -0,0 +1,108 @@
+package at.nexus.codec.opus;
+
+import at.nexus.codec.AudioEncoder;
+import at.nexus.codec.CodecConfig;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+
+/**
+ * Кодер Opus (режим VoIP, сигнал "речь") поверх libopus.
+ *
+ * Состояние, кадр PCM и пакет лежат в нативной памяти своей арены:
+ * кадр копируется туда, кодируется и пакет копируется обратно -
+ * без аллокаций на кадр. Частоты Opus: 8, 12, 16, 24 и 48kHz,
+ * один или два канала.
+ */
+public class OpusEncoder implements AudioEncoder {
+
+    private final OpusLib opus;
+    private final CodecConfig config;
+    private final Arena arena = Arena.ofShared();
+    private final MemorySegment state;
+    private final MemorySegment pcm;
+    private final MemorySegment packet;
+    private final int delayFrames;
+
+    /**
+     * @throws IllegalStateException    нет libopus
+     * @throws IllegalArgumentException формат, который Opus не поддерживает
+     */
+    public OpusEncoder(CodecConfig config) {
+        OpusLib.check(config);
+        this.opus = OpusLib.get();
+        this.config = config;
+        try {
+            this.state = arena.allocate(OpusLib.call(opus.encoderGetSize, config.channels()), 16);
+            this.pcm = arena.allocate((long) config.frameSamples() * Short.BYTES, 16);
+            this.packet = arena.allocate(OpusLib.MAX_PACKET_BYTES, 16);
+            init();
+            MemorySegment lookahead = arena.allocate(ValueLayout.JAVA_INT);
+            check(OpusLib.call(opus.encoderCtlPointer, state, OpusLib.GET_LOOKAHEAD, lookahead), "lookahead");
+            this.delayFrames = lookahead.get(ValueLayout.JAVA_INT, 0);
+        } catch (RuntimeException e) {
+            arena.close();
+            throw e;
+        }
+    }
+
+    private void init() {
+        check(OpusLib.call(opus.encoderInit, state, config.sampleRate(), config.channels(),
+                OpusLib.APPLICATION_VOIP), "init");
+        check(OpusLib.call(opus.encoderCtlInt, state, OpusLib.SET_BITRATE, config.bitrate()), "bitrate");
+        check(OpusLib.call(opus.encoderCtlInt, state, OpusLib.SET_COMPLEXITY, config.complexity()), "complexity");
+        check(OpusLib.call(opus.encoderCtlInt, state, OpusLib.SET_SIGNAL, OpusLib.SIGNAL_VOICE), "signal");
+    }
+
+    private void check(int rc, String what) {
+        if (rc != OpusLib.OK) {
+            throw new IllegalArgumentException("Opus " + what + " для " + config + ": " + opus.describe(rc));
+        }
+    }
+
+    @Override
+    public int encode(short[] samples, int offset, byte[] out, int outOffset) {
+        MemorySegment.copy(samples, offset, pcm, ValueLayout.JAVA_SHORT, 0, config.frameSamples());
+        int bytes = opus.encode(state, pcm, config.frameFrames(), packet, OpusLib.MAX_PACKET_BYTES);
+        if (bytes < 0) {
+            throw new IllegalStateException("opus_encode: " + opus.describe(bytes));
+        }
+        MemorySegment.copy(packet, ValueLayout.JAVA_BYTE, 0, out, outOffset, bytes);
+        return bytes;
+    }
+
+    @Override
+    public int maxPacketBytes() {
+        return OpusLib.MAX_PACKET_BYTES;
+    }
+
+    /**
+     * Lookahead кодера: на столько сэмплов декодированный звук позже исходного
+     */
+    @Override
+    public int getDelayFrames() {
+        return delayFrames;
+    }
+
+    @Override
+    public CodecConfig config() {
+        return config;
+    }
+
+    /**
+     * Заново инициализирует состояние: {@code OPUS_RESET_STATE} без
+     * аргументов не вызвать через дескриптор с переменными аргументами
+     */
+    @Override
+    public void reset() {
+        init();
+    }
+
+    @Override
+    public void close() {
+        if (arena.scope().isAlive()) {
+            arena.close();
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package at.nexus.codec.opus;
+
+import at.nexus.codec.CodecConfig;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.SymbolLookup;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.MethodHandle;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Привязки к libopus через Foreign Function &amp; Memory API.
+ *
+ * Состояния кодера и декодера живут в памяти арены владельца
+ * ({@code *_get_size} + {@code *_init}), а не в malloc libopus, поэтому
+ * освобождаются вместе с ареной. {@code opus_*_ctl} - функции с
+ * переменным числом аргументов, для них отдельные дескрипторы с
+ * {@code firstVariadicArg}. Кодирование и декодирование идут через
+ * {@code invokeExact}. Библиотека грузится один раз при первом
+ * обращении; путь - {@code -Dnexus.opus.library} (по умолчанию {@code libopus.so.0}).
+ */
+public final class OpusLib {
+
+    static final int OK = 0;
+    static final int APPLICATION_VOIP = 2048;
+    static final int SIGNAL_VOICE = 3001;
+
+    // Запросы opus_*_ctl
+    static final int SET_BITRATE = 4002;
+    static final int SET_COMPLEXITY = 4010;
+    static final int SET_SIGNAL = 4024;
+    static final int GET_LOOKAHEAD = 4027;
+
+    // Больше не бывает: рекомендация libopus для буфера пакета
+    static final int MAX_PACKET_BYTES = 4000;
+    // Самый длинный пакет Opus - 120ms
+    static final int MAX_PACKET_MILLIS = 120;
+
+    private static final int[] SAMPLE_RATES = {8000, 12000, 16000, 24000, 48000};
+    private static final int[] FRAME_MILLIS = {5, 10, 20, 40, 60};
+
+    private static final ValueLayout ADDRESS = ValueLayout.ADDRESS;
+    private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT;
+
+    private static OpusLib instance;
+    private static String loadError;
+
+    // Настройка
+    final MethodHandle encoderGetSize;
+    final MethodHandle encoderInit;
+    final MethodHandle encoderCtlInt;
+    final MethodHandle encoderCtlPointer;
+    final MethodHandle decoderGetSize;
+    final MethodHandle decoderInit;
+    private final MethodHandle strerror;
+    private final MethodHandle versionString;
+
+    // Горячий путь
+    private final MethodHandle encode;
+    private final MethodHandle decode;
+
+    private OpusLib(SymbolLookup lib) {
+        Linker linker = Linker.nativeLinker();
+        Binder b = (name, descriptor, options) -> linker.downcallHandle(
+                lib.find(name).orElseThrow(() -> new IllegalStateException("Нет символа " + name)),
+                descriptor, options);
+        Linker.Option variadic = Linker.Option.firstVariadicArg(2);
+
+        encoderGetSize = b.bind("opus_encoder_get_size", FunctionDescriptor.of(INT, INT));
+        encoderInit = b.bind("opus_encoder_init", FunctionDescriptor.of(INT, ADDRESS, INT, INT, INT));
+        encoderCtlInt = b.bind("opus_encoder_ctl", FunctionDescriptor.of(INT, ADDRESS, INT, INT), variadic);
+        encoderCtlPointer = b.bind("opus_encoder_ctl", FunctionDescriptor.of(INT, ADDRESS, INT, ADDRESS), variadic);
+        decoderGetSize = b.bind("opus_decoder_get_size", FunctionDescriptor.of(INT, INT));
+        decoderInit = b.bind("opus_decoder_init", FunctionDescriptor.of(INT, ADDRESS, INT, INT));
+        strerror = b.bind("opus_strerror", FunctionDescriptor.of(ADDRESS, INT));
+        versionString = b.bind("opus_get_version_string", FunctionDescriptor.of(ADDRESS));
+
+        encode = b.bind("opus_encode", FunctionDescriptor.of(INT, ADDRESS, ADDRESS, INT, ADDRESS, INT));
+        decode = b.bind("opus_decode", FunctionDescriptor.of(INT, ADDRESS, ADDRESS, INT, ADDRESS, INT, INT));
+    }
+
+    @FunctionalInterface
+    private interface Binder {
+        MethodHandle bind(String name, FunctionDescriptor descriptor, Linker.Option... options);
+    }
+
+    /**
+     * Загрузить библиотеку (один раз)
+     * @throws IllegalStateException нет libopus или в ней не хватает функций
+     */
+    static synchronized OpusLib get() {
+        if (instance == null && loadError == null) {
+            String library = System.getProperty("nexus.opus.library", "libopus.so.0");
+            try {
+                instance = new OpusLib(SymbolLookup.libraryLookup(library, Arena.global()));
+            } catch (RuntimeException e) {
+                loadError = library + ": " + e.getMessage();
+            }
+        }
+        if (instance == null) {
+            throw new IllegalStateException("Opus недоступен (" + loadError + ")");
+        }
+        return instance;
+    }
+
+    /**
+     * Есть ли libopus (загружает её при первом вызове)
+     */
+    public static boolean isAvailable() {
+        try {
+            get();
+            return true;
+        } catch (IllegalStateException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Версия libopus, например {@code libopus 1.3.1}
+     */
+    public static String version() {
+        try {
+            return cString((MemorySegment) get().versionString.invokeExact());
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    /**
+     * Умеет ли Opus такой формат: частоты 8/12/16/24/48kHz, до двух
+     * каналов, кадр 5-60ms
+     */
+    public static boolean supports(CodecConfig config) {
+        return contains(SAMPLE_RATES, config.sampleRate())
+                && contains(FRAME_MILLIS, config.frameMillis())
+                && config.channels() <= 2;
+    }
+
+    static void check(CodecConfig config) {
+        if (!supports(config)) {
+            throw new IllegalArgumentException("Opus не поддерживает " + config.sampleRate() + "Hz/"
+                    + config.channels() + " кан./кадр " + config.frameMillis()
+                    + "ms (частоты 8/12/16/24/48kHz, до 2 каналов, кадр 5-60ms)");
+        }
+    }
+
+    private static boolean contains(int[] values, int value) {
+        for (int v : values) {
+            if (v == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Вызов для настройки (не горячий путь): аргументы упаковываются
+     * @return код возврата функции (отрицательный - ошибка)
+     */
+    static int call(MethodHandle handle, Object... args) {
+        try {
+            return (int) handle.invokeWithArguments(args);
+        } catch (Throwable t) {
+            throw new IllegalStateException("Ошибка вызова Opus", t);
+        }
+    }
+
+    /**
+     * Текст ошибки Opus по отрицательному коду
+     */
+    String describe(int error) {
+        try {
+            return cString((MemorySegment) strerror.invokeExact(error)) + " (" + error + ")";
+        } catch (Throwable t) {
+            return "код " + error;
+        }
+    }
+
+    private static String cString(MemorySegment pointer) {
+        MemorySegment text = pointer.reinterpret(256);
+        int length = 0;
+        while (length < 256 && text.get(ValueLayout.JAVA_BYTE, length) != 0) {
+            length++;
+        }
+        byte[] bytes = new byte[length];
+        MemorySegment.copy(text, ValueLayout.JAVA_BYTE, 0, bytes, 0, length);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // ========== Горячий путь ==========
+
+    int encode(MemorySegment state, MemorySegment pcm, int frames, MemorySegment packet, int maxBytes) {
+        try {
+            return (int) encode.invokeExact(state, pcm, frames, packet, maxBytes);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    int decode(MemorySegment state, MemorySegment packet, int length, MemorySegment pcm, int maxFrames) {
+        try {
+            return (int) decode.invokeExact(state, packet, length, pcm, maxFrames, 0);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    private static RuntimeException rethrow(Throwable t) {
+        if (t instanceof RuntimeException e) {
+            throw e;
+        }
+        if (t instanceof Error e) {
+            throw e;
+        }
+        return new IllegalStateException("Ошибка вызова Opus", t);
+    }
+}
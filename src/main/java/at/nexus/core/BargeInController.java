@@ -0,0 +1,53 @@
+package at.nexus.core;
+
+import at.nexus.audio.AudioOutputManager;
+import at.nexus.vad.VadListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Перебивание ассистента голосом.
+ *
+ * Подписывается на VAD входного потока: как только пользователь
+ * начинает говорить, текущий ответ в {@link AudioOutputManager}
+ * обрывается, и ассистент слушает.
+ */
+public class BargeInController implements VadListener {
+    private static final Logger log = LoggerFactory.getLogger(BargeInController.class);
+
+    private final AudioOutputManager output;
+    private final AtomicLong bargeIns = new AtomicLong();
+    private volatile boolean enabled = true;
+
+    public BargeInController(AudioOutputManager output) {
+        this.output = output;
+    }
+
+    @Override
+    public void onSpeechStart(long samplePosition) {
+        if (!enabled) {
+            return;
+        }
+        int discarded = output.interrupt();
+        if (discarded > 0) {
+            bargeIns.incrementAndGet();
+            log.debug("Barge-in на позиции {}", samplePosition);
+        }
+    }
+
+    /**
+     * Временно отключить (например, пока воспроизводится звук подтверждения)
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Сколько раз ответ был перебит
+     */
+    public long getBargeIns() {
+        return bargeIns.get();
+    }
+}
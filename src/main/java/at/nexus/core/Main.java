@@ -1,44 +1,241 @@
 package at.nexus.core;
 
+import at.nexus.audio.AudioConfig;
 import at.nexus.audio.AudioInputManager;
 import at.nexus.audio.AudioOutputManager;
+import at.nexus.audio.LatencyProfile;
+import at.nexus.audio.PcmRingBuffer;
+import at.nexus.audio.PcmWriter;
+import at.nexus.audio.drift.DriftConfig;
+import at.nexus.audio.io.AudioBackend;
+import at.nexus.audio.mix.Earcons;
+import at.nexus.audio.mix.StreamPriority;
+import at.nexus.audio.wav.WavReader;
+import at.nexus.codec.AudioCodec;
+import at.nexus.dsp.ConditioningConfig;
+import at.nexus.dsp.EchoCancellerStage;
+import at.nexus.dsp.FeatureConfig;
+import at.nexus.dsp.InputConditioningStage;
+import at.nexus.llm.StreamingLlmClient;
+import at.nexus.metrics.PipelineMetrics;
+import at.nexus.server.SessionServices;
+import at.nexus.server.SpeechSynthesizer;
+import at.nexus.server.VoiceServer;
+import at.nexus.stt.StreamingSttClient;
+import at.nexus.stt.SttListener;
+import at.nexus.stt.SttRecognizer;
+import at.nexus.tts.HttpSpeechSynthesizer;
+import at.nexus.tts.cache.CachingSpeechSynthesizer;
+import at.nexus.tts.cache.TtsCache;
+import at.nexus.vad.VadConfig;
+import at.nexus.vad.VadListener;
+import at.nexus.vad.VadStage;
+import at.nexus.wakeword.KeywordModel;
+import at.nexus.wakeword.TemplateKeywordModel;
+import at.nexus.wakeword.WakeWordConfig;
+import at.nexus.wakeword.WakeWordListener;
+import at.nexus.wakeword.WakeWordStage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.concurrent.BlockingQueue;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
 
 public class Main {
     private static final Logger log = LoggerFactory.getLogger(Main.class);
 
+    private static final long METRICS_LOG_NANOS = TimeUnit.SECONDS.toNanos(30);
+
     public static void main(String[] args) {
+        StartupReport startup = new StartupReport();
         log.info("Запуск Nexus Voice AI...");
 
-        AudioInputManager inputManager = new AudioInputManager();
-        AudioOutputManager outputManager = new AudioOutputManager();
+        // Профиль задержки: -Dnexus.latency=ULTRA_LOW|LOW|BALANCED|SAFE
+        // (VAD рассчитан на кадры 10-30ms)
+        LatencyProfile profile = LatencyProfile.valueOf(System.getProperty("nexus.latency", "LOW"));
+        AudioConfig config = profile.toConfig();
+        log.info("Профиль задержки {}: кадр {}ms, буферизация ~{}ms",
+                profile, config.frameMillis(), config.bufferedLatencyMillis());
+
+        if (args.length > 0 && args[0].equals("server")) {
+            runServer(config);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("train")) {
+            train(config);
+            return;
+        }
+
+        // Звук через javax.sound или ALSA напрямую: -Dnexus.audio=JAVASOUND|ALSA
+        AudioBackend backend = AudioBackend.fromSystemProperty();
+        AudioInputManager inputManager = new AudioInputManager(config, backend.source());
+        AudioOutputManager outputManager = new AudioOutputManager(config, backend.sink());
+        // Подстройка под часы захвата нужна непрерывному потоку. Эхо-тест пишет
+        // в очередь только фразы: она пустеет в конце каждой, замер дрейфа не
+        // успевает, а каждая фраза ждала бы запас - поэтому по умолчанию выключено.
+        // -Dnexus.drift=true - включить
+        if (Boolean.parseBoolean(System.getProperty("nexus.drift", "false"))) {
+            outputManager.setDriftCompensation(DriftConfig.defaults());
+        }
 
         try {
-            // 1. Инициализация оборудования
+            // 1. Устройства, ключевое слово, ассистент и прогрев - параллельно:
+            // открытие устройств и подключение STT ждут драйвер и сеть, прогрев занят процессором.
+            // -Dnexus.warmup=false - без прогрева, -Dnexus.warmup.millis - длина синтетической речи
             log.info("Инициализация аудио устройств...");
-            inputManager.initialize();
-            outputManager.initialize();
+            boolean warmUp = Boolean.parseBoolean(System.getProperty("nexus.warmup", "true"));
+            int warmUpMillis = Integer.getInteger("nexus.warmup.millis", PipelineWarmup.DEFAULT_MILLIS);
+            VadStage vad = new VadStage(config, VadConfig.defaults());
+            // Начало речи пользователя обрывает то, что сейчас играет
+            vad.addListener(new BargeInController(outputManager));
+            KeywordModel keyword;
+            ResponsePipeline assistant;
+            try (ExecutorService init = Executors.newVirtualThreadPerTaskExecutor()) {
+                Future<?> input = phase(init, startup, "микрофон", inputManager::initialize);
+                Future<?> output = phase(init, startup, "динамики", outputManager::initialize);
+                Future<KeywordModel> model = init.submit(() -> {
+                    KeywordModel loaded = startup.call("ключевое слово", () -> createKeywordModel(config));
+                    if (warmUp) {
+                        startup.run("прогрев обработки", () -> PipelineWarmup.run(config, loaded, warmUpMillis));
+                    }
+                    return loaded;
+                });
+                Future<ResponsePipeline> pipeline = init.submit(() -> {
+                    ResponsePipeline created = startup.call("ассистент",
+                            () -> createAssistant(config, outputManager, vad));
+                    if (created != null && warmUp) {
+                        startup.run("прогрев ответа", created::warmUp);
+                    }
+                    return created;
+                });
+                await(input);
+                await(output);
+                keyword = await(model);
+                assistant = await(pipeline);
+            }
+
+            // Всё, что ушло в динамики, копируется в опорный буфер для AEC
+            PcmRingBuffer echoReference = new PcmRingBuffer(config.samplesForMillis(1000),
+                    PcmRingBuffer.OverflowPolicy.DROP_OLDEST);
+            outputManager.setEchoReference(echoReference);
+            EchoCancellerStage aec = new EchoCancellerStage(config, echoReference, 128, 300);
+            // Шумоподавление и АРУ после AEC; -Dnexus.conditioning=false - без них
+            InputConditioningStage conditioning = Boolean.parseBoolean(System.getProperty("nexus.conditioning", "true"))
+                    ? new InputConditioningStage(config, ConditioningConfig.defaults()) : null;
+
+            // Задержки по этапам: в лог раз в 30 секунд и в JFR
+            // (-XX:StartFlightRecording, события at.nexus.*)
+            PipelineMetrics metrics = new PipelineMetrics();
+            inputManager.setMetrics(metrics);
+            outputManager.setMetrics(metrics);
+            metrics.attachJfr();
 
             // 2. Запуск потоков захватов и воспроизведения
             inputManager.startRecording();
             outputManager.startPlayback();
 
-            log.info("🔴 ЭХО-ТЕСТ ЗАПУЩЕН: Скажите что-нибудь в микрофон (вы должны услышать себя)");
+            log.info("🔴 ЭХО-ТЕСТ ЗАПУЩЕН: Скажите что-нибудь в микрофон (вы должны услышать себя, тишина отбрасывается)");
             log.info("Нажмите Ctrl+C для выхода");
 
-            // 3. Главный цикл пересылки данных (Mic -> Speaker)
-            // В будущем здесь будет стоять VAD и STT
-            BlockingQueue<byte[]> inputQueue = inputManager.getAudioQueue();
+            // 3. Главный цикл пересылки данных (Mic -> AEC -> шумоподавление/АРУ -> [ключевое слово] -> VAD -> Speaker)
+            // С адресами STT/LLM/TTS после VAD вместо эха стоит ассистент
+            WakeWordStage wakeWord = keyword != null
+                    ? new WakeWordStage(config, WakeWordConfig.defaults(), keyword) : null;
+            vad.addListener(new VadListener() {
+                @Override
+                public void onSpeechStart(long samplePosition) {
+                    log.info("Речь началась ({} ms)", samplePosition * 1000 / config.sampleRate());
+                }
+
+                @Override
+                public void onVoicedFrame(short[] samples, int offset, int length) {
+                    // Эхо-тест: на динамики уходит только речь
+                    if (assistant == null) {
+                        outputManager.enqueueAudio(samples, offset, length);
+                    }
+                }
+
+                @Override
+                public void onSpeechEnd(long samplePosition) {
+                    log.info("Речь закончилась ({} ms)", samplePosition * 1000 / config.sampleRate());
+                    if (wakeWord != null) {
+                        wakeWord.closeGate(); // команда сказана, снова ждём ключевое слово
+                    }
+                }
+            });
+            if (wakeWord != null) {
+                wakeWord.addListener(new WakeWordListener() {
+                    @Override
+                    public void onWakeWord(String keyword, double confidence, long samplePosition) {
+                        log.info("Ключевое слово '{}' ({} ms), слушаю", keyword,
+                                samplePosition * 1000 / config.sampleRate());
+                    }
+                });
+            }
+
+            startup.ready();
+            log.info("Старт: {}", startup);
+
+            short[] frame = new short[config.frameSamples()];
+            long nextMetricsLog = System.nanoTime() + METRICS_LOG_NANOS;
 
             while (true) {
-                // Блокируемся, пока не придут данные с микрофона
-                byte[] audioData = inputQueue.take();
+                // Ждём, пока не наберётся кадр с микрофона
+                int count = inputManager.readFrame(frame, 0, frame.length, 100, TimeUnit.MILLISECONDS);
+                if (count > 0) {
+                    // Вычитаем из микрофона собственный голос ассистента
+                    long start = System.nanoTime();
+                    aec.process(frame, 0, count);
+                    long aecDone = System.nanoTime();
+                    if (conditioning != null) {
+                        conditioning.process(frame, 0, count);
+                    }
+                    long conditioningDone = System.nanoTime();
+                    // Кадр идёт дальше, если шлюз был открыт до него (как onGatedFrame)
+                    boolean listening = wakeWord == null || wakeWord.isGateOpen();
+                    if (wakeWord != null) {
+                        wakeWord.process(frame, 0, count);
+                    }
+                    long wakeDone = System.nanoTime();
+                    if (listening) {
+                        vad.process(frame, 0, count);
+                    }
+                    long done = System.nanoTime();
 
-                // Сразу отправляем их на динамики
-                outputManager.enqueueAudio(audioData);
+                    metrics.record(PipelineMetrics.Stage.AEC, aecDone - start);
+                    if (conditioning != null) {
+                        metrics.record(PipelineMetrics.Stage.CONDITIONING, conditioningDone - aecDone);
+                    }
+                    if (wakeWord != null) {
+                        metrics.record(PipelineMetrics.Stage.WAKE_WORD, wakeDone - conditioningDone);
+                    }
+                    metrics.record(PipelineMetrics.Stage.VAD, done - wakeDone);
+                    long capturedAt = inputManager.getLastFrameCaptureNanos();
+                    if (capturedAt != 0) {
+                        metrics.record(PipelineMetrics.Stage.CAPTURE_TO_PROCESSED, done - capturedAt);
+                    }
+                }
+
+                if (System.nanoTime() - nextMetricsLog > 0) {
+                    nextMetricsLog += METRICS_LOG_NANOS;
+                    log.info("Метрики: {}", metrics.snapshot());
+                    if (assistant != null) {
+                        log.info("Ответы: {}", assistant.getMetrics());
+                    }
+                }
             }
 
         } catch (Exception e) {
@@ -49,4 +246,242 @@ public class Main {
             outputManager.close();
         }
     }
-}
\ No newline at end of file
+
+    private static Future<?> phase(ExecutorService executor, StartupReport startup, String name,
+                                   StartupReport.Phase phase) {
+        return executor.submit(() -> {
+            startup.run(name, phase);
+            return null;
+        });
+    }
+
+    /**
+     * Результат фазы старта; ошибка фазы - как есть, без обёртки
+     */
+    private static <T> T await(Future<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+    }
+
+    /**
+     * Модель ключевого слова по образцам из {@code -Dnexus.wakeword=a.wav,b.wav}
+     * (моно, частота захвата, обрезаны по слову)
+     * @return null, если образцов нет - тогда слушаем всё подряд
+     */
+    private static KeywordModel createKeywordModel(AudioConfig config)
+            throws IOException, UnsupportedAudioFileException {
+        String files = System.getProperty("nexus.wakeword", "");
+        if (files.isBlank()) {
+            return null;
+        }
+        FeatureConfig features = FeatureConfig.mfcc(config.sampleRate());
+        List<short[]> examples = new ArrayList<>();
+        for (String file : files.split(",")) {
+            try (WavReader reader = new WavReader(Path.of(file.trim()))) {
+                if (reader.getSampleRate() != config.sampleRate() || reader.getChannels() != 1) {
+                    throw new IllegalArgumentException("Образец " + file + ": нужно моно "
+                            + config.sampleRate() + "Hz, а не " + reader.getChannels() + "ch "
+                            + reader.getSampleRate() + "Hz");
+                }
+                short[] example = new short[(int) reader.getFrames()];
+                reader.read(example, 0, example.length);
+                examples.add(example);
+            }
+        }
+        log.info("Ключевое слово: {} образцов, скажите его перед командой", examples.size());
+        return new TemplateKeywordModel("wakeword", features, TemplateKeywordModel.enroll(features, examples));
+    }
+
+    /**
+     * Синтез по HTTP; с {@code -Dnexus.tts.cache=каталог} - через кэш
+     * фраз (память {@code nexus.tts.cache.memory}, диск {@code nexus.tts.cache.disk}, МБ).
+     * Очередь записи кэша дописывается на диск при выходе из JVM
+     */
+    private static SpeechSynthesizer createSynthesizer(String ttsUrl, AudioConfig config) {
+        String model = System.getProperty("nexus.tts.model", "tts-1");
+        String voice = System.getProperty("nexus.tts.voice", "alloy");
+        SpeechSynthesizer synthesizer = new HttpSpeechSynthesizer(ttsUrl, model, voice, config.sampleRate());
+        String cacheDir = System.getProperty("nexus.tts.cache");
+        if (cacheDir == null) {
+            return synthesizer;
+        }
+        long memoryBytes = Long.getLong("nexus.tts.cache.memory", 16) << 20;
+        long diskBytes = Long.getLong("nexus.tts.cache.disk", 256) << 20;
+        try {
+            TtsCache cache = new TtsCache(memoryBytes, TtsCache.Eviction.TINY_LFU, Path.of(cacheDir), diskBytes);
+            Runtime.getRuntime().addShutdownHook(new Thread(cache::close, "tts-cache-close"));
+            return new CachingSpeechSynthesizer(synthesizer, cache, model + "/" + voice);
+        } catch (IOException e) {
+            log.warn("Кэш TTS недоступен ({}), синтез без кэша", e.toString());
+            return synthesizer;
+        }
+    }
+
+    /**
+     * LLM по {@code -Dnexus.llm.url}: модель {@code nexus.llm.model}, системное
+     * сообщение {@code nexus.llm.system}, ключ в переменной {@code NEXUS_LLM_KEY}
+     */
+    private static StreamingLlmClient createLanguageModel(String llmUrl) {
+        return new StreamingLlmClient(llmUrl, System.getProperty("nexus.llm.model", "default"),
+                System.getenv("NEXUS_LLM_KEY"), System.getProperty("nexus.llm.system"));
+    }
+
+    /**
+     * Как слать звук в STT: {@code -Dnexus.stt.encoding=pcm_s16le|opus}
+     * (без libopus клиент сам вернётся к PCM)
+     */
+    private static AudioCodec sttCodec() {
+        return AudioCodec.fromEncoding(System.getProperty("nexus.stt.encoding", AudioCodec.PCM.encoding()));
+    }
+
+    /**
+     * Ассистент: распознавание по WebSocket ({@code -Dnexus.stt.url}),
+     * LLM ({@code -Dnexus.llm.url}, {@code -Dnexus.llm.model}, ключ
+     * в переменной {@code NEXUS_LLM_KEY}) и синтез ({@code -Dnexus.tts.url},
+     * {@code -Dnexus.tts.voice}). Финальный текст фразы сразу уходит
+     * в {@link ResponsePipeline}.
+     * @return null, если адреса не заданы или STT недоступен - тогда эхо-тест
+     */
+    private static ResponsePipeline createAssistant(AudioConfig config, AudioOutputManager output, VadStage vad)
+            throws InterruptedException {
+        String sttUrl = System.getProperty("nexus.stt.url");
+        String llmUrl = System.getProperty("nexus.llm.url");
+        String ttsUrl = System.getProperty("nexus.tts.url");
+        if (sttUrl == null || llmUrl == null || ttsUrl == null) {
+            return null;
+        }
+        ResponsePipeline pipeline = new ResponsePipeline(output,
+                createLanguageModel(llmUrl),
+                createSynthesizer(ttsUrl, config));
+
+        // Конец речи по VAD - точка отсчёта задержки ответа
+        AtomicLong speechEndNanos = new AtomicLong();
+        StreamingSttClient stt = new StreamingSttClient(URI.create(sttUrl), config, new SttListener() {
+            @Override
+            public void onPartial(String text) {
+            }
+
+            @Override
+            public void onFinal(String text) {
+                log.info("Распознано: {}", text);
+                if (!text.isBlank()) {
+                    pipeline.respond(text, speechEndNanos.get());
+                }
+            }
+        }, 50, sttCodec());
+        if (!stt.connect(5, TimeUnit.SECONDS)) {
+            log.warn("STT недоступен, ассистент выключен");
+            return null;
+        }
+        // Сигнал "услышал" сразу по концу фразы, поверх ответа; -Dnexus.earcon=false - без него
+        short[] acknowledge = Boolean.parseBoolean(System.getProperty("nexus.earcon", "true"))
+                ? Earcons.acknowledge(config) : null;
+        vad.addListener(new VadListener() {
+            @Override
+            public void onSpeechEnd(long samplePosition) {
+                speechEndNanos.set(System.nanoTime());
+                if (acknowledge != null) {
+                    output.play(acknowledge, StreamPriority.EARCON);
+                }
+            }
+        });
+        vad.addListener(stt);
+        log.info("Ассистент: LLM {}, TTS {}", llmUrl, ttsUrl);
+        return pipeline;
+    }
+
+    /**
+     * Обучающий запуск для кэша классов: пройти всё, что грузится на старте
+     * и на первой реплике, и выйти - кэш JVM пишет при выходе. Флаги {@code -D}
+     * те же, что у обычного запуска (ключевое слово, кэш TTS):
+     * <pre>
+     *   Java 25+: java -XX:AOTCacheOutput=nexus.aot ... at.nexus.core.Main train
+     *             java -XX:AOTCache=nexus.aot ... at.nexus.core.Main
+     *   Java 21:  java -XX:ArchiveClassesAtExit=nexus.jsa ... at.nexus.core.Main train
+     *             java -XX:SharedArchiveFile=nexus.jsa ... at.nexus.core.Main
+     * </pre>
+     * Classpath - только JAR-файлы, каталог классов кэш не допускает.
+     * Сеть не нужна: клиенты LLM и TTS прогреваются без запросов. Устройства
+     * открываются по-настоящему (и попадают в кэш выбора), без них - не ошибка.
+     */
+    private static void train(AudioConfig config) {
+        AudioBackend backend = AudioBackend.fromSystemProperty();
+        AudioInputManager input = new AudioInputManager(config, backend.source());
+        AudioOutputManager output = new AudioOutputManager(config, backend.sink());
+        try {
+            input.initialize();
+            output.initialize();
+        } catch (LineUnavailableException | RuntimeException e) {
+            log.info("Обучение: устройства недоступны ({}), только обработка", e.toString());
+        } finally {
+            input.close();
+            output.close();
+        }
+
+        try {
+            PipelineWarmup.run(config, createKeywordModel(config), PipelineWarmup.DEFAULT_MILLIS);
+            ResponsePipeline pipeline = new ResponsePipeline(
+                    new AudioOutputManager(config, (PcmWriter) (buffer, offset, length) -> length),
+                    new StreamingLlmClient(System.getProperty("nexus.llm.url", "http://localhost/"),
+                            System.getProperty("nexus.llm.model", "default"), null, null),
+                    createSynthesizer(System.getProperty("nexus.tts.url", "http://localhost/"), config));
+            pipeline.warmUp();
+            log.info("Обучение закончено, JVM запишет кэш классов при выходе");
+        } catch (Exception e) {
+            log.error("Обучение не удалось: ", e);
+        }
+    }
+
+    /**
+     * Режим сервера: много клиентов по WebSocket вместо локальных устройств.
+     * Порт: -Dnexus.server.port (по умолчанию 8765), движки - {@link #createServices}
+     */
+    private static void runServer(AudioConfig config) {
+        int port = Integer.getInteger("nexus.server.port", 8765);
+        VoiceServer server = new VoiceServer(new InetSocketAddress(port), config, VadConfig.defaults(),
+                createServices(config));
+        server.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                server.stop(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+
+        try {
+            while (true) {
+                TimeUnit.SECONDS.sleep(30);
+                log.info("Сервер: {}", server.getMetrics());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Движки сервера по тем же адресам, что у ассистента: распознавание
+     * {@code -Dnexus.stt.url} (соединение на фразу), LLM {@code -Dnexus.llm.url}
+     * ({@link #createLanguageModel}), синтез {@code -Dnexus.tts.url}
+     * ({@link #createSynthesizer}, с кэшем фраз). Без адреса - заглушка
+     */
+    private static SessionServices createServices(AudioConfig config) {
+        SessionServices stubs = SessionServices.stubs(config.sampleRate());
+        String sttUrl = System.getProperty("nexus.stt.url");
+        String llmUrl = System.getProperty("nexus.llm.url");
+        String ttsUrl = System.getProperty("nexus.tts.url");
+        SessionServices services = new SessionServices(
+                sttUrl != null ? new SttRecognizer(URI.create(sttUrl), sttCodec()) : stubs.recognizer(),
+                llmUrl != null ? createLanguageModel(llmUrl) : stubs.languageModel(),
+                ttsUrl != null ? createSynthesizer(ttsUrl, config) : stubs.synthesizer());
+        log.info("Сервер: STT {}, LLM {}, TTS {}", engine(sttUrl), engine(llmUrl), engine(ttsUrl));
+        return services;
+    }
+
+    private static String engine(String url) {
+        return url != null ? url : "заглушка (адрес не задан)";
+    }
+}
@@ -0,0 +1,111 @@
+package at.nexus.core;
+
+import at.nexus.audio.AudioConfig;
+import at.nexus.audio.PcmRingBuffer;
+import at.nexus.dsp.ConditioningConfig;
+import at.nexus.dsp.EchoCancellerStage;
+import at.nexus.dsp.InputConditioningStage;
+import at.nexus.dsp.PcmOps;
+import at.nexus.vad.VadConfig;
+import at.nexus.vad.VadStage;
+import at.nexus.wakeword.KeywordModel;
+import at.nexus.wakeword.WakeWordConfig;
+import at.nexus.wakeword.WakeWordStage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Random;
+
+/**
+ * Прогрев обработки микрофона до первой реплики пользователя.
+ *
+ * Без прогрева первая фраза идёт через интерпретатор: классы AEC,
+ * шумоподавления, признаков ключевого слова и VAD грузятся, а циклы
+ * по сэмплам компилируются JIT прямо на ней, и кадр обрабатывается
+ * в десятки раз дольше обычного. Здесь через отдельные экземпляры
+ * этапов (рабочие не трогаются) кадрами, как в {@link Main}, прогоняется
+ * синтетическая "речь": гармоники основного тона со слогами и паузами
+ * поверх слабого шума, и её эхо в опорном сигнале AEC.
+ */
+public final class PipelineWarmup {
+    private static final Logger log = LoggerFactory.getLogger(PipelineWarmup.class);
+
+    public static final int DEFAULT_MILLIS = 1000;
+
+    private static final double PITCH_HZ = 140;
+    private static final int HARMONICS = 8;
+    private static final double SYLLABLE_HZ = 4;
+    // Фраза и пауза после неё: VAD проходит и начало, и конец речи
+    private static final int PHRASE_MILLIS = 700;
+    private static final int PAUSE_MILLIS = 300;
+    private static final int ECHO_DELAY_MILLIS = 40;
+
+    private PipelineWarmup() {
+    }
+
+    /**
+     * Прогнать {@code millis} синтетического звука через AEC, подготовку,
+     * ключевое слово (если {@code model} не null) и VAD
+     * @return затраченное время, нс
+     */
+    public static long run(AudioConfig config, KeywordModel model, int millis) {
+        long start = System.nanoTime();
+        int frame = config.frameSamples();
+        PcmRingBuffer reference = new PcmRingBuffer(config.samplesForMillis(1000),
+                PcmRingBuffer.OverflowPolicy.DROP_OLDEST);
+        EchoCancellerStage aec = new EchoCancellerStage(config, reference, 128, 300);
+        InputConditioningStage conditioning = new InputConditioningStage(config, ConditioningConfig.defaults());
+        WakeWordStage wakeWord = model != null ? new WakeWordStage(config, WakeWordConfig.defaults(), model) : null;
+        VadStage vad = new VadStage(config, VadConfig.defaults());
+
+        int total = config.samplesForMillis(millis);
+        short[] far = speech(config.sampleRate(), total, new Random(22));
+        int echoDelay = config.samplesForMillis(ECHO_DELAY_MILLIS);
+        short[] near = new short[frame];
+        for (int offset = 0; offset + frame <= total; offset += frame) {
+            reference.write(far, offset, frame);
+            for (int i = 0; i < frame; i++) {
+                int t = offset + i;
+                // Пользователь говорит поверх ослабленного эха ответа
+                int echo = t >= echoDelay ? far[t - echoDelay] / 4 : 0;
+                near[i] = PcmOps.clip(far[(t + total / 2) % total] + echo);
+            }
+            aec.process(near, 0, frame);
+            conditioning.process(near, 0, frame);
+            if (wakeWord != null) {
+                wakeWord.process(near, 0, frame);
+            }
+            vad.process(near, 0, frame);
+        }
+        if (model != null) {
+            model.reset(); // та же модель дальше слушает по-настоящему
+        }
+        long elapsed = System.nanoTime() - start;
+        log.info("Прогрев: {} ms синтетической речи за {} ms, фраз по VAD {}",
+                millis, elapsed / 1_000_000, vad.getSegments());
+        return elapsed;
+    }
+
+    /**
+     * Гармоники основного тона, промодулированные слогами, фразы
+     * с паузами, слабый шум
+     */
+    private static short[] speech(int sampleRate, int samples, Random random) {
+        short[] out = new short[samples];
+        int phrase = sampleRate * PHRASE_MILLIS / 1000;
+        int period = phrase + sampleRate * PAUSE_MILLIS / 1000;
+        for (int i = 0; i < samples; i++) {
+            double t = (double) i / sampleRate;
+            double voice = 0;
+            if (i % period < phrase) {
+                double pitch = PITCH_HZ * (1 + 0.1 * Math.sin(2 * Math.PI * 0.7 * t));
+                for (int h = 1; h <= HARMONICS && pitch * h < sampleRate / 2.0; h++) {
+                    voice += Math.sin(2 * Math.PI * pitch * h * t) / h;
+                }
+                voice *= 0.5 + 0.5 * Math.sin(2 * Math.PI * SYLLABLE_HZ * t);
+            }
+            out[i] = PcmOps.clip((int) Math.round(4000 * voice + 30 * random.nextGaussian()));
+        }
+        return out;
+    }
+}
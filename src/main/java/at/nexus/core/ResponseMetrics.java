@@ -0,0 +1,122 @@
+package at.nexus.core;
+
+import at.nexus.metrics.LatencyHistogram;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Метрики ответов {@link ResponsePipeline}: где уходит время между
+ * концом речи пользователя и первым звуком ответа, и не рвётся ли
+ * звук на стыках кусков. Запись из любых потоков без блокировок.
+ */
+public class ResponseMetrics {
+
+    /**
+     * Этапы, задержка которых пишется в гистограмму
+     */
+    public enum Stage {
+        /** Запрос к LLM -> первый токен */
+        LLM_FIRST_TOKEN,
+        /** Конец речи -> первый кусок текста отдан в синтез */
+        FIRST_CHUNK,
+        /** Запрос синтеза куска -> первый звук синтеза (для каждого куска) */
+        TTS_FIRST_AUDIO,
+        /** Сколько вывод ждал звук следующего куска, доиграв в буфер предыдущий */
+        CHUNK_WAIT,
+        /** Конец речи -> первый звук ответа в выводе */
+        FIRST_AUDIO
+    }
+
+    private final Map<Stage, LatencyHistogram> stages = new EnumMap<>(Stage.class);
+    private final AtomicLong replies = new AtomicLong();
+    private final AtomicLong cancelled = new AtomicLong();
+    private final AtomicLong chunks = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong underruns = new AtomicLong();
+
+    public ResponseMetrics() {
+        for (Stage stage : Stage.values()) {
+            stages.put(stage, new LatencyHistogram());
+        }
+    }
+
+    public void record(Stage stage, long nanos) {
+        stages.get(stage).record(nanos);
+    }
+
+    public LatencyHistogram get(Stage stage) {
+        return stages.get(stage);
+    }
+
+    void replyStarted() {
+        replies.incrementAndGet();
+    }
+
+    void replyCancelled() {
+        cancelled.incrementAndGet();
+    }
+
+    void chunk() {
+        chunks.incrementAndGet();
+    }
+
+    void failure() {
+        failures.incrementAndGet();
+    }
+
+    void underrun() {
+        underruns.incrementAndGet();
+    }
+
+    public long getReplies() {
+        return replies.get();
+    }
+
+    /**
+     * Ответов, прерванных до конца (barge-in, новый ответ)
+     */
+    public long getCancelled() {
+        return cancelled.get();
+    }
+
+    /**
+     * Кусков текста, отданных в синтез
+     */
+    public long getChunks() {
+        return chunks.get();
+    }
+
+    /**
+     * Ошибок LLM и синтеза (ответ звучит без несинтезированного)
+     */
+    public long getFailures() {
+        return failures.get();
+    }
+
+    /**
+     * Недогрузов вывода посреди ответа - слышимых пауз
+     */
+    public long getUnderruns() {
+        return underruns.get();
+    }
+
+    public void reset() {
+        stages.values().forEach(LatencyHistogram::reset);
+        replies.set(0);
+        cancelled.set(0);
+        chunks.set(0);
+        failures.set(0);
+        underruns.set(0);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder(String.format(
+                "ответов %d (прервано %d), кусков %d, ошибок %d, недогрузов %d",
+                getReplies(), getCancelled(), getChunks(), getFailures(), getUnderruns()));
+        stages.forEach((stage, histogram) -> out.append("\n  ").append(stage).append(": ").append(histogram));
+        return out.toString();
+    }
+}
@@ -0,0 +1,350 @@
+package at.nexus.core;
+
+import at.nexus.audio.AudioConfig;
+import at.nexus.audio.AudioOutputManager;
+import at.nexus.audio.JitterBuffer;
+import at.nexus.audio.PcmWriter;
+import at.nexus.audio.io.FormatAdapter;
+import at.nexus.core.ResponseMetrics.Stage;
+import at.nexus.dsp.PcmOps;
+import at.nexus.server.LanguageModel;
+import at.nexus.server.SpeechSynthesizer;
+import at.nexus.tts.SentenceChunker;
+import at.nexus.tts.TtsStreamPlayer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Ответ ассистента конвейером: реплика -> LLM -> куски текста -> TTS -> вывод.
+ *
+ * Токены LLM режет {@link SentenceChunker}, и каждый кусок сразу уходит
+ * в синтез в своём виртуальном потоке: синтез куска N+1 идёт, пока
+ * звучит кусок N, а первый звук не ждёт конца генерации. Звук кусков
+ * строго по порядку пишется в один {@link JitterBuffer}, который играет
+ * {@link AudioOutputManager}. Одновременно синтезируется не больше
+ * {@code lookahead} кусков: кусок ждёт, пока в буфер не уйдёт звук
+ * куска на {@code lookahead} раньше (1 - синтез строго по очереди).
+ *
+ * Новый ответ отменяет текущий; перебивание через
+ * {@link AudioOutputManager#interrupt()} отменяет буфер, и вместе с ним
+ * останавливаются генерация и синтез. Главная метрика -
+ * {@link Stage#FIRST_AUDIO}: от конца речи пользователя до первого звука.
+ */
+public class ResponsePipeline {
+    private static final Logger log = LoggerFactory.getLogger(ResponsePipeline.class);
+
+    public static final int DEFAULT_LOOKAHEAD = 2;
+    // Ответ принимается впрок, дальше запись ждёт воспроизведения
+    private static final int CAPACITY_MILLIS = 10_000;
+    private static final int ADAPTER_FRAMES = 1024;
+    private static final int WARM_UP_SENTENCES = 50;
+
+    private final AudioOutputManager output;
+    private final LanguageModel languageModel;
+    private final SpeechSynthesizer synthesizer;
+    private final int lookahead;
+    private final ResponseMetrics metrics = new ResponseMetrics();
+
+    private volatile Reply current;
+
+    public ResponsePipeline(AudioOutputManager output, LanguageModel languageModel, SpeechSynthesizer synthesizer) {
+        this(output, languageModel, synthesizer, DEFAULT_LOOKAHEAD);
+    }
+
+    /**
+     * @param lookahead сколько кусков может синтезироваться одновременно
+     */
+    public ResponsePipeline(AudioOutputManager output, LanguageModel languageModel, SpeechSynthesizer synthesizer,
+                            int lookahead) {
+        if (lookahead < 1) {
+            throw new IllegalArgumentException("lookahead должен быть >= 1: " + lookahead);
+        }
+        this.output = output;
+        this.languageModel = languageModel;
+        this.synthesizer = synthesizer;
+        this.lookahead = lookahead;
+    }
+
+    /**
+     * Ответить на реплику; предыдущий ответ, если ещё звучит, отменяется
+     * @param speechEndNanos конец речи пользователя ({@link System#nanoTime()}),
+     *                       от него считается {@link Stage#FIRST_AUDIO}
+     */
+    public synchronized void respond(String prompt, long speechEndNanos) {
+        Reply previous = current;
+        if (previous != null) {
+            previous.cancel();
+        }
+        Reply reply = new Reply(prompt, speechEndNanos);
+        current = reply;
+        metrics.replyStarted();
+        reply.start();
+    }
+
+    /**
+     * Отменить текущий ответ
+     */
+    public void cancel() {
+        Reply reply = current;
+        if (reply != null) {
+            reply.cancel();
+        }
+    }
+
+    /**
+     * Дождаться, пока текущий ответ доиграет или будет отменён
+     * @return false по таймауту
+     */
+    public boolean awaitIdle(long timeout, TimeUnit unit) throws InterruptedException {
+        Reply reply = current;
+        return reply == null || reply.finished.await(timeout, unit);
+    }
+
+    /**
+     * Прогреть при старте всё, через что пройдёт первый ответ, кроме сети:
+     * разбор ответа LLM и декодирование синтеза ({@code warmUp()} клиентов),
+     * нарезку текста и приведение звука синтеза к формату вывода
+     */
+    public void warmUp() throws InterruptedException {
+        languageModel.warmUp();
+        synthesizer.warmUp();
+        List<String> pieces = new ArrayList<>();
+        SentenceChunker chunker = new SentenceChunker(pieces::add);
+        for (int i = 0; i < WARM_UP_SENTENCES; i++) {
+            for (String token : "Прогрев, чтобы первый ответ звучал сразу. ".split("(?<= )")) {
+                chunker.append(token);
+            }
+        }
+        chunker.flush();
+
+        AudioConfig config = output.getConfig();
+        if (synthesizer.sampleRate() != config.sampleRate() || config.channels() != 1) {
+            FormatAdapter adapter = new FormatAdapter(synthesizer.sampleRate(), 1, config.sampleRate(),
+                    config.channels(), ADAPTER_FRAMES);
+            byte[] silence = new byte[synthesizer.sampleRate() / 10 * AudioConfig.BYTES_PER_SAMPLE];
+            PcmWriter discard = (pcm, offset, length) -> length;
+            for (int i = 0; i < WARM_UP_SENTENCES; i++) {
+                adapter.write(discard, silence, 0, silence.length);
+            }
+        }
+    }
+
+    public ResponseMetrics getMetrics() {
+        return metrics;
+    }
+
+    @FunctionalInterface
+    private interface Task {
+        void run() throws InterruptedException;
+    }
+
+    /**
+     * Кусок текста и его звук: поток синтеза пишет, поток вывода читает
+     */
+    private static final class Chunk {
+        static final Chunk END = new Chunk("", null);
+        static final short[] END_OF_AUDIO = new short[0];
+
+        final String text;
+        // Синтез начинается, когда этот кусок ушёл в буфер
+        final Chunk after;
+        final BlockingQueue<short[]> audio = new LinkedBlockingQueue<>();
+        final CountDownLatch drained = new CountDownLatch(1);
+
+        Chunk(String text, Chunk after) {
+            this.text = text;
+            this.after = after;
+        }
+    }
+
+    /**
+     * Один ответ: поток LLM, поток синтеза на каждый кусок и поток
+     * вывода, который собирает звук кусков по порядку
+     */
+    private final class Reply implements JitterBuffer.Listener {
+        private final String prompt;
+        private final long speechEndNanos;
+        private final JitterBuffer buffer;
+        // Из формата синтеза в формат вывода; только поток вывода
+        private final FormatAdapter adapter;
+        private final BlockingQueue<Chunk> chunks = new LinkedBlockingQueue<>();
+        private final List<Thread> threads = new CopyOnWriteArrayList<>();
+        private final AtomicBoolean stopped = new AtomicBoolean();
+        private final CountDownLatch finished = new CountDownLatch(1);
+
+        // Только поток LLM
+        private final List<Chunk> started = new ArrayList<>();
+        private long requestNanos;
+        private boolean awaitingToken = true;
+
+        Reply(String prompt, long speechEndNanos) {
+            this.prompt = prompt;
+            this.speechEndNanos = speechEndNanos;
+            AudioConfig config = output.getConfig();
+            this.buffer = new JitterBuffer(config, TtsStreamPlayer.MIN_LEAD_MILLIS,
+                    TtsStreamPlayer.MAX_LEAD_MILLIS, CAPACITY_MILLIS, this);
+            this.adapter = synthesizer.sampleRate() == config.sampleRate() && config.channels() == 1 ? null
+                    : new FormatAdapter(synthesizer.sampleRate(), 1, config.sampleRate(), config.channels(),
+                    ADAPTER_FRAMES);
+        }
+
+        void start() {
+            output.play(buffer);
+            fork("reply-llm", this::generate);
+            fork("reply-output", this::drain);
+        }
+
+        private void fork(String name, Task task) {
+            Thread thread = Thread.ofVirtual().name(name).unstarted(() -> {
+                try {
+                    task.run();
+                } catch (InterruptedException e) {
+                    log.debug("Ответ: {} остановлен", name);
+                }
+            });
+            threads.add(thread);
+            if (!stopped.get()) {
+                thread.start();
+            }
+        }
+
+        // ========== Поток LLM ==========
+
+        private void generate() throws InterruptedException {
+            SentenceChunker chunker = new SentenceChunker(this::onChunk);
+            requestNanos = System.nanoTime();
+            try {
+                languageModel.reply(prompt, token -> {
+                    if (awaitingToken) {
+                        awaitingToken = false;
+                        metrics.record(Stage.LLM_FIRST_TOKEN, System.nanoTime() - requestNanos);
+                    }
+                    chunker.append(token);
+                });
+                chunker.flush();
+            } catch (RuntimeException e) {
+                // Сказанное до ошибки доиграет
+                metrics.failure();
+                log.warn("Ответ: ошибка LLM: {}", e.toString());
+            } finally {
+                chunks.add(Chunk.END);
+            }
+        }
+
+        private void onChunk(String text) {
+            if (started.isEmpty()) {
+                metrics.record(Stage.FIRST_CHUNK, System.nanoTime() - speechEndNanos);
+            }
+            metrics.chunk();
+            Chunk previous = started.size() >= lookahead ? started.get(started.size() - lookahead) : null;
+            Chunk chunk = new Chunk(text, previous);
+            started.add(chunk);
+            chunks.add(chunk);
+            fork("reply-tts-" + started.size(), () -> synthesize(chunk));
+        }
+
+        // ========== Потоки синтеза ==========
+
+        private void synthesize(Chunk chunk) throws InterruptedException {
+            try {
+                if (chunk.after != null) {
+                    chunk.after.drained.await();
+                }
+                long start = System.nanoTime();
+                boolean[] awaitingAudio = {true};
+                synthesizer.synthesize(chunk.text, (samples, offset, length) -> {
+                    if (awaitingAudio[0]) {
+                        awaitingAudio[0] = false;
+                        metrics.record(Stage.TTS_FIRST_AUDIO, System.nanoTime() - start);
+                    }
+                    // Массив синтеза может быть общим - копия
+                    chunk.audio.add(Arrays.copyOfRange(samples, offset, offset + length));
+                });
+            } catch (RuntimeException e) {
+                // Кусок пропускается, остальные звучат
+                metrics.failure();
+                log.warn("Ответ: ошибка синтеза '{}': {}", chunk.text, e.toString());
+            } finally {
+                chunk.audio.add(Chunk.END_OF_AUDIO);
+            }
+        }
+
+        // ========== Поток вывода ==========
+
+        private void drain() throws InterruptedException {
+            byte[] bytes = new byte[0];
+            boolean first = true;
+            Chunk chunk;
+            while ((chunk = chunks.take()) != Chunk.END) {
+                long waitStart = System.nanoTime();
+                short[] audio = chunk.audio.take();
+                if (!first) {
+                    metrics.record(Stage.CHUNK_WAIT, System.nanoTime() - waitStart);
+                }
+                first = false;
+                for (; audio != Chunk.END_OF_AUDIO; audio = chunk.audio.take()) {
+                    int length = audio.length * AudioConfig.BYTES_PER_SAMPLE;
+                    if (bytes.length < length) {
+                        bytes = new byte[length];
+                    }
+                    PcmOps.toBytes(audio, 0, bytes, 0, audio.length);
+                    if (adapter != null) {
+                        adapter.write(buffer, bytes, 0, length);
+                    } else {
+                        buffer.write(bytes, 0, length);
+                    }
+                }
+                chunk.drained.countDown();
+            }
+            buffer.end();
+        }
+
+        // ========== Отмена ==========
+
+        void cancel() {
+            buffer.cancel();
+            stop(true);
+        }
+
+        private void stop(boolean cancelled) {
+            if (!stopped.compareAndSet(false, true)) {
+                return;
+            }
+            if (cancelled) {
+                metrics.replyCancelled();
+                threads.forEach(Thread::interrupt);
+            }
+            finished.countDown();
+        }
+
+        // ========== JitterBuffer.Listener (поток воспроизведения) ==========
+
+        @Override
+        public void onFirstAudio(long bufferingNanos) {
+            long latency = System.nanoTime() - speechEndNanos;
+            metrics.record(Stage.FIRST_AUDIO, latency);
+            log.debug("Ответ: первый звук через {} ms после конца речи", latency / 1_000_000);
+        }
+
+        @Override
+        public void onUnderrun(int targetLeadMillis) {
+            metrics.underrun();
+        }
+
+        @Override
+        public void onFinished(JitterBuffer finishedBuffer, boolean cancelled) {
+            // Отмена буфера - это перебивание: генерация и синтез больше не нужны
+            stop(cancelled);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package at.nexus.core;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * Время старта: от запуска JVM до готовности слушать.
+ *
+ * Отсчёт от запуска JVM (uptime), а не от {@code main}: загрузка
+ * классов до {@code main} - ровно то, что сокращает кэш CDS/AOT.
+ * Фазы могут идти параллельно, поэтому их сумма больше времени до
+ * готовности. Потокобезопасен.
+ */
+public class StartupReport {
+
+    @FunctionalInterface
+    public interface Phase {
+        void run() throws Exception;
+    }
+
+    private final long mainMillis;
+    private final Map<String, Long> phases = new LinkedHashMap<>();
+    private volatile long readyMillis = -1;
+
+    /**
+     * Создаётся первым делом в {@code main}
+     */
+    public StartupReport() {
+        this.mainMillis = uptimeMillis();
+    }
+
+    private static long uptimeMillis() {
+        return ManagementFactory.getRuntimeMXBean().getUptime();
+    }
+
+    /**
+     * Выполнить фазу старта и запомнить её длительность
+     */
+    public void run(String name, Phase phase) throws Exception {
+        long start = System.nanoTime();
+        try {
+            phase.run();
+        } finally {
+            record(name, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Выполнить фазу старта с результатом и запомнить её длительность
+     */
+    public <T> T call(String name, Callable<T> phase) throws Exception {
+        long start = System.nanoTime();
+        try {
+            return phase.call();
+        } finally {
+            record(name, System.nanoTime() - start);
+        }
+    }
+
+    private synchronized void record(String name, long nanos) {
+        phases.put(name, nanos / 1_000_000);
+    }
+
+    /**
+     * Всё готово, дальше - главный цикл
+     */
+    public void ready() {
+        readyMillis = uptimeMillis();
+    }
+
+    /**
+     * От запуска JVM до входа в {@code main}, ms
+     */
+    public long getMainMillis() {
+        return mainMillis;
+    }
+
+    /**
+     * От запуска JVM до готовности, ms; -1 - ещё не готов
+     */
+    public long getReadyMillis() {
+        return readyMillis;
+    }
+
+    /**
+     * @return -1, если фазы не было
+     */
+    public synchronized long getPhaseMillis(String name) {
+        return phases.getOrDefault(name, -1L);
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder text = new StringBuilder("готов через ").append(readyMillis)
+                .append(" ms от запуска JVM (main через ").append(mainMillis).append(" ms)");
+        String separator = ": ";
+        for (Map.Entry<String, Long> phase : phases.entrySet()) {
+            text.append(separator).append(phase.getKey()).append(' ').append(phase.getValue()).append(" ms");
+            separator = ", ";
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,179 @@
+package at.nexus.demo;
+
+import at.nexus.audio.AudioConfig;
+import at.nexus.audio.LatencyProfile;
+import at.nexus.audio.alsa.AlsaPcm;
+import at.nexus.audio.alsa.AlsaSettings;
+import at.nexus.audio.alsa.AlsaSink;
+import at.nexus.audio.alsa.AlsaSource;
+import at.nexus.audio.io.AudioSink;
+import at.nexus.audio.io.AudioSource;
+import at.nexus.audio.io.LineSink;
+import at.nexus.audio.io.LineSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sound.sampled.LineUnavailableException;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ALSA через FFM против javax.sound.
+ *
+ * <ul>
+ *   <li>Буферизация обоих путей при профиле LOW: сколько звука может
+ *       лежать между приложением и устройством.</li>
+ *   <li>Стоимость обмена на устройстве {@code null} (есть в любой
+ *       libasound, работает без звуковой карты): CPU и аллокации на кадр
+ *       для readi/writei и mmap. У {@code null} нет ни таймера, ни
+ *       железа, так что это чистая цена вызовов FFM, а не задержка.</li>
+ *   <li>Круговая задержка по щелчкам: вывод -> петля -> захват. Нужна
+ *       петля {@code snd-aloop} ({@code modprobe snd-aloop}), устройства
+ *       задаются {@code -Dnexus.alsa.loopback=вывод|захват}. javax.sound
+ *       меряется на устройствах по умолчанию - для честного сравнения
+ *       петля должна быть картой по умолчанию.</li>
+ * </ul>
+ * Запуск: {@code --enable-native-access=ALL-UNNAMED}.
+ */
+public class AlsaLatencyDemo {
+    private static final Logger log = LoggerFactory.getLogger(AlsaLatencyDemo.class);
+
+    private static final int OVERHEAD_FRAMES = 5000;
+    private static final int CLICKS = 20;
+    private static final int CLICK_INTERVAL_FRAMES = 25;
+    private static final short CLICK_LEVEL = 20000;
+
+    private static final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) throws Exception {
+        AudioConfig config = LatencyProfile.LOW.toConfig();
+        AlsaSettings alsa = AlsaSettings.forConfig(config);
+
+        log.info("=== Буферизация, профиль LOW (кадр {} ms) ===", config.frameMillis());
+        log.info("javax.sound: буфер захвата {} ms + вывода {} ms + кадр = {} ms",
+                config.captureBufferMillis(), config.playbackBufferMillis(), config.bufferedLatencyMillis());
+        log.info("ALSA: период захвата {} ms + буфер вывода {} ms + кадр = {} ms",
+                alsa.periodMillis(), alsa.periodMillis() * alsa.playbackPeriods(),
+                alsa.periodMillis() + alsa.periodMillis() * alsa.playbackPeriods() + config.frameMillis());
+
+        log.info("=== Стоимость обмена, устройство null ===");
+        for (boolean mmap : new boolean[]{false, true}) {
+            for (boolean capture : new boolean[]{false, true}) {
+                overhead(config, alsa.withDevice("null").withMmap(mmap), capture);
+            }
+        }
+
+        log.info("=== Круговая задержка ===");
+        String[] loopback = System.getProperty("nexus.alsa.loopback", "hw:Loopback,0,0|hw:Loopback,1,0").split("\\|");
+        roundTrip("ALSA mmap", config,
+                new AlsaSource(alsa.withDevice(loopback[1])), new AlsaSink(alsa.withDevice(loopback[0])));
+        roundTrip("ALSA readi/writei", config,
+                new AlsaSource(alsa.withDevice(loopback[1]).withMmap(false)),
+                new AlsaSink(alsa.withDevice(loopback[0]).withMmap(false)));
+        roundTrip("javax.sound", config, new LineSource(), new LineSink());
+    }
+
+    private static void overhead(AudioConfig config, AlsaSettings settings, boolean capture) {
+        try (AlsaPcm pcm = new AlsaPcm(settings, capture, config)) {
+            byte[] frame = new byte[config.frameBytes()];
+            pcm.start();
+            for (int i = 0; i < 500; i++) { // прогрев JIT
+                transfer(pcm, capture, frame);
+            }
+            long cpu = threads.getCurrentThreadCpuTime();
+            long allocated = threads.getCurrentThreadAllocatedBytes();
+            for (int i = 0; i < OVERHEAD_FRAMES; i++) {
+                transfer(pcm, capture, frame);
+            }
+            log.info("{} {}: {} ns CPU и {} байт аллокаций на кадр", capture ? "захват" : "вывод",
+                    pcm.isMmap() ? "mmap" : "readi/writei",
+                    (threads.getCurrentThreadCpuTime() - cpu) / OVERHEAD_FRAMES,
+                    (threads.getCurrentThreadAllocatedBytes() - allocated) / OVERHEAD_FRAMES);
+        } catch (LineUnavailableException e) {
+            log.warn("Устройство null недоступно: {}", e.getMessage());
+        }
+    }
+
+    private static void transfer(AlsaPcm pcm, boolean capture, byte[] frame) {
+        if (capture) {
+            pcm.read(frame, 0, frame.length);
+        } else {
+            pcm.write(frame, 0, frame.length);
+        }
+    }
+
+    /**
+     * Щелчок раз в {@code CLICK_INTERVAL_FRAMES} кадров: от вызова write
+     * с щелчком до возврата read с его началом (с поправкой на место в кадре)
+     */
+    private static void roundTrip(String name, AudioConfig config, AudioSource source, AudioSink sink)
+            throws InterruptedException {
+        try {
+            source.open(config);
+            sink.open(config);
+        } catch (LineUnavailableException | RuntimeException e) {
+            log.warn("{}: петля недоступна - {}", name, e.getMessage());
+            source.close();
+            sink.close();
+            return;
+        }
+
+        long[] sent = new long[CLICKS];
+        Thread player = new Thread(() -> {
+            byte[] silence = new byte[config.frameBytes()];
+            byte[] click = new byte[config.frameBytes()];
+            for (int i = 0; i < config.samplesForMillis(5); i++) {
+                click[i * 2] = (byte) CLICK_LEVEL;
+                click[i * 2 + 1] = (byte) (CLICK_LEVEL >> 8);
+            }
+            for (int i = 0; i < (CLICKS + 1) * CLICK_INTERVAL_FRAMES; i++) {
+                int k = i / CLICK_INTERVAL_FRAMES;
+                boolean isClick = i % CLICK_INTERVAL_FRAMES == 0 && k < CLICKS;
+                if (isClick) {
+                    sent[k] = System.nanoTime();
+                }
+                sink.write(isClick ? click : silence, 0, silence.length);
+            }
+        }, "Click-Thread");
+
+        short[] frame = new short[config.frameSamples()];
+        byte[] bytes = new byte[config.frameBytes()];
+        long[] latencies = new long[CLICKS];
+        int received = 0;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(CLICKS + 5);
+        source.start();
+        sink.start();
+        player.start();
+        boolean inClick = false;
+        while (received < CLICKS && System.nanoTime() < deadline) {
+            int n = source.read(bytes, 0, bytes.length);
+            long now = System.nanoTime();
+            for (int i = 0; i < n / 2; i++) {
+                frame[i] = (short) ((bytes[i * 2 + 1] << 8) | (bytes[i * 2] & 0xFF));
+                boolean loud = Math.abs(frame[i]) > CLICK_LEVEL / 2;
+                if (loud && !inClick && received < CLICKS) {
+                    long tail = (long) (n / 2 - i) * 1_000_000_000L / config.sampleRate();
+                    latencies[received] = now - tail - sent[received];
+                    received++;
+                }
+                inClick = loud;
+            }
+        }
+        player.join();
+        source.stop();
+        sink.stop();
+        source.close();
+        sink.close();
+
+        if (received == 0) {
+            log.warn("{}: щелчки не вернулись (вывод и захват не соединены?)", name);
+            return;
+        }
+        long[] sorted = Arrays.copyOf(latencies, received);
+        Arrays.sort(sorted);
+        log.info("{}: круговая задержка медиана {} ms, min {} ms, max {} ms ({} щелчков)", name,
+                sorted[received / 2] / 1_000_000, sorted[0] / 1_000_000, sorted[received - 1] / 1_000_000, received);
+    }
+}
@@ -1,5 +1,8 @@
 package at.nexus.demo;
 
+import at.nexus.dsp.AutomaticGainControl;
+import at.nexus.dsp.ConditioningConfig;
+import at.nexus.dsp.PcmOps;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -14,10 +17,9 @@ public class AudioInputDemo {
     private static final int SAMPLE_RATE = 44100;
     private static final int SAMPLE_SIZE_BITS = 16;
     private static final int CHANNELS = 2;
-    private static final double AMPLIFICATION = 2.0; // Усиление в 2.5 раза
 
     public static void main(String[] args) {
-        log.info("=== Тест записи и воспроизведения (высокое качество + усиление) ===");
+        log.info("=== Тест записи и воспроизведения (высокое качество + АРУ) ===");
 
         try {
             AudioFormat format = new AudioFormat(
@@ -53,9 +55,8 @@ public class AudioInputDemo {
 
             log.info("Запись завершена. Размер: {} байт", audioBuffer.size());
 
-            // Усиливаем звук
+            // Выравниваем громкость
             byte[] amplifiedAudio = amplifyAudio(audioBuffer.toByteArray());
-            log.info("Звук усилен в {} раз", AMPLIFICATION);
 
             // Воспроизведение
             log.info("Воспроизведение...");
@@ -69,26 +70,18 @@ public class AudioInputDemo {
     }
 
     /**
-     * Усиливаем аудио сигнал
+     * Выравниваем громкость АРУ: тихий голос усиливается, громкий
+     * не клиппирует (фиксированный множитель делал и то, и другое хуже)
      */
     private static byte[] amplifyAudio(byte[] audioData) {
-        byte[] amplified = new byte[audioData.length];
-
-        for (int i = 0; i < audioData.length - 1; i += 2) {
-            // Читаем 16-bit sample
-            short sample = (short) ((audioData[i + 1] << 8) | (audioData[i] & 0xFF));
-
-            // Усиливаем
-            int amplifiedSample = (int) (sample * AMPLIFICATION);
-
-            // Ограничиваем чтобы не было клиппинга
-            amplifiedSample = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, amplifiedSample));
-
-            // Записываем обратно
-            amplified[i] = (byte) (amplifiedSample & 0xFF);
-            amplified[i + 1] = (byte) ((amplifiedSample >> 8) & 0xFF);
-        }
-
+        short[] samples = new short[audioData.length / 2];
+        PcmOps.toShorts(audioData, 0, samples, 0, samples.length);
+        AutomaticGainControl agc = new AutomaticGainControl(SAMPLE_RATE, CHANNELS, ConditioningConfig.defaults());
+        agc.process(samples, 0, samples.length);
+        log.info("АРУ: усиление в конце {} dB, ограничитель сработал на {} кадрах",
+                Math.round(agc.getGainDb() * 10) / 10.0, agc.getLimitedFrames());
+        byte[] amplified = new byte[samples.length * 2];
+        PcmOps.toBytes(samples, 0, amplified, 0, samples.length);
         return amplified;
     }
 
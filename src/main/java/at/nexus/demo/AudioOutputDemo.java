@@ -1,5 +1,6 @@
 package at.nexus.demo;
 
+import at.nexus.audio.AudioConfig;
 import at.nexus.audio.AudioOutputManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -13,7 +14,7 @@ import javax.sound.sampled.LineUnavailableException;
 public class AudioOutputDemo {
     private static final Logger log = LoggerFactory.getLogger(AudioOutputDemo.class);
 
-    private static final int SAMPLE_RATE = 16000;
+    private static final int SAMPLE_RATE = AudioConfig.defaults().sampleRate();
     private static final int DURATION_MS = 1000; // 1 секунда
 
     public static void main(String[] args) {
@@ -3,10 +3,10 @@ package at.nexus.demo;
 
 import at.nexus.audio.AudioInputManager;
 import at.nexus.audio.AudioOutputManager;
+import at.nexus.audio.PcmRingBuffer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.util.Scanner;
-import java.util.concurrent.BlockingQueue;
 
 /**
  * Комплексный тест аудио системы.
@@ -38,14 +38,17 @@ public class AudioTestDemo {
 
             // 3. Главный цикл пересылки данных (Mic -> Speaker)
             // В будущем здесь будет стоять VAD и STT
-            BlockingQueue<byte[]> inputQueue = inputManager.getAudioQueue();
+            PcmRingBuffer inputBuffer = inputManager.getRingBuffer();
+            PcmRingBuffer outputBuffer = outputManager.getRingBuffer();
+            short[] samples = new short[inputBuffer.capacity()];
 
             while (true) {
                 // Блокируемся, пока не придут данные с микрофона
-                byte[] audioData = inputQueue.take();
+                inputBuffer.awaitAvailable(1);
+                int count = inputBuffer.read(samples, 0, samples.length);
 
                 // Сразу отправляем их на динамики
-                outputManager.enqueueAudio(audioData);
+                outputBuffer.write(samples, 0, count);
             }
 
         } catch (Exception e) {
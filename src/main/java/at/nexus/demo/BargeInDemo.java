@@ -0,0 +1,118 @@
+package at.nexus.demo;
+
+import at.nexus.audio.AudioConfig;
+import at.nexus.audio.AudioOutputManager;
+import at.nexus.audio.LatencyProfile;
+import at.nexus.audio.PcmWriter;
+import at.nexus.core.BargeInController;
+import at.nexus.vad.VadConfig;
+import at.nexus.vad.VadStage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Замер задержки barge-in: от начала речи пользователя до тишины на выходе.
+ *
+ * Ассистент "говорит" длинным тоном в виртуальный вывод, который
+ * потребляет звук в темпе реального устройства. Параллельно
+ * {@code recording.wav} в реальном времени идёт через VAD; на первом
+ * speech-start {@link BargeInController} вызывает interrupt(), а вывод
+ * фиксирует момент, когда закончил звучать последний ненулевой сэмпл.
+ */
+public class BargeInDemo {
+    private static final Logger log = LoggerFactory.getLogger(BargeInDemo.class);
+
+    public static void main(String[] args) throws Exception {
+        short[] speech = DemoAudio.loadWav(DemoAudio.RECORDING);
+        int sampleRate = DemoAudio.sampleRate(DemoAudio.RECORDING);
+
+        log.info("=== Задержка barge-in (виртуальный вывод) ===");
+        for (LatencyProfile profile : LatencyProfile.values()) {
+            measure(profile.toConfig(sampleRate, 1), profile, speech);
+        }
+    }
+
+    private static void measure(AudioConfig config, LatencyProfile profile, short[] speech)
+            throws InterruptedException {
+        VirtualOutput sink = new VirtualOutput(config);
+        AudioOutputManager output = new AudioOutputManager(config, sink);
+        output.startPlayback();
+
+        // Ответ ассистента: 3 секунды тона
+        short[] tone = new short[config.samplesForMillis(3000)];
+        for (int i = 0; i < tone.length; i++) {
+            tone[i] = (short) (Math.sin(2 * Math.PI * 440 * i / config.sampleRate()) * 8000);
+        }
+        output.getRingBuffer().write(tone, 0, Math.min(tone.length, output.getRingBuffer().capacity()));
+
+        // VAD с кадрами 20ms независимо от профиля вывода
+        AudioConfig vadConfig = LatencyProfile.LOW.toConfig(config.sampleRate(), 1);
+        VadStage vad = new VadStage(vadConfig, VadConfig.defaults());
+        BargeInController bargeIn = new BargeInController(output);
+        vad.addListener(bargeIn);
+
+        int frame = vadConfig.frameSamples();
+        long start = System.nanoTime();
+        for (int offset = 0, i = 0; offset + frame <= speech.length && bargeIn.getBargeIns() == 0;
+             offset += frame, i++) {
+            vad.process(speech, offset, frame);
+            long due = start + TimeUnit.MILLISECONDS.toNanos((long) (i + 1) * vadConfig.frameMillis());
+            long sleep = due - System.nanoTime();
+            if (sleep > 0) {
+                TimeUnit.NANOSECONDS.sleep(sleep);
+            }
+        }
+
+        Thread.sleep(config.frameMillis() * 3L + 100); // дать выводу доиграть
+        output.stopPlayback();
+
+        long interruptAt = output.getLastInterruptNanos();
+        if (interruptAt == 0) {
+            log.warn("{}: речь не обнаружена, перебивания не было", profile);
+            return;
+        }
+        long latencyMicros = Math.max(0, TimeUnit.NANOSECONDS.toMicros(sink.lastAudibleEndNanos - interruptAt));
+        log.info("{}: чанк {}ms, interrupt -> тишина {} мкс ({})",
+                profile, config.frameMillis(), latencyMicros,
+                latencyMicros <= config.frameMillis() * 1000L ? "в пределах кадра" : "ДОЛЬШЕ КАДРА");
+    }
+
+    /**
+     * Виртуальный вывод: блокирует запись на длительность данных,
+     * как звуковая карта без собственного буфера
+     */
+    private static final class VirtualOutput implements PcmWriter {
+        private final AudioConfig config;
+        private volatile long lastAudibleEndNanos;
+
+        VirtualOutput(AudioConfig config) {
+            this.config = config;
+        }
+
+        @Override
+        public int write(byte[] buffer, int offset, int length) {
+            boolean audible = false;
+            for (int i = offset; i < offset + length; i++) {
+                if (buffer[i] != 0) {
+                    audible = true;
+                    break;
+                }
+            }
+
+            long durationNanos = length * 1_000_000_000L
+                    / ((long) config.sampleRate() * config.channels() * AudioConfig.BYTES_PER_SAMPLE);
+            long end = System.nanoTime() + durationNanos;
+            try {
+                TimeUnit.NANOSECONDS.sleep(durationNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (audible) {
+                lastAudibleEndNanos = end;
+            }
+            return length;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package at.nexus.demo;
+
+import at.nexus.audio.AudioConfig;
+import at.nexus.audio.LatencyProfile;
+import at.nexus.codec.AudioCodec;
+import at.nexus.codec.AudioDecoder;
+import at.nexus.codec.CodecConfig;
+import at.nexus.codec.EncoderStage;
+import at.nexus.codec.opus.OpusLib;
+import at.nexus.dsp.FeatureConfig;
+import at.nexus.dsp.MelSpectrogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Кодек для сети: сколько байт, сколько CPU и что остаётся от звука.
+ *
+ * {@code recording.wav} кадрами конвейера (профиль LOW) идёт через
+ * {@link EncoderStage} в пакеты по 20ms, пакеты декодируются обратно.
+ * Для PCM и Opus на нескольких битрейтах:
+ * <ul>
+ *   <li>битрейт и сжатие относительно сырого PCM;</li>
+ *   <li>CPU и аллокации на кадр кодера и декодера;</li>
+ *   <li>качество: SNR и mel-кепстральное искажение (MCD по MFCC, dB) на
+ *       кадрах речи. Opus сохраняет звучание, а не форму волны, поэтому
+ *       SNR у него мал даже на хорошем звуке; MCD показывает, насколько
+ *       отошёл спектр: чем меньше, тем ближе к оригиналу. Резкий рост на
+ *       малом битрейте - кодек сузил полосу;</li>
+ *   <li>то же при потере 5% пакетов, закрытых маскированием декодера.</li>
+ * </ul>
+ * Opus нужна libopus: {@code -Dnexus.opus.library=/путь/libopus.so}, если
+ * её нет в системе под именем {@code libopus.so.0}.
+ */
+public class CodecDemo {
+    private static final Logger log = LoggerFactory.getLogger(CodecDemo.class);
+
+    private static final int[] BITRATES = {12_000, 16_000, 24_000, 32_000};
+    private static final int TIMING_ROUNDS = 5;
+    private static final double LOSS = 0.05;
+    // Кадры тише этого (dBFS) в MCD не входят - сравнивается речь, а не тишина
+    private static final double SPEECH_DBFS = -50;
+
+    private static final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) throws Exception {
+        short[] speech = DemoAudio.loadWav(DemoAudio.RECORDING);
+        int sampleRate = DemoAudio.sampleRate(DemoAudio.RECORDING);
+        AudioConfig audio = LatencyProfile.LOW.toConfig(sampleRate, 1);
+        log.info("{}: {} ms, кадр конвейера {} ms, сырой PCM {} кбит/с", DemoAudio.RECORDING,
+                speech.length * 1000L / sampleRate, audio.frameMillis(), CodecConfig.voice(audio).pcmBitrate() / 1000);
+
+        run(AudioCodec.PCM, CodecConfig.voice(audio), audio, speech);
+        if (!AudioCodec.OPUS.isAvailable()) {
+            log.warn("Opus недоступен - укажите -Dnexus.opus.library");
+            return;
+        }
+        log.info("Opus: {}", OpusLib.version());
+        for (int bitrate : BITRATES) {
+            run(AudioCodec.OPUS, CodecConfig.voice(audio).withBitrate(bitrate), audio, speech);
+        }
+    }
+
+    private static void run(AudioCodec codec, CodecConfig config, AudioConfig audio, short[] speech) {
+        try (EncoderStage stage = new EncoderStage(codec.encoder(config));
+             AudioDecoder decoder = codec.decoder(config)) {
+            List<byte[]> packets = new ArrayList<>();
+            stage.addListener((packet, length, position) -> packets.add(Arrays.copyOf(packet, length)));
+            feed(stage, speech, audio.frameSamples());
+            stage.flush();
+
+            // Стоимость: прогрев, затем несколько проходов без сбора пакетов
+            EncoderStage timed = new EncoderStage(codec.encoder(config));
+            feed(timed, speech, audio.frameSamples());
+            timed.reset();
+            long cpu = threads.getCurrentThreadCpuTime();
+            long allocated = threads.getCurrentThreadAllocatedBytes();
+            for (int i = 0; i < TIMING_ROUNDS; i++) {
+                feed(timed, speech, audio.frameSamples());
+            }
+            long timedPackets = (long) TIMING_ROUNDS * (speech.length / config.frameSamples());
+            long encodeNanos = (threads.getCurrentThreadCpuTime() - cpu) / timedPackets;
+            long encodeAllocated = (threads.getCurrentThreadAllocatedBytes() - allocated) / timedPackets;
+            timed.close();
+
+            short[] decoded = decodeAll(decoder, packets, null);
+            decoder.reset();
+            decodeAll(decoder, packets, null); // прогрев
+            decoder.reset();
+            short[] out = new short[decoder.maxFrameSamples()];
+            cpu = threads.getCurrentThreadCpuTime();
+            allocated = threads.getCurrentThreadAllocatedBytes();
+            for (int i = 0; i < TIMING_ROUNDS; i++) {
+                for (byte[] packet : packets) {
+                    decoder.decode(packet, 0, packet.length, out, 0);
+                }
+            }
+            long decodeNanos = (threads.getCurrentThreadCpuTime() - cpu) / (TIMING_ROUNDS * packets.size());
+            long decodeAllocated = (threads.getCurrentThreadAllocatedBytes() - allocated)
+                    / (TIMING_ROUNDS * packets.size());
+
+            decoder.reset();
+            short[] lossy = decodeAll(decoder, packets, new Random(18));
+            int delay = stage.getEncoder().getDelayFrames() * config.channels();
+
+            log.info("{} {} кбит/с: {} кбит/с, сжатие x{}; кадр {} мкс кодер / {} мкс декодер CPU, "
+                            + "аллокаций {}/{} байт", codec.encoding(), config.bitrate() / 1000,
+                    round(stage.getAverageBitrate() / 1000.0),
+                    round(config.pcmBitrate() / (double) stage.getAverageBitrate()),
+                    round(encodeNanos / 1000.0), round(decodeNanos / 1000.0), encodeAllocated, decodeAllocated);
+            log.info("    качество: SNR {} dB, MCD {} dB; при потере {}% пакетов: SNR {} dB, MCD {} dB",
+                    round(snr(speech, decoded, delay)), round(mcd(speech, decoded, delay, config.sampleRate())),
+                    Math.round(LOSS * 100), round(snr(speech, lossy, delay)),
+                    round(mcd(speech, lossy, delay, config.sampleRate())));
+        }
+    }
+
+    private static void feed(EncoderStage stage, short[] speech, int frameSamples) {
+        for (int offset = 0; offset + frameSamples <= speech.length; offset += frameSamples) {
+            stage.process(speech, offset, frameSamples);
+        }
+    }
+
+    /**
+     * Все пакеты подряд; с {@code random} часть пакетов "теряется"
+     * и заменяется маскированием
+     */
+    private static short[] decodeAll(AudioDecoder decoder, List<byte[]> packets, Random random) {
+        short[] out = new short[packets.size() * decoder.maxFrameSamples()];
+        int length = 0;
+        for (byte[] packet : packets) {
+            length += random != null && random.nextDouble() < LOSS
+                    ? decoder.conceal(out, length)
+                    : decoder.decode(packet, 0, packet.length, out, length);
+        }
+        return Arrays.copyOf(out, length);
+    }
+
+    /**
+     * SNR по всей записи; декодированное сдвинуто на задержку кодека
+     */
+    private static double snr(short[] original, short[] decoded, int delay) {
+        double signal = 0;
+        double noise = 0;
+        for (int i = 0; i + delay < decoded.length && i < original.length; i++) {
+            double diff = original[i] - decoded[i + delay];
+            signal += (double) original[i] * original[i];
+            noise += diff * diff;
+        }
+        return 10 * Math.log10(signal / Math.max(noise, 1));
+    }
+
+    /**
+     * Mel-кепстральное искажение c1..c12 на кадрах речи:
+     * {@code 10/ln10 * sqrt(2 * sum (c - c')^2)}, среднее по кадрам
+     */
+    private static double mcd(short[] original, short[] decoded, int delay, int sampleRate) {
+        FeatureConfig mfcc = new FeatureConfig(sampleRate, 25, 10, 40, 13, 20, Math.min(7600, sampleRate / 2.0), 0);
+        int length = Math.min(original.length, decoded.length - delay);
+        float[][] a = frames(mfcc, Arrays.copyOfRange(original, 0, length));
+        float[][] b = frames(mfcc, Arrays.copyOfRange(decoded, delay, delay + length));
+        int hop = mfcc.hopSamples();
+        int window = mfcc.windowSamples();
+        double threshold = Math.pow(10, SPEECH_DBFS / 10) * 32768.0 * 32768.0;
+        double sum = 0;
+        int counted = 0;
+        for (int f = 0; f < Math.min(a.length, b.length); f++) {
+            double energy = 0;
+            for (int i = f * hop; i < f * hop + window; i++) {
+                energy += (double) original[i] * original[i];
+            }
+            if (energy / window < threshold) {
+                continue;
+            }
+            double distance = 0;
+            for (int k = 1; k < a[f].length; k++) {
+                double diff = a[f][k] - b[f][k];
+                distance += diff * diff;
+            }
+            sum += 10 / Math.log(10) * Math.sqrt(2 * distance);
+            counted++;
+        }
+        return counted == 0 ? 0 : sum / counted;
+    }
+
+    private static float[][] frames(FeatureConfig config, short[] samples) {
+        int count = (samples.length - config.windowSamples()) / config.hopSamples() + 1;
+        MelSpectrogram features = new MelSpectrogram(config, count);
+        features.process(samples, 0, samples.length);
+        float[][] out = new float[features.history().size()][];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = features.history().get(out.length - 1 - i);
+        }
+        return out;
+    }
+
+    private static double round(double v) {
+        return Math.round(v * 100) / 100.0;
+    }
+}
@@ -0,0 +1,47 @@
+package at.nexus.demo;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Общие помощники демо: загрузка тестовой записи.
+ */
+final class DemoAudio {
+
+    /** Тестовая запись в корне проекта: 16kHz, 16-bit, mono */
+    static final String RECORDING = "recording.wav";
+
+    private DemoAudio() {
+    }
+
+    /**
+     * Загрузить WAV целиком как 16-bit сэмплы (каналы чередуются)
+     */
+    static short[] loadWav(String path) throws IOException, UnsupportedAudioFileException {
+        try (AudioInputStream in = AudioSystem.getAudioInputStream(new File(path))) {
+            AudioFormat format = in.getFormat();
+            if (format.getSampleSizeInBits() != 16 || format.isBigEndian()
+                    || format.getEncoding() != AudioFormat.Encoding.PCM_SIGNED) {
+                throw new UnsupportedAudioFileException("Нужен 16-bit signed little-endian PCM: " + format);
+            }
+
+            byte[] bytes = in.readAllBytes();
+            short[] samples = new short[bytes.length / 2];
+            for (int i = 0; i < samples.length; i++) {
+                samples[i] = (short) ((bytes[i * 2 + 1] << 8) | (bytes[i * 2] & 0xFF));
+            }
+            return samples;
+        }
+    }
+
+    /**
+     * Частота дискретизации WAV файла
+     */
+    static int sampleRate(String path) throws IOException, UnsupportedAudioFileException {
+        return (int) AudioSystem.getAudioFileFormat(new File(path)).getFormat().getSampleRate();
+    }
+}
@@ -0,0 +1,176 @@
+package at.nexus.demo;
+
+import at.nexus.audio.AudioFrame;
+import at.nexus.audio.FramePool;
+import at.nexus.audio.PcmReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Проверка захвата без аллокаций.
+ *
+ * Гоняет {@link FramePool} от синтетического источника (без микрофона)
+ * и считает байты, выделенные потоками производителя и потребителя,
+ * через счётчик аллокаций потока JVM. Для сравнения тот же объём
+ * прогоняется старым путём: new byte[] + LinkedBlockingQueue.
+ */
+public class FramePoolAllocationDemo {
+    private static final Logger log = LoggerFactory.getLogger(FramePoolAllocationDemo.class);
+
+    private static final int FRAME_SIZE = 3200; // 100ms при 16kHz mono 16-bit
+    private static final int POOL_FRAMES = 8;
+    private static final int WARMUP_FRAMES = 50_000;
+    private static final int MEASURED_FRAMES = 200_000;
+
+    private static final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) throws Exception {
+        log.info("=== Тест аллокаций захвата ===");
+
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        long[] pooled = runPooled();
+        log.info("Пул: производитель {} байт/кадр, потребитель {} байт/кадр",
+                perFrame(pooled[0]), perFrame(pooled[1]));
+
+        long[] copying = runCopying();
+        log.info("Копирование: производитель {} байт/кадр, потребитель {} байт/кадр",
+                perFrame(copying[0]), perFrame(copying[1]));
+
+        if (pooled[0] == 0 && pooled[1] == 0) {
+            log.info("OK: захват через пул не аллоцирует в установившемся режиме");
+        } else {
+            log.error("ОШИБКА: захват через пул аллоцирует {} байт на {} кадров",
+                    pooled[0] + pooled[1], MEASURED_FRAMES);
+        }
+    }
+
+    /**
+     * @return {байты производителя, байты потребителя} за измеряемый участок
+     */
+    private static long[] runPooled() throws InterruptedException {
+        FramePool pool = new FramePool(POOL_FRAMES, FRAME_SIZE);
+        long[] result = new long[2];
+
+        Thread consumer = new Thread(() -> {
+            try {
+                for (int i = 0; i < WARMUP_FRAMES; i++) {
+                    pool.take().release();
+                }
+                long before = threads.getCurrentThreadAllocatedBytes();
+                long checksum = 0;
+                for (int i = 0; i < MEASURED_FRAMES; i++) {
+                    AudioFrame frame = pool.take();
+                    checksum += frame.data()[0];
+                    frame.release();
+                }
+                result[1] = threads.getCurrentThreadAllocatedBytes() - before;
+                if (checksum == Long.MIN_VALUE) {
+                    log.trace("checksum {}", checksum);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "Pool-Consumer");
+
+        Thread producer = new Thread(() -> {
+            PcmReader source = new SyntheticReader();
+            // Пул не теряет кадры только если потребитель успевает,
+            // поэтому производитель ждёт свободного места
+            for (int i = 0; i < WARMUP_FRAMES; i++) {
+                produce(pool, source);
+            }
+            long before = threads.getCurrentThreadAllocatedBytes();
+            for (int i = 0; i < MEASURED_FRAMES; i++) {
+                produce(pool, source);
+            }
+            result[0] = threads.getCurrentThreadAllocatedBytes() - before;
+        }, "Pool-Producer");
+
+        consumer.start();
+        producer.start();
+        producer.join();
+        consumer.join();
+
+        log.info("Пул: потеряно кадров {}", pool.getDroppedFrames());
+        return result;
+    }
+
+    private static void produce(FramePool pool, PcmReader source) {
+        while (pool.readyCount() >= POOL_FRAMES - 1) {
+            Thread.onSpinWait();
+        }
+        pool.capture(source);
+    }
+
+    /**
+     * Старый путь AudioInputManager: копия чанка + узел LinkedBlockingQueue
+     */
+    private static long[] runCopying() throws InterruptedException {
+        BlockingQueue<byte[]> queue = new LinkedBlockingQueue<>();
+        long[] result = new long[2];
+
+        Thread consumer = new Thread(() -> {
+            try {
+                for (int i = 0; i < WARMUP_FRAMES; i++) {
+                    queue.take();
+                }
+                long before = threads.getCurrentThreadAllocatedBytes();
+                for (int i = 0; i < MEASURED_FRAMES; i++) {
+                    queue.take();
+                }
+                result[1] = threads.getCurrentThreadAllocatedBytes() - before;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "Copy-Consumer");
+
+        Thread producer = new Thread(() -> {
+            PcmReader source = new SyntheticReader();
+            byte[] buffer = new byte[FRAME_SIZE];
+            long before = 0;
+            for (int i = 0; i < WARMUP_FRAMES + MEASURED_FRAMES; i++) {
+                if (i == WARMUP_FRAMES) {
+                    before = threads.getCurrentThreadAllocatedBytes();
+                }
+                int bytesRead = source.read(buffer, 0, buffer.length);
+                byte[] audioData = new byte[bytesRead];
+                System.arraycopy(buffer, 0, audioData, 0, bytesRead);
+                queue.add(audioData);
+            }
+            result[0] = threads.getCurrentThreadAllocatedBytes() - before;
+        }, "Copy-Producer");
+
+        consumer.start();
+        producer.start();
+        producer.join();
+        consumer.join();
+        return result;
+    }
+
+    private static long perFrame(long bytes) {
+        return bytes / MEASURED_FRAMES;
+    }
+
+    /**
+     * Синтетический источник: пила вместо микрофона, без аллокаций
+     */
+    private static final class SyntheticReader implements PcmReader {
+        private short phase;
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            for (int i = offset; i < offset + length - 1; i += 2) {
+                phase += 300;
+                buffer[i] = (byte) (phase & 0xFF);
+                buffer[i + 1] = (byte) ((phase >> 8) & 0xFF);
+            }
+            return length;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package at.nexus.demo;
+
+import at.nexus.audio.AudioConfig;
+import at.nexus.audio.AudioInputManager;
+import at.nexus.audio.AudioOutputManager;
+import at.nexus.audio.LatencyProfile;
+import at.nexus.audio.PcmRingBuffer;
+import at.nexus.audio.io.AudioSource;
+import at.nexus.audio.io.ClockMode;
+import at.nexus.audio.io.NullSink;
+import at.nexus.audio.io.SyntheticSource;
+import at.nexus.audio.io.WavFileSource;
+import at.nexus.dsp.EchoCancellerStage;
+import at.nexus.vad.VadConfig;
+import at.nexus.vad.VadListener;
+import at.nexus.vad.VadStage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Конвейер Mic -> AEC -> VAD -> Speaker без звуковой карты.
+ *
+ * Вход - {@code recording.wav} по кругу, выход - заглушка. В режиме
+ * {@link ClockMode#AS_FAST_AS_POSSIBLE} показывает, во сколько раз
+ * быстрее реального времени проходит звук через все этапы; в режиме
+ * {@link ClockMode#REALTIME} - что бэкенды держат темп устройства.
+ */
+public class HeadlessPipelineDemo {
+    private static final Logger log = LoggerFactory.getLogger(HeadlessPipelineDemo.class);
+
+    private static final int LOOPS = 20;
+
+    public static void main(String[] args) throws Exception {
+        int sampleRate = DemoAudio.sampleRate(DemoAudio.RECORDING);
+        AudioConfig config = LatencyProfile.LOW.toConfig(sampleRate, 1);
+        Path recording = Path.of(DemoAudio.RECORDING);
+
+        log.info("=== Конвейер без звуковой карты ===");
+
+        // Прогрев JIT, затем замер
+        run(config, new WavFileSource(recording, ClockMode.AS_FAST_AS_POSSIBLE, false), 0);
+        run(config, new WavFileSource(recording, ClockMode.AS_FAST_AS_POSSIBLE, true),
+                LOOPS * DemoAudio.loadWav(DemoAudio.RECORDING).length / sampleRate);
+
+        // Реальное время: 2 секунды синуса должны занять ~2 секунды
+        run(config, new SyntheticSource(SyntheticSource.Waveform.SINE, 440, 0.3, ClockMode.REALTIME, 2000), 0);
+    }
+
+    /**
+     * @param seconds сколько секунд звука обработать (0 - до конца источника)
+     */
+    private static void run(AudioConfig config, AudioSource source, int seconds) throws Exception {
+        AudioInputManager input = new AudioInputManager(config, source);
+        NullSink sink = new NullSink(ClockMode.AS_FAST_AS_POSSIBLE);
+        AudioOutputManager output = new AudioOutputManager(config, sink);
+
+        PcmRingBuffer reference = new PcmRingBuffer(config.samplesForMillis(1000),
+                PcmRingBuffer.OverflowPolicy.DROP_OLDEST);
+        output.setEchoReference(reference);
+        EchoCancellerStage aec = new EchoCancellerStage(config, reference, 128, 300);
+        VadStage vad = new VadStage(config, VadConfig.defaults());
+        PcmRingBuffer speaker = output.getRingBuffer();
+        vad.addListener(new VadListener() {
+            @Override
+            public void onVoicedFrame(short[] samples, int offset, int length) {
+                speaker.write(samples, offset, length);
+            }
+        });
+
+        input.initialize();
+        output.initialize();
+        output.startPlayback();
+        input.startRecording();
+
+        PcmRingBuffer mic = input.getRingBuffer();
+        short[] frame = new short[config.frameSamples()];
+        long limit = seconds > 0 ? (long) seconds * config.sampleRate() * config.channels() : Long.MAX_VALUE;
+        long processed = 0;
+        long start = System.nanoTime();
+
+        while (processed < limit) {
+            if (!mic.awaitAvailable(frame.length, 100, TimeUnit.MILLISECONDS)) {
+                if (input.isSourceEnded() && mic.available() < frame.length) {
+                    break;
+                }
+                continue;
+            }
+            int count = mic.read(frame, 0, frame.length);
+            aec.process(frame, 0, count);
+            vad.process(frame, 0, count);
+            processed += count;
+        }
+        long elapsed = System.nanoTime() - start;
+
+        input.close();
+        output.close();
+
+        double audioSeconds = (double) processed / (config.sampleRate() * config.channels());
+        double wallSeconds = elapsed / 1e9;
+        log.info("{} ({}): {} с звука за {} с, x{} реального времени, речевых кадров {}, на выход {} байт, потеряно {}",
+                source.getClass().getSimpleName(), source.getClockMode(),
+                round(audioSeconds), round(wallSeconds), round(audioSeconds / wallSeconds),
+                vad.getSpeechFrames(), sink.getBytesWritten(), mic.getDroppedSamples());
+    }
+
+    private static double round(double v) {
+        return Math.round(v * 10) / 10.0;
+    }
+}
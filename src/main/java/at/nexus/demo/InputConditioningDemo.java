@@ -0,0 +1,269 @@
+package at.nexus.demo;
+
+import at.nexus.audio.AudioConfig;
+import at.nexus.audio.LatencyProfile;
+import at.nexus.dsp.ConditioningConfig;
+import at.nexus.dsp.InputConditioningStage;
+import at.nexus.dsp.PcmOps;
+import at.nexus.vad.VadConfig;
+import at.nexus.vad.VadStage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Шумоподавление и АРУ на входе: что получают VAD и распознавание.
+ *
+ * Поток - {@code recording.wav} три раза с разной громкостью (обычно,
+ * далеко от микрофона -12 dB, вплотную +16 dB) с паузами по секунде.
+ * Поверх - белый шум или гул вентилятора с SNR 10 dB к обычной речи,
+ * либо ничего. Режимы: как есть, фиксированное усиление ×2 (как
+ * в {@code AudioInputDemo}), шумоподавление, шумоподавление + АРУ.
+ *
+ * Для каждого режима:
+ * <ul>
+ *   <li>VAD против разметки по чистой записи нормальной громкости:
+ *   пропущенные речевые кадры (недослышал) и лишние (пустой трафик в STT);</li>
+ *   <li>уровень фона в паузах, уровень речи каждой громкости и
+ *   клиппированные сэмплы (с поправкой на задержку шумоподавления).</li>
+ * </ul>
+ * В конце - CPU на секунду звука и аллокации за прогон.
+ */
+public class InputConditioningDemo {
+    private static final Logger log = LoggerFactory.getLogger(InputConditioningDemo.class);
+
+    private static final double[] LEVELS_DB = {0, -12, 16};
+    // Разметка речи - VAD по чистой записи, приведённой к этому уровню
+    private static final double REFERENCE_DBFS = -26;
+    private static final String[] LEVEL_NAMES = {"обычно", "далеко", "вплотную"};
+    private static final double SNR_DB = 10;
+    private static final float FIXED_GAIN = 2.0f;
+    private static final int COST_SECONDS = 120;
+
+    private static final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private enum Mode {
+        RAW("как есть"),
+        FIXED_GAIN("усиление ×2"),
+        SUPPRESSION("шумоподавление"),
+        SUPPRESSION_AGC("шумоподавление + АРУ");
+
+        final String title;
+
+        Mode(String title) {
+            this.title = title;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        short[] recording = DemoAudio.loadWav(DemoAudio.RECORDING);
+        int sampleRate = DemoAudio.sampleRate(DemoAudio.RECORDING);
+        AudioConfig config = LatencyProfile.LOW.toConfig(sampleRate, 1);
+        int frame = config.frameSamples();
+
+        // Разметка: номер громкости для речевых участков, -1 для пауз
+        int pause = sampleRate;
+        int total = pause + LEVELS_DB.length * (recording.length + pause);
+        total -= total % frame;
+        int[] segment = new int[total];
+        short[] clean = new short[total];
+        short[] reference = new short[total];
+        Arrays.fill(segment, -1);
+        double speechRms = PcmOps.rms(recording, 0, recording.length);
+        float referenceGain = (float) (Math.pow(10, REFERENCE_DBFS / 20) * Short.MAX_VALUE / speechRms);
+        int position = pause;
+        for (int level = 0; level < LEVELS_DB.length; level++) {
+            float gain = (float) Math.pow(10, LEVELS_DB[level] / 20);
+            for (int i = 0; i < recording.length && position + i < total; i++) {
+                clean[position + i] = PcmOps.clip(Math.round(recording[i] * gain));
+                reference[position + i] = PcmOps.clip(Math.round(recording[i] * referenceGain));
+                segment[position + i] = level;
+            }
+            position += recording.length + pause;
+        }
+        boolean[] speech = run(config, Mode.RAW, reference).detected;
+        log.info("Поток {} с, кадр {} ms; речевых кадров по чистой записи {} из {}",
+                total / sampleRate, config.frameMillis(), count(speech), speech.length);
+
+        Random random = new Random(21);
+        short[][] noises = {
+                null,
+                scale(whiteNoise(total, random), speechRms / Math.pow(10, SNR_DB / 20)),
+                scale(fanNoise(total, sampleRate, random), speechRms / Math.pow(10, SNR_DB / 20))};
+        String[] noiseNames = {"без шума", "белый шум 10 dB", "вентилятор 10 dB"};
+
+        for (int n = 0; n < noises.length; n++) {
+            short[] noisy = noises[n] == null ? clean : mix(clean, noises[n]);
+            log.info("=== {} ===", noiseNames[n]);
+            for (Mode mode : Mode.values()) {
+                short[] out = noisy.clone();
+                Result result = run(config, mode, out);
+                report(mode, speech, result, out, segment, frame);
+            }
+        }
+
+        cost(config, mix(repeat(clean, COST_SECONDS * sampleRate / total + 1),
+                repeat(noises[1], COST_SECONDS * sampleRate / total + 1)));
+    }
+
+    private record Result(boolean[] detected, int latency) {
+    }
+
+    /**
+     * Прогнать поток через подготовку (по режиму) и VAD кадрами, как в Main
+     */
+    private static Result run(AudioConfig config, Mode mode, short[] stream) {
+        int frame = config.frameSamples();
+        InputConditioningStage conditioning = switch (mode) {
+            case SUPPRESSION -> new InputConditioningStage(config, ConditioningConfig.defaults().withoutAgc());
+            case SUPPRESSION_AGC -> new InputConditioningStage(config, ConditioningConfig.defaults());
+            default -> null;
+        };
+        VadStage vad = new VadStage(config, VadConfig.defaults());
+        boolean[] detected = new boolean[stream.length / frame];
+        for (int f = 0; f < detected.length; f++) {
+            int offset = f * frame;
+            if (mode == Mode.FIXED_GAIN) {
+                PcmOps.applyGain(stream, offset, frame, FIXED_GAIN);
+            } else if (conditioning != null) {
+                conditioning.process(stream, offset, frame);
+            }
+            vad.process(stream, offset, frame);
+            detected[f] = vad.isInSpeech();
+        }
+        return new Result(detected, conditioning != null && conditioning.getNoiseSuppressor() != null
+                ? conditioning.getNoiseSuppressor().getLatencySamples() : 0);
+    }
+
+    private static void report(Mode mode, boolean[] speech, Result result, short[] out, int[] segment, int frame) {
+        boolean[] detected = result.detected;
+        int missed = 0;
+        int extra = 0;
+        int voiced = 0;
+        for (int f = 0; f < speech.length; f++) {
+            if (detected[f]) {
+                voiced++;
+            }
+            if (speech[f] && !detected[f]) {
+                missed++;
+            } else if (!speech[f] && detected[f]) {
+                extra++;
+            }
+        }
+        double[] energy = new double[LEVELS_DB.length + 1];
+        long[] samples = new long[LEVELS_DB.length + 1];
+        int clipped = 0;
+        for (int i = result.latency; i < out.length; i++) {
+            int bucket = segment[i - result.latency] + 1; // 0 - паузы
+            energy[bucket] += (double) out[i] * out[i];
+            samples[bucket]++;
+            if (out[i] == Short.MAX_VALUE || out[i] == Short.MIN_VALUE) {
+                clipped++;
+            }
+        }
+        StringBuilder levels = new StringBuilder();
+        for (int level = 0; level < LEVELS_DB.length; level++) {
+            levels.append(level == 0 ? "" : ", ").append(LEVEL_NAMES[level]).append(' ')
+                    .append(dbfs(energy[level + 1], samples[level + 1]));
+        }
+        log.info("{}: VAD пропустил {}% речи, лишних {} кадров (в STT {} с); фон {} dBFS, речь {} dBFS; клиппинг {}",
+                mode.title, Math.round(missed * 1000.0 / count(speech)) / 10.0, extra,
+                voiced * frame / 16000.0, dbfs(energy[0], samples[0]), levels, clipped);
+    }
+
+    private static void cost(AudioConfig config, short[] stream) {
+        int frame = config.frameSamples();
+        InputConditioningStage stage = new InputConditioningStage(config, ConditioningConfig.defaults());
+        short[] work = new short[frame];
+        for (int pass = 0; pass < 2; pass++) { // первый проход - прогрев JIT
+            long cpu = threads.getCurrentThreadCpuTime();
+            long allocated = threads.getCurrentThreadAllocatedBytes();
+            for (int offset = 0; offset + frame <= stream.length; offset += frame) {
+                System.arraycopy(stream, offset, work, 0, frame);
+                stage.process(work, 0, frame);
+            }
+            cpu = threads.getCurrentThreadCpuTime() - cpu;
+            allocated = threads.getCurrentThreadAllocatedBytes() - allocated;
+            if (pass == 1) {
+                double seconds = stream.length / (double) config.sampleRate();
+                log.info("=== Цена: {} с звука ===", Math.round(seconds));
+                log.info("CPU {} мкс на секунду звука ({}% одного ядра), кадр {} мкс, аллокаций {} байт",
+                        Math.round(cpu / 1000.0 / seconds), Math.round(cpu / 1e7 / seconds * 100) / 100.0,
+                        stage.getAverageFrameNanos() / 1000, allocated);
+            }
+        }
+    }
+
+    private static String dbfs(double energy, long samples) {
+        if (samples == 0 || energy == 0) {
+            return "-inf";
+        }
+        double rms = Math.sqrt(energy / samples);
+        return String.format("%.1f", 20 * Math.log10(rms / Short.MAX_VALUE));
+    }
+
+    private static int count(boolean[] values) {
+        int n = 0;
+        for (boolean value : values) {
+            if (value) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    private static double[] whiteNoise(int samples, Random random) {
+        double[] out = new double[samples];
+        for (int i = 0; i < samples; i++) {
+            out[i] = random.nextGaussian();
+        }
+        return out;
+    }
+
+    /**
+     * Гул: низкочастотный шум (однополюсный фильтр) и 100 Hz с гармоникой
+     */
+    private static double[] fanNoise(int samples, int sampleRate, Random random) {
+        double[] out = new double[samples];
+        double state = 0;
+        for (int i = 0; i < samples; i++) {
+            state = 0.97 * state + random.nextGaussian();
+            double hum = Math.sin(2 * Math.PI * 100 * i / sampleRate) + 0.5 * Math.sin(2 * Math.PI * 200 * i / sampleRate);
+            out[i] = state + 4 * hum;
+        }
+        return out;
+    }
+
+    private static short[] scale(double[] noise, double targetRms) {
+        double energy = 0;
+        for (double v : noise) {
+            energy += v * v;
+        }
+        double gain = targetRms / Math.sqrt(energy / noise.length);
+        short[] out = new short[noise.length];
+        for (int i = 0; i < noise.length; i++) {
+            out[i] = PcmOps.clip((int) Math.round(noise[i] * gain));
+        }
+        return out;
+    }
+
+    private static short[] mix(short[] a, short[] b) {
+        short[] out = new short[a.length];
+        for (int i = 0; i < a.length; i++) {
+            out[i] = PcmOps.clip(a[i] + b[i]);
+        }
+        return out;
+    }
+
+    private static short[] repeat(short[] samples, int times) {
+        short[] out = new short[samples.length * times];
+        for (int i = 0; i < times; i++) {
+            System.arraycopy(samples, 0, out, i * samples.length, samples.length);
+        }
+        return out;
+    }
+}
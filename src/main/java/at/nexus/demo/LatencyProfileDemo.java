@@ -0,0 +1,140 @@
+package at.nexus.demo;
+
+import at.nexus.audio.AudioConfig;
+import at.nexus.audio.AudioInputManager;
+import at.nexus.audio.AudioOutputManager;
+import at.nexus.audio.LatencyProfile;
+import at.nexus.audio.PcmRingBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sound.sampled.LineUnavailableException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Замер задержки микрофон -> динамик для каждого {@link LatencyProfile}.
+ *
+ * Через динамики проигрывается короткий щелчок, а в потоке с микрофона
+ * ищется момент его появления. Микрофон должен слышать динамики
+ * (ноутбук или колонка рядом с микрофоном, без шумоподавления).
+ * Рядом с замером выводится теоретическая задержка буферов профиля.
+ */
+public class LatencyProfileDemo {
+    private static final Logger log = LoggerFactory.getLogger(LatencyProfileDemo.class);
+
+    private static final int ATTEMPTS = 5;
+    private static final int CLICK_MILLIS = 5;
+    private static final long TIMEOUT_MILLIS = 2000;
+
+    public static void main(String[] args) {
+        log.info("=== Замер задержки по профилям ===");
+
+        for (LatencyProfile profile : LatencyProfile.values()) {
+            try {
+                measure(profile);
+            } catch (LineUnavailableException e) {
+                log.error("{}: аудио устройства недоступны: {}", profile, e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private static void measure(LatencyProfile profile) throws LineUnavailableException, InterruptedException {
+        AudioConfig config = profile.toConfig();
+        AudioInputManager input = new AudioInputManager(config);
+        AudioOutputManager output = new AudioOutputManager(config);
+
+        try {
+            input.initialize();
+            output.initialize();
+            input.startRecording();
+            output.startPlayback();
+
+            PcmRingBuffer mic = input.getRingBuffer();
+            short[] buffer = new short[config.frameSamples()];
+
+            // Уровень фона, чтобы выбрать порог срабатывания
+            Thread.sleep(300);
+            int noisePeak = drain(mic, buffer);
+            int threshold = Math.max(4000, noisePeak * 4);
+
+            short[] click = makeClick(config);
+            long[] results = new long[ATTEMPTS];
+            int measured = 0;
+
+            for (int i = 0; i < ATTEMPTS; i++) {
+                Thread.sleep(200);
+                drain(mic, buffer);
+
+                long start = System.nanoTime();
+                output.getRingBuffer().write(click, 0, click.length);
+                long detected = waitForClick(mic, buffer, threshold, start);
+                if (detected > 0) {
+                    results[measured++] = TimeUnit.NANOSECONDS.toMillis(detected - start);
+                }
+            }
+
+            if (measured == 0) {
+                log.warn("{}: щелчок не услышан (порог {}), микрофон не слышит динамики?", profile, threshold);
+                return;
+            }
+
+            long[] sorted = Arrays.copyOf(results, measured);
+            Arrays.sort(sorted);
+            log.info("{}: кадр {}ms, теоретически ~{}ms, измерено медиана {}ms (мин {}ms, макс {}ms, {} из {})",
+                    profile, config.frameMillis(), config.bufferedLatencyMillis(),
+                    sorted[measured / 2], sorted[0], sorted[measured - 1], measured, ATTEMPTS);
+        } finally {
+            input.close();
+            output.close();
+        }
+    }
+
+    /**
+     * Ждать появления щелчка в потоке микрофона
+     * @return момент обнаружения (nanoTime) или 0 по таймауту
+     */
+    private static long waitForClick(PcmRingBuffer mic, short[] buffer, int threshold, long start)
+            throws InterruptedException {
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MILLIS);
+        while (System.nanoTime() < deadline) {
+            if (!mic.awaitAvailable(1, 10, TimeUnit.MILLISECONDS)) {
+                continue;
+            }
+            int n = mic.read(buffer, 0, buffer.length);
+            for (int i = 0; i < n; i++) {
+                if (Math.abs(buffer[i]) >= threshold) {
+                    return System.nanoTime();
+                }
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Вычитать всё накопленное
+     * @return пиковая амплитуда
+     */
+    private static int drain(PcmRingBuffer mic, short[] buffer) {
+        int peak = 0;
+        int n;
+        while ((n = mic.read(buffer, 0, buffer.length)) > 0) {
+            for (int i = 0; i < n; i++) {
+                peak = Math.max(peak, Math.abs(buffer[i]));
+            }
+        }
+        return peak;
+    }
+
+    private static short[] makeClick(AudioConfig config) {
+        short[] click = new short[config.samplesForMillis(CLICK_MILLIS)];
+        double w = 2.0 * Math.PI * 1000 / config.sampleRate();
+        for (int i = 0; i < click.length; i++) {
+            click[i] = (short) (Math.sin(w * i) * Short.MAX_VALUE * 0.9);
+        }
+        return click;
+    }
+}
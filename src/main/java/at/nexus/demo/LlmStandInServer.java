@@ -0,0 +1,99 @@
+package at.nexus.demo;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Локальная заглушка LLM для демо и замеров.
+ *
+ * Говорит тем же протоколом, что ждёт {@link at.nexus.llm.StreamingLlmClient}
+ * (chat completions со {@code "stream":true}, SSE): первый токен через
+ * {@code firstTokenMillis}, дальше по слову каждые {@code tokenMillis}.
+ * Ответ - фиксированный текст с вопросом пользователя в начале.
+ */
+public class LlmStandInServer {
+    private static final Logger log = LoggerFactory.getLogger(LlmStandInServer.class);
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    public static final String PATH = "/v1/chat/completions";
+
+    private static final String ANSWER = "Хороший вопрос. Коротко: да, это можно сделать, "
+            + "и займёт это пару минут. Сначала откройте настройки, затем выберите раздел звука. "
+            + "Если что-то пойдёт не так, просто спросите ещё раз!";
+
+    private final HttpServer server;
+    private final long firstTokenMillis;
+    private final long tokenMillis;
+    private final AtomicLong requests = new AtomicLong();
+
+    public LlmStandInServer(int port, long firstTokenMillis, long tokenMillis) throws IOException {
+        this.firstTokenMillis = firstTokenMillis;
+        this.tokenMillis = tokenMillis;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext(PATH, this::handle);
+    }
+
+    public void start() {
+        server.start();
+        log.info("Заглушка LLM слушает {}", url());
+    }
+
+    public void stop() {
+        server.stop(0);
+    }
+
+    public String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + PATH;
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        try (exchange) {
+            JsonNode request = mapper.readTree(exchange.getRequestBody());
+            JsonNode messages = request.path("messages");
+            String prompt = messages.path(messages.size() - 1).path("content").asText("");
+
+            exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+            exchange.sendResponseHeaders(200, 0);
+            OutputStream out = exchange.getResponseBody();
+            String[] tokens = ("Вы спросили: " + prompt + ". " + ANSWER).split("(?<= )");
+            TimeUnit.MILLISECONDS.sleep(firstTokenMillis);
+            for (int i = 0; i < tokens.length; i++) {
+                if (i > 0) {
+                    TimeUnit.MILLISECONDS.sleep(tokenMillis);
+                }
+                send(out, mapper.createObjectNode().set("choices", mapper.createArrayNode()
+                        .add(mapper.createObjectNode().set("delta", mapper.createObjectNode()
+                                .put("content", tokens[i])))).toString());
+            }
+            send(out, "[DONE]");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            log.debug("Заглушка LLM: клиент ушёл ({})", e.toString());
+        }
+    }
+
+    private static void send(OutputStream out, String data) throws IOException {
+        out.write(("data: " + data + "\n\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+}
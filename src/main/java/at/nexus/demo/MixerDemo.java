@@ -0,0 +1,309 @@
+package at.nexus.demo;
+
+import at.nexus.audio.AudioConfig;
+import at.nexus.audio.AudioOutputManager;
+import at.nexus.audio.JitterBuffer;
+import at.nexus.audio.LatencyProfile;
+import at.nexus.audio.io.ClockMode;
+import at.nexus.audio.io.NullSink;
+import at.nexus.audio.mix.Earcons;
+import at.nexus.audio.mix.MixerConfig;
+import at.nexus.audio.mix.MixerStream;
+import at.nexus.audio.mix.OutputMixer;
+import at.nexus.audio.mix.StreamPriority;
+import at.nexus.dsp.PcmOps;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Микшер вывода: сигналы поверх речи, приглушение фона, насыщение, цена кадра.
+ *
+ * <ol>
+ *   <li>Ответ TTS ({@code recording.wav} через {@link JitterBuffer}, сеть
+ *       в полтора раза быстрее реального времени) играет через
+ *       {@link AudioOutputManager} в {@link NullSink} в темпе устройства.
+ *       Посреди ответа просится сигнал подтверждения: когда он зазвучал
+ *       через микшер и когда зазвучал бы в старой единой очереди -
+ *       после конца ответа.</li>
+ *   <li>Фон (тон) под фразой: как быстро и насколько он приглушается
+ *       и как возвращается; сигналы не приглушаются.</li>
+ *   <li>Два громких потока: результат сэмпл в сэмпл равен сумме
+ *       с насыщением, без переполнения.</li>
+ *   <li>Цена кадра и аллокации потока рендера для 1-8 потоков.</li>
+ * </ol>
+ */
+public class MixerDemo {
+    private static final Logger log = LoggerFactory.getLogger(MixerDemo.class);
+
+    private static final int SPEECH_SECONDS = 4;
+    private static final int[] REQUEST_MILLIS = {300, 1500, 2700};
+    private static final double NETWORK_SPEED = 1.5;
+    private static final int WARMUP_FRAMES = 20_000;
+    private static final int MEASURED_FRAMES = 50_000;
+
+    private static final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) throws Exception {
+        short[] recording = DemoAudio.loadWav(DemoAudio.RECORDING);
+        int sampleRate = DemoAudio.sampleRate(DemoAudio.RECORDING);
+        short[] speech = Arrays.copyOf(recording, Math.min(recording.length, sampleRate * SPEECH_SECONDS));
+        AudioConfig config = LatencyProfile.LOW.toConfig(sampleRate, 1);
+
+        log.info("=== Сигнал подтверждения во время ответа ===");
+        earconLatency(config, speech);
+
+        log.info("=== Приглушение фона под речью ({} dB) ===", MixerConfig.defaults().duckDb());
+        ducking(config, speech);
+
+        log.info("=== Насыщение ===");
+        saturation(config);
+
+        log.info("=== Цена кадра ({} ms) ===", config.frameMillis());
+        threads.setThreadAllocatedMemoryEnabled(true);
+        for (int streams : new int[] {1, 2, 4, 8}) {
+            renderCost(config, streams);
+        }
+    }
+
+    // ========== 1. Задержка сигнала ==========
+
+    private static void earconLatency(AudioConfig config, short[] speech) throws Exception {
+        AudioOutputManager output = new AudioOutputManager(config, new NullSink(ClockMode.REALTIME));
+        output.initialize();
+        output.startPlayback();
+        short[] earcon = Earcons.acknowledge(config);
+        try {
+            for (int requestMillis : REQUEST_MILLIS) {
+                AtomicLong finishedNanos = new AtomicLong();
+                JitterBuffer reply = new JitterBuffer(config, 60, 300, 2000, new JitterBuffer.Listener() {
+                    @Override
+                    public void onFinished(JitterBuffer buffer, boolean cancelled) {
+                        finishedNanos.set(System.nanoTime());
+                    }
+                });
+                output.play(reply);
+                Thread producer = Thread.ofVirtual().name("tts").start(() -> feed(reply, speech, config));
+
+                Thread.sleep(requestMillis);
+                TimedStream acknowledge = new TimedStream(MixerStream.of(earcon, StreamPriority.EARCON));
+                long requested = System.nanoTime();
+                output.play(acknowledge);
+
+                producer.join();
+                while (finishedNanos.get() == 0 || output.isPlaying()) {
+                    Thread.sleep(5);
+                }
+                log.info("запрос через {} ms после начала ответа: микшер {} ms, единая очередь {} ms",
+                        requestMillis, millis(acknowledge.firstReadNanos - requested),
+                        millis(finishedNanos.get() - requested));
+            }
+        } finally {
+            output.close();
+        }
+    }
+
+    /**
+     * Ответ TTS кусками по кадру, быстрее реального времени
+     */
+    private static void feed(JitterBuffer reply, short[] speech, AudioConfig config) {
+        int frame = config.frameSamples();
+        byte[] bytes = new byte[frame * AudioConfig.BYTES_PER_SAMPLE];
+        long pieceNanos = (long) (config.frameMillis() * 1_000_000L / NETWORK_SPEED);
+        try {
+            for (int offset = 0; offset < speech.length; offset += frame) {
+                int n = Math.min(frame, speech.length - offset);
+                PcmOps.toBytes(speech, offset, bytes, 0, n);
+                reply.write(bytes, 0, n * AudioConfig.BYTES_PER_SAMPLE);
+                Thread.sleep(pieceNanos / 1_000_000, (int) (pieceNanos % 1_000_000));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            reply.end();
+        }
+    }
+
+    // ========== 2. Приглушение ==========
+
+    private static void ducking(AudioConfig config, short[] speech) {
+        OutputMixer mixer = new OutputMixer(config, MixerConfig.defaults());
+        int frame = config.frameSamples();
+        short[] out = new short[frame];
+        int speechStart = 1000 / config.frameMillis();
+        int speechEnd = speechStart + speech.length / frame;
+        int earconAt = speechStart + 1500 / config.frameMillis();
+
+        Loop background = new Loop(tone(config, 440, 6000), StreamPriority.BACKGROUND);
+        mixer.add(background);
+        int total = speechEnd + 1500 / config.frameMillis();
+        int attackFrames = -1;
+        int releaseFrames = -1;
+        float minimum = 1f;
+        float earconGain = -1;
+        for (int f = 0; f < total; f++) {
+            if (f == speechStart) {
+                mixer.add(MixerStream.of(speech, StreamPriority.SPEECH));
+            }
+            if (f == earconAt) {
+                mixer.add(MixerStream.of(Earcons.acknowledge(config), StreamPriority.EARCON));
+            }
+            mixer.render(out);
+            float gain = mixer.getDuckGain(StreamPriority.BACKGROUND);
+            minimum = Math.min(minimum, gain);
+            if (f == earconAt + 1) {
+                earconGain = mixer.getDuckGain(StreamPriority.EARCON);
+            }
+            // Фон тише на 14 из 15 dB / вернулся до -1 dB
+            if (attackFrames < 0 && f >= speechStart && db(gain) <= MixerConfig.defaults().duckDb() + 1) {
+                attackFrames = f - speechStart + 1;
+            }
+            if (releaseFrames < 0 && f > speechEnd && db(gain) >= -1) {
+                releaseFrames = f - speechEnd;
+            }
+        }
+        log.info("фон под речью {} dB: приглушился за {} ms, вернулся (до -1 dB) через {} ms после фразы",
+                String.format("%.1f", db(minimum)), attackFrames * config.frameMillis(),
+                releaseFrames * config.frameMillis());
+        log.info("сигнал поверх речи: {} dB (не приглушается)", String.format("%.1f", db(earconGain)));
+    }
+
+    // ========== 3. Насыщение ==========
+
+    private static void saturation(AudioConfig config) {
+        OutputMixer mixer = new OutputMixer(config, MixerConfig.defaults());
+        int frame = config.frameSamples();
+        short[] first = tone(config, 300, 25000);
+        short[] second = tone(config, 450, 25000);
+        mixer.add(MixerStream.of(first, StreamPriority.SPEECH));
+        mixer.add(MixerStream.of(second, StreamPriority.SPEECH));
+        short[] out = new short[frame];
+        int saturated = 0;
+        int mismatched = 0;
+        for (int offset = 0; offset + frame <= first.length; offset += frame) {
+            mixer.render(out);
+            for (int i = 0; i < frame; i++) {
+                int sum = first[offset + i] + second[offset + i];
+                if (sum > Short.MAX_VALUE || sum < Short.MIN_VALUE) {
+                    saturated++;
+                }
+                if (out[i] != PcmOps.clip(sum)) {
+                    mismatched++;
+                }
+            }
+        }
+        log.info("два тона по 25000: {} сэмплов упёрлись в предел, расхождений с суммой с насыщением {}",
+                saturated, mismatched);
+        if (mismatched == 0) {
+            log.info("OK: смешивание с насыщением, без переполнения");
+        } else {
+            log.error("ОШИБКА: {} сэмплов смешаны неверно", mismatched);
+        }
+    }
+
+    // ========== 4. Цена кадра ==========
+
+    private static void renderCost(AudioConfig config, int streams) {
+        OutputMixer mixer = new OutputMixer(config, MixerConfig.defaults());
+        for (int i = 0; i < streams; i++) {
+            StreamPriority priority = i == 0 ? StreamPriority.SPEECH : StreamPriority.BACKGROUND;
+            mixer.add(new Loop(tone(config, 200 + 110 * i, 4000), priority));
+        }
+        short[] out = new short[config.frameSamples()];
+        for (int f = 0; f < WARMUP_FRAMES; f++) {
+            mixer.render(out);
+        }
+        long thread = Thread.currentThread().threadId();
+        long allocated = threads.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        for (int f = 0; f < MEASURED_FRAMES; f++) {
+            mixer.render(out);
+        }
+        long nanos = (System.nanoTime() - start) / MEASURED_FRAMES;
+        allocated = threads.getThreadAllocatedBytes(thread) - allocated;
+        log.info("{} потоков: {} мкс на кадр ({}% кадра), аллоцировано {} байт за {} кадров",
+                streams, String.format("%.2f", nanos / 1000.0),
+                String.format("%.3f", nanos / 10_000.0 / config.frameMillis()), allocated, MEASURED_FRAMES);
+    }
+
+    // ========== Вспомогательное ==========
+
+    /**
+     * Секунда тона по кругу - бесконечный поток
+     */
+    private static final class Loop extends MixerStream {
+        private final short[] table;
+        private int position;
+        private volatile boolean cancelled;
+
+        Loop(short[] table, StreamPriority priority) {
+            super(priority);
+            this.table = table;
+        }
+
+        @Override
+        public int read(short[] dst, int offset, int length) {
+            if (cancelled) {
+                return END;
+            }
+            for (int i = 0; i < length; i++) {
+                dst[offset + i] = table[position];
+                position = position + 1 == table.length ? 0 : position + 1;
+            }
+            return length;
+        }
+
+        @Override
+        public int cancel() {
+            cancelled = true;
+            return 0;
+        }
+    }
+
+    /**
+     * Поток, запоминающий момент первого звука
+     */
+    private static final class TimedStream extends MixerStream {
+        private final MixerStream inner;
+        private volatile long firstReadNanos;
+
+        TimedStream(MixerStream inner) {
+            super(inner.getPriority());
+            this.inner = inner;
+        }
+
+        @Override
+        public int read(short[] dst, int offset, int length) {
+            int n = inner.read(dst, offset, length);
+            if (n > 0 && firstReadNanos == 0) {
+                firstReadNanos = System.nanoTime();
+            }
+            return n;
+        }
+
+        @Override
+        public int cancel() {
+            return inner.cancel();
+        }
+    }
+
+    private static short[] tone(AudioConfig config, double hz, int amplitude) {
+        short[] out = new short[config.sampleRate()];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = (short) Math.round(amplitude * Math.sin(2 * Math.PI * hz * i / config.sampleRate()));
+        }
+        return out;
+    }
+
+    private static double db(float gain) {
+        return 20 * Math.log10(gain);
+    }
+
+    private static long millis(long nanos) {
+        return nanos / 1_000_000;
+    }
+}
@@ -0,0 +1,158 @@
+package at.nexus.demo;
+
+import at.nexus.dsp.PcmKernels;
+import at.nexus.dsp.PcmOps;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Проверка векторных PCM ядер против скалярных.
+ *
+ * Корректность: случайные данные с краевыми значениями (-32768, 32767),
+ * длины от 0 до нескольких векторов плюс хвосты, разные смещения
+ * и коэффициенты усиления (в том числе с насыщением и отрицательные).
+ * Результаты должны совпасть побитово, RMS - с точностью float.
+ *
+ * Та же проверка с остановкой сборки - {@code PcmKernelsTest}; демо
+ * показывает её на текущей машине.
+ * Запуск: {@code java --add-modules jdk.incubator.vector ...}.
+ * Скорость меряет {@code PcmKernelsBenchmark} в модуле benchmarks.
+ */
+public class PcmOpsDemo {
+    private static final Logger log = LoggerFactory.getLogger(PcmOpsDemo.class);
+
+    private static final float[] GAINS = {0f, 0.5f, 1f, 2f, 7.3f, -1.5f, Float.NaN};
+
+    private static final Random random = new Random(7);
+    private static int checks;
+    private static int failures;
+
+    public static void main(String[] args) {
+        PcmKernels scalar = PcmOps.scalar();
+        PcmKernels vector = PcmOps.vectorized();
+        log.info("=== PCM ядра: выбрано '{}' ===", PcmOps.kernels().name());
+        if (vector == null) {
+            log.warn("Векторные ядра недоступны: запустите с --add-modules jdk.incubator.vector");
+            return;
+        }
+
+        for (int length = 0; length <= 300; length++) {
+            checkAll(scalar, vector, length);
+        }
+        for (int length : new int[]{960, 1024, 1921, 4099}) {
+            checkAll(scalar, vector, length);
+        }
+        if (failures == 0) {
+            log.info("Корректность: {} проверок, расхождений нет", checks);
+        } else {
+            log.error("Корректность: {} расхождений из {} проверок", failures, checks);
+        }
+    }
+
+    private static void checkAll(PcmKernels scalar, PcmKernels vector, int length) {
+        int offset = random.nextInt(5);
+        short[] samples = randomSamples(length + offset + 3);
+        byte[] bytes = new byte[(length + offset) * 2 + 7];
+        random.nextBytes(bytes);
+
+        // byte <-> short
+        short[] s1 = new short[length + offset];
+        short[] s2 = new short[length + offset];
+        scalar.toShorts(bytes, 1, s1, offset, length);
+        vector.toShorts(bytes, 1, s2, offset, length);
+        check("toShorts", length, Arrays.equals(s1, s2));
+
+        byte[] b1 = new byte[length * 2 + offset * 2 + 1];
+        byte[] b2 = new byte[b1.length];
+        scalar.toBytes(samples, offset, b1, 1, length);
+        vector.toBytes(samples, offset, b2, 1, length);
+        check("toBytes", length, Arrays.equals(b1, b2));
+
+        // short <-> float
+        float[] f1 = new float[length + offset];
+        float[] f2 = new float[length + offset];
+        scalar.toFloats(samples, offset, f1, offset, length);
+        vector.toFloats(samples, offset, f2, offset, length);
+        check("toFloats", length, Arrays.equals(f1, f2));
+
+        float[] floats = new float[length + offset];
+        for (int i = 0; i < floats.length; i++) {
+            floats[i] = switch (random.nextInt(20)) {
+                case 0 -> Float.NaN;
+                case 1 -> Float.POSITIVE_INFINITY;
+                case 2 -> Float.NEGATIVE_INFINITY;
+                default -> (float) (random.nextDouble() * 3 - 1.5);
+            };
+        }
+        scalar.fromFloats(floats, offset, s1, 0, length);
+        vector.fromFloats(floats, offset, s2, 0, length);
+        check("fromFloats", length, Arrays.equals(s1, s2));
+
+        // Усиление и смешивание
+        for (float gain : GAINS) {
+            short[] g1 = samples.clone();
+            short[] g2 = samples.clone();
+            scalar.applyGain(g1, offset, length, gain);
+            vector.applyGain(g2, offset, length, gain);
+            check("applyGain(short) x" + gain, length, Arrays.equals(g1, g2));
+
+            byte[] gb1 = bytes.clone();
+            byte[] gb2 = bytes.clone();
+            scalar.applyGain(gb1, 1, length * 2 + 1, gain);
+            vector.applyGain(gb2, 1, length * 2 + 1, gain);
+            check("applyGain(byte) x" + gain, length, Arrays.equals(gb1, gb2));
+
+            short[] other = randomSamples(length + offset);
+            short[] m1 = other.clone();
+            short[] m2 = other.clone();
+            scalar.mix(samples, offset, m1, 0, length, gain);
+            vector.mix(samples, offset, m2, 0, length, gain);
+            check("mix x" + gain, length, Arrays.equals(m1, m2));
+        }
+
+        // RMS и пик
+        double r1 = scalar.rms(samples, offset, length);
+        double r2 = vector.rms(samples, offset, length);
+        check("rms", length, Math.abs(r1 - r2) <= 1e-5 * Math.max(1, r1));
+        check("peak", length, scalar.peak(samples, offset, length) == vector.peak(samples, offset, length));
+
+        // Стерео <-> моно
+        short[] mono1 = new short[length + 1];
+        short[] mono2 = new short[length + 1];
+        short[] stereo = randomSamples(length * 2 + offset);
+        scalar.downmixStereo(stereo, offset, mono1, 1, length);
+        vector.downmixStereo(stereo, offset, mono2, 1, length);
+        check("downmixStereo", length, Arrays.equals(mono1, mono2));
+
+        short[] st1 = new short[length * 2 + 2];
+        short[] st2 = new short[length * 2 + 2];
+        scalar.upmixMono(samples, offset, st1, 1, length);
+        vector.upmixMono(samples, offset, st2, 1, length);
+        check("upmixMono", length, Arrays.equals(st1, st2));
+    }
+
+    private static short[] randomSamples(int length) {
+        short[] out = new short[length];
+        for (int i = 0; i < length; i++) {
+            out[i] = switch (random.nextInt(16)) {
+                case 0 -> Short.MIN_VALUE;
+                case 1 -> Short.MAX_VALUE;
+                default -> (short) random.nextInt(65536);
+            };
+        }
+        return out;
+    }
+
+    private static void check(String name, int length, boolean ok) {
+        checks++;
+        if (!ok) {
+            failures++;
+            if (failures <= 10) {
+                log.error("Расхождение: {} (длина {})", name, length);
+            }
+        }
+    }
+}
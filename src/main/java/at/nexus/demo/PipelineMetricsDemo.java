@@ -0,0 +1,142 @@
+package at.nexus.demo;
+
+import at.nexus.audio.AudioConfig;
+import at.nexus.audio.AudioInputManager;
+import at.nexus.audio.AudioOutputManager;
+import at.nexus.audio.LatencyProfile;
+import at.nexus.audio.PcmRingBuffer;
+import at.nexus.audio.io.ClockMode;
+import at.nexus.audio.io.NullSink;
+import at.nexus.audio.io.WavFileSource;
+import at.nexus.dsp.EchoCancellerStage;
+import at.nexus.metrics.MetricsSnapshot;
+import at.nexus.metrics.PipelineMetrics;
+import at.nexus.vad.VadConfig;
+import at.nexus.vad.VadListener;
+import at.nexus.vad.VadStage;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Метрики конвейера Mic -> AEC -> VAD -> Speaker в реальном времени.
+ *
+ * Вход - {@code recording.wav} в темпе устройства, выход - заглушка
+ * с тем же темпом, речь возвращается на выход как в эхо-тесте
+ * {@code Main}. На середине потребитель один раз "зависает" на 300ms,
+ * чтобы было видно, как это отражается в очереди захвата.
+ *
+ * Метрики читаются обоими способами: pull-снимком раз в секунду
+ * и подпиской на события JFR ({@link RecordingStream}) внутри процесса.
+ */
+public class PipelineMetricsDemo {
+    private static final Logger log = LoggerFactory.getLogger(PipelineMetricsDemo.class);
+
+    private static final int STALL_MILLIS = 300;
+
+    public static void main(String[] args) throws Exception {
+        int sampleRate = DemoAudio.sampleRate(DemoAudio.RECORDING);
+        AudioConfig config = LatencyProfile.LOW.toConfig(sampleRate, 1);
+
+        PipelineMetrics metrics = new PipelineMetrics();
+        Map<String, LongAdder> jfrEvents = new ConcurrentHashMap<>();
+        try (RecordingStream jfr = new RecordingStream()) {
+            jfr.enable("at.nexus.FrameStage");
+            jfr.enable("at.nexus.AudioGlitch");
+            jfr.enable("at.nexus.PipelineStats").withPeriod(Duration.ofSeconds(1));
+            jfr.onEvent(event -> jfrEvents.computeIfAbsent(event.getEventType().getName(),
+                    name -> new LongAdder()).increment());
+            jfr.onEvent("at.nexus.PipelineStats", event -> log.info("JFR: очередь захвата {} ms, захват->обработан p99 {} ms",
+                    event.getLong("captureQueueMillis"),
+                    event.getDuration("captureToProcessedP99").toNanos() / 1_000_000.0));
+            jfr.startAsync();
+            metrics.attachJfr();
+
+            run(config, metrics);
+
+            metrics.detachJfr();
+            Thread.sleep(1500); // дать потоку событий дочитать последний кусок
+        }
+
+        log.info("=== Итог ===");
+        MetricsSnapshot snapshot = metrics.snapshot();
+        for (PipelineMetrics.Stage stage : PipelineMetrics.Stage.values()) {
+            log.info("{}: {}", stage, snapshot.latency(stage));
+        }
+        for (PipelineMetrics.Counter counter : PipelineMetrics.Counter.values()) {
+            log.info("{}: {}", counter, snapshot.count(counter));
+        }
+        log.info("Событий JFR: {}", jfrEvents);
+    }
+
+    private static void run(AudioConfig config, PipelineMetrics metrics) throws Exception {
+        AudioInputManager input = new AudioInputManager(config,
+                new WavFileSource(Path.of(DemoAudio.RECORDING), ClockMode.REALTIME, false));
+        AudioOutputManager output = new AudioOutputManager(config, new NullSink(ClockMode.REALTIME));
+        input.setMetrics(metrics);
+        output.setMetrics(metrics);
+
+        PcmRingBuffer reference = new PcmRingBuffer(config.samplesForMillis(1000),
+                PcmRingBuffer.OverflowPolicy.DROP_OLDEST);
+        output.setEchoReference(reference);
+        EchoCancellerStage aec = new EchoCancellerStage(config, reference, 128, 300);
+        VadStage vad = new VadStage(config, VadConfig.defaults());
+        vad.addListener(new VadListener() {
+            @Override
+            public void onVoicedFrame(short[] samples, int offset, int length) {
+                output.enqueueAudio(samples, offset, length);
+            }
+        });
+
+        input.initialize();
+        output.initialize();
+        output.startPlayback();
+        input.startRecording();
+
+        short[] frame = new short[config.frameSamples()];
+        long start = System.nanoTime();
+        long nextReport = start + TimeUnit.SECONDS.toNanos(1);
+        boolean stalled = false;
+        while (!(input.isSourceEnded() && input.getRingBuffer().available() < frame.length)) {
+            int count = input.readFrame(frame, 0, frame.length, 100, TimeUnit.MILLISECONDS);
+            if (count > 0) {
+                long t0 = System.nanoTime();
+                aec.process(frame, 0, count);
+                long t1 = System.nanoTime();
+                vad.process(frame, 0, count);
+                long t2 = System.nanoTime();
+                metrics.record(PipelineMetrics.Stage.AEC, t1 - t0);
+                metrics.record(PipelineMetrics.Stage.VAD, t2 - t1);
+                if (input.getLastFrameCaptureNanos() != 0) {
+                    metrics.record(PipelineMetrics.Stage.CAPTURE_TO_PROCESSED, t2 - input.getLastFrameCaptureNanos());
+                }
+            }
+
+            long now = System.nanoTime();
+            if (!stalled && now - start > TimeUnit.SECONDS.toNanos(5)) {
+                stalled = true;
+                log.info("Потребитель зависает на {} ms", STALL_MILLIS);
+                Thread.sleep(STALL_MILLIS);
+            }
+            if (now - nextReport > 0) {
+                nextReport += TimeUnit.SECONDS.toNanos(1);
+                MetricsSnapshot snapshot = metrics.snapshot();
+                log.info("Снимок: очередь захвата {} ms, вывода {} ms, захват->обработан {}",
+                        snapshot.gauge(PipelineMetrics.Gauge.CAPTURE_QUEUE_MILLIS),
+                        snapshot.gauge(PipelineMetrics.Gauge.PLAYBACK_QUEUE_MILLIS),
+                        snapshot.latency(PipelineMetrics.Stage.CAPTURE_TO_PROCESSED));
+            }
+        }
+
+        Thread.sleep(500); // дать выводу доиграть
+        input.close();
+        output.close();
+    }
+}
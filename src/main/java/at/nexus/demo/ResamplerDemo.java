@@ -0,0 +1,231 @@
+package at.nexus.demo;
+
+import at.nexus.audio.AudioConfig;
+import at.nexus.audio.LatencyProfile;
+import at.nexus.audio.io.AudioSource;
+import at.nexus.audio.io.ClockMode;
+import at.nexus.audio.io.WavFileSource;
+import at.nexus.dsp.ChannelMixer;
+import at.nexus.dsp.Resampler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Проверка потоковой передискретизации.
+ * <ul>
+ *   <li>тон 1 kHz, 44.1 kHz стерео -> 16 kHz моно: SNR относительно идеального тона;</li>
+ *   <li>тон 10 kHz (выше Найквиста для 16 kHz): насколько подавлен алиас;</li>
+ *   <li>смесь тонов до 6 kHz 16k -> 48k -> 16k: расхождение с оригиналом
+ *       (полоса выше ~7 kHz срезается фильтром, поэтому не речь);</li>
+ *   <li>обработка кусками случайной длины совпадает с обработкой целиком;</li>
+ *   <li>аллокации на кадр (ThreadMXBean) и грубая оценка CPU;</li>
+ *   <li>{@link WavFileSource} с конфигурацией 48 kHz стерео - преобразование на лету.</li>
+ * </ul>
+ * Точные цифры CPU - {@code ResamplerBenchmark} в модуле benchmarks.
+ */
+public class ResamplerDemo {
+    private static final Logger log = LoggerFactory.getLogger(ResamplerDemo.class);
+
+    private static final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) throws Exception {
+        log.info("=== Передискретизация ===");
+        toneSnr();
+        aliasRejection();
+        short[] recording = DemoAudio.loadWav(DemoAudio.RECORDING);
+        roundTrip();
+        chunking(recording);
+        allocations();
+        wavSource();
+    }
+
+    private static void toneSnr() {
+        short[] stereo = tone(44100, 2, 1000, 3, 12000);
+        short[] mono = new short[stereo.length / 2];
+        ChannelMixer.convert(stereo, 0, 2, mono, 0, 1, mono.length);
+        short[] out = resample(mono, 44100, 16000, 1);
+        log.info("Тон 1 kHz 44.1k стерео -> 16k моно: {} сэмплов, SNR {} dB",
+                out.length, round(toneSnrDb(out, 16000, 1000)));
+    }
+
+    private static void aliasRejection() {
+        short[] in = tone(44100, 1, 10000, 3, 12000);
+        short[] out = resample(in, 44100, 16000, 1);
+        // Без фильтра 10 kHz сложился бы в 6 kHz той же амплитуды
+        int skip = 16000 / 10;
+        double rejection = rmsDb(in, skip, in.length) - rmsDb(out, skip, out.length);
+        log.info("Тон 10 kHz 44.1k -> 16k: алиас подавлен на {} dB ({})",
+                round(rejection), rejection > 60 ? "OK" : "МАЛО");
+    }
+
+    private static void roundTrip() {
+        short[] recording = new short[16000 * 3];
+        for (double freq : new double[]{300, 1100, 2500, 4200, 6000}) {
+            short[] t = tone(16000, 1, freq, 3, 3000);
+            for (int i = 0; i < recording.length; i++) {
+                recording[i] += t[i];
+            }
+        }
+        Resampler up = new Resampler(16000, 48000, 1);
+        Resampler down = new Resampler(48000, 16000, 1);
+        short[] back = resample(resample(recording, up), down);
+        // Задержка обоих фильтров в сэмплах 16k
+        int delay = up.getDelayFrames() + down.getDelayFrames() / 3;
+        int best = delay;
+        double bestDb = Double.POSITIVE_INFINITY;
+        for (int d = delay - 3; d <= delay + 3; d++) {
+            double db = errorDb(recording, back, d);
+            if (db < bestDb) {
+                bestDb = db;
+                best = d;
+            }
+        }
+        log.info("Тоны 0.3-6 kHz 16k -> 48k -> 16k: задержка {} сэмплов, сигнал/ошибка {} dB",
+                best, round(rmsDb(recording, 0, recording.length) - bestDb));
+    }
+
+    private static void chunking(short[] recording) {
+        short[] stereo = new short[recording.length * 2];
+        ChannelMixer.convert(recording, 0, 1, stereo, 0, 2, recording.length);
+        int[][] pairs = {{16000, 44100}, {16000, 22050}, {16000, 24000}, {16000, 8000}};
+        Random random = new Random(3);
+        for (int[] pair : pairs) {
+            Resampler whole = new Resampler(pair[0], pair[1], 2);
+            short[] expected = new short[whole.maxOutputFrames(recording.length) * 2];
+            int frames = whole.process(stereo, 0, recording.length, expected, 0);
+
+            Resampler chunked = new Resampler(pair[0], pair[1], 2);
+            short[] actual = new short[expected.length];
+            int produced = 0;
+            for (int pos = 0; pos < recording.length; ) {
+                int n = Math.min(1 + random.nextInt(700), recording.length - pos);
+                produced += chunked.process(stereo, pos * 2, n, actual, produced * 2);
+                pos += n;
+            }
+            boolean same = produced == frames && Arrays.equals(expected, actual);
+            log.info("Кусками {} -> {} стерео: {} кадров, {}", pair[0], pair[1], produced,
+                    same ? "совпадает с обработкой целиком" : "РАСХОЖДЕНИЕ");
+        }
+    }
+
+    private static void allocations() {
+        AudioConfig device = LatencyProfile.LOW.toConfig(48000, 2);
+        int frames = device.frameSamples() / 2;
+        short[] in = tone(48000, 2, 440, 1, 8000);
+        short[] mono = new short[frames];
+        Resampler resampler = new Resampler(48000, 16000, 1);
+        short[] out = new short[resampler.maxOutputFrames(frames)];
+
+        int iterations = 20000; // 400 с звука
+        for (int i = 0; i < iterations; i++) { // прогрев
+            ChannelMixer.convert(in, (i % 40) * frames * 2, 2, mono, 0, 1, frames);
+            resampler.process(mono, 0, frames, out, 0);
+        }
+        long bytesBefore = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            ChannelMixer.convert(in, (i % 40) * frames * 2, 2, mono, 0, 1, frames);
+            resampler.process(mono, 0, frames, out, 0);
+        }
+        long nanos = System.nanoTime() - start;
+        long allocated = threads.getCurrentThreadAllocatedBytes() - bytesBefore;
+        double audioSeconds = iterations * device.frameMillis() / 1000.0;
+        log.info("48k стерео -> 16k моно, кадр {}ms: {} байт аллокаций на {} кадров, ~{} мкс CPU на секунду звука",
+                device.frameMillis(), allocated, iterations, Math.round(nanos / 1000.0 / audioSeconds));
+    }
+
+    private static void wavSource() throws Exception {
+        AudioConfig config = LatencyProfile.LOW.toConfig(48000, 2);
+        try (WavFileSource source = new WavFileSource(Path.of(DemoAudio.RECORDING), ClockMode.AS_FAST_AS_POSSIBLE)) {
+            source.open(config);
+            source.start();
+            byte[] buffer = new byte[config.frameBytes()];
+            long total = 0;
+            for (int n; (n = source.read(buffer, 0, buffer.length)) != AudioSource.END_OF_STREAM; ) {
+                total += n;
+            }
+            long expected = (long) source.length() * 3 * 2;
+            log.info("WavFileSource 16k моно -> 48k стерео: {} байт (ожидалось ~{}), {} ms звука",
+                    total, expected, total * 1000 / config.bytesForMillis(1000));
+        }
+    }
+
+    private static short[] resample(short[] in, int from, int to, int channels) {
+        return resample(in, new Resampler(from, to, channels));
+    }
+
+    private static short[] resample(short[] in, Resampler resampler) {
+        int frames = in.length / resampler.getChannels();
+        short[] out = new short[resampler.maxOutputFrames(frames) * resampler.getChannels()];
+        int produced = resampler.process(in, 0, frames, out, 0);
+        return Arrays.copyOf(out, produced * resampler.getChannels());
+    }
+
+    private static short[] tone(int rate, int channels, double freq, int seconds, double amplitude) {
+        short[] out = new short[rate * seconds * channels];
+        for (int i = 0; i < out.length / channels; i++) {
+            short v = (short) Math.round(Math.sin(2 * Math.PI * freq * i / rate) * amplitude);
+            for (int c = 0; c < channels; c++) {
+                out[i * channels + c] = v;
+            }
+        }
+        return out;
+    }
+
+    /**
+     * SNR относительно синусоиды той же частоты, подогнанной по амплитуде и фазе
+     * (МНК по sin/cos), без начала с переходным процессом фильтра
+     */
+    private static double toneSnrDb(short[] x, int rate, double freq) {
+        int from = rate / 10;
+        double ss = 0, cc = 0, sc = 0, xs = 0, xc = 0;
+        for (int i = from; i < x.length; i++) {
+            double s = Math.sin(2 * Math.PI * freq * i / rate);
+            double c = Math.cos(2 * Math.PI * freq * i / rate);
+            ss += s * s;
+            cc += c * c;
+            sc += s * c;
+            xs += x[i] * s;
+            xc += x[i] * c;
+        }
+        double det = ss * cc - sc * sc;
+        double a = (xs * cc - xc * sc) / det;
+        double b = (xc * ss - xs * sc) / det;
+        double signal = 0, noise = 0;
+        for (int i = from; i < x.length; i++) {
+            double fit = a * Math.sin(2 * Math.PI * freq * i / rate) + b * Math.cos(2 * Math.PI * freq * i / rate);
+            signal += fit * fit;
+            noise += (x[i] - fit) * (x[i] - fit);
+        }
+        return 10 * Math.log10(signal / (noise + 1e-9));
+    }
+
+    private static double errorDb(short[] original, short[] processed, int delay) {
+        double sum = 0;
+        int count = 0;
+        for (int i = 0; i + delay < processed.length && i < original.length; i++) {
+            double d = processed[i + delay] - original[i];
+            sum += d * d;
+            count++;
+        }
+        return 10 * Math.log10(sum / Math.max(1, count) + 1e-9);
+    }
+
+    private static double rmsDb(short[] x, int from, int to) {
+        double sum = 0;
+        for (int i = from; i < to; i++) {
+            sum += (double) x[i] * x[i];
+        }
+        return 10 * Math.log10(sum / (to - from) + 1e-9);
+    }
+
+    private static double round(double v) {
+        return Math.round(v * 10) / 10.0;
+    }
+}
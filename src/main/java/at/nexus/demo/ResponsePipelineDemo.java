@@ -0,0 +1,132 @@
+package at.nexus.demo;
+
+import at.nexus.audio.AudioConfig;
+import at.nexus.audio.AudioOutputManager;
+import at.nexus.audio.LatencyProfile;
+import at.nexus.audio.io.ClockMode;
+import at.nexus.audio.io.NullSink;
+import at.nexus.core.ResponseMetrics;
+import at.nexus.core.ResponseMetrics.Stage;
+import at.nexus.core.ResponsePipeline;
+import at.nexus.dsp.Resampler;
+import at.nexus.llm.StreamingLlmClient;
+import at.nexus.server.LanguageModel;
+import at.nexus.tts.HttpSpeechSynthesizer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ответ ассистента конвейером против ответа "по очереди".
+ *
+ * Локальные заглушки по HTTP: LLM ({@link LlmStandInServer}, SSE, первый
+ * токен через 300ms, дальше слово в 40ms) и TTS ({@link TtsStandInServer},
+ * WAV 24kHz, первые байты через 150ms, синтез в 1.3 раза быстрее
+ * реального времени). Вывод - {@link NullSink} в темпе устройства.
+ * Режимы:
+ * <ul>
+ *   <li>весь ответ LLM, затем синтез по кускам строго по очереди;</li>
+ *   <li>потоково, синтез по очереди ({@code lookahead} 1);</li>
+ *   <li>потоково, синтез следующего куска во время текущего ({@code lookahead} 2).</li>
+ * </ul>
+ * Для каждого - конец речи -> первый звук (главное), ожидание куска
+ * на стыках и недогрузы вывода. В конце - перебивание посреди ответа:
+ * за сколько останавливаются генерация и синтез.
+ */
+public class ResponsePipelineDemo {
+    private static final Logger log = LoggerFactory.getLogger(ResponsePipelineDemo.class);
+
+    private static final int LLM_PORT = 18790;
+    private static final int TTS_PORT = 18791;
+    private static final int TTS_RATE = 24000;
+    private static final int RUNS = 3;
+
+    public static void main(String[] args) throws Exception {
+        short[] recording = DemoAudio.loadWav(DemoAudio.RECORDING);
+        int sampleRate = DemoAudio.sampleRate(DemoAudio.RECORDING);
+        Resampler resampler = new Resampler(sampleRate, TTS_RATE, 1);
+        short[] voice = new short[resampler.maxOutputFrames(recording.length)];
+        voice = Arrays.copyOf(voice, resampler.process(recording, 0, recording.length, voice, 0));
+
+        LlmStandInServer llmServer = new LlmStandInServer(LLM_PORT, 300, 40);
+        TtsStandInServer ttsServer = new TtsStandInServer(TTS_PORT, voice, TTS_RATE, 150, 1.3, 55);
+        llmServer.start();
+        ttsServer.start();
+
+        AudioConfig config = LatencyProfile.LOW.toConfig(sampleRate, 1);
+        AudioOutputManager output = new AudioOutputManager(config, new NullSink(ClockMode.REALTIME));
+        output.initialize();
+        output.startPlayback();
+
+        StreamingLlmClient llm = new StreamingLlmClient(llmServer.url(), "stand-in", null, null);
+        HttpSpeechSynthesizer tts = new HttpSpeechSynthesizer(ttsServer.url(), "stand-in", "default",
+                config.sampleRate());
+        try {
+            // Прогрев: JIT, пул соединений OkHttp
+            run(new ResponsePipeline(output, llm, tts), 1);
+
+            log.info("=== Конец речи -> первый звук, {} ответа на режим ===", RUNS);
+            report("весь ответ, затем синтез", run(new ResponsePipeline(output, wholeReply(llm), tts, 1), RUNS));
+            report("потоково, lookahead 1", run(new ResponsePipeline(output, llm, tts, 1), RUNS));
+            report("потоково, lookahead 2", run(new ResponsePipeline(output, llm, tts, 2), RUNS));
+
+            bargeIn(new ResponsePipeline(output, llm, tts), output);
+            log.info("Запросов: LLM {}, TTS {}", llmServer.getRequests(), ttsServer.getRequests());
+        } finally {
+            output.close();
+            llmServer.stop();
+            ttsServer.stop();
+        }
+    }
+
+    private static ResponseMetrics run(ResponsePipeline pipeline, int runs) throws InterruptedException {
+        for (int i = 0; i < runs; i++) {
+            pipeline.respond("как включить звук номер " + (i + 1), System.nanoTime());
+            if (!pipeline.awaitIdle(60, TimeUnit.SECONDS)) {
+                log.warn("Ответ не доигран за 60 с");
+            }
+        }
+        return pipeline.getMetrics();
+    }
+
+    private static void report(String mode, ResponseMetrics metrics) {
+        log.info("{}: первый звук p50 {} ms max {} ms; первый кусок текста {} ms, синтез куска до звука {} ms",
+                mode, millis(metrics, Stage.FIRST_AUDIO, 50), millis(metrics, Stage.FIRST_AUDIO, 100),
+                millis(metrics, Stage.FIRST_CHUNK, 50), millis(metrics, Stage.TTS_FIRST_AUDIO, 50));
+        log.info("    стыки кусков: ожидание p50 {} ms max {} ms, недогрузов {}; кусков {}, ошибок {}",
+                millis(metrics, Stage.CHUNK_WAIT, 50), millis(metrics, Stage.CHUNK_WAIT, 100),
+                metrics.getUnderruns(), metrics.getChunks(), metrics.getFailures());
+    }
+
+    /**
+     * Перебить ответ через 2 с после начала звука и проверить, что он остановился
+     */
+    private static void bargeIn(ResponsePipeline pipeline, AudioOutputManager output) throws InterruptedException {
+        pipeline.respond("перебьём", System.nanoTime());
+        TimeUnit.SECONDS.sleep(3);
+        long start = System.nanoTime();
+        output.interrupt();
+        boolean stopped = pipeline.awaitIdle(2, TimeUnit.SECONDS);
+        log.info("Перебивание: ответ {} за {} ms, прервано ответов {}",
+                stopped ? "остановлен" : "НЕ остановлен", (System.nanoTime() - start) / 1_000_000,
+                pipeline.getMetrics().getCancelled());
+    }
+
+    /**
+     * LLM, который отдаёт ответ одним токеном после конца генерации
+     */
+    private static LanguageModel wholeReply(LanguageModel model) {
+        return (prompt, sink) -> {
+            StringBuilder text = new StringBuilder();
+            model.reply(prompt, text::append);
+            sink.accept(text.toString());
+        };
+    }
+
+    private static long millis(ResponseMetrics metrics, Stage stage, double percentile) {
+        return (percentile >= 100 ? metrics.get(stage).getMaxNanos()
+                : metrics.get(stage).percentile(percentile)) / 1_000_000;
+    }
+}
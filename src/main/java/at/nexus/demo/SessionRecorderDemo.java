@@ -0,0 +1,158 @@
+package at.nexus.demo;
+
+import at.nexus.audio.AudioConfig;
+import at.nexus.audio.AudioInputManager;
+import at.nexus.audio.LatencyProfile;
+import at.nexus.audio.io.ClockMode;
+import at.nexus.audio.io.WavFileSource;
+import at.nexus.audio.wav.SessionRecorder;
+import at.nexus.audio.wav.WavReader;
+import at.nexus.audio.wav.WavWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * WAV через отображение в память и запись сессии.
+ *
+ * <ul>
+ *   <li>Длинная запись ({@code recording.wav} по кругу, {@code MINUTES}
+ *       минут) пишется {@link WavWriter} и читается {@link WavReader}:
+ *       скорость, аллокации и контрольная сумма. Для сравнения то же
+ *       чтение через {@link AudioSystem}.</li>
+ *   <li>{@link AudioInputManager} с файлом-источником пишется на диск
+ *       {@link SessionRecorder}, пока потребитель разбирает кадры;
+ *       записанное сравнивается с исходником сэмпл в сэмпл.</li>
+ * </ul>
+ */
+public class SessionRecorderDemo {
+    private static final Logger log = LoggerFactory.getLogger(SessionRecorderDemo.class);
+
+    private static final int MINUTES = 30;
+    private static final int CHUNK_SAMPLES = 4096;
+
+    private static final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) throws Exception {
+        short[] recording = DemoAudio.loadWav(DemoAudio.RECORDING);
+        int sampleRate = DemoAudio.sampleRate(DemoAudio.RECORDING);
+        Path dir = Files.createTempDirectory("nexus-wav");
+        try {
+            roundTrip(dir.resolve("long.wav"), recording, sampleRate);
+            recordSession(dir.resolve("session.wav"), recording, sampleRate);
+        } finally {
+            try (var files = Files.list(dir)) {
+                for (Path file : files.toList()) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(dir);
+        }
+    }
+
+    private static void roundTrip(Path path, short[] recording, int sampleRate) throws Exception {
+        long totalSamples = (long) sampleRate * 60 * MINUTES;
+        short[] chunk = new short[CHUNK_SAMPLES];
+
+        long expected = 0;
+        long allocated = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        try (WavWriter writer = new WavWriter(path, sampleRate, 1)) {
+            for (long written = 0; written < totalSamples; ) {
+                int n = (int) Math.min(chunk.length, totalSamples - written);
+                for (int i = 0; i < n; i++) {
+                    chunk[i] = recording[(int) ((written + i) % recording.length)];
+                }
+                expected = checksum(expected, chunk, n);
+                writer.write(chunk, 0, n);
+                written += n;
+            }
+        }
+        long writeNanos = System.nanoTime() - start;
+        long writeAllocated = threads.getCurrentThreadAllocatedBytes() - allocated;
+        long bytes = Files.size(path);
+        log.info("WavWriter: {} мин звука, {} MB за {} ms ({} MB/s), аллокаций {} KB",
+                MINUTES, bytes >> 20, TimeUnit.NANOSECONDS.toMillis(writeNanos),
+                mbPerSecond(bytes, writeNanos), writeAllocated >> 10);
+
+        long actual = 0;
+        allocated = threads.getCurrentThreadAllocatedBytes();
+        start = System.nanoTime();
+        try (WavReader reader = new WavReader(path)) {
+            int n;
+            while ((n = reader.read(chunk, 0, chunk.length)) > 0) {
+                actual = checksum(actual, chunk, n);
+            }
+            long readNanos = System.nanoTime() - start;
+            log.info("WavReader: {} ms звука, {} ms ({} MB/s), аллокаций {} KB, сумма {}",
+                    reader.getDurationMillis(), TimeUnit.NANOSECONDS.toMillis(readNanos),
+                    mbPerSecond(bytes, readNanos),
+                    (threads.getCurrentThreadAllocatedBytes() - allocated) >> 10,
+                    actual == expected ? "совпадает" : "НЕ СОВПАДАЕТ");
+        }
+
+        // Для сравнения: поток javax.sound с копией через byte[]
+        byte[] buffer = new byte[CHUNK_SAMPLES * 2];
+        allocated = threads.getCurrentThreadAllocatedBytes();
+        start = System.nanoTime();
+        try (AudioInputStream in = AudioSystem.getAudioInputStream(path.toFile())) {
+            while (in.read(buffer) > 0) {
+                // только чтение
+            }
+        }
+        long streamNanos = System.nanoTime() - start;
+        log.info("AudioInputStream: {} ms ({} MB/s), аллокаций {} KB",
+                TimeUnit.NANOSECONDS.toMillis(streamNanos), mbPerSecond(bytes, streamNanos),
+                (threads.getCurrentThreadAllocatedBytes() - allocated) >> 10);
+    }
+
+    private static void recordSession(Path path, short[] recording, int sampleRate) throws Exception {
+        AudioConfig config = LatencyProfile.LOW.toConfig(sampleRate, 1);
+        AudioInputManager input = new AudioInputManager(config,
+                new WavFileSource(Path.of(DemoAudio.RECORDING), ClockMode.AS_FAST_AS_POSSIBLE, false));
+        input.initialize();
+
+        short[] frame = new short[config.frameSamples()];
+        long consumed = 0;
+        try (SessionRecorder recorder = new SessionRecorder(path, config)) {
+            recorder.record(input);
+            input.startRecording();
+            while (!(input.isSourceEnded() && input.getRingBuffer().available() == 0)) {
+                consumed += Math.max(0, input.readFrame(frame, 0, frame.length, 100, TimeUnit.MILLISECONDS));
+                if (input.isSourceEnded() && input.getRingBuffer().available() < frame.length) {
+                    consumed += input.getRingBuffer().read(frame, 0, frame.length);
+                }
+            }
+            input.close();
+            recorder.stop();
+            log.info("Сессия: потребитель разобрал {} сэмплов, записано {} ms, потеряно {} сэмплов",
+                    consumed, recorder.getRecordedMillis(), recorder.getDroppedSamples());
+        }
+
+        try (WavReader reader = new WavReader(path)) {
+            short[] recorded = new short[(int) reader.getFrames()];
+            reader.read(recorded, 0, recorded.length);
+            log.info("Запись сессии: {} из {} сэмплов, {}", recorded.length, recording.length,
+                    Arrays.equals(recorded, recording) ? "совпадает с исходником" : "НЕ СОВПАДАЕТ");
+        }
+    }
+
+    private static long checksum(long hash, short[] samples, int length) {
+        for (int i = 0; i < length; i++) {
+            hash = hash * 31 + samples[i];
+        }
+        return hash;
+    }
+
+    private static long mbPerSecond(long bytes, long nanos) {
+        return Math.round(bytes / 1048576.0 / (nanos / 1e9));
+    }
+}
@@ -0,0 +1,310 @@
+package at.nexus.demo;
+
+import at.nexus.audio.AudioConfig;
+import at.nexus.audio.AudioInputManager;
+import at.nexus.audio.AudioOutputManager;
+import at.nexus.audio.LatencyProfile;
+import at.nexus.audio.PcmRingBuffer;
+import at.nexus.audio.io.ClockMode;
+import at.nexus.audio.io.NullSink;
+import at.nexus.audio.io.WavFileSource;
+import at.nexus.core.PipelineWarmup;
+import at.nexus.core.ResponseMetrics.Stage;
+import at.nexus.core.ResponsePipeline;
+import at.nexus.core.StartupReport;
+import at.nexus.dsp.ConditioningConfig;
+import at.nexus.dsp.EchoCancellerStage;
+import at.nexus.dsp.InputConditioningStage;
+import at.nexus.dsp.Resampler;
+import at.nexus.llm.StreamingLlmClient;
+import at.nexus.tts.HttpSpeechSynthesizer;
+import at.nexus.vad.VadConfig;
+import at.nexus.vad.VadListener;
+import at.nexus.vad.VadStage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Холодный старт: время до готовности и задержка ответа на первую фразу.
+ *
+ * Каждый замер - отдельная JVM (тот же java и classpath), которая
+ * стартует как {@link at.nexus.core.Main}: устройства (здесь
+ * {@code recording.wav} в реальном времени и {@link NullSink}) и ассистент
+ * параллельно, затем главный цикл AEC -> подготовка -> VAD. На конце
+ * первой фразы по VAD уходит запрос в {@link ResponsePipeline}; LLM и TTS -
+ * локальные заглушки в этом процессе. Режимы:
+ * <ul>
+ *   <li>холодный - без прогрева, как было;</li>
+ *   <li>прогрев - {@link PipelineWarmup} и {@link ResponsePipeline#warmUp()}
+ *       параллельно с открытием устройств;</li>
+ *   <li>прогрев + кэш классов после обучающего запуска: на Java 25+ -
+ *       AOT-кэш ({@code -XX:AOTCacheOutput}/{@code -XX:AOTCache}), на более
+ *       старых - динамический архив AppCDS ({@code -XX:ArchiveClassesAtExit}/
+ *       {@code -XX:SharedArchiveFile}).</li>
+ * </ul>
+ * По каждому - медианы: до {@code main} и до готовности от запуска JVM,
+ * конец речи -> первый звук ответа (и второго ответа для сравнения)
+ * и самый долгий кадр обработки на первой фразе.
+ *
+ * Кэш классов JVM строит только для classpath из JAR-файлов: запускать
+ * из собранного jar, с каталогом классов обучающий запуск кэш не запишет.
+ */
+public class StartupDemo {
+    private static final Logger log = LoggerFactory.getLogger(StartupDemo.class);
+
+    private static final int RUNS = 3;
+    private static final int TTS_RATE = 24000;
+    private static final String PROMPT = "Как включить звук?";
+    private static final String RESULT = "RESULT";
+
+    private enum Mode {
+        COLD("холодный", false, false),
+        WARM_UP("прогрев", true, false),
+        CACHED("прогрев + кэш классов", true, true);
+
+        final String title;
+        final boolean warmUp;
+        final boolean cached;
+
+        Mode(String title, boolean warmUp, boolean cached) {
+            this.title = title;
+            this.warmUp = warmUp;
+            this.cached = cached;
+        }
+    }
+
+    /**
+     * Итог одной JVM, ms (кадр - мкс)
+     */
+    private record Result(long mainMillis, long readyMillis, long firstAudioMillis, long maxFrameMicros,
+                          long nextAudioMillis) {
+
+        static Result parse(String line) {
+            long[] values = Arrays.stream(line.substring(RESULT.length()).trim().split(" "))
+                    .mapToLong(Long::parseLong).toArray();
+            return new Result(values[0], values[1], values[2], values[3], values[4]);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 4 && args[0].equals("child")) {
+            child(Boolean.parseBoolean(args[1]), args[2], args[3]);
+            return;
+        }
+
+        short[] recording = DemoAudio.loadWav(DemoAudio.RECORDING);
+        Resampler resampler = new Resampler(DemoAudio.sampleRate(DemoAudio.RECORDING), TTS_RATE, 1);
+        short[] voice = new short[resampler.maxOutputFrames(recording.length)];
+        voice = Arrays.copyOf(voice, resampler.process(recording, 0, recording.length, voice, 0));
+        // Быстрые заглушки: в задержке первого ответа видна сама JVM
+        LlmStandInServer llmServer = new LlmStandInServer(0, 100, 20);
+        TtsStandInServer ttsServer = new TtsStandInServer(0, voice, TTS_RATE, 50, 1.3, 20);
+        llmServer.start();
+        ttsServer.start();
+
+        boolean aot = Runtime.version().feature() >= 25;
+        Path archive = Files.createTempDirectory("nexus-startup").resolve(aot ? "nexus.aot" : "nexus.jsa");
+        try {
+            log.info("=== Обучающий запуск: {} ===", aot ? "AOT-кэш Java " + Runtime.version().feature()
+                    : "AppCDS (Java " + Runtime.version().feature() + ", AOT-кэш - с Java 25)");
+            launch(true, llmServer.url(), ttsServer.url(),
+                    (aot ? "-XX:AOTCacheOutput=" : "-XX:ArchiveClassesAtExit=") + archive);
+            boolean trained = Files.exists(archive);
+            log.info("Кэш классов {}", trained ? archive + ", " + Files.size(archive) / 1024 + " КБ" : "НЕ записан");
+
+            Map<Mode, List<Result>> results = new EnumMap<>(Mode.class);
+            for (int run = 0; run < RUNS; run++) {
+                // Режимы по кругу: фон машины влияет на все одинаково
+                for (Mode mode : Mode.values()) {
+                    if (mode.cached && !trained) {
+                        continue;
+                    }
+                    String cacheFlag = !mode.cached ? null
+                            : (aot ? "-XX:AOTCache=" : "-XX:SharedArchiveFile=") + archive;
+                    Result result = launch(mode.warmUp, llmServer.url(), ttsServer.url(), cacheFlag);
+                    if (result != null) {
+                        results.computeIfAbsent(mode, m -> new ArrayList<>()).add(result);
+                    }
+                }
+            }
+
+            log.info("=== Медианы по {} запускам ===", RUNS);
+            results.forEach((mode, list) -> log.info(
+                    "{}: main через {} ms, готов через {} ms; конец речи -> первый звук {} ms (следующий ответ {} ms); "
+                            + "худший кадр {} мкс", mode.title, median(list, Result::mainMillis),
+                    median(list, Result::readyMillis), median(list, Result::firstAudioMillis),
+                    median(list, Result::nextAudioMillis), median(list, Result::maxFrameMicros)));
+        } finally {
+            Files.deleteIfExists(archive);
+            Files.deleteIfExists(archive.getParent());
+            llmServer.stop();
+            ttsServer.stop();
+        }
+    }
+
+    /**
+     * Запустить JVM с {@code child} и дождаться её итога
+     * @param jvmFlag дополнительный флаг JVM (кэш классов), null - без него
+     * @return null, если итога нет
+     */
+    private static Result launch(boolean warmUp, String llmUrl, String ttsUrl, String jvmFlag) throws Exception {
+        List<String> command = new ArrayList<>();
+        command.add(ProcessHandle.current().info().command()
+                .orElse(Path.of(System.getProperty("java.home"), "bin", "java").toString()));
+        for (String argument : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            if (!argument.startsWith("-XX:SharedArchiveFile") && !argument.startsWith("-XX:ArchiveClassesAtExit")
+                    && !argument.startsWith("-XX:AOTCache") && !argument.startsWith("-agentlib")) {
+                command.add(argument);
+            }
+        }
+        if (jvmFlag != null) {
+            command.add(jvmFlag);
+        }
+        command.addAll(List.of("-cp", System.getProperty("java.class.path"), StartupDemo.class.getName(),
+                "child", String.valueOf(warmUp), llmUrl, ttsUrl));
+
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        Result result = null;
+        List<String> output = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(RESULT)) {
+                    result = Result.parse(line);
+                } else {
+                    output.add(line);
+                }
+            }
+        }
+        if (!process.waitFor(60, TimeUnit.SECONDS) || result == null) {
+            log.warn("Запуск без итога (код {}):\n{}", process.exitValue(), String.join("\n", output));
+            return null;
+        }
+        log.info("{}{}: main {} ms, готов {} ms, первый звук {} ms, худший кадр {} мкс",
+                warmUp ? "прогрев" : "без прогрева", jvmFlag != null ? " " + jvmFlag.replaceAll("=.*", "") : "",
+                result.mainMillis(), result.readyMillis(), result.firstAudioMillis(), result.maxFrameMicros());
+        return result;
+    }
+
+    /**
+     * Отдельная JVM: старт как в Main, первая фраза, первый звук ответа
+     */
+    private static void child(boolean warmUp, String llmUrl, String ttsUrl) throws Exception {
+        StartupReport startup = new StartupReport();
+        AudioConfig config = LatencyProfile.LOW.toConfig(DemoAudio.sampleRate(DemoAudio.RECORDING), 1);
+        AudioInputManager input = new AudioInputManager(config,
+                new WavFileSource(Path.of(DemoAudio.RECORDING), ClockMode.REALTIME, false));
+        AudioOutputManager output = new AudioOutputManager(config, new NullSink(ClockMode.REALTIME));
+
+        ResponsePipeline pipeline;
+        try (ExecutorService init = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<?> in = init.submit(() -> {
+                startup.run("микрофон", input::initialize);
+                return null;
+            });
+            Future<?> out = init.submit(() -> {
+                startup.run("динамики", output::initialize);
+                return null;
+            });
+            Future<?> processing = init.submit(() -> {
+                if (warmUp) {
+                    startup.run("прогрев обработки",
+                            () -> PipelineWarmup.run(config, null, PipelineWarmup.DEFAULT_MILLIS));
+                }
+                return null;
+            });
+            Future<ResponsePipeline> assistant = init.submit(() -> {
+                ResponsePipeline created = startup.call("ассистент", () -> new ResponsePipeline(output,
+                        new StreamingLlmClient(llmUrl, "stand-in", null, null),
+                        new HttpSpeechSynthesizer(ttsUrl, "stand-in", "default", config.sampleRate())));
+                if (warmUp) {
+                    startup.run("прогрев ответа", created::warmUp);
+                }
+                return created;
+            });
+            in.get();
+            out.get();
+            processing.get();
+            pipeline = assistant.get();
+        }
+
+        PcmRingBuffer reference = new PcmRingBuffer(config.samplesForMillis(1000),
+                PcmRingBuffer.OverflowPolicy.DROP_OLDEST);
+        output.setEchoReference(reference);
+        EchoCancellerStage aec = new EchoCancellerStage(config, reference, 128, 300);
+        InputConditioningStage conditioning = new InputConditioningStage(config, ConditioningConfig.defaults());
+        VadStage vad = new VadStage(config, VadConfig.defaults());
+        AtomicLong speechEnd = new AtomicLong();
+        vad.addListener(new VadListener() {
+            @Override
+            public void onSpeechEnd(long samplePosition) {
+                speechEnd.compareAndSet(0, System.nanoTime());
+            }
+        });
+        input.startRecording();
+        output.startPlayback();
+        startup.ready();
+        log.info("Старт: {}", startup);
+
+        short[] frame = new short[config.frameSamples()];
+        long maxFrameNanos = 0;
+        while (speechEnd.get() == 0 && !input.isSourceEnded()) {
+            int count = input.readFrame(frame, 0, frame.length, 100, TimeUnit.MILLISECONDS);
+            if (count > 0) {
+                long start = System.nanoTime();
+                aec.process(frame, 0, count);
+                conditioning.process(frame, 0, count);
+                vad.process(frame, 0, count);
+                maxFrameNanos = Math.max(maxFrameNanos, System.nanoTime() - start);
+            }
+        }
+        // Здесь распознавание отдало бы текст фразы
+        long firstAudio = reply(pipeline, speechEnd.get());
+        // Для сравнения - второй ответ, когда всё уже загружено и соединения в пуле
+        pipeline.cancel();
+        long nextAudio = reply(pipeline, System.nanoTime());
+        System.out.println(RESULT + " " + startup.getMainMillis() + " " + startup.getReadyMillis() + " "
+                + firstAudio / 1_000_000 + " " + maxFrameNanos / 1000 + " " + nextAudio / 1_000_000);
+        pipeline.cancel();
+        input.close();
+        output.close();
+        System.exit(0);
+    }
+
+    /**
+     * Ответить и дождаться первого звука
+     * @return конец речи -> первый звук, нс
+     */
+    private static long reply(ResponsePipeline pipeline, long speechEndNanos) throws InterruptedException {
+        pipeline.getMetrics().reset();
+        pipeline.respond(PROMPT, speechEndNanos);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(20);
+        while (pipeline.getMetrics().get(Stage.FIRST_AUDIO).getCount() == 0 && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(1);
+        }
+        return pipeline.getMetrics().get(Stage.FIRST_AUDIO).getMaxNanos();
+    }
+
+    private static long median(List<Result> results, java.util.function.ToLongFunction<Result> metric) {
+        long[] values = results.stream().mapToLong(metric).sorted().toArray();
+        return values[values.length / 2];
+    }
+}
@@ -0,0 +1,93 @@
+package at.nexus.demo;
+
+import at.nexus.audio.AudioConfig;
+import at.nexus.audio.LatencyProfile;
+import at.nexus.stt.SttListener;
+import at.nexus.stt.StreamingSttClient;
+import at.nexus.vad.VadConfig;
+import at.nexus.vad.VadStage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Потоковое распознавание {@code recording.wav} через локальную заглушку STT.
+ *
+ * Запись подаётся в VAD в реальном времени кадрами по 20ms, кадры речи
+ * сразу уходят в WebSocket. В конце выводятся time-to-first-partial,
+ * time-to-final и сколько кадров было выкинуто из-за переполнения
+ * очереди отправки. Второй прогон шлёт звук без пауз, чтобы показать
+ * сброс кадров при заполнении буфера сокета.
+ */
+public class SttClientDemo {
+    private static final Logger log = LoggerFactory.getLogger(SttClientDemo.class);
+
+    private static final int PORT = 18765;
+    private static final int MAX_QUEUED_FRAMES = 25; // ~0.5 секунды звука при 20ms
+
+    public static void main(String[] args) throws Exception {
+        short[] audio = DemoAudio.loadWav(DemoAudio.RECORDING);
+        AudioConfig config = LatencyProfile.LOW.toConfig(DemoAudio.sampleRate(DemoAudio.RECORDING), 1);
+
+        SttStandInServer server = new SttStandInServer(PORT, 300, 50);
+        server.start();
+        if (!server.awaitStarted(5, TimeUnit.SECONDS)) {
+            log.error("Заглушка STT не запустилась");
+            return;
+        }
+
+        try {
+            log.info("=== Прогон в реальном времени ===");
+            run(config, audio, true, MAX_QUEUED_FRAMES);
+
+            log.info("=== Прогон без пауз (проверка сброса кадров) ===");
+            run(config, audio, false, 2);
+        } finally {
+            server.stop(1000);
+        }
+    }
+
+    private static void run(AudioConfig config, short[] audio, boolean realTime, int maxQueued)
+            throws InterruptedException {
+        StreamingSttClient client = new StreamingSttClient(
+                URI.create("ws://127.0.0.1:" + PORT), config, new SttListener() {
+                    @Override
+                    public void onPartial(String text) {
+                        log.debug("  ... {}", text);
+                    }
+
+                    @Override
+                    public void onFinal(String text) {
+                        log.info("  финал: {}", text);
+                    }
+                }, maxQueued);
+
+        if (!client.connect(5, TimeUnit.SECONDS)) {
+            return;
+        }
+
+        VadStage vad = new VadStage(config, VadConfig.defaults());
+        vad.addListener(client);
+
+        int frame = config.frameSamples();
+        long start = System.nanoTime();
+        for (int offset = 0, i = 0; offset + frame <= audio.length; offset += frame, i++) {
+            vad.process(audio, offset, frame);
+            if (realTime) {
+                // Держим темп микрофона: кадр i уходит не раньше i * frameMillis
+                long due = start + TimeUnit.MILLISECONDS.toNanos((long) (i + 1) * config.frameMillis());
+                long sleep = due - System.nanoTime();
+                if (sleep > 0) {
+                    TimeUnit.NANOSECONDS.sleep(sleep);
+                }
+            }
+        }
+        vad.flush();
+
+        Thread.sleep(500); // дождаться финала
+        log.info("Метрики: {}", client.getMetrics());
+        client.close();
+    }
+}
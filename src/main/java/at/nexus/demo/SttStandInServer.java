@@ -0,0 +1,166 @@
+package at.nexus.demo;
+
+import at.nexus.codec.AudioCodec;
+import at.nexus.codec.AudioDecoder;
+import at.nexus.codec.CodecConfig;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.java_websocket.WebSocket;
+import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.server.WebSocketServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Локальная заглушка STT сервера для демо и замеров.
+ *
+ * Говорит тем же протоколом, что ждёт {@link at.nexus.stt.StreamingSttClient}:
+ * на каждые {@code partialEveryMillis} принятого звука отвечает
+ * промежуточной гипотезой, на конец фразы - финалом. Текст - просто
+ * счётчик "слов", распознавания нет. Пакеты Opus декодируются, и "слова"
+ * считаются по звуку, а не по байтам в сети.
+ */
+public class SttStandInServer extends WebSocketServer {
+    private static final Logger log = LoggerFactory.getLogger(SttStandInServer.class);
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private final int partialEveryMillis;
+    private final long finalDelayMillis;
+    private final AtomicLong receivedBytes = new AtomicLong();
+    private final CountDownLatch started = new CountDownLatch(1);
+
+    public SttStandInServer(int port, int partialEveryMillis, long finalDelayMillis) {
+        super(new InetSocketAddress("127.0.0.1", port));
+        this.partialEveryMillis = partialEveryMillis;
+        this.finalDelayMillis = finalDelayMillis;
+        setReuseAddr(true);
+    }
+
+    @Override
+    public void onOpen(WebSocket conn, ClientHandshake handshake) {
+        conn.setAttachment(new Utterance());
+    }
+
+    @Override
+    public void onMessage(WebSocket conn, String message) {
+        Utterance utterance = conn.getAttachment();
+        try {
+            JsonNode node = mapper.readTree(message);
+            switch (node.path("type").asText()) {
+                case "start" -> {
+                    int sampleRate = node.path("sampleRate").asInt(16000);
+                    int channels = node.path("channels").asInt(1);
+                    utterance.bytesPerMilli = sampleRate * channels * 2 / 1000;
+                    utterance.bytes = 0;
+                    utterance.words = 0;
+                    utterance.closeDecoder();
+                    AudioCodec codec = AudioCodec.fromEncoding(
+                            node.path("encoding").asText(AudioCodec.PCM.encoding()));
+                    if (codec != AudioCodec.PCM) {
+                        if (!codec.isAvailable()) {
+                            conn.send(mapper.createObjectNode().put("type", "error")
+                                    .put("text", "Кодек " + codec.encoding() + " недоступен").toString());
+                            return;
+                        }
+                        utterance.decoder = codec.decoder(CodecConfig.voice(sampleRate, channels));
+                        utterance.decoded = new short[utterance.decoder.maxFrameSamples()];
+                    }
+                }
+                case "end" -> {
+                    if (finalDelayMillis > 0) {
+                        Thread.sleep(finalDelayMillis); // имитация досчёта финала
+                    }
+                    conn.send(result("final", utterance.words + 1));
+                }
+                default -> log.warn("Заглушка STT: неизвестное сообщение {}", message);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("Заглушка STT: ошибка разбора {}", message, e);
+        }
+    }
+
+    @Override
+    public void onMessage(WebSocket conn, ByteBuffer message) {
+        Utterance utterance = conn.getAttachment();
+        int length = message.remaining();
+        receivedBytes.addAndGet(length);
+        if (utterance.decoder != null) {
+            byte[] packet = new byte[length];
+            message.get(packet);
+            utterance.bytes += (long) utterance.decoder.decode(packet, 0, length, utterance.decoded, 0) * 2;
+        } else {
+            utterance.bytes += length;
+        }
+
+        long words = utterance.bytes / ((long) utterance.bytesPerMilli * partialEveryMillis);
+        if (words > utterance.words) {
+            utterance.words = words;
+            conn.send(result("partial", words));
+        }
+    }
+
+    @Override
+    public void onClose(WebSocket conn, int code, String reason, boolean remote) {
+        Utterance utterance = conn.getAttachment();
+        if (utterance != null) {
+            utterance.closeDecoder();
+        }
+    }
+
+    @Override
+    public void onError(WebSocket conn, Exception ex) {
+        log.error("Заглушка STT: ошибка", ex);
+    }
+
+    @Override
+    public void onStart() {
+        log.info("Заглушка STT слушает {}", getAddress());
+        started.countDown();
+    }
+
+    /**
+     * Дождаться, пока сервер начнёт принимать соединения
+     */
+    public boolean awaitStarted(long timeout, TimeUnit unit) throws InterruptedException {
+        return started.await(timeout, unit);
+    }
+
+    /**
+     * Байт звука из сети; со сжатием - байт пакетов, а не PCM
+     */
+    public long getReceivedBytes() {
+        return receivedBytes.get();
+    }
+
+    private static String result(String type, long words) {
+        StringBuilder text = new StringBuilder();
+        for (long i = 1; i <= words; i++) {
+            text.append(i == 1 ? "" : " ").append("слово").append(i);
+        }
+        return mapper.createObjectNode().put("type", type).put("text", text.toString()).toString();
+    }
+
+    private static final class Utterance {
+        int bytesPerMilli = 32;
+        long bytes; // звука PCM, после декодера
+        long words;
+        AudioDecoder decoder;
+        short[] decoded;
+
+        void closeDecoder() {
+            if (decoder != null) {
+                decoder.close();
+                decoder = null;
+            }
+        }
+    }
+}
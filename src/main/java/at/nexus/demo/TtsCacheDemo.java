@@ -0,0 +1,209 @@
+package at.nexus.demo;
+
+import at.nexus.dsp.Resampler;
+import at.nexus.server.SpeechSynthesizer;
+import at.nexus.tts.HttpSpeechSynthesizer;
+import at.nexus.tts.cache.CachingSpeechSynthesizer;
+import at.nexus.tts.cache.TtsCache;
+import at.nexus.tts.cache.TtsCache.Eviction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Кэш синтеза: доля попаданий, перезапуск и задержка первого звука.
+ *
+ * <ul>
+ *   <li>Нагрузка как у ассистента: {@value #PHRASES} постоянных фраз
+ *   (приветствия, подтверждения) с частотой по закону Ципфа вперемешку
+ *   с разовыми ответами ({@value #ONE_OFF_PERCENT}%). Одинаковый объём
+ *   памяти, W-TinyLFU против LRU; синтез - быстрая заглушка.</li>
+ *   <li>Перезапуск: новый кэш на том же каталоге отвечает с диска.</li>
+ *   <li>Конец запроса -> первый кусок звука через {@link HttpSpeechSynthesizer}
+ *   и {@link TtsStandInServer} (первые байты через 150ms): промах,
+ *   попадание в память, попадание с диска.</li>
+ * </ul>
+ */
+public class TtsCacheDemo {
+    private static final Logger log = LoggerFactory.getLogger(TtsCacheDemo.class);
+
+    private static final int PHRASES = 200;
+    private static final int ONE_OFF_PERCENT = 40;
+    private static final int REQUESTS = 20_000;
+    private static final long MEMORY_BYTES = 2L << 20;
+    private static final int TTS_PORT = 18792;
+    private static final int TTS_RATE = 24000;
+    private static final int RUNS = 20;
+
+    public static void main(String[] args) throws Exception {
+        hitRate();
+
+        Path directory = Files.createTempDirectory("tts-cache");
+        try {
+            restart(directory.resolve("restart"));
+            latency(directory.resolve("latency"));
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    private static void hitRate() throws InterruptedException {
+        log.info("=== Доля попаданий: {} запросов, память {} КБ ===", REQUESTS, MEMORY_BYTES / 1024);
+        for (Eviction eviction : Eviction.values()) {
+            FakeSynthesizer fake = new FakeSynthesizer(16000);
+            CachingSpeechSynthesizer tts = new CachingSpeechSynthesizer(fake, new TtsCache(MEMORY_BYTES, eviction),
+                    "fake");
+            Workload workload = new Workload(1);
+            for (int i = 0; i < REQUESTS; i++) {
+                tts.synthesize(workload.next(), (samples, offset, length) -> {
+                });
+            }
+            log.info("{}: {}; синтезов {}", eviction, tts.getCache().getStats(), fake.requests.get());
+        }
+    }
+
+    /**
+     * Частые фразы должны пережить перезапуск: второй экземпляр кэша читает их с диска
+     */
+    private static void restart(Path directory) throws IOException, InterruptedException {
+        log.info("=== Перезапуск ===");
+        FakeSynthesizer fake = new FakeSynthesizer(16000);
+        TtsCache first = new TtsCache(MEMORY_BYTES, Eviction.TINY_LFU, directory, 8 * MEMORY_BYTES);
+        CachingSpeechSynthesizer tts = new CachingSpeechSynthesizer(fake, first, "fake");
+        Workload workload = new Workload(2);
+        for (int i = 0; i < REQUESTS / 10; i++) {
+            tts.synthesize(workload.next(), (samples, offset, length) -> {
+            });
+        }
+        first.close(); // дописать очередь на диск, как при штатном выходе
+        log.info("до перезапуска: {}", first.getStats());
+
+        FakeSynthesizer restarted = new FakeSynthesizer(16000);
+        TtsCache second = new TtsCache(MEMORY_BYTES, Eviction.TINY_LFU, directory, 8 * MEMORY_BYTES);
+        tts = new CachingSpeechSynthesizer(restarted, second, "fake");
+        for (int i = 0; i < 20; i++) {
+            tts.synthesize(Workload.phrase(i), (samples, offset, length) -> {
+            });
+        }
+        log.info("после: {}; синтезов из 20 частых фраз {}", second.getStats(), restarted.requests.get());
+    }
+
+    private static void latency(Path directory) throws Exception {
+        log.info("=== Конец запроса -> первый звук, {} фраз ===", RUNS);
+        short[] recording = DemoAudio.loadWav(DemoAudio.RECORDING);
+        int sampleRate = DemoAudio.sampleRate(DemoAudio.RECORDING);
+        Resampler resampler = new Resampler(sampleRate, TTS_RATE, 1);
+        short[] voice = new short[resampler.maxOutputFrames(recording.length)];
+        voice = Arrays.copyOf(voice, resampler.process(recording, 0, recording.length, voice, 0));
+
+        TtsStandInServer server = new TtsStandInServer(TTS_PORT, voice, TTS_RATE, 150, 1.3, 55);
+        server.start();
+        try {
+            HttpSpeechSynthesizer http = new HttpSpeechSynthesizer(server.url(), "stand-in", "default", sampleRate);
+            TtsCache cache = new TtsCache(MEMORY_BYTES, Eviction.TINY_LFU, directory, 8 * MEMORY_BYTES);
+            CachingSpeechSynthesizer tts = new CachingSpeechSynthesizer(http, cache, "stand-in/default");
+            tts.synthesize("прогрев", (samples, offset, length) -> {
+            });
+
+            long[] miss = firstAudio(tts, RUNS);
+            long[] memoryHit = firstAudio(tts, RUNS);
+            cache.close();
+            tts = new CachingSpeechSynthesizer(http, new TtsCache(MEMORY_BYTES, Eviction.TINY_LFU, directory,
+                    8 * MEMORY_BYTES), "stand-in/default");
+            long[] diskHit = firstAudio(tts, RUNS);
+            report("промах (синтез)", miss);
+            report("попадание в память", memoryHit);
+            report("попадание с диска", diskHit);
+            log.info("Запросов к TTS: {}", server.getRequests());
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static long[] firstAudio(SpeechSynthesizer tts, int runs) throws InterruptedException {
+        long[] micros = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            long start = System.nanoTime();
+            AtomicLong first = new AtomicLong();
+            tts.synthesize(Workload.phrase(i), (samples, offset, length) -> first.compareAndSet(0, System.nanoTime()));
+            micros[i] = (first.get() - start) / 1000;
+        }
+        Arrays.sort(micros);
+        return micros;
+    }
+
+    private static void report(String mode, long[] micros) {
+        log.info("{}: p50 {} µs, max {} µs", mode, micros[micros.length / 2], micros[micros.length - 1]);
+    }
+
+    /**
+     * Постоянные фразы по Ципфу (s = 1) и разовые ответы
+     */
+    private static final class Workload {
+        private final Random random;
+        private final double[] cumulative = new double[PHRASES];
+        private int oneOff;
+
+        Workload(long seed) {
+            random = new Random(seed);
+            double sum = 0;
+            for (int i = 0; i < PHRASES; i++) {
+                sum += 1.0 / (i + 1);
+                cumulative[i] = sum;
+            }
+            for (int i = 0; i < PHRASES; i++) {
+                cumulative[i] /= sum;
+            }
+        }
+
+        String next() {
+            if (random.nextInt(100) < ONE_OFF_PERCENT) {
+                return "Разовый ответ номер " + (oneOff++) + ", больше не повторится.";
+            }
+            int index = Arrays.binarySearch(cumulative, random.nextDouble());
+            return phrase(index < 0 ? -index - 1 : index);
+        }
+
+        static String phrase(int index) {
+            return "Готово, команда номер " + index + " выполнена.";
+        }
+    }
+
+    /**
+     * Мгновенный синтез: тон длиной 55ms на символ
+     */
+    private static final class FakeSynthesizer implements SpeechSynthesizer {
+        private final int sampleRate;
+        private final short[] tone;
+        final AtomicLong requests = new AtomicLong();
+
+        FakeSynthesizer(int sampleRate) {
+            this.sampleRate = sampleRate;
+            this.tone = new short[sampleRate * 10];
+            for (int i = 0; i < tone.length; i++) {
+                tone[i] = (short) (8000 * Math.sin(2 * Math.PI * 220 * i / sampleRate));
+            }
+        }
+
+        @Override
+        public int sampleRate() {
+            return sampleRate;
+        }
+
+        @Override
+        public void synthesize(String text, ChunkSink sink) throws InterruptedException {
+            requests.incrementAndGet();
+            sink.accept(tone, 0, Math.min(tone.length, text.length() * 55 * sampleRate / 1000));
+        }
+    }
+}
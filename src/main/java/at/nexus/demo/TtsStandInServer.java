@@ -0,0 +1,139 @@
+package at.nexus.demo;
+
+import at.nexus.dsp.PcmOps;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Локальная заглушка TTS для демо и замеров.
+ *
+ * Говорит тем же протоколом, что ждёт {@link at.nexus.tts.HttpSpeechSynthesizer}:
+ * на {@code {"input":"..."}} отвечает потоковым WAV (длина в заголовке
+ * неизвестна). "Синтез" - кусок заданной записи длиной
+ * {@code millisPerChar} на символ текста; первые байты через
+ * {@code firstByteMillis}, дальше кусками по 40ms со скоростью
+ * {@code speed} от реального времени.
+ */
+public class TtsStandInServer {
+    private static final Logger log = LoggerFactory.getLogger(TtsStandInServer.class);
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    public static final String PATH = "/v1/audio/speech";
+    private static final int CHUNK_MILLIS = 40;
+
+    private final HttpServer server;
+    private final short[] voice;
+    private final int sampleRate;
+    private final long firstByteMillis;
+    private final double speed;
+    private final int millisPerChar;
+    private final AtomicLong requests = new AtomicLong();
+    // Откуда в записи брать следующий ответ, чтобы ответы звучали по-разному
+    private final AtomicLong cursor = new AtomicLong();
+
+    public TtsStandInServer(int port, short[] voice, int sampleRate, long firstByteMillis, double speed,
+                            int millisPerChar) throws IOException {
+        this.voice = voice;
+        this.sampleRate = sampleRate;
+        this.firstByteMillis = firstByteMillis;
+        this.speed = speed;
+        this.millisPerChar = millisPerChar;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext(PATH, this::handle);
+    }
+
+    public void start() {
+        server.start();
+        log.info("Заглушка TTS слушает {}", url());
+    }
+
+    public void stop() {
+        server.stop(0);
+    }
+
+    public String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + PATH;
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        try (exchange) {
+            String text = mapper.readTree(exchange.getRequestBody()).path("input").asText("");
+            int samples = (int) ((long) text.length() * millisPerChar * sampleRate / 1000);
+            int chunk = sampleRate * CHUNK_MILLIS / 1000;
+            long chunkNanos = (long) (TimeUnit.MILLISECONDS.toNanos(CHUNK_MILLIS) / speed);
+
+            exchange.getResponseHeaders().set("Content-Type", "audio/wav");
+            exchange.sendResponseHeaders(200, 0);
+            OutputStream out = exchange.getResponseBody();
+            TimeUnit.MILLISECONDS.sleep(firstByteMillis);
+            out.write(wavHeader(sampleRate));
+
+            int position = (int) (cursor.getAndAdd(samples) % voice.length);
+            short[] piece = new short[chunk];
+            byte[] bytes = new byte[chunk * 2];
+            long start = System.nanoTime();
+            for (int sent = 0, n = 0; sent < samples; sent += chunk, n++) {
+                int length = Math.min(chunk, samples - sent);
+                for (int i = 0; i < length; i++) {
+                    piece[i] = voice[(position + sent + i) % voice.length];
+                }
+                PcmOps.toBytes(piece, 0, bytes, 0, length);
+                long sleep = start + n * chunkNanos - System.nanoTime();
+                if (sleep > 0) {
+                    TimeUnit.NANOSECONDS.sleep(sleep);
+                }
+                out.write(bytes, 0, length * 2);
+                out.flush();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            log.debug("Заглушка TTS: клиент ушёл ({})", e.toString());
+        }
+    }
+
+    /**
+     * Заголовок потокового WAV: размеры RIFF и data неизвестны (0xFFFFFFFF)
+     */
+    private static byte[] wavHeader(int sampleRate) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes("RIFF".getBytes(StandardCharsets.US_ASCII));
+        writeLe(out, 0xFFFFFFFF, 4);
+        out.writeBytes("WAVEfmt ".getBytes(StandardCharsets.US_ASCII));
+        writeLe(out, 16, 4);
+        writeLe(out, 1, 2);
+        writeLe(out, 1, 2);
+        writeLe(out, sampleRate, 4);
+        writeLe(out, sampleRate * 2, 4);
+        writeLe(out, 2, 2);
+        writeLe(out, 16, 2);
+        out.writeBytes("data".getBytes(StandardCharsets.US_ASCII));
+        writeLe(out, 0xFFFFFFFF, 4);
+        return out.toByteArray();
+    }
+
+    private static void writeLe(ByteArrayOutputStream out, int value, int bytes) {
+        for (int i = 0; i < bytes; i++) {
+            out.write(value >> (8 * i));
+        }
+    }
+}
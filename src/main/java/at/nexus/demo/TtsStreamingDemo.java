@@ -0,0 +1,248 @@
+package at.nexus.demo;
+
+import at.nexus.audio.AudioConfig;
+import at.nexus.audio.AudioOutputManager;
+import at.nexus.audio.JitterBuffer;
+import at.nexus.audio.LatencyProfile;
+import at.nexus.audio.io.ClockMode;
+import at.nexus.audio.io.NullSink;
+import at.nexus.dsp.PcmOps;
+import at.nexus.dsp.Resampler;
+import at.nexus.tts.PlaybackMetrics;
+import at.nexus.tts.StreamDecoder;
+import at.nexus.tts.TtsStreamPlayer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Потоковое воспроизведение ответа TTS, который приходит неровными пачками.
+ *
+ * Первые секунды {@code recording.wav} кодируются как ответ TTS в трёх
+ * форматах: WAV 24kHz с неизвестной длиной, G.711 mu-law 8kHz и сырой
+ * PCM 22.05kHz. Сеть моделируется расписанием, как у синтеза чуть
+ * быстрее реального времени: первые байты через 150ms, куски по 10-150ms
+ * звука с разбросом интервалов +-80% и остановки на 100-300ms в среднем
+ * раз в две секунды. Вывод - {@link NullSink} в темпе реального
+ * устройства, конвейер 16kHz моно.
+ *
+ * Для каждого формата несколько расписаний, каждое играется без запаса
+ * (звук сразу) и через адаптивный jitter-буфер: time-to-first-audio,
+ * недогрузы и паузы. Сначала проверяется, что декодирование кусками
+ * совпадает с декодированием целиком.
+ */
+public class TtsStreamingDemo {
+    private static final Logger log = LoggerFactory.getLogger(TtsStreamingDemo.class);
+
+    private static final int SECONDS = 4;
+    private static final int RUNS = 3;
+    private static final int FIRST_BYTE_MILLIS = 150;
+    // Средняя скорость сети относительно реального времени звука
+    private static final double THROUGHPUT = 1.1;
+    // Остановок сети на секунду звука
+    private static final double STALLS_PER_SECOND = 0.5;
+
+    public static void main(String[] args) throws Exception {
+        short[] recording = DemoAudio.loadWav(DemoAudio.RECORDING);
+        int sampleRate = DemoAudio.sampleRate(DemoAudio.RECORDING);
+        short[] speech = Arrays.copyOf(recording, Math.min(recording.length, sampleRate * SECONDS));
+
+        List<Encoded> streams = List.of(
+                new Encoded("audio/wav", wav(resample(speech, sampleRate, 24000), 24000), 24000 * 2),
+                new Encoded("audio/basic", muLaw(resample(speech, sampleRate, 8000)), 8000),
+                new Encoded("audio/pcm;rate=22050", pcm(resample(speech, sampleRate, 22050)), 22050 * 2));
+
+        log.info("=== Декодирование кусками ===");
+        for (Encoded stream : streams) {
+            checkChunkedDecode(stream);
+        }
+        checkMuLawQuality(speech, sampleRate);
+
+        AudioConfig config = LatencyProfile.LOW.toConfig(sampleRate, 1);
+        AudioOutputManager output = new AudioOutputManager(config, new NullSink(ClockMode.REALTIME));
+        output.initialize();
+        output.startPlayback();
+
+        log.info("=== Воспроизведение: {} с ответа, сеть x{}, первые байты через {} ms ===",
+                SECONDS, THROUGHPUT, FIRST_BYTE_MILLIS);
+        try {
+            for (Encoded stream : streams) {
+                PlaybackMetrics direct = new PlaybackMetrics();
+                PlaybackMetrics buffered = new PlaybackMetrics();
+                for (int run = 0; run < RUNS; run++) {
+                    List<Chunk> schedule = schedule(stream, new Random(run));
+                    play(output, stream, schedule, direct, 0, 0);
+                    play(output, stream, schedule, buffered,
+                            TtsStreamPlayer.MIN_LEAD_MILLIS, TtsStreamPlayer.MAX_LEAD_MILLIS);
+                }
+                report(stream, "без запаса", direct);
+                report(stream, "jitter-буфер", buffered);
+            }
+        } finally {
+            output.close();
+        }
+    }
+
+    private static void play(AudioOutputManager output, Encoded stream, List<Chunk> schedule,
+                             PlaybackMetrics metrics, int minLead, int maxLead) throws InterruptedException {
+        TtsStreamPlayer player = new TtsStreamPlayer(output, StreamDecoder.forContentType(stream.contentType),
+                metrics, minLead, maxLead);
+        long start = System.nanoTime();
+        for (Chunk chunk : schedule) {
+            long sleep = start + TimeUnit.MILLISECONDS.toNanos(chunk.atMillis) - System.nanoTime();
+            if (sleep > 0) {
+                TimeUnit.NANOSECONDS.sleep(sleep);
+            }
+            player.write(stream.bytes, chunk.offset, chunk.length);
+        }
+        player.finish();
+        while (output.isPlaying()) {
+            Thread.sleep(20);
+        }
+        JitterBuffer buffer = player.getJitterBuffer();
+        log.debug("{}: запас в конце {} ms, джиттер {} ms", stream.contentType,
+                buffer.getTargetLeadMillis(), Math.round(buffer.getJitterMillis()));
+    }
+
+    private static void report(Encoded stream, String mode, PlaybackMetrics metrics) {
+        log.info("{} [{}]: first-audio p50 {} ms max {} ms, недогрузов {}, пауз {} ms на {} ms звука",
+                stream.contentType, mode,
+                metrics.getTimeToFirstAudio().percentile(50) / 1_000_000,
+                metrics.getTimeToFirstAudio().getMaxNanos() / 1_000_000,
+                metrics.getUnderruns(), metrics.getRebufferMillis(), metrics.getPlayedMillis());
+    }
+
+    /**
+     * Расписание сети: куски по 10-150ms звука со средней скоростью
+     * THROUGHPUT от реального времени и остановками в среднем
+     * раз в две секунды
+     */
+    private static List<Chunk> schedule(Encoded stream, Random random) {
+        List<Chunk> chunks = new ArrayList<>();
+        double at = FIRST_BYTE_MILLIS;
+        for (int offset = 0; offset < stream.bytes.length; ) {
+            int millis = 10 + random.nextInt(140);
+            int length = Math.min(stream.bytesPerSecond * millis / 1000, stream.bytes.length - offset);
+            chunks.add(new Chunk((long) at, offset, length));
+            offset += length;
+            double audioMillis = length * 1000.0 / stream.bytesPerSecond;
+            at += audioMillis / THROUGHPUT * (0.2 + 1.6 * random.nextDouble());
+            if (random.nextDouble() < STALLS_PER_SECOND * audioMillis / 1000) {
+                at += 100 + random.nextInt(200);
+            }
+        }
+        return chunks;
+    }
+
+    private static void checkChunkedDecode(Encoded stream) {
+        byte[] whole = decode(stream, stream.bytes.length, null);
+        byte[] chunked = decode(stream, 0, new Random(1));
+        log.info("{}: {} байт -> {} байт PCM, кусками по 1-700 байт {}", stream.contentType,
+                stream.bytes.length, whole.length, Arrays.equals(whole, chunked) ? "совпадает" : "НЕ СОВПАДАЕТ");
+    }
+
+    private static byte[] decode(Encoded stream, int chunk, Random random) {
+        StreamDecoder decoder = StreamDecoder.forContentType(stream.contentType);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int offset = 0; offset < stream.bytes.length; ) {
+            int length = Math.min(random != null ? 1 + random.nextInt(700) : chunk, stream.bytes.length - offset);
+            decoder.decode(stream.bytes, offset, length, (buffer, off, len) -> {
+                out.write(buffer, off, len);
+                return len;
+            });
+            offset += length;
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Таблица mu-law против исходного сигнала: у G.711 около 35-38 dB SNR на речи
+     */
+    private static void checkMuLawQuality(short[] speech, int sampleRate) {
+        short[] narrow = resample(speech, sampleRate, 8000);
+        Encoded encoded = new Encoded("audio/basic", muLaw(narrow), 8000);
+        byte[] decoded = decode(encoded, 160, null);
+        double signal = 0;
+        double noise = 0;
+        for (int i = 0; i < narrow.length; i++) {
+            short s = (short) ((decoded[i * 2 + 1] << 8) | (decoded[i * 2] & 0xFF));
+            signal += (double) narrow[i] * narrow[i];
+            noise += (double) (s - narrow[i]) * (s - narrow[i]);
+        }
+        log.info("mu-law: SNR декодирования {} dB", Math.round(10 * Math.log10(signal / noise) * 10) / 10.0);
+    }
+
+    // ========== Кодирование тестовых ответов ==========
+
+    private static short[] resample(short[] in, int from, int to) {
+        Resampler resampler = new Resampler(from, to, 1);
+        short[] out = new short[resampler.maxOutputFrames(in.length)];
+        int n = resampler.process(in, 0, in.length, out, 0);
+        return Arrays.copyOf(out, n);
+    }
+
+    private static byte[] pcm(short[] samples) {
+        byte[] bytes = new byte[samples.length * 2];
+        PcmOps.toBytes(samples, 0, bytes, 0, samples.length);
+        return bytes;
+    }
+
+    /**
+     * WAV как у потоковых TTS: размеры RIFF и data неизвестны (0xFFFFFFFF),
+     * перед данными LIST-чанк
+     */
+    private static byte[] wav(short[] samples, int sampleRate) {
+        byte[] list = "LIST\u0004\u0000\u0000\u0000INFO".getBytes(StandardCharsets.US_ASCII);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes("RIFF".getBytes(StandardCharsets.US_ASCII));
+        writeLe(out, 0xFFFFFFFF, 4);
+        out.writeBytes("WAVEfmt ".getBytes(StandardCharsets.US_ASCII));
+        writeLe(out, 16, 4);
+        writeLe(out, 1, 2);
+        writeLe(out, 1, 2);
+        writeLe(out, sampleRate, 4);
+        writeLe(out, sampleRate * 2, 4);
+        writeLe(out, 2, 2);
+        writeLe(out, 16, 2);
+        out.writeBytes(list);
+        out.writeBytes("data".getBytes(StandardCharsets.US_ASCII));
+        writeLe(out, 0xFFFFFFFF, 4);
+        out.writeBytes(pcm(samples));
+        return out.toByteArray();
+    }
+
+    private static void writeLe(ByteArrayOutputStream out, int value, int bytes) {
+        for (int i = 0; i < bytes; i++) {
+            out.write(value >> (8 * i));
+        }
+    }
+
+    private static byte[] muLaw(short[] samples) {
+        byte[] out = new byte[samples.length];
+        for (int i = 0; i < samples.length; i++) {
+            int s = samples[i];
+            int sign = s < 0 ? 0x80 : 0;
+            s = Math.min(Math.abs(s), 32635) + 0x84;
+            int exponent = 7;
+            for (int mask = 0x4000; (s & mask) == 0 && exponent > 0; mask >>= 1) {
+                exponent--;
+            }
+            int mantissa = (s >> (exponent + 3)) & 0x0F;
+            out[i] = (byte) ~(sign | exponent << 4 | mantissa);
+        }
+        return out;
+    }
+
+    private record Encoded(String contentType, byte[] bytes, int bytesPerSecond) {
+    }
+
+    private record Chunk(long atMillis, int offset, int length) {
+    }
+}
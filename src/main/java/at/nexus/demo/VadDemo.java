@@ -0,0 +1,94 @@
+package at.nexus.demo;
+
+import at.nexus.audio.AudioConfig;
+import at.nexus.vad.VadConfig;
+import at.nexus.vad.VadListener;
+import at.nexus.vad.VadStage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Прогон VAD по {@code recording.wav} с кадрами 10, 20 и 30ms.
+ *
+ * Выводит найденные фразы, долю звука, которая ушла бы в STT,
+ * время обработки кадра и количество аллокаций в цикле обработки.
+ */
+public class VadDemo {
+    private static final Logger log = LoggerFactory.getLogger(VadDemo.class);
+
+    private static final int[] FRAME_MILLIS = {10, 20, 30};
+    private static final int BENCH_PASSES = 50;
+
+    public static void main(String[] args) throws Exception {
+        String path = args.length > 0 ? args[0] : DemoAudio.RECORDING;
+        short[] audio = DemoAudio.loadWav(path);
+        int sampleRate = DemoAudio.sampleRate(path);
+
+        log.info("=== VAD на {} ({} сэмплов, {} ms) ===", path, audio.length, audio.length * 1000L / sampleRate);
+
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        for (int frameMillis : FRAME_MILLIS) {
+            AudioConfig config = new AudioConfig(sampleRate, 1, frameMillis, frameMillis * 2, frameMillis * 3);
+
+            // Прогон с выводом фраз
+            VadStage vad = new VadStage(config, VadConfig.defaults());
+            SegmentLogger segments = new SegmentLogger(sampleRate);
+            vad.addListener(segments);
+            run(vad, audio, config.frameSamples());
+            vad.flush();
+
+            log.info("{}ms кадры: фраз {}, в STT ушло бы {}% звука ({} из {} кадров)",
+                    frameMillis, vad.getSegments(), vad.getSpeechFrames() * 100 / vad.getTotalFrames(),
+                    vad.getSpeechFrames(), vad.getTotalFrames());
+
+            // Замер скорости и аллокаций без логирования
+            VadStage bench = new VadStage(config, VadConfig.defaults());
+            bench.addListener(new VadListener() {
+            });
+            for (int pass = 0; pass < BENCH_PASSES / 5; pass++) {
+                run(bench, audio, config.frameSamples()); // прогрев
+            }
+
+            long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime();
+            for (int pass = 0; pass < BENCH_PASSES; pass++) {
+                run(bench, audio, config.frameSamples());
+            }
+            long elapsed = System.nanoTime() - start;
+            long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+
+            long frames = (long) BENCH_PASSES * (audio.length / config.frameSamples());
+            log.info("{}ms кадры: {} нс/кадр, аллокаций {} байт на {} кадров",
+                    frameMillis, elapsed / frames, allocated, frames);
+        }
+    }
+
+    private static void run(VadStage vad, short[] audio, int frameSamples) {
+        for (int offset = 0; offset + frameSamples <= audio.length; offset += frameSamples) {
+            vad.process(audio, offset, frameSamples);
+        }
+    }
+
+    private static final class SegmentLogger implements VadListener {
+        private final int sampleRate;
+        private long start;
+
+        SegmentLogger(int sampleRate) {
+            this.sampleRate = sampleRate;
+        }
+
+        @Override
+        public void onSpeechStart(long samplePosition) {
+            start = samplePosition;
+        }
+
+        @Override
+        public void onSpeechEnd(long samplePosition) {
+            log.info("  фраза {} - {} ms", start * 1000 / sampleRate, samplePosition * 1000 / sampleRate);
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package at.nexus.demo;
+
+import at.nexus.audio.AudioConfig;
+import at.nexus.audio.LatencyProfile;
+import at.nexus.codec.AudioCodec;
+import at.nexus.codec.CodecConfig;
+import at.nexus.codec.EncoderStage;
+import at.nexus.dsp.ChannelMixer;
+import at.nexus.dsp.Resampler;
+import at.nexus.metrics.LatencyHistogram;
+import at.nexus.server.ServerMetrics;
+import at.nexus.server.ServerMetrics.Stage;
+import at.nexus.server.SessionServices;
+import at.nexus.server.VoiceServer;
+import at.nexus.vad.VadConfig;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.handshake.ServerHandshake;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Нагрузочный прогон {@link VoiceServer}: N клиентов одновременно
+ * проигрывают {@code recording.wav} в реальном времени.
+ *
+ * Каждый клиент шлёт запись кадрами по 20ms, затем 1.5 с тишины
+ * (конец фразы -> ответ заглушек STT/LLM/TTS), {@code rounds} раз.
+ * Каждый четвёртый клиент шлёт 48kHz стерео, чтобы сервер
+ * передискретизировал вход. Для каждого N выводятся:
+ * <ul>
+ *   <li>CPU процесса и оценка CPU сервера (минус потоки клиентов);</li>
+ *   <li>сессий на ядро - N, делённое на ядра сервера;</li>
+ *   <li>p99 по этапам: кадр, отставание от входа, STT, LLM, TTS, ответ;</li>
+ *   <li>трафик звука на сессию в обе стороны.</li>
+ * </ul>
+ * С {@code -Dnexus.codec=opus} клиенты шлют пакеты Opus (закодированы
+ * заранее, кодирование клиента в CPU не входит) и получают ответ в Opus.
+ * Клиенты и сервер в одной JVM, поэтому цифры - оценка сверху по стоимости.
+ * Этап с p99 отставания больше двух кадров или отвалившимися клиентами
+ * помечается как перегрузка; в итоге - наибольшее N без перегрузки.
+ *
+ * Аргументы: {@code [N1,N2,...] [rounds]}, по умолчанию {@code 25,50,100,200 1}.
+ */
+public class VoiceServerLoadDemo {
+    private static final Logger log = LoggerFactory.getLogger(VoiceServerLoadDemo.class);
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final com.sun.management.OperatingSystemMXBean os =
+            (com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+
+    private static final int PORT = 18780;
+    private static final int CHUNK_MILLIS = 20;
+    private static final int TAIL_SILENCE_MILLIS = 1500;
+    // Клиенты подключаются вразброс, а не все в одну миллисекунду
+    private static final int MAX_START_DELAY_MILLIS = 2000;
+    // Отставание обработки больше двух кадров - сервер не успевает
+    private static final long MAX_BACKLOG_NANOS = TimeUnit.MILLISECONDS.toNanos(2 * CHUNK_MILLIS);
+    private static final AudioCodec CODEC = AudioCodec.fromEncoding(
+            System.getProperty("nexus.codec", AudioCodec.PCM.encoding()));
+
+    public static void main(String[] args) throws Exception {
+        int[] steps = args.length > 0
+                ? Arrays.stream(args[0].split(",")).mapToInt(Integer::parseInt).toArray()
+                : new int[]{25, 50, 100, 200};
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+
+        int sampleRate = DemoAudio.sampleRate(DemoAudio.RECORDING);
+        AudioConfig config = LatencyProfile.LOW.toConfig(sampleRate, 1);
+        short[] speech = DemoAudio.loadWav(DemoAudio.RECORDING);
+        if (!CODEC.isAvailable()) {
+            log.error("Кодек {} недоступен", CODEC.encoding());
+            return;
+        }
+        Stream narrow = new Stream(sampleRate, 1, withSilence(speech, config));
+        Stream wide = narrow.convert(48000, 2).encode(CODEC);
+        narrow = narrow.encode(CODEC);
+
+        VoiceServer server = new VoiceServer(new InetSocketAddress("127.0.0.1", PORT), config,
+                VadConfig.defaults(), SessionServices.stubs(sampleRate));
+        server.start();
+        if (!server.awaitStarted(5, TimeUnit.SECONDS)) {
+            log.error("Сервер не запустился");
+            return;
+        }
+
+        log.info("=== Нагрузка: {} ядер, {} раунд(ов) по {} с, звук {} ===",
+                Runtime.getRuntime().availableProcessors(), rounds, narrow.samples.length / sampleRate,
+                CODEC.encoding());
+        try {
+            // Прогрев: пока C2 компилирует, CPU завышен в разы. В отчёт не идёт
+            runStep(server, steps[0], 2, narrow, wide, false);
+            double best = 0;
+            int bestClients = 0;
+            for (int clients : steps) {
+                double perCore = runStep(server, clients, rounds, narrow, wide, true);
+                if (perCore > 0) {
+                    best = perCore;
+                    bestClients = clients;
+                }
+            }
+            if (bestClients > 0) {
+                log.info("Итог: без перегрузки до {} сессий, ~{} сессий на ядро", bestClients, Math.round(best));
+            } else {
+                log.info("Итог: перегрузка уже на {} сессиях", steps[0]);
+            }
+        } finally {
+            server.stop(1000);
+        }
+    }
+
+    /**
+     * @return сессий на ядро сервера или 0, если сервер перегружен
+     */
+    private static double runStep(VoiceServer server, int clients, int rounds, Stream narrow, Stream wide,
+                                  boolean report) throws InterruptedException {
+        ServerMetrics metrics = server.getMetrics();
+        metrics.reset();
+        CountDownLatch finished = new CountDownLatch(clients);
+        CountDownLatch release = new CountDownLatch(1);
+        List<LoadClient> all = new ArrayList<>();
+        List<Thread> senders = new ArrayList<>();
+        Random random = new Random(clients);
+
+        long cpuStart = os.getProcessCpuTime();
+        long wallStart = System.nanoTime();
+        for (int i = 0; i < clients; i++) {
+            LoadClient client = new LoadClient(i % 4 == 3 ? wide : narrow);
+            all.add(client);
+            long delay = random.nextInt(MAX_START_DELAY_MILLIS);
+            senders.add(Thread.ofVirtual().name("load-client-" + i).start(() -> {
+                try {
+                    TimeUnit.MILLISECONDS.sleep(delay);
+                    client.stream(rounds);
+                } catch (Exception e) {
+                    log.warn("Клиент: {}", e.toString());
+                } finally {
+                    finished.countDown();
+                }
+                try {
+                    release.await();
+                } catch (InterruptedException ignored) {
+                }
+                client.close();
+            }));
+        }
+
+        finished.await();
+        long wall = System.nanoTime() - wallStart;
+        long cpu = os.getProcessCpuTime() - cpuStart;
+        long clientCpu = clientThreadsCpu();
+        release.countDown();
+        for (Thread sender : senders) {
+            sender.join();
+        }
+
+        if (!report) {
+            return 0;
+        }
+        double processCores = (double) cpu / wall;
+        double serverCores = (double) Math.max(0, cpu - clientCpu) / wall;
+        long failed = all.stream().filter(c -> !c.completed).count();
+        long audioMillis = all.stream().mapToLong(c -> c.receivedMillis.get()).sum();
+        double perCore = serverCores > 0 ? clients / serverCores : 0;
+        boolean overloaded = failed > 0 || metrics.get(Stage.BACKLOG).percentile(99) > MAX_BACKLOG_NANOS;
+        log.info("N={}: CPU процесса {} ядра, сервера ~{} -> ~{} сессий на ядро; ответов {}, звука клиентам {} с{}{}",
+                clients, round(processCores), round(serverCores), Math.round(perCore),
+                metrics.getReplies(), audioMillis / 1000,
+                failed > 0 ? ", не завершились: " + failed : "",
+                overloaded ? " - ПЕРЕГРУЗКА" : "");
+        double seconds = wall / 1e9;
+        log.info("    трафик звука на сессию: вход {} кбит/с, ответы {} кбит/с (в среднем, с паузами)",
+                round(metrics.getReceivedBytes() * 8 / seconds / clients / 1000),
+                round(metrics.getSentBytes() * 8 / seconds / clients / 1000));
+        log.info("    p99: кадр {} мкс, отставание {} ms, STT {} ms, LLM {} ms, TTS {} ms, ответ {} ms; потеряно {} сэмплов",
+                metrics.get(Stage.FRAME).percentile(99) / 1000,
+                millis(metrics.get(Stage.BACKLOG)), millis(metrics.get(Stage.STT)),
+                millis(metrics.get(Stage.LLM)), millis(metrics.get(Stage.TTS)),
+                millis(metrics.get(Stage.RESPONSE)), metrics.getDroppedSamples());
+        return overloaded ? 0 : perCore;
+    }
+
+    /**
+     * CPU потоков клиентской части Java-WebSocket (чтение и запись сокетов);
+     * у сервера свои потоки WebSocketSelector/WebSocketWorker, а сессии -
+     * виртуальные. Потоки клиентов живут весь этап, так что их время полное
+     */
+    private static long clientThreadsCpu() {
+        var threads = ManagementFactory.getThreadMXBean();
+        long total = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            String name = thread.getName();
+            if (name.startsWith("WebSocketConnectReadThread") || name.startsWith("WebSocketWriteThread")) {
+                total += Math.max(0, threads.getThreadCpuTime(thread.threadId()));
+            }
+        }
+        return total;
+    }
+
+    private static short[] withSilence(short[] speech, AudioConfig config) {
+        return Arrays.copyOf(speech, speech.length + config.samplesForMillis(TAIL_SILENCE_MILLIS));
+    }
+
+    private static long millis(LatencyHistogram histogram) {
+        return TimeUnit.NANOSECONDS.toMillis(histogram.percentile(99));
+    }
+
+    private static double round(double v) {
+        return Math.round(v * 100) / 100.0;
+    }
+
+    /**
+     * Звук клиента в его формате, нарезанный на сообщения по 20ms
+     * (PCM или пакеты кодека), готовые к отправке
+     */
+    private record Stream(int sampleRate, int channels, short[] samples, AudioCodec codec, List<byte[]> chunks) {
+
+        Stream(int sampleRate, int channels, short[] samples) {
+            this(sampleRate, channels, samples, AudioCodec.PCM, toChunks(samples, sampleRate * channels
+                    * CHUNK_MILLIS / 1000));
+        }
+
+        Stream convert(int rate, int outChannels) {
+            Resampler resampler = new Resampler(sampleRate, rate, 1);
+            short[] resampled = new short[resampler.maxOutputFrames(samples.length)];
+            int frames = resampler.process(samples, 0, samples.length, resampled, 0);
+            short[] out = new short[frames * outChannels];
+            ChannelMixer.convert(resampled, 0, 1, out, 0, outChannels, frames);
+            return new Stream(rate, outChannels, out);
+        }
+
+        Stream encode(AudioCodec target) {
+            if (target == AudioCodec.PCM) {
+                return this;
+            }
+            CodecConfig config = CodecConfig.voice(sampleRate, channels);
+            List<byte[]> packets = new ArrayList<>();
+            try (EncoderStage stage = new EncoderStage(target.encoder(config))) {
+                stage.addListener((packet, length, position) -> packets.add(Arrays.copyOf(packet, length)));
+                stage.process(samples, 0, samples.length / config.frameSamples() * config.frameSamples());
+            }
+            return new Stream(sampleRate, channels, samples, target, packets);
+        }
+
+        private static List<byte[]> toChunks(short[] samples, int chunkSamples) {
+            List<byte[]> chunks = new ArrayList<>();
+            for (int offset = 0; offset + chunkSamples <= samples.length; offset += chunkSamples) {
+                ByteBuffer buffer = ByteBuffer.allocate(chunkSamples * 2).order(java.nio.ByteOrder.LITTLE_ENDIAN);
+                buffer.asShortBuffer().put(samples, offset, chunkSamples);
+                chunks.add(buffer.array());
+            }
+            return chunks;
+        }
+    }
+
+    /**
+     * Клиент: шлёт звук в темпе микрофона и считает ответы сервера
+     */
+    private static final class LoadClient extends WebSocketClient {
+        private final Stream stream;
+        private final CountDownLatch ready = new CountDownLatch(1);
+        private final CountDownLatch done = new CountDownLatch(1);
+        private final AtomicLong receivedMillis = new AtomicLong();
+        private volatile boolean completed;
+        private volatile int outputRate;
+        private volatile boolean outputPackets;
+
+        LoadClient(Stream stream) {
+            super(URI.create("ws://127.0.0.1:" + PORT));
+            this.stream = stream;
+            setTcpNoDelay(true);
+        }
+
+        void stream(int rounds) throws InterruptedException {
+            if (!connectBlocking(15, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("нет соединения");
+            }
+            send(mapper.createObjectNode().put("type", "start")
+                    .put("sampleRate", stream.sampleRate).put("channels", stream.channels)
+                    .put("encoding", stream.codec.encoding()).toString());
+            if (!ready.await(5, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("нет ready");
+            }
+
+            long start = System.nanoTime();
+            long sent = 0;
+            for (int round = 0; round < rounds; round++) {
+                for (byte[] chunk : stream.chunks) {
+                    send(chunk);
+                    sent++;
+                    long due = start + TimeUnit.MILLISECONDS.toNanos(sent * CHUNK_MILLIS);
+                    long sleep = due - System.nanoTime();
+                    if (sleep > 0) {
+                        TimeUnit.NANOSECONDS.sleep(sleep);
+                    }
+                }
+            }
+            send("{\"type\":\"end\"}");
+            completed = done.await(10, TimeUnit.SECONDS);
+        }
+
+        @Override
+        public void onOpen(ServerHandshake handshake) {
+        }
+
+        @Override
+        public void onMessage(String message) {
+            try {
+                JsonNode node = mapper.readTree(message);
+                switch (node.path("type").asText()) {
+                    case "ready" -> {
+                        outputRate = node.path("sampleRate").asInt();
+                        outputPackets = !AudioCodec.PCM.encoding().equals(node.path("encoding").asText());
+                        ready.countDown();
+                    }
+                    case "done" -> done.countDown();
+                    default -> {
+                    }
+                }
+            } catch (Exception e) {
+                log.warn("Клиент: ошибка разбора {}", message);
+            }
+        }
+
+        @Override
+        public void onMessage(ByteBuffer bytes) {
+            // Пакет кодека - кадр CodecConfig.voice, PCM - по длине
+            receivedMillis.addAndGet(outputPackets
+                    ? CodecConfig.voice(outputRate, 1).frameMillis()
+                    : bytes.remaining() / 2 * 1000L / outputRate);
+        }
+
+        @Override
+        public void onClose(int code, String reason, boolean remote) {
+            ready.countDown();
+            done.countDown();
+        }
+
+        @Override
+        public void onError(Exception ex) {
+            log.warn("Клиент: {}", ex.toString());
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package at.nexus.demo;
+
+import at.nexus.audio.AudioConfig;
+import at.nexus.audio.LatencyProfile;
+import at.nexus.dsp.FeatureConfig;
+import at.nexus.dsp.Resampler;
+import at.nexus.wakeword.TemplateKeywordModel;
+import at.nexus.wakeword.WakeWordConfig;
+import at.nexus.wakeword.WakeWordListener;
+import at.nexus.wakeword.WakeWordStage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Ключевое слово на постоянном прослушивании: качество и цена.
+ *
+ * Слово - первое слово {@code recording.wav} (1.53-2.08 с). Других
+ * записей нет, поэтому три образца для шаблонов - это слово в темпе
+ * 0.92, 1 и 1.08, а тестовые данные собираются из этой же записи:
+ * <ul>
+ *   <li>положительные - слово с другим темпом (0.9-1.1), громкостью
+ *       (-12..+6 dB) и шумом комнаты (низкочастотный, без шума, 20 и
+ *       10 dB SNR) посреди остальной речи записи; пропуск - нет
+ *       срабатывания рядом с концом слова;</li>
+ *   <li>отрицательные - {@code NEGATIVE_MINUTES} минут остальной речи
+ *       с теми же искажениями без слова; любое срабатывание - ложное.</li>
+ * </ul>
+ * Для нескольких порогов - FR (доля пропусков, и отдельно по уровню
+ * шума) и FA в час; затем CPU на секунду звука и аллокации этапа.
+ */
+public class WakeWordDemo {
+    private static final Logger log = LoggerFactory.getLogger(WakeWordDemo.class);
+
+    private static final int KEYWORD_START_MS = 1530;
+    private static final int KEYWORD_END_MS = 2080;
+    private static final int POSITIVES = 100;
+    private static final int NEGATIVE_MINUTES = 20;
+    // Срабатывание засчитывается, если оно не дальше этого от конца слова
+    private static final int HIT_TOLERANCE_MS = 400;
+    private static final double[] THRESHOLDS = {0.4, 0.45, 0.5, 0.55, 0.6};
+    private static final int[] SNR_DB = {0, 20, 10}; // 0 - без шума
+    private static final double ROOM_POLE = 0.95;
+
+    private static final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) throws Exception {
+        short[] recording = DemoAudio.loadWav(DemoAudio.RECORDING);
+        int sampleRate = DemoAudio.sampleRate(DemoAudio.RECORDING);
+        AudioConfig config = LatencyProfile.LOW.toConfig(sampleRate, 1);
+        FeatureConfig features = FeatureConfig.mfcc(sampleRate);
+
+        short[] keyword = Arrays.copyOfRange(recording,
+                sampleRate * KEYWORD_START_MS / 1000, sampleRate * KEYWORD_END_MS / 1000);
+        // Всё, кроме слова: из этого собираются фон и отрицательные примеры
+        short[] other = concat(Arrays.copyOfRange(recording, 0, sampleRate * KEYWORD_START_MS / 1000 - 800),
+                Arrays.copyOfRange(recording, sampleRate * KEYWORD_END_MS / 1000 + 800, recording.length));
+        // Одна запись вместо трёх произнесений: оригинал и он же чуть медленнее и быстрее
+        List<float[][]> templates = TemplateKeywordModel.enroll(features,
+                List.of(keyword, speed(keyword, sampleRate, 0.92), speed(keyword, sampleRate, 1.08)));
+        log.info("Слово {} ms, шаблон {} кадров MFCC; фон {} ms", keyword.length * 1000L / sampleRate,
+                templates.get(0).length, other.length * 1000L / sampleRate);
+
+        Random random = new Random(17);
+        List<Long> keywordEnds = new ArrayList<>();
+        List<Integer> keywordSnr = new ArrayList<>();
+        short[] positive = positiveStream(keyword, other, sampleRate, random, keywordEnds, keywordSnr);
+        short[] negative = negativeStream(other, sampleRate, random);
+        log.info("Положительный поток: {} слов за {} с; отрицательный: {} мин",
+                POSITIVES, positive.length / sampleRate, negative.length / sampleRate / 60);
+
+        log.info("=== Качество ===");
+        for (double threshold : THRESHOLDS) {
+            WakeWordConfig wakeConfig = WakeWordConfig.defaults().withThreshold(threshold);
+            List<Long> hits = detect(config, features, templates, wakeConfig, positive);
+            int[] missed = new int[SNR_DB.length];
+            int[] total = new int[SNR_DB.length];
+            for (int k = 0; k < keywordEnds.size(); k++) {
+                int condition = keywordSnr.get(k);
+                total[condition]++;
+                if (!found(hits, keywordEnds.get(k), (long) sampleRate * HIT_TOLERANCE_MS / 1000)) {
+                    missed[condition]++;
+                }
+            }
+            int found = POSITIVES - Arrays.stream(missed).sum();
+            List<Long> falseAlarms = detect(config, features, templates, wakeConfig, negative);
+            double hours = negative.length / (double) sampleRate / 3600;
+            log.info("порог {}: FR {}% ({} из {} пропущено), FA {} в час ({} за {} мин)", threshold,
+                    Math.round((POSITIVES - found) * 1000.0 / POSITIVES) / 10.0, POSITIVES - found, POSITIVES,
+                    Math.round(falseAlarms.size() / hours * 10) / 10.0, falseAlarms.size(), NEGATIVE_MINUTES);
+            log.info("    пропуски по шуму: чисто {}/{}, 20 dB {}/{}, 10 dB {}/{}",
+                    missed[0], total[0], missed[1], total[1], missed[2], total[2]);
+        }
+
+        log.info("=== Цена ===");
+        WakeWordStage stage = new WakeWordStage(config, WakeWordConfig.defaults(),
+                new TemplateKeywordModel("keyword", features, templates));
+        run(stage, negative, config.frameSamples()); // прогрев JIT
+        stage.reset();
+        long cpu = threads.getCurrentThreadCpuTime();
+        long allocated = threads.getCurrentThreadAllocatedBytes();
+        run(stage, negative, config.frameSamples());
+        cpu = threads.getCurrentThreadCpuTime() - cpu;
+        allocated = threads.getCurrentThreadAllocatedBytes() - allocated;
+        double seconds = negative.length / (double) sampleRate;
+        log.info("CPU {} мкс на секунду звука ({}% одного ядра), {} кадров признаков, аллокаций {} байт",
+                Math.round(cpu / 1000.0 / seconds), Math.round(cpu / 1e7 / seconds * 100) / 100.0,
+                stage.getFeatureFrames(), allocated);
+    }
+
+    private static List<Long> detect(AudioConfig config, FeatureConfig features, List<float[][]> templates,
+                                     WakeWordConfig wakeConfig, short[] stream) {
+        WakeWordStage stage = new WakeWordStage(config, wakeConfig,
+                new TemplateKeywordModel("keyword", features, templates));
+        List<Long> detections = new ArrayList<>();
+        stage.addListener(new WakeWordListener() {
+            @Override
+            public void onWakeWord(String keyword, double confidence, long samplePosition) {
+                detections.add(samplePosition);
+                stage.closeGate(); // командой здесь никто не занимается
+            }
+        });
+        run(stage, stream, config.frameSamples());
+        return detections;
+    }
+
+    private static boolean found(List<Long> hits, long keywordEnd, long tolerance) {
+        for (long hit : hits) {
+            if (Math.abs(hit - keywordEnd) <= tolerance) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void run(WakeWordStage stage, short[] stream, int frameSamples) {
+        for (int offset = 0; offset + frameSamples <= stream.length; offset += frameSamples) {
+            stage.process(stream, offset, frameSamples);
+        }
+    }
+
+    // ========== Тестовые данные ==========
+
+    private static short[] positiveStream(short[] keyword, short[] other, int sampleRate, Random random,
+                                          List<Long> keywordEnds, List<Integer> keywordSnr) {
+        List<short[]> parts = new ArrayList<>();
+        long length = 0;
+        for (int i = 0; i < POSITIVES; i++) {
+            // Громкость и шум общие для слова и речи перед ним: один говорящий, один микрофон
+            short[] before = speed(snippet(other, sampleRate, 1000, 2000, random), sampleRate, random);
+            short[] word = speed(keyword, sampleRate, random);
+            int condition = random.nextInt(SNR_DB.length);
+            short[] trial = degrade(concat(before, word), SNR_DB[condition], random);
+            parts.add(trial);
+            length += trial.length;
+            keywordEnds.add(length);
+            keywordSnr.add(condition);
+        }
+        parts.add(distort(snippet(other, sampleRate, 1000, 2000, random), sampleRate, random));
+        return concat(parts.toArray(new short[0][]));
+    }
+
+    private static short[] negativeStream(short[] other, int sampleRate, Random random) {
+        List<short[]> parts = new ArrayList<>();
+        long length = 0;
+        while (length < (long) sampleRate * 60 * NEGATIVE_MINUTES) {
+            short[] part = distort(snippet(other, sampleRate, 1000, 4000, random), sampleRate, random);
+            parts.add(part);
+            length += part.length;
+        }
+        return concat(parts.toArray(new short[0][]));
+    }
+
+    private static short[] snippet(short[] source, int sampleRate, int minMillis, int maxMillis, Random random) {
+        int length = sampleRate * (minMillis + random.nextInt(maxMillis - minMillis)) / 1000;
+        int start = random.nextInt(source.length - length);
+        return Arrays.copyOfRange(source, start, start + length);
+    }
+
+    private static short[] distort(short[] in, int sampleRate, Random random) {
+        return degrade(speed(in, sampleRate, random), SNR_DB[random.nextInt(SNR_DB.length)], random);
+    }
+
+    private static short[] speed(short[] in, int sampleRate, Random random) {
+        return speed(in, sampleRate, 0.9 + 0.2 * random.nextDouble());
+    }
+
+    /**
+     * Громкость -12..+6 dB и шум комнаты: белый шум через однополюсный
+     * фильтр нижних частот (основная энергия ниже ~150 Hz)
+     */
+    private static short[] degrade(short[] in, int snr, Random random) {
+        short[] out = in;
+        double gain = Math.pow(10, (-12 + 18 * random.nextDouble()) / 20);
+        double rms = 0;
+        for (short s : out) {
+            rms += (double) s * s;
+        }
+        rms = Math.sqrt(rms / Math.max(1, out.length)) * gain;
+        double noise = snr == 0 ? 0 : rms / Math.pow(10, snr / 20.0) * Math.sqrt(1 - ROOM_POLE * ROOM_POLE);
+        double room = 0;
+        for (int i = 0; i < out.length; i++) {
+            room = ROOM_POLE * room + random.nextGaussian() * noise;
+            double s = out[i] * gain + room;
+            out[i] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Math.round(s)));
+        }
+        return out;
+    }
+
+    /**
+     * Темп вместе с высотой, как ускоренная плёнка. Частота округляется до
+     * 400 Hz, чтобы у ресемплера было немного фаз
+     */
+    private static short[] speed(short[] in, int sampleRate, double speed) {
+        Resampler resampler = new Resampler(sampleRate, (int) Math.round(sampleRate / speed / 400) * 400, 1);
+        short[] out = new short[resampler.maxOutputFrames(in.length)];
+        return Arrays.copyOf(out, resampler.process(in, 0, in.length, out, 0));
+    }
+
+    private static short[] concat(short[]... parts) {
+        int length = 0;
+        for (short[] part : parts) {
+            length += part.length;
+        }
+        short[] out = new short[length];
+        int position = 0;
+        for (short[] part : parts) {
+            System.arraycopy(part, 0, out, position, part.length);
+            position += part.length;
+        }
+        return out;
+    }
+}
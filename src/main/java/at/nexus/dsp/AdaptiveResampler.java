@@ -0,0 +1,196 @@
+package at.nexus.dsp;
+
+import java.util.Arrays;
+
+/**
+ * Передискретизатор с плавно меняющимся отношением частот около 1
+ * для подстройки под расхождение часов двух устройств.
+ *
+ * {@link Resampler} работает с фиксированным рациональным отношением
+ * L/M; здесь же отношение - любое вещественное в пределах
+ * {@link #MAX_DEVIATION} и может меняться хоть каждый кадр
+ * ({@link #setRatio}) без щелчков: позиция выхода во входном потоке
+ * накапливается непрерывно.
+ *
+ * Фильтр - оконный sinc (окно Кайзера) длины {@value #TAPS}, таблица
+ * на {@value #PHASES} дробных позиций с линейной интерполяцией между
+ * соседними. Отношение около 1, наложения спектра почти нет, поэтому
+ * срез - на частоте Найквиста: до 0.9 Найквиста сигнал/шум около 90 dB,
+ * на уровне округления до 16 бит, и звук остаётся прозрачным. Выход тянет потребитель: {@link #inputFramesFor} говорит,
+ * сколько подать на вход, чтобы получить нужное число кадров.
+ * Буферы выделяются в конструкторе, обработка не аллоцирует.
+ * Не потокобезопасен.
+ */
+public class AdaptiveResampler {
+
+    /** Предел отклонения отношения от 1: 1% - на порядки больше расхождения кварцев */
+    public static final double MAX_DEVIATION = 0.01;
+
+    private static final int TAPS = 64;
+    private static final int HALF = TAPS / 2;
+    private static final int PHASES = 256;
+    private static final double KAISER_BETA = 10.0;
+    private static final double ROLLOFF = 1.0;
+
+    // [PHASES + 1][TAPS]: последняя строка - сдвиг на целый сэмпл, для интерполяции
+    private static final float[][] TABLE = design();
+
+    private final int channels;
+    private final int capacity;
+    private final float[][] input;
+    private final float[] coefficients = new float[TAPS];
+    private int buffered;
+    // Момент следующего выходного сэмпла во входных кадрах от начала input
+    private double position;
+    private double ratio = 1;
+
+    /**
+     * @param maxInputFrames сколько кадров максимум подаётся за раз
+     */
+    public AdaptiveResampler(int channels, int maxInputFrames) {
+        if (channels <= 0 || maxInputFrames <= 0) {
+            throw new IllegalArgumentException("Некорректные параметры: " + channels + " канал(ов), "
+                    + maxInputFrames + " кадров");
+        }
+        this.channels = channels;
+        this.capacity = maxInputFrames + TAPS;
+        this.input = new float[channels][capacity];
+        reset();
+    }
+
+    private static float[][] design() {
+        double norm = Resampler.bessel0(KAISER_BETA);
+        float[][] table = new float[PHASES + 1][TAPS];
+        for (int p = 0; p <= PHASES; p++) {
+            double fraction = (double) p / PHASES;
+            double[] phase = new double[TAPS];
+            double sum = 0;
+            for (int k = 0; k < TAPS; k++) {
+                // Расстояние от отвода до момента выхода
+                double x = k - (HALF - 1) - fraction;
+                double sinc = x == 0 ? ROLLOFF : Math.sin(Math.PI * ROLLOFF * x) / (Math.PI * x);
+                double r = x / HALF;
+                phase[k] = sinc * Resampler.bessel0(KAISER_BETA * Math.sqrt(Math.max(0, 1 - r * r))) / norm;
+                sum += phase[k];
+            }
+            // Постоянная составляющая проходит без пульсаций на любой фазе
+            for (int k = 0; k < TAPS; k++) {
+                table[p][k] = (float) (phase[k] / sum);
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Отношение: сколько входных кадров на выходной. Больше 1 - вход
+     * расходуется быстрее, чем приходит выход (очередь убывает).
+     */
+    public void setRatio(double ratio) {
+        if (!(Math.abs(ratio - 1) <= MAX_DEVIATION)) {
+            throw new IllegalArgumentException("Отношение вне пределов 1 +- " + MAX_DEVIATION + ": " + ratio);
+        }
+        this.ratio = ratio;
+    }
+
+    /**
+     * Сколько входных кадров подать, чтобы {@link #process} при текущем
+     * отношении отдал {@code outFrames} кадров
+     */
+    public int inputFramesFor(int outFrames) {
+        if (outFrames <= 0) {
+            return 0;
+        }
+        // Та же арифметика, что в process: округления совпадают
+        double last = position;
+        for (int i = 1; i < outFrames; i++) {
+            last += ratio;
+        }
+        return Math.max(0, (int) last + HALF + 1 - buffered);
+    }
+
+    /**
+     * Подать {@code inFrames} кадров и забрать до {@code maxOutFrames}.
+     * Что не хватило на выход, остаётся до следующего вызова.
+     * @return количество выходных кадров
+     */
+    public int process(short[] in, int inOffset, int inFrames, short[] out, int outOffset, int maxOutFrames) {
+        if (buffered + inFrames > capacity) {
+            throw new IllegalArgumentException("Вход не помещается: " + inFrames + " кадров при "
+                    + buffered + " из " + capacity + " в буфере");
+        }
+        for (int f = 0; f < inFrames; f++) {
+            int base = inOffset + f * channels;
+            for (int c = 0; c < channels; c++) {
+                input[c][buffered + f] = in[base + c];
+            }
+        }
+        buffered += inFrames;
+
+        int produced = 0;
+        int outPos = outOffset;
+        while (produced < maxOutFrames) {
+            int index = (int) position;
+            if (index + HALF >= buffered) {
+                break;
+            }
+            double fraction = (position - index) * PHASES;
+            int phase = (int) fraction;
+            float weight = (float) (fraction - phase);
+            float[] a = TABLE[phase];
+            float[] b = TABLE[phase + 1];
+            for (int k = 0; k < TAPS; k++) {
+                coefficients[k] = a[k] + (b[k] - a[k]) * weight;
+            }
+            int start = index - HALF + 1;
+            for (int c = 0; c < channels; c++) {
+                float[] x = input[c];
+                float acc = 0;
+                for (int k = 0; k < TAPS; k++) {
+                    acc += coefficients[k] * x[start + k];
+                }
+                out[outPos++] = PcmOps.clip(Math.round(acc));
+            }
+            position += ratio;
+            produced++;
+        }
+
+        // Сдвинуть окно: держим только то, что нужно следующему выходу
+        int drop = Math.min(buffered, (int) position - HALF + 1);
+        if (drop > 0) {
+            for (float[] x : input) {
+                System.arraycopy(x, drop, x, 0, buffered - drop);
+            }
+            buffered -= drop;
+            position -= drop;
+        }
+        return produced;
+    }
+
+    /**
+     * Входные кадры, которые ещё не прозвучали (часть задержки очереди)
+     */
+    public double getPendingFrames() {
+        return Math.max(0, buffered - position);
+    }
+
+    public double getRatio() {
+        return ratio;
+    }
+
+    public int getChannels() {
+        return channels;
+    }
+
+    /**
+     * Новый поток: история - тишина, отношение 1
+     */
+    public void reset() {
+        for (float[] x : input) {
+            Arrays.fill(x, 0f);
+        }
+        // Тишина перед первым сэмплом: первый выход - ровно первый вход
+        buffered = HALF - 1;
+        position = HALF - 1;
+        ratio = 1;
+    }
+}
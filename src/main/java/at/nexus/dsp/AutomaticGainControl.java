@@ -0,0 +1,125 @@
+package at.nexus.dsp;
+
+/**
+ * Автоматическая регулировка усиления с ограничителем пиков.
+ *
+ * Уровень - огибающая мощности сигнала: быстро растёт ({@code attackMillis})
+ * и медленно спадает ({@code releaseMillis}), поэтому усиление держится
+ * на громких слогах и не "дышит" между словами. Усиление приводит
+ * огибающую к {@code targetDbfs} в пределах {@code ±maxGainDb}. Усиление
+ * меняется только на речи: уровень выше {@code gateDbfs} и выше фона
+ * больше чем на {@value #SPEECH_OVER_FLOOR_DB} dB. Фон - минимум огибающей,
+ * растущий не быстрее {@code noiseRiseDbPerSecond}. В паузах и на ровном
+ * шуме усиление держится, и фон не подтягивается до уровня речи.
+ * Вверх усиление идёт не быстрее {@value #GAIN_RISE_DB_PER_SECOND} dB/с
+ * (одиночный всплеск шума его не раскачает), вниз - вслед за огибающей.
+ *
+ * Ограничитель срезает усиление мгновенно, если пик после усиления
+ * превысил бы {@code limiterDbfs}, и отпускает за {@value #LIMITER_RELEASE_MILLIS}ms:
+ * громкий голос не клиппирует, как при фиксированном множителе.
+ *
+ * Многоканальный звук (чередующиеся сэмплы) регулируется одним
+ * усилением по самому громкому каналу. Обрабатывает на месте,
+ * не аллоцирует, не потокобезопасен.
+ */
+public class AutomaticGainControl {
+
+    private static final int LIMITER_RELEASE_MILLIS = 50;
+    private static final double SPEECH_OVER_FLOOR_DB = 10;
+    private static final double GAIN_RISE_DB_PER_SECOND = 10;
+    private static final double FULL_SCALE = Short.MAX_VALUE;
+    // Фон не ниже младшего разряда: после цифровой тишины минимум не залипает в нуле
+    private static final double MIN_FLOOR = 1.0;
+
+    private final int channels;
+    private final double attack;
+    private final double release;
+    private final double limiterRelease;
+    private final double targetPower;
+    private final double gatePower;
+    private final double minGain;
+    private final double maxGain;
+    private final double limit;
+    private final double floorRise;
+    private final double speechOverFloor;
+    private final double gainRise;
+
+    private double envelope;
+    private double floor = MIN_FLOOR;
+    private double gain = 1.0;
+    private double limiterGain = 1.0;
+    private long limitedFrames;
+
+    public AutomaticGainControl(int sampleRate, int channels, ConditioningConfig config) {
+        this.channels = channels;
+        this.attack = coefficient(sampleRate, config.attackMillis());
+        this.release = coefficient(sampleRate, config.releaseMillis());
+        this.limiterRelease = coefficient(sampleRate, LIMITER_RELEASE_MILLIS);
+        double target = ConditioningConfig.fromDb(config.targetDbfs()) * FULL_SCALE;
+        this.targetPower = target * target;
+        double gate = ConditioningConfig.fromDb(config.gateDbfs()) * FULL_SCALE;
+        this.gatePower = gate * gate;
+        this.maxGain = ConditioningConfig.fromDb(config.maxGainDb());
+        this.minGain = 1 / maxGain;
+        this.limit = ConditioningConfig.fromDb(config.limiterDbfs()) * FULL_SCALE;
+        this.floorRise = Math.pow(10, config.noiseRiseDbPerSecond() / 10 / sampleRate);
+        this.speechOverFloor = Math.pow(10, SPEECH_OVER_FLOOR_DB / 10);
+        this.gainRise = ConditioningConfig.fromDb(GAIN_RISE_DB_PER_SECOND / sampleRate);
+    }
+
+    private static double coefficient(int sampleRate, int millis) {
+        return 1 - Math.exp(-1000.0 / (millis * (double) sampleRate));
+    }
+
+    /**
+     * Отрегулировать кадр (на месте); {@code length} - сэмплов, кратно числу каналов
+     */
+    public void process(short[] samples, int offset, int length) {
+        for (int frame = offset; frame + channels <= offset + length; frame += channels) {
+            int peak = 0;
+            for (int c = 0; c < channels; c++) {
+                peak = Math.max(peak, Math.abs(samples[frame + c]));
+            }
+            double power = (double) peak * peak;
+            envelope += (power > envelope ? attack : release) * (power - envelope);
+            floor = Math.max(MIN_FLOOR, envelope < floor ? envelope : floor * floorRise);
+            if (envelope > gatePower && envelope > floor * speechOverFloor) {
+                double desired = Math.max(minGain, Math.min(maxGain, Math.sqrt(targetPower / envelope)));
+                gain = Math.min(desired, gain * gainRise);
+            }
+
+            double amplified = peak * gain * limiterGain;
+            if (amplified > limit) {
+                limiterGain = limit / (peak * gain);
+                limitedFrames++;
+            } else {
+                limiterGain += limiterRelease * (1 - limiterGain);
+            }
+            double total = gain * limiterGain;
+            for (int c = 0; c < channels; c++) {
+                samples[frame + c] = PcmOps.clip((int) Math.round(samples[frame + c] * total));
+            }
+        }
+    }
+
+    public void reset() {
+        envelope = 0;
+        floor = MIN_FLOOR;
+        gain = 1.0;
+        limiterGain = 1.0;
+    }
+
+    /**
+     * Текущее усиление без ограничителя, dB
+     */
+    public double getGainDb() {
+        return 20 * Math.log10(gain);
+    }
+
+    /**
+     * Сколько кадров (сэмплов на канал) срезал ограничитель
+     */
+    public long getLimitedFrames() {
+        return limitedFrames;
+    }
+}
@@ -0,0 +1,46 @@
+package at.nexus.dsp;
+
+/**
+ * Смена числа каналов чередующегося 16-bit PCM.
+ *
+ * Стерео -> моно и моно -> стерео идут через векторные ядра {@link PcmOps};
+ * прочие схемы: N -> 1 - среднее по каналам, 1 -> N - копия во все каналы,
+ * N -> K - канал c берётся из входного канала c % N.
+ */
+public final class ChannelMixer {
+
+    private ChannelMixer() {
+    }
+
+    /**
+     * Перевести {@code frames} кадров из {@code inChannels} в {@code outChannels} каналов.
+     * {@code in} и {@code out} не должны перекрываться, если число каналов разное.
+     */
+    public static void convert(short[] in, int inOffset, int inChannels,
+                               short[] out, int outOffset, int outChannels, int frames) {
+        if (inChannels == outChannels) {
+            System.arraycopy(in, inOffset, out, outOffset, frames * inChannels);
+        } else if (inChannels == 2 && outChannels == 1) {
+            PcmOps.downmixStereo(in, inOffset, out, outOffset, frames);
+        } else if (inChannels == 1 && outChannels == 2) {
+            PcmOps.upmixMono(in, inOffset, out, outOffset, frames);
+        } else if (outChannels == 1) {
+            for (int f = 0; f < frames; f++) {
+                int base = inOffset + f * inChannels;
+                int sum = 0;
+                for (int c = 0; c < inChannels; c++) {
+                    sum += in[base + c];
+                }
+                out[outOffset + f] = (short) (sum / inChannels);
+            }
+        } else {
+            for (int f = 0; f < frames; f++) {
+                int src = inOffset + f * inChannels;
+                int dst = outOffset + f * outChannels;
+                for (int c = 0; c < outChannels; c++) {
+                    out[dst + c] = in[src + c % inChannels];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package at.nexus.dsp;
+
+/**
+ * Настройки подготовки звука с микрофона: шумоподавление и АРУ.
+ *
+ * @param noiseSuppression     включить шумоподавление ({@link NoiseSuppressor})
+ * @param maxSuppressionDb     насколько можно ослабить полосу, где только шум
+ * @param noiseRiseDbPerSecond как быстро профиль шума (и фон для АРУ) догоняет
+ *                             выросший шум; медленнее речи, чтобы речь не принималась за шум
+ * @param agc                  включить автоматическую регулировку усиления
+ *                             ({@link AutomaticGainControl})
+ * @param targetDbfs           целевой уровень речи (огибающая мощности, dBFS)
+ * @param maxGainDb            предел усиления тихой речи; ослабление - до того же значения
+ * @param attackMillis         постоянная времени огибающей на рост уровня
+ * @param releaseMillis        постоянная времени огибающей на спад уровня
+ * @param gateDbfs             ниже этого уровня усиление не растёт (паузы, фон)
+ * @param limiterDbfs          потолок пиков после усиления
+ */
+public record ConditioningConfig(boolean noiseSuppression, double maxSuppressionDb, double noiseRiseDbPerSecond,
+                                 boolean agc, double targetDbfs, double maxGainDb,
+                                 int attackMillis, int releaseMillis, double gateDbfs, double limiterDbfs) {
+
+    public ConditioningConfig {
+        if (maxSuppressionDb < 0 || noiseRiseDbPerSecond <= 0 || maxGainDb < 0) {
+            throw new IllegalArgumentException("Недопустимые пределы подготовки звука");
+        }
+        if (attackMillis <= 0 || releaseMillis <= 0) {
+            throw new IllegalArgumentException("Постоянные времени АРУ должны быть положительными");
+        }
+        if (limiterDbfs > 0 || targetDbfs >= limiterDbfs) {
+            throw new IllegalArgumentException("Целевой уровень " + targetDbfs
+                    + " dBFS должен быть ниже потолка " + limiterDbfs + " dBFS");
+        }
+    }
+
+    /**
+     * Значения для речи с микрофона ноутбука или гарнитуры
+     */
+    public static ConditioningConfig defaults() {
+        return new ConditioningConfig(true, 20.0, 5.0, true, -20.0, 24.0, 10, 400, -50.0, -1.0);
+    }
+
+    public ConditioningConfig withoutNoiseSuppression() {
+        return new ConditioningConfig(false, maxSuppressionDb, noiseRiseDbPerSecond, agc, targetDbfs, maxGainDb,
+                attackMillis, releaseMillis, gateDbfs, limiterDbfs);
+    }
+
+    public ConditioningConfig withoutAgc() {
+        return new ConditioningConfig(noiseSuppression, maxSuppressionDb, noiseRiseDbPerSecond, false, targetDbfs,
+                maxGainDb, attackMillis, releaseMillis, gateDbfs, limiterDbfs);
+    }
+
+    static double fromDb(double db) {
+        return Math.pow(10, db / 20);
+    }
+}
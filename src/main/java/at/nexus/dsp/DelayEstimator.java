@@ -0,0 +1,105 @@
+package at.nexus.dsp;
+
+import java.util.Arrays;
+
+/**
+ * Оценка задержки между опорным сигналом (far-end) и микрофоном.
+ *
+ * Взаимная корреляция GCC-PHAT через БПФ: спектр нормируется по модулю,
+ * поэтому пик остаётся острым даже для речи с неравномерным спектром.
+ * Окно анализа и диапазон задержек фиксируются в конструкторе,
+ * буферы выделяются один раз.
+ */
+public class DelayEstimator {
+
+    // Пик ниже этого отношения к среднему - шум, а не эхо
+    private static final double MIN_CONFIDENCE = 8.0;
+
+    private final int window;
+    private final int maxDelay;
+    private final Fft fft;
+    private final double[] farRe;
+    private final double[] farIm;
+    private final double[] nearRe;
+    private final double[] nearIm;
+    private double lastConfidence;
+
+    /**
+     * @param window   сколько сэмплов сравнивать
+     * @param maxDelay максимальная искомая задержка в сэмплах
+     */
+    public DelayEstimator(int window, int maxDelay) {
+        this.window = window;
+        this.maxDelay = maxDelay;
+        int size = Integer.highestOneBit(window + maxDelay - 1) << 1;
+        this.fft = new Fft(size);
+        this.farRe = new double[size];
+        this.farIm = new double[size];
+        this.nearRe = new double[size];
+        this.nearIm = new double[size];
+    }
+
+    /**
+     * Найти задержку, на которую near отстаёт от far.
+     *
+     * @param far  опорный сигнал, {@code window} сэмплов начиная с farOffset
+     * @param near микрофон, {@code window} сэмплов начиная с nearOffset
+     * @return задержка в сэмплах (0..maxDelay) или -1, если пик неуверенный
+     */
+    public int estimate(short[] far, int farOffset, short[] near, int nearOffset) {
+        int size = fft.size();
+        Arrays.fill(farRe, 0.0);
+        Arrays.fill(farIm, 0.0);
+        Arrays.fill(nearRe, 0.0);
+        Arrays.fill(nearIm, 0.0);
+        for (int i = 0; i < window; i++) {
+            farRe[i] = far[farOffset + i];
+            nearRe[i] = near[nearOffset + i];
+        }
+
+        fft.forward(farRe, farIm);
+        fft.forward(nearRe, nearIm);
+
+        // Кросс-спектр near * conj(far) с PHAT-нормировкой
+        for (int k = 0; k < size; k++) {
+            double re = nearRe[k] * farRe[k] + nearIm[k] * farIm[k];
+            double im = nearIm[k] * farRe[k] - nearRe[k] * farIm[k];
+            double mag = Math.hypot(re, im) + 1e-9;
+            nearRe[k] = re / mag;
+            nearIm[k] = im / mag;
+        }
+        fft.inverse(nearRe, nearIm);
+
+        int best = 0;
+        double peak = Double.NEGATIVE_INFINITY;
+        double sum = 0;
+        for (int lag = 0; lag <= maxDelay; lag++) {
+            double v = nearRe[lag];
+            sum += Math.abs(v);
+            if (v > peak) {
+                peak = v;
+                best = lag;
+            }
+        }
+
+        // Уверенность: во сколько раз пик выше среднего уровня корреляции
+        double mean = sum / (maxDelay + 1);
+        lastConfidence = mean > 0 ? peak / mean : 0;
+        return lastConfidence >= MIN_CONFIDENCE ? best : -1;
+    }
+
+    /**
+     * Отношение пика к среднему для последней оценки
+     */
+    public double getLastConfidence() {
+        return lastConfidence;
+    }
+
+    public int getWindow() {
+        return window;
+    }
+
+    public int getMaxDelay() {
+        return maxDelay;
+    }
+}
@@ -0,0 +1,312 @@
+package at.nexus.dsp;
+
+import java.util.Arrays;
+
+/**
+ * Адаптивный эхоподавитель: блочный NLMS в частотной области
+ * с разбиением фильтра на секции (PBFDAF, overlap-save).
+ *
+ * На вход - сигнал микрофона (near-end) и выровненный по времени
+ * сигнал, ушедший в динамики (far-end). Фильтр оценивает путь
+ * динамик -> комната -> микрофон и вычитает предсказанное эхо.
+ *
+ * <ul>
+ *   <li>длина хвоста эха задаётся в сэмплах и делится на секции по размеру блока;</li>
+ *   <li>шаг нормируется на мощность far-end в каждом бине по всей длине хвоста;</li>
+ *   <li>ограничение градиента (обнуление второй половины импульсной
+ *       характеристики) делается для одной секции за блок, по кругу;</li>
+ *   <li>при одновременной речи (детектор Гейгеля) адаптация замораживается,
+ *       чтобы фильтр не "выучил" голос пользователя;</li>
+ *   <li>два фильтра: адаптивный (фоновый) и рабочий, которым считается выход.
+ *       Рабочий получает копию фонового, только когда тот заметно лучше;
+ *       разошедшийся фоновый фильтр откатывается к рабочему. Так пропуски
+ *       детектора одновременной речи не портят выход.</li>
+ * </ul>
+ *
+ * Все буферы выделяются в конструкторе, обработка не аллоцирует.
+ * Не потокобезопасен.
+ */
+public class EchoCanceller {
+
+    private static final double STEP = 0.5;
+    private static final double GEIGEL_THRESHOLD = 0.6;
+    private static final int DOUBLE_TALK_HOLD_BLOCKS = 8;
+    // Сглаживание энергий ошибок двух фильтров (по блокам)
+    private static final double ERROR_SMOOTHING = 0.9;
+    // Фоновый фильтр копируется в рабочий, если его ошибка меньше в это число раз
+    private static final double COPY_RATIO = 0.7;
+    // Фоновый фильтр считается разошедшимся, если его ошибка больше в это число раз
+    private static final double DIVERGENCE_RATIO = 4.0;
+
+    private final int block;
+    private final int fftSize;
+    private final int partitions;
+    private final Fft fft;
+
+    // Спектры последних блоков far-end: X[(newest + p) % P] задержан на p блоков
+    private final double[][] xRe;
+    private final double[][] xIm;
+    private int newest;
+
+    // Коэффициенты по секциям: адаптивный (фоновый) и рабочий фильтры
+    private final double[][] wRe;
+    private final double[][] wIm;
+    private final double[][] fgRe;
+    private final double[][] fgIm;
+
+    private final double[] farWindow; // последние 2 блока far-end
+    private final double[] power; // мощность far-end по всем секциям, по бинам
+    private final double delta;
+
+    private final double[] bufRe;
+    private final double[] bufIm;
+    private final double[] errRe;
+    private final double[] errIm;
+    private final double[] echoRe;
+    private final double[] echoIm;
+    private double backgroundError;
+    private double foregroundError;
+
+    private int constrainIndex;
+    private double farPeak;
+    private final double farPeakDecay;
+    private int doubleTalkHold;
+
+    // Энергия для оценки подавления (ERLE)
+    private double nearEnergy;
+    private double errorEnergy;
+
+    /**
+     * @param block       размер блока обработки (степень двойки)
+     * @param tailSamples длина моделируемого хвоста эха
+     */
+    public EchoCanceller(int block, int tailSamples) {
+        if (Integer.bitCount(block) != 1) {
+            throw new IllegalArgumentException("Размер блока должен быть степенью двойки: " + block);
+        }
+        this.block = block;
+        this.fftSize = block * 2;
+        this.partitions = Math.max(1, (tailSamples + block - 1) / block);
+        this.fft = new Fft(fftSize);
+
+        this.xRe = new double[partitions][fftSize];
+        this.xIm = new double[partitions][fftSize];
+        this.wRe = new double[partitions][fftSize];
+        this.wIm = new double[partitions][fftSize];
+        this.fgRe = new double[partitions][fftSize];
+        this.fgIm = new double[partitions][fftSize];
+        this.farWindow = new double[fftSize];
+        this.power = new double[fftSize];
+        this.bufRe = new double[fftSize];
+        this.bufIm = new double[fftSize];
+        this.errRe = new double[fftSize];
+        this.errIm = new double[fftSize];
+        this.echoRe = new double[fftSize];
+        this.echoIm = new double[fftSize];
+
+        // Регуляризация: порядка мощности тихого фона в бине
+        this.delta = 1e4 * fftSize;
+        // Пик far-end "помнит" громкий звук на длину хвоста (затухание за блок)
+        this.farPeakDecay = Math.pow(0.001, 1.0 / partitions);
+    }
+
+    /**
+     * Подобрать размер блока под длину кадра: наибольшая степень двойки,
+     * на которую делится кадр (но не больше 256), чтобы не добавлять задержку
+     */
+    public static int blockSizeFor(int frameSamples) {
+        int block = Integer.lowestOneBit(frameSamples);
+        return Math.max(1, Math.min(256, block));
+    }
+
+    /**
+     * Обработать кадр; длина должна быть кратна размеру блока.
+     * near и out могут быть одним массивом.
+     */
+    public void process(short[] near, int nearOffset, short[] far, int farOffset,
+                        short[] out, int outOffset, int length) {
+        if (length % block != 0) {
+            throw new IllegalArgumentException("Длина " + length + " не кратна блоку " + block);
+        }
+        for (int b = 0; b < length; b += block) {
+            processBlock(near, nearOffset + b, far, farOffset + b, out, outOffset + b);
+        }
+    }
+
+    private void processBlock(short[] near, int nearOffset, short[] far, int farOffset,
+                              short[] out, int outOffset) {
+        // 1. Окно far-end: сдвигаем на блок и дописываем новый
+        System.arraycopy(farWindow, block, farWindow, 0, block);
+        double blockPeak = 0;
+        for (int i = 0; i < block; i++) {
+            double v = far[farOffset + i];
+            farWindow[block + i] = v;
+            blockPeak = Math.max(blockPeak, Math.abs(v));
+        }
+        farPeak = Math.max(farPeak * farPeakDecay, blockPeak);
+
+        // Новый спектр занимает место самого старого: его мощность
+        // уходит из суммы по хвосту, новая добавляется
+        newest = (newest - 1 + partitions) % partitions;
+        double[] xr = xRe[newest];
+        double[] xi = xIm[newest];
+        for (int k = 0; k < fftSize; k++) {
+            power[k] -= xr[k] * xr[k] + xi[k] * xi[k];
+        }
+        System.arraycopy(farWindow, 0, xr, 0, fftSize);
+        Arrays.fill(xi, 0.0);
+        fft.forward(xr, xi);
+        for (int k = 0; k < fftSize; k++) {
+            power[k] = Math.max(0.0, power[k] + xr[k] * xr[k] + xi[k] * xi[k]);
+        }
+
+        // 2. Оценки эха: сумма по секциям W[p] * X[p] для обоих фильтров
+        estimateEcho(wRe, wIm, bufRe, bufIm);
+        estimateEcho(fgRe, fgIm, echoRe, echoIm);
+
+        // 3. Ошибки = микрофон - эхо (вторая половина overlap-save);
+        //    на выход идёт ошибка рабочего фильтра
+        double nearPeak = 0;
+        double bgEnergy = 0;
+        double fgEnergy = 0;
+        Arrays.fill(errRe, 0, block, 0.0);
+        Arrays.fill(errIm, 0.0);
+        for (int i = 0; i < block; i++) {
+            double d = near[nearOffset + i];
+            double e = d - bufRe[block + i];
+            double y = d - echoRe[block + i];
+            nearPeak = Math.max(nearPeak, Math.abs(d));
+            nearEnergy += d * d;
+            bgEnergy += e * e;
+            fgEnergy += y * y;
+            errRe[block + i] = e;
+            out[outOffset + i] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Math.round(y)));
+        }
+        errorEnergy += fgEnergy;
+        compareFilters(bgEnergy, fgEnergy);
+
+        // 4. Детектор одновременной речи: микрофон громче ожидаемого эха
+        if (nearPeak > GEIGEL_THRESHOLD * farPeak) {
+            doubleTalkHold = DOUBLE_TALK_HOLD_BLOCKS;
+        } else if (doubleTalkHold > 0) {
+            doubleTalkHold--;
+        }
+        if (doubleTalkHold > 0 || farPeak < 1.0) {
+            return;
+        }
+
+        // 5. Обновление: W[p] += mu * conj(X[p]) * E / (мощность по хвосту + delta)
+        fft.forward(errRe, errIm);
+        for (int p = 0; p < partitions; p++) {
+            double[] ar = xRe[(newest + p) % partitions];
+            double[] ai = xIm[(newest + p) % partitions];
+            double[] br = wRe[p];
+            double[] bi = wIm[p];
+            for (int k = 0; k < fftSize; k++) {
+                double norm = STEP / (power[k] + delta);
+                br[k] += norm * (ar[k] * errRe[k] + ai[k] * errIm[k]);
+                bi[k] += norm * (ar[k] * errIm[k] - ai[k] * errRe[k]);
+            }
+        }
+
+        // 6. Ограничение градиента для одной секции
+        constrain(constrainIndex);
+        constrainIndex = (constrainIndex + 1) % partitions;
+    }
+
+    private void estimateEcho(double[][] re, double[][] im, double[] outRe, double[] outIm) {
+        Arrays.fill(outRe, 0.0);
+        Arrays.fill(outIm, 0.0);
+        for (int p = 0; p < partitions; p++) {
+            double[] ar = xRe[(newest + p) % partitions];
+            double[] ai = xIm[(newest + p) % partitions];
+            double[] br = re[p];
+            double[] bi = im[p];
+            for (int k = 0; k < fftSize; k++) {
+                outRe[k] += ar[k] * br[k] - ai[k] * bi[k];
+                outIm[k] += ar[k] * bi[k] + ai[k] * br[k];
+            }
+        }
+        fft.inverse(outRe, outIm);
+    }
+
+    /**
+     * Сравнить фоновый и рабочий фильтры по сглаженной энергии ошибки
+     */
+    private void compareFilters(double bgEnergy, double fgEnergy) {
+        backgroundError = ERROR_SMOOTHING * backgroundError + bgEnergy;
+        foregroundError = ERROR_SMOOTHING * foregroundError + fgEnergy;
+        if (backgroundError < COPY_RATIO * foregroundError) {
+            copy(wRe, wIm, fgRe, fgIm);
+            foregroundError = backgroundError;
+        } else if (backgroundError > DIVERGENCE_RATIO * foregroundError) {
+            copy(fgRe, fgIm, wRe, wIm);
+            backgroundError = foregroundError;
+        }
+    }
+
+    private void copy(double[][] fromRe, double[][] fromIm, double[][] toRe, double[][] toIm) {
+        for (int p = 0; p < partitions; p++) {
+            System.arraycopy(fromRe[p], 0, toRe[p], 0, fftSize);
+            System.arraycopy(fromIm[p], 0, toIm[p], 0, fftSize);
+        }
+    }
+
+    private void constrain(int p) {
+        System.arraycopy(wRe[p], 0, bufRe, 0, fftSize);
+        System.arraycopy(wIm[p], 0, bufIm, 0, fftSize);
+        fft.inverse(bufRe, bufIm);
+        for (int i = block; i < fftSize; i++) {
+            bufRe[i] = 0.0;
+        }
+        Arrays.fill(bufIm, 0.0);
+        fft.forward(bufRe, bufIm);
+        System.arraycopy(bufRe, 0, wRe[p], 0, fftSize);
+        System.arraycopy(bufIm, 0, wIm[p], 0, fftSize);
+    }
+
+    /**
+     * Сбросить фильтр (например, после смены задержки или устройства)
+     */
+    public void reset() {
+        for (int p = 0; p < partitions; p++) {
+            Arrays.fill(wRe[p], 0.0);
+            Arrays.fill(wIm[p], 0.0);
+            Arrays.fill(fgRe[p], 0.0);
+            Arrays.fill(fgIm[p], 0.0);
+            Arrays.fill(xRe[p], 0.0);
+            Arrays.fill(xIm[p], 0.0);
+        }
+        Arrays.fill(farWindow, 0.0);
+        Arrays.fill(power, 0.0);
+        farPeak = 0;
+        doubleTalkHold = 0;
+        backgroundError = 0;
+        foregroundError = 0;
+        resetStatistics();
+    }
+
+    /**
+     * Подавление эха с последнего сброса статистики, dB
+     */
+    public double getErleDb() {
+        return errorEnergy <= 0 ? 0 : 10 * Math.log10(nearEnergy / errorEnergy);
+    }
+
+    public void resetStatistics() {
+        nearEnergy = 0;
+        errorEnergy = 0;
+    }
+
+    public boolean isDoubleTalk() {
+        return doubleTalkHold > 0;
+    }
+
+    public int getBlockSize() {
+        return block;
+    }
+
+    public int getPartitions() {
+        return partitions;
+    }
+}
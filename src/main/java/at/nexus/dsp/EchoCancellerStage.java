@@ -0,0 +1,197 @@
+package at.nexus.dsp;
+
+import at.nexus.audio.AudioConfig;
+import at.nexus.audio.PcmRingBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Этап эхоподавления в потоке захвата.
+ *
+ * Опорный сигнал берётся из кольцевого буфера, в который
+ * {@link at.nexus.audio.AudioOutputManager} пишет всё, что ушло
+ * в динамики (см. {@code setEchoReference}). На каждый кадр микрофона
+ * из него забирается столько же сэмплов, а выравнивание по времени
+ * делается в два уровня:
+ * <ul>
+ *   <li>грубая задержка (буферы линий, акустика) оценивается GCC-PHAT
+ *       примерно раз в секунду и применяется через линию задержки,
+ *       с запасом в четверть хвоста и гистерезисом;</li>
+ *   <li>остаток и форму эха моделирует адаптивный фильтр.</li>
+ * </ul>
+ * Если опорных данных накопилось больше пары кадров (поток захвата
+ * отставал), лишнее выкидывается, а следующая оценка задержки
+ * подстраивает выравнивание.
+ *
+ * Кадр обрабатывается на месте. Не аллоцирует, не потокобезопасен.
+ */
+public class EchoCancellerStage {
+    private static final Logger log = LoggerFactory.getLogger(EchoCancellerStage.class);
+
+    private static final int ESTIMATION_MILLIS = 1000;
+    // Минимальная энергия far-end (на сэмпл) для оценки задержки
+    private static final double MIN_FAR_POWER = 100.0 * 100.0;
+
+    private final PcmRingBuffer reference;
+    private final EchoCanceller canceller;
+    private final DelayEstimator estimator;
+    private final int frameSamples;
+    private final int delayMargin;
+
+    // Линия задержки опорного сигнала
+    private final short[] farHistory;
+    private final int historyMask;
+    private long farWritten;
+    private final short[] farFrame;
+    private final short[] farAligned;
+
+    // Накопление для оценки задержки (сырые, невыровненные сигналы)
+    private final short[] estimationFar;
+    private final short[] estimationNear;
+    private int estimationFilled;
+
+    private volatile int delaySamples;
+    private long frames;
+    private long totalNanos;
+    private long skippedReference;
+
+    /**
+     * @param reference      буфер опорного сигнала от AudioOutputManager
+     * @param tailMillis     длина хвоста эха для адаптивного фильтра
+     * @param maxDelayMillis максимальная грубая задержка динамик -> микрофон
+     */
+    public EchoCancellerStage(AudioConfig config, PcmRingBuffer reference, int tailMillis, int maxDelayMillis) {
+        this.reference = reference;
+        this.frameSamples = config.frameSamples();
+        int block = EchoCanceller.blockSizeFor(frameSamples);
+        this.canceller = new EchoCanceller(block, config.samplesForMillis(tailMillis));
+        this.delayMargin = config.samplesForMillis(tailMillis) / 4;
+
+        int maxDelay = config.samplesForMillis(maxDelayMillis);
+        int window = Math.max(config.samplesForMillis(ESTIMATION_MILLIS), maxDelay * 2);
+        this.estimator = new DelayEstimator(window, maxDelay);
+        this.estimationFar = new short[window];
+        this.estimationNear = new short[window];
+
+        int historySize = Integer.highestOneBit(maxDelay + frameSamples * 2) << 1;
+        this.farHistory = new short[historySize];
+        this.historyMask = historySize - 1;
+        this.farFrame = new short[frameSamples];
+        this.farAligned = new short[frameSamples];
+
+        log.info("AEC: блок {} сэмплов, {} секций ({} ms хвоста), задержка до {} ms",
+                block, canceller.getPartitions(), tailMillis, maxDelayMillis);
+    }
+
+    /**
+     * Подавить эхо в кадре микрофона (на месте)
+     */
+    public void process(short[] frame, int offset, int length) {
+        long start = System.nanoTime();
+
+        // 1. Забираем опорный сигнал на длину кадра, недостающее - тишина
+        int got = reference.read(farFrame, 0, length);
+        for (int i = got; i < length; i++) {
+            farFrame[i] = 0;
+        }
+        int backlog = reference.available() - frameSamples * 2;
+        if (backlog > 0) {
+            skipReference(backlog);
+        }
+
+        for (int i = 0; i < length; i++) {
+            farHistory[(int) ((farWritten + i) & historyMask)] = farFrame[i];
+        }
+        farWritten += length;
+
+        // 2. Накопление для оценки грубой задержки (до подавления)
+        collectForEstimation(frame, offset, length);
+
+        // 3. Выровненный опорный сигнал и адаптивный фильтр
+        long alignedStart = farWritten - length - delaySamples;
+        for (int i = 0; i < length; i++) {
+            farAligned[i] = farHistory[(int) ((alignedStart + i) & historyMask)];
+        }
+        canceller.process(frame, offset, farAligned, 0, frame, offset, length);
+
+        totalNanos += System.nanoTime() - start;
+        frames++;
+    }
+
+    private void skipReference(int samples) {
+        while (samples > 0) {
+            int n = reference.read(farAligned, 0, Math.min(samples, farAligned.length));
+            if (n <= 0) {
+                break;
+            }
+            samples -= n;
+            skippedReference += n;
+        }
+    }
+
+    private void collectForEstimation(short[] frame, int offset, int length) {
+        int n = Math.min(length, estimationNear.length - estimationFilled);
+        System.arraycopy(frame, offset, estimationNear, estimationFilled, n);
+        System.arraycopy(farFrame, 0, estimationFar, estimationFilled, n);
+        estimationFilled += n;
+        if (estimationFilled < estimationNear.length) {
+            return;
+        }
+        estimationFilled = 0;
+
+        double farPower = 0;
+        for (short s : estimationFar) {
+            farPower += (double) s * s;
+        }
+        if (farPower / estimationFar.length < MIN_FAR_POWER) {
+            return; // динамики молчат - оценивать нечего
+        }
+
+        int estimated = estimator.estimate(estimationFar, 0, estimationNear, 0);
+        if (estimated < 0) {
+            return;
+        }
+        // Пик GCC-PHAT "гуляет" по разбросу импульсной характеристики,
+        // поэтому задержку берём с запасом внутрь хвоста и меняем её
+        // только при заметном сдвиге - каждая смена сбрасывает фильтр
+        int target = Math.max(0, estimated - delayMargin);
+        if (Math.abs(target - delaySamples) > delayMargin) {
+            log.info("AEC: задержка эха {} -> {} сэмплов (пик {}, уверенность {})",
+                    delaySamples, target, estimated, Math.round(estimator.getLastConfidence()));
+            delaySamples = target;
+            canceller.reset();
+        }
+    }
+
+    /**
+     * Текущая оценка грубой задержки в сэмплах
+     */
+    public int getDelaySamples() {
+        return delaySamples;
+    }
+
+    /**
+     * Задать начальную задержку (если она известна заранее)
+     */
+    public void setDelaySamples(int delaySamples) {
+        this.delaySamples = Math.max(0, Math.min(delaySamples, estimator.getMaxDelay()));
+    }
+
+    public EchoCanceller getCanceller() {
+        return canceller;
+    }
+
+    /**
+     * Среднее время обработки кадра, нс
+     */
+    public long getAverageFrameNanos() {
+        return frames == 0 ? 0 : totalNanos / frames;
+    }
+
+    /**
+     * Сколько опорных сэмплов выкинуто для догона
+     */
+    public long getSkippedReference() {
+        return skippedReference;
+    }
+}
@@ -0,0 +1,61 @@
+package at.nexus.dsp;
+
+/**
+ * Параметры признаков {@link MelSpectrogram}.
+ *
+ * @param sampleRate       частота входного звука
+ * @param windowMillis     окно анализа (обычно 25ms)
+ * @param hopMillis        шаг между окнами - один вектор признаков на шаг
+ * @param melBands         полос mel-фильтров
+ * @param mfccCoefficients коэффициентов MFCC; 0 - на выходе log-mel как есть
+ * @param minHz            нижняя граница mel-фильтров
+ * @param maxHz            верхняя граница mel-фильтров (не выше половины частоты)
+ * @param dynamicRangeDb   пол энергий полос ниже самой громкой полосы кадра; 0 - без пола
+ */
+public record FeatureConfig(int sampleRate, int windowMillis, int hopMillis, int melBands,
+                            int mfccCoefficients, double minHz, double maxHz, double dynamicRangeDb) {
+
+    public FeatureConfig {
+        if (hopMillis <= 0 || windowMillis < hopMillis) {
+            throw new IllegalArgumentException("Нужно 0 < hop <= window: " + hopMillis + "/" + windowMillis);
+        }
+        if (dynamicRangeDb < 0) {
+            throw new IllegalArgumentException("Динамический диапазон не может быть отрицательным: " + dynamicRangeDb);
+        }
+        if (mfccCoefficients > melBands || maxHz > sampleRate / 2.0 || minHz >= maxHz) {
+            throw new IllegalArgumentException("Недопустимые полосы: " + melBands + " mel, "
+                    + mfccCoefficients + " MFCC, " + minHz + "-" + maxHz + " Hz");
+        }
+    }
+
+    /**
+     * Стандарт для распознавания речи: окно 25ms, шаг 10ms, 40 полос, 13 MFCC,
+     * полосы тише самой громкой больше чем на 25 dB - на полу
+     */
+    public static FeatureConfig mfcc(int sampleRate) {
+        return new FeatureConfig(sampleRate, 25, 10, 40, 13, 20, Math.min(7600, sampleRate / 2.0), 25);
+    }
+
+    /**
+     * Те же окна, но на выходе 40 log-mel энергий без пола - как их
+     * обычно видят нейросетевые модели при обучении
+     */
+    public static FeatureConfig logMel(int sampleRate) {
+        return new FeatureConfig(sampleRate, 25, 10, 40, 0, 20, Math.min(7600, sampleRate / 2.0), 0);
+    }
+
+    /**
+     * Размер вектора признаков
+     */
+    public int dimensions() {
+        return mfccCoefficients > 0 ? mfccCoefficients : melBands;
+    }
+
+    public int windowSamples() {
+        return sampleRate * windowMillis / 1000;
+    }
+
+    public int hopSamples() {
+        return sampleRate * hopMillis / 1000;
+    }
+}
@@ -0,0 +1,76 @@
+package at.nexus.dsp;
+
+/**
+ * Последние векторы признаков {@link MelSpectrogram}, кольцом.
+ *
+ * Каждый вектор считается один раз; модель, которой нужен контекст
+ * в N кадров, читает его отсюда, а не пересчитывает перекрывающиеся окна.
+ * Возраст 0 - самый новый кадр. Массивы строк переиспользуются:
+ * их нельзя хранить после следующего {@link MelSpectrogram#process}.
+ */
+public final class FeatureHistory {
+
+    private final float[][] frames;
+    private final int dimensions;
+    private int newest = -1;
+    private int size;
+    private long count;
+
+    FeatureHistory(int capacity, int dimensions) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Недопустимая глубина истории: " + capacity);
+        }
+        this.frames = new float[capacity][dimensions];
+        this.dimensions = dimensions;
+    }
+
+    /**
+     * Строка под следующий кадр (становится новейшей после {@link #commit()})
+     */
+    float[] next() {
+        return frames[(newest + 1) % frames.length];
+    }
+
+    void commit() {
+        newest = (newest + 1) % frames.length;
+        size = Math.min(size + 1, frames.length);
+        count++;
+    }
+
+    void clear() {
+        newest = -1;
+        size = 0;
+    }
+
+    /**
+     * Кадр возраста {@code age} (0 - новейший, не больше {@link #size()} - 1)
+     */
+    public float[] get(int age) {
+        if (age < 0 || age >= size) {
+            throw new IndexOutOfBoundsException("Возраст " + age + " при " + size + " кадрах");
+        }
+        return frames[(newest - age + frames.length) % frames.length];
+    }
+
+    /**
+     * Сколько кадров сейчас доступно
+     */
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return frames.length;
+    }
+
+    public int dimensions() {
+        return dimensions;
+    }
+
+    /**
+     * Всего кадров посчитано с создания
+     */
+    public long count() {
+        return count;
+    }
+}
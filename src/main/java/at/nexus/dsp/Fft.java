@@ -0,0 +1,93 @@
+package at.nexus.dsp;
+
+/**
+ * Комплексное БПФ по основанию 2, на месте.
+ *
+ * Таблицы поворотных множителей и перестановки считаются в конструкторе,
+ * сами преобразования не аллоцируют. Экземпляр не хранит состояние
+ * между вызовами, но таблицы общие - можно использовать из разных потоков.
+ */
+public final class Fft {
+
+    private final int size;
+    private final int[] bitReverse;
+    private final double[] cos;
+    private final double[] sin;
+
+    public Fft(int size) {
+        if (size < 2 || Integer.bitCount(size) != 1) {
+            throw new IllegalArgumentException("Размер БПФ должен быть степенью двойки: " + size);
+        }
+        this.size = size;
+        this.bitReverse = new int[size];
+        this.cos = new double[size / 2];
+        this.sin = new double[size / 2];
+
+        int bits = Integer.numberOfTrailingZeros(size);
+        for (int i = 0; i < size; i++) {
+            bitReverse[i] = Integer.reverse(i) >>> (32 - bits);
+        }
+        for (int i = 0; i < size / 2; i++) {
+            double angle = -2.0 * Math.PI * i / size;
+            cos[i] = Math.cos(angle);
+            sin[i] = Math.sin(angle);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Прямое преобразование
+     */
+    public void forward(double[] re, double[] im) {
+        transform(re, im, false);
+    }
+
+    /**
+     * Обратное преобразование (с нормировкой 1/N)
+     */
+    public void inverse(double[] re, double[] im) {
+        transform(re, im, true);
+        double scale = 1.0 / size;
+        for (int i = 0; i < size; i++) {
+            re[i] *= scale;
+            im[i] *= scale;
+        }
+    }
+
+    private void transform(double[] re, double[] im, boolean inverse) {
+        for (int i = 0; i < size; i++) {
+            int j = bitReverse[i];
+            if (j > i) {
+                double t = re[i];
+                re[i] = re[j];
+                re[j] = t;
+                t = im[i];
+                im[i] = im[j];
+                im[j] = t;
+            }
+        }
+
+        double sign = inverse ? -1.0 : 1.0;
+        for (int len = 2; len <= size; len <<= 1) {
+            int half = len >> 1;
+            int step = size / len;
+            for (int start = 0; start < size; start += len) {
+                for (int k = 0; k < half; k++) {
+                    double wr = cos[k * step];
+                    double wi = sign * sin[k * step];
+                    int a = start + k;
+                    int b = a + half;
+                    double xr = re[b] * wr - im[b] * wi;
+                    double xi = re[b] * wi + im[b] * wr;
+                    re[b] = re[a] - xr;
+                    im[b] = im[a] - xi;
+                    re[a] += xr;
+                    im[a] += xi;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package at.nexus.dsp;
+
+import at.nexus.audio.AudioConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Подготовка звука с микрофона перед VAD и распознаванием:
+ * шумоподавление, затем АРУ.
+ *
+ * Порядок важен: АРУ после шумоподавления не поднимает фон вместе
+ * с тихой речью. Ставится после эхоподавления - оба этапа
+ * нелинейные, и адаптивному фильтру AEC нужен исходный сигнал.
+ * Кадр обрабатывается на месте. Не аллоцирует, не потокобезопасен.
+ */
+public class InputConditioningStage {
+    private static final Logger log = LoggerFactory.getLogger(InputConditioningStage.class);
+
+    private final NoiseSuppressor suppressor;
+    private final AutomaticGainControl agc;
+    private long frames;
+    private long totalNanos;
+
+    public InputConditioningStage(AudioConfig config, ConditioningConfig conditioning) {
+        if (config.channels() != 1) {
+            throw new IllegalArgumentException("Подготовка звука ждёт моно, а не " + config.channels() + " канала(ов)");
+        }
+        this.suppressor = conditioning.noiseSuppression() ? new NoiseSuppressor(config.sampleRate(), conditioning) : null;
+        this.agc = conditioning.agc() ? new AutomaticGainControl(config.sampleRate(), 1, conditioning) : null;
+        log.info("Подготовка звука: шумоподавление {}, АРУ {}",
+                suppressor != null ? "до " + conditioning.maxSuppressionDb() + " dB, задержка "
+                        + suppressor.getLatencySamples() * 1000 / config.sampleRate() + " ms" : "выкл",
+                agc != null ? "к " + conditioning.targetDbfs() + " dBFS ±" + conditioning.maxGainDb() + " dB" : "выкл");
+    }
+
+    public void process(short[] frame, int offset, int length) {
+        long start = System.nanoTime();
+        if (suppressor != null) {
+            suppressor.process(frame, offset, length);
+        }
+        if (agc != null) {
+            agc.process(frame, offset, length);
+        }
+        totalNanos += System.nanoTime() - start;
+        frames++;
+    }
+
+    public void reset() {
+        if (suppressor != null) {
+            suppressor.reset();
+        }
+        if (agc != null) {
+            agc.reset();
+        }
+    }
+
+    /**
+     * @return null, если шумоподавление выключено
+     */
+    public NoiseSuppressor getNoiseSuppressor() {
+        return suppressor;
+    }
+
+    /**
+     * @return null, если АРУ выключена
+     */
+    public AutomaticGainControl getAgc() {
+        return agc;
+    }
+
+    /**
+     * Среднее время обработки кадра, нс
+     */
+    public long getAverageFrameNanos() {
+        return frames == 0 ? 0 : totalNanos / frames;
+    }
+}
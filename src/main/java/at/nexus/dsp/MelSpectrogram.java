@@ -0,0 +1,196 @@
+package at.nexus.dsp;
+
+import java.util.Arrays;
+
+/**
+ * Потоковые признаки речи: log-mel энергии или MFCC.
+ *
+ * Звук подаётся кусками любой длины; как только набирается очередной
+ * шаг ({@code hopMillis}), считается одно окно: предыскажение,
+ * окно Хэмминга, {@link Fft}, mel-фильтры, логарифм и при необходимости
+ * DCT-II. Перекрывающиеся части окон не пересчитываются - результат
+ * ложится в {@link FeatureHistory}, откуда модель берёт контекст.
+ *
+ * С {@code dynamicRangeDb > 0} энергии полос ограничены снизу уровнем
+ * на столько ниже самой громкой полосы кадра: слабые полосы и шум под
+ * речью становятся одним "полом", и признаки почти не зависят от
+ * громкости и умеренного фонового шума.
+ *
+ * Фильтры, окно и матрица DCT считаются в конструкторе, обработка
+ * не аллоцирует. Не потокобезопасен.
+ */
+public class MelSpectrogram {
+
+    private static final double PRE_EMPHASIS = 0.97;
+    private static final double LOG_FLOOR = 1e-10;
+
+    private final FeatureConfig config;
+    private final int windowSamples;
+    private final int hopSamples;
+    private final Fft fft;
+    private final double[] window;
+    private final double[] re;
+    private final double[] im;
+
+    // Треугольные фильтры: первый бин и веса каждой полосы
+    private final int[] filterStart;
+    private final double[][] filterWeights;
+    private final double[] melEnergies;
+    private final double dynamicRange;
+    private final double[][] dct;
+
+    private final double[] pending; // окно, которое набирается
+    private int filled;
+    private double lastSample;
+    private final FeatureHistory history;
+
+    /**
+     * @param historyFrames сколько последних кадров признаков хранить
+     */
+    public MelSpectrogram(FeatureConfig config, int historyFrames) {
+        this.config = config;
+        this.windowSamples = config.windowSamples();
+        this.hopSamples = config.hopSamples();
+        int size = Integer.highestOneBit(windowSamples - 1) << 1;
+        this.fft = new Fft(size);
+        this.re = new double[size];
+        this.im = new double[size];
+        this.window = new double[windowSamples];
+        for (int i = 0; i < windowSamples; i++) {
+            window[i] = 0.54 - 0.46 * Math.cos(2 * Math.PI * i / (windowSamples - 1));
+        }
+        this.pending = new double[windowSamples];
+
+        int bands = config.melBands();
+        this.filterStart = new int[bands];
+        this.filterWeights = new double[bands][];
+        this.melEnergies = new double[bands];
+        this.dynamicRange = config.dynamicRangeDb() > 0 ? Math.pow(10, -config.dynamicRangeDb() / 10) : 0;
+        buildFilters(size);
+
+        int coefficients = config.mfccCoefficients();
+        this.dct = new double[coefficients][bands];
+        for (int k = 0; k < coefficients; k++) {
+            double scale = Math.sqrt((k == 0 ? 1.0 : 2.0) / bands);
+            for (int b = 0; b < bands; b++) {
+                dct[k][b] = scale * Math.cos(Math.PI * k * (b + 0.5) / bands);
+            }
+        }
+        this.history = new FeatureHistory(historyFrames, config.dimensions());
+    }
+
+    private void buildFilters(int fftSize) {
+        int bands = config.melBands();
+        double minMel = toMel(config.minHz());
+        double maxMel = toMel(config.maxHz());
+        double binHz = (double) config.sampleRate() / fftSize;
+        double[] edges = new double[bands + 2];
+        for (int i = 0; i < edges.length; i++) {
+            edges[i] = fromMel(minMel + (maxMel - minMel) * i / (bands + 1));
+        }
+        for (int b = 0; b < bands; b++) {
+            double left = edges[b];
+            double center = edges[b + 1];
+            double right = edges[b + 2];
+            int first = (int) Math.ceil(left / binHz);
+            int last = Math.min(fftSize / 2, (int) Math.floor(right / binHz));
+            double[] weights = new double[Math.max(0, last - first + 1)];
+            for (int bin = first; bin <= last; bin++) {
+                double hz = bin * binHz;
+                weights[bin - first] = hz <= center
+                        ? (hz - left) / (center - left)
+                        : (right - hz) / (right - center);
+            }
+            filterStart[b] = first;
+            filterWeights[b] = weights;
+        }
+    }
+
+    private static double toMel(double hz) {
+        return 2595 * Math.log10(1 + hz / 700);
+    }
+
+    private static double fromMel(double mel) {
+        return 700 * (Math.pow(10, mel / 2595) - 1);
+    }
+
+    /**
+     * Добавить звук
+     * @return сколько новых кадров признаков появилось в {@link #history()}
+     */
+    public int process(short[] samples, int offset, int length) {
+        int produced = 0;
+        for (int i = offset; i < offset + length; i++) {
+            double s = samples[i] / 32768.0;
+            pending[filled++] = s - PRE_EMPHASIS * lastSample;
+            lastSample = s;
+            if (filled == windowSamples) {
+                computeFrame(history.next());
+                history.commit();
+                produced++;
+                // Сдвигаем окно на шаг: перекрытие остаётся, пересчитывать его не нужно
+                System.arraycopy(pending, hopSamples, pending, 0, windowSamples - hopSamples);
+                filled -= hopSamples;
+            }
+        }
+        return produced;
+    }
+
+    private void computeFrame(float[] out) {
+        for (int i = 0; i < windowSamples; i++) {
+            re[i] = pending[i] * window[i];
+        }
+        Arrays.fill(re, windowSamples, re.length, 0.0);
+        Arrays.fill(im, 0.0);
+        fft.forward(re, im);
+
+        double frameMax = 0;
+        for (int b = 0; b < melEnergies.length; b++) {
+            double[] weights = filterWeights[b];
+            int first = filterStart[b];
+            double energy = 0;
+            for (int k = 0; k < weights.length; k++) {
+                int bin = first + k;
+                energy += weights[k] * (re[bin] * re[bin] + im[bin] * im[bin]);
+            }
+            melEnergies[b] = energy;
+            frameMax = Math.max(frameMax, energy);
+        }
+        double floor = Math.max(LOG_FLOOR, frameMax * dynamicRange);
+        for (int b = 0; b < melEnergies.length; b++) {
+            melEnergies[b] = Math.log(Math.max(melEnergies[b], floor));
+        }
+
+        if (dct.length == 0) {
+            for (int b = 0; b < melEnergies.length; b++) {
+                out[b] = (float) melEnergies[b];
+            }
+            return;
+        }
+        for (int k = 0; k < dct.length; k++) {
+            double sum = 0;
+            double[] row = dct[k];
+            for (int b = 0; b < melEnergies.length; b++) {
+                sum += row[b] * melEnergies[b];
+            }
+            out[k] = (float) sum;
+        }
+    }
+
+    /**
+     * Начать заново (новый поток): недобранное окно и история выкидываются
+     */
+    public void reset() {
+        filled = 0;
+        lastSample = 0;
+        history.clear();
+    }
+
+    public FeatureHistory history() {
+        return history;
+    }
+
+    public FeatureConfig getConfig() {
+        return config;
+    }
+}
@@ -0,0 +1,78 @@
+package at.nexus.dsp;
+
+/**
+ * Набор ядер обработки 16-bit PCM. Реализации: скалярная (эталон)
+ * и векторная на {@code jdk.incubator.vector}; результаты совпадают
+ * побитово, кроме {@link #rms} (точность float).
+ *
+ * Обычный код вызывает статические методы {@link PcmOps}, которые
+ * выбирают реализацию один раз при загрузке.
+ */
+public interface PcmKernels {
+
+    /** Масштаб short -> float: полная шкала в [-1, 1) */
+    float FLOAT_SCALE = 1.0f / 32768.0f;
+
+    /**
+     * Байты little-endian -> сэмплы
+     */
+    void toShorts(byte[] src, int srcOffset, short[] dst, int dstOffset, int samples);
+
+    /**
+     * Сэмплы -> байты little-endian
+     */
+    void toBytes(short[] src, int srcOffset, byte[] dst, int dstOffset, int samples);
+
+    /**
+     * Сэмплы -> float в диапазоне [-1, 1)
+     */
+    void toFloats(short[] src, int srcOffset, float[] dst, int dstOffset, int samples);
+
+    /**
+     * float -> сэмплы с насыщением (NaN даёт 0)
+     */
+    void fromFloats(float[] src, int srcOffset, short[] dst, int dstOffset, int samples);
+
+    /**
+     * Усиление на месте с насыщением
+     */
+    void applyGain(short[] samples, int offset, int length, float gain);
+
+    /**
+     * Усиление PCM байтов на месте с насыщением
+     * @param lengthBytes длина в байтах (нечётный хвостовой байт не трогается)
+     */
+    void applyGain(byte[] pcm, int offset, int lengthBytes, float gain);
+
+    /**
+     * Подмешать {@code src * gain} к {@code dst} с насыщением
+     */
+    void mix(short[] src, int srcOffset, short[] dst, int dstOffset, int length, float gain);
+
+    /**
+     * Среднеквадратичное значение сэмплов (в единицах 16-bit)
+     */
+    double rms(short[] samples, int offset, int length);
+
+    /**
+     * Пиковая амплитуда: максимум |s| (для -32768 - 32768)
+     */
+    int peak(short[] samples, int offset, int length);
+
+    /**
+     * Чередующееся стерео -> моно, среднее каналов (с округлением вниз)
+     * @param frames количество стерео кадров
+     */
+    void downmixStereo(short[] stereo, int stereoOffset, short[] mono, int monoOffset, int frames);
+
+    /**
+     * Моно -> чередующееся стерео (канал дублируется)
+     * @param frames количество сэмплов моно
+     */
+    void upmixMono(short[] mono, int monoOffset, short[] stereo, int stereoOffset, int frames);
+
+    /**
+     * Название реализации для логов и замеров
+     */
+    String name();
+}
@@ -0,0 +1,160 @@
+package at.nexus.dsp;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteOrder;
+
+/**
+ * Базовые операции над 16-bit PCM: преобразование байтов, сэмплов и float,
+ * усиление и смешивание с насыщением, RMS/пик, стерео <-> моно.
+ *
+ * Байты - little-endian, как в {@code javax.sound.sampled}.
+ * Методы работают с готовыми массивами и не аллоцируют.
+ *
+ * Реализация выбирается один раз: векторная ({@link PcmKernels},
+ * {@code jdk.incubator.vector}), если модуль подключён при запуске
+ * ({@code --add-modules jdk.incubator.vector}) и платформа little-endian,
+ * иначе скалярная. {@code -Dnexus.pcm.scalar=true} принудительно
+ * включает скалярную - для сравнения и при подозрении на ошибку.
+ */
+public final class PcmOps {
+    private static final Logger log = LoggerFactory.getLogger(PcmOps.class);
+
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+
+    private static final PcmKernels KERNELS = selectKernels();
+
+    private PcmOps() {
+    }
+
+    private static PcmKernels selectKernels() {
+        PcmKernels vector = vectorized();
+        if (vector == null || Boolean.getBoolean("nexus.pcm.scalar")) {
+            log.info("PCM ядра: скалярные (векторные {})", vector == null ? "недоступны" : "отключены");
+            return scalar();
+        }
+        log.info("PCM ядра: {}", vector.name());
+        return vector;
+    }
+
+    /**
+     * Скалярная реализация (эталон)
+     */
+    public static PcmKernels scalar() {
+        return ScalarPcmKernels.INSTANCE;
+    }
+
+    /**
+     * Векторная реализация или null, если модуль не подключён
+     * или порядок байт платформы не little-endian
+     */
+    public static PcmKernels vectorized() {
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()
+                || ByteOrder.nativeOrder() != ByteOrder.LITTLE_ENDIAN) {
+            return null;
+        }
+        try {
+            return VectorPcmKernels.INSTANCE;
+        } catch (LinkageError e) {
+            log.warn("Векторные PCM ядра не загрузились: {}", e.toString());
+            return null;
+        }
+    }
+
+    /**
+     * Выбранная при запуске реализация
+     */
+    public static PcmKernels kernels() {
+        return KERNELS;
+    }
+
+    /**
+     * Байты little-endian -> сэмплы
+     * @param samples количество сэмплов (байт читается вдвое больше)
+     */
+    public static void toShorts(byte[] src, int srcOffset, short[] dst, int dstOffset, int samples) {
+        KERNELS.toShorts(src, srcOffset, dst, dstOffset, samples);
+    }
+
+    /**
+     * Сэмплы -> байты little-endian
+     * @param samples количество сэмплов (байт пишется вдвое больше)
+     */
+    public static void toBytes(short[] src, int srcOffset, byte[] dst, int dstOffset, int samples) {
+        KERNELS.toBytes(src, srcOffset, dst, dstOffset, samples);
+    }
+
+    /**
+     * Сэмплы -> float в диапазоне [-1, 1)
+     */
+    public static void toFloats(short[] src, int srcOffset, float[] dst, int dstOffset, int samples) {
+        KERNELS.toFloats(src, srcOffset, dst, dstOffset, samples);
+    }
+
+    /**
+     * float -> сэмплы с насыщением
+     */
+    public static void fromFloats(float[] src, int srcOffset, short[] dst, int dstOffset, int samples) {
+        KERNELS.fromFloats(src, srcOffset, dst, dstOffset, samples);
+    }
+
+    /**
+     * Усилить сэмплы на месте с ограничением по 16-bit (без переполнения)
+     */
+    public static void applyGain(short[] samples, int offset, int length, float gain) {
+        KERNELS.applyGain(samples, offset, length, gain);
+    }
+
+    /**
+     * Усилить PCM байты на месте с ограничением по 16-bit
+     * @param lengthBytes длина в байтах (нечётный хвостовой байт не трогается)
+     */
+    public static void applyGain(byte[] pcm, int offset, int lengthBytes, float gain) {
+        KERNELS.applyGain(pcm, offset, lengthBytes, gain);
+    }
+
+    /**
+     * Подмешать {@code src * gain} к {@code dst} с насыщением
+     */
+    public static void mix(short[] src, int srcOffset, short[] dst, int dstOffset, int length, float gain) {
+        KERNELS.mix(src, srcOffset, dst, dstOffset, length, gain);
+    }
+
+    /**
+     * Среднеквадратичное значение (в единицах 16-bit)
+     */
+    public static double rms(short[] samples, int offset, int length) {
+        return KERNELS.rms(samples, offset, length);
+    }
+
+    /**
+     * Пиковая амплитуда (0..32768)
+     */
+    public static int peak(short[] samples, int offset, int length) {
+        return KERNELS.peak(samples, offset, length);
+    }
+
+    /**
+     * Чередующееся стерео -> моно
+     * @param frames количество стерео кадров
+     */
+    public static void downmixStereo(short[] stereo, int stereoOffset, short[] mono, int monoOffset, int frames) {
+        KERNELS.downmixStereo(stereo, stereoOffset, mono, monoOffset, frames);
+    }
+
+    /**
+     * Моно -> чередующееся стерео
+     * @param frames количество сэмплов моно
+     */
+    public static void upmixMono(short[] mono, int monoOffset, short[] stereo, int stereoOffset, int frames) {
+        KERNELS.upmixMono(mono, monoOffset, stereo, stereoOffset, frames);
+    }
+
+    /**
+     * Ограничить значение диапазоном 16-bit
+     */
+    public static short clip(int value) {
+        return (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, value));
+    }
+}
@@ -0,0 +1,238 @@
+package at.nexus.dsp;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Потоковый полифазный передискретизатор 16-bit PCM с произвольным
+ * рациональным отношением частот (44100 -> 16000, 16000 -> 48000, 24000 -> 16000...).
+ *
+ * Отношение сокращается до L/M; прототип - оконный sinc (окно Кайзера)
+ * на частоте L * fin со срезом чуть ниже меньшей из двух частот Найквиста.
+ * Для выходного сэмпла берётся одна из L фаз фильтра, так что на сэмпл
+ * и канал - одна свёртка длины фазы, без вставки нулей.
+ *
+ * Состояние (история входа и фаза) сохраняется между вызовами: поток можно
+ * резать на кадры любой длины, результат совпадает с обработкой целиком.
+ * Каналы чередуются, число каналов на входе и выходе одинаковое
+ * (для смены каналов - {@link ChannelMixer}). Буферы выделяются
+ * в конструкторе, обработка не аллоцирует. Не потокобезопасен.
+ *
+ * Таблицы коэффициентов неизменяемы и общие для всех экземпляров
+ * с одинаковыми параметрами: сотни сессий сервера считают фильтр один раз.
+ */
+public class Resampler {
+
+    /** Длина фильтра по умолчанию: переходная полоса ~10% от меньшей частоты, ~80 dB подавления */
+    public static final int DEFAULT_TAPS = 48;
+    private static final double KAISER_BETA = 8.0;
+    // Доля частоты Найквиста, где начинается срез
+    private static final double ROLLOFF = 0.9;
+
+    private static final Map<Design, float[][]> designs = new ConcurrentHashMap<>();
+
+    private final int inputRate;
+    private final int outputRate;
+    private final int channels;
+    private final int up;   // L
+    private final int down; // M
+    // Отводов на фазу
+    private final int taps;
+
+    // Коэффициенты по фазам, в порядке от старого сэмпла к новому
+    private final float[][] phases;
+    // История на канал: кольцо длиной taps, продублированное для непрерывного окна
+    private final float[][] history;
+    private int writeIndex;
+    // Время следующего выходного сэмпла относительно последнего входного, в 1/L входного сэмпла
+    private long nextOutput;
+
+    public Resampler(int inputRate, int outputRate, int channels) {
+        this(inputRate, outputRate, channels, DEFAULT_TAPS);
+    }
+
+    /**
+     * @param taps длина фильтра в периодах меньшей из частот:
+     *             больше - круче срез и дороже
+     */
+    public Resampler(int inputRate, int outputRate, int channels, int taps) {
+        if (inputRate <= 0 || outputRate <= 0 || channels <= 0 || taps <= 0) {
+            throw new IllegalArgumentException("Некорректные параметры передискретизации: "
+                    + inputRate + " -> " + outputRate + "Hz, " + channels + " канал(ов), " + taps + " отводов");
+        }
+        int gcd = gcd(inputRate, outputRate);
+        this.inputRate = inputRate;
+        this.outputRate = outputRate;
+        this.channels = channels;
+        this.up = outputRate / gcd;
+        this.down = inputRate / gcd;
+        // При понижении частоты срез уже в M/L раз - фильтр длиннее в том же отношении
+        this.taps = (int) Math.ceil((double) taps * Math.max(up, down) / up);
+        this.phases = designs.computeIfAbsent(new Design(up, down, this.taps),
+                d -> design(d.up(), d.down(), d.taps()));
+        this.history = new float[channels][this.taps * 2];
+    }
+
+    /**
+     * Прототип фильтра, разложенный по фазам. Сумма каждой фазы нормирована
+     * к 1, чтобы постоянная составляющая проходила без пульсаций.
+     */
+    private static float[][] design(int up, int down, int taps) {
+        int length = up * taps;
+        // Центр на целом отсчёте: задержка ровно taps/2 входных кадров
+        // (крайний левый отвод при этом нулевой)
+        double center = length / 2.0;
+        // Срез в долях частоты L * fin
+        double cutoff = ROLLOFF * 0.5 / Math.max(up, down);
+        double norm = bessel0(KAISER_BETA);
+
+        double[] prototype = new double[length];
+        for (int i = 0; i < length; i++) {
+            double x = i - center;
+            double sinc = x == 0 ? 2 * cutoff : Math.sin(2 * Math.PI * cutoff * x) / (Math.PI * x);
+            double r = x / center;
+            double window = bessel0(KAISER_BETA * Math.sqrt(Math.max(0, 1 - r * r))) / norm;
+            prototype[i] = sinc * window;
+        }
+
+        float[][] phases = new float[up][taps];
+        for (int p = 0; p < up; p++) {
+            double sum = 0;
+            for (int k = 0; k < taps; k++) {
+                sum += prototype[p + k * up];
+            }
+            for (int k = 0; k < taps; k++) {
+                // k-й отвод умножается на сэмпл, отстоящий на k назад: храним от старого к новому
+                phases[p][taps - 1 - k] = (float) (prototype[p + k * up] / sum);
+            }
+        }
+        return phases;
+    }
+
+    /**
+     * Модифицированная функция Бесселя нулевого порядка (ряд)
+     */
+    static double bessel0(double x) {
+        double sum = 1;
+        double term = 1;
+        double halfX = x / 2;
+        for (int k = 1; k < 50; k++) {
+            term *= (halfX / k) * (halfX / k);
+            sum += term;
+            if (term < sum * 1e-12) {
+                break;
+            }
+        }
+        return sum;
+    }
+
+    private static int gcd(int a, int b) {
+        while (b != 0) {
+            int t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    /**
+     * Передискретизировать блок.
+     *
+     * @param inFrames количество входных кадров (сэмпл на каждый канал)
+     * @param out      должен вмещать {@link #maxOutputFrames(int)} кадров
+     * @return количество выходных кадров
+     */
+    public int process(short[] in, int inOffset, int inFrames, short[] out, int outOffset) {
+        if (up == down) {
+            System.arraycopy(in, inOffset, out, outOffset, inFrames * channels);
+            return inFrames;
+        }
+
+        int produced = 0;
+        int outPos = outOffset;
+        for (int f = 0; f < inFrames; f++) {
+            // Новый сэмпл в историю каждого канала
+            writeIndex = writeIndex + 1 == taps ? 0 : writeIndex + 1;
+            int base = inOffset + f * channels;
+            for (int c = 0; c < channels; c++) {
+                float[] h = history[c];
+                float x = in[base + c];
+                h[writeIndex] = x;
+                h[writeIndex + taps] = x;
+            }
+
+            // Все выходы, попадающие до следующего входного сэмпла
+            nextOutput -= up;
+            while (nextOutput < 0) {
+                float[] coefficients = phases[(int) (nextOutput + up)];
+                int window = writeIndex + 1;
+                for (int c = 0; c < channels; c++) {
+                    float[] h = history[c];
+                    float acc = 0;
+                    for (int k = 0; k < taps; k++) {
+                        acc += coefficients[k] * h[window + k];
+                    }
+                    out[outPos++] = PcmOps.clip(Math.round(acc));
+                }
+                produced++;
+                nextOutput += down;
+            }
+        }
+        return produced;
+    }
+
+    /**
+     * Сколько кадров максимум даст {@link #process} на {@code inFrames} входных
+     */
+    public int maxOutputFrames(int inFrames) {
+        return (int) (((long) inFrames * up + down - 1) / down) + 1;
+    }
+
+    /**
+     * Сколько входных кадров подать, чтобы получить не больше {@code outFrames}
+     */
+    public int inputFramesFor(int outFrames) {
+        return (int) ((long) outFrames * down / up);
+    }
+
+    /**
+     * Сбросить историю (новый поток)
+     */
+    public void reset() {
+        for (float[] h : history) {
+            Arrays.fill(h, 0f);
+        }
+        writeIndex = 0;
+        nextOutput = 0;
+    }
+
+    /**
+     * Задержка фильтра во входных кадрах
+     */
+    public int getDelayFrames() {
+        return up == down ? 0 : taps / 2;
+    }
+
+    /**
+     * Отводов на фазу (умножений на выходной сэмпл и канал)
+     */
+    public int getTapsPerPhase() {
+        return taps;
+    }
+
+    public int getInputRate() {
+        return inputRate;
+    }
+
+    public int getOutputRate() {
+        return outputRate;
+    }
+
+    public int getChannels() {
+        return channels;
+    }
+
+    private record Design(int up, int down, int taps) {
+    }
+}
@@ -0,0 +1,115 @@
+package at.nexus.dsp;
+
+/**
+ * Скалярные ядра: эталон для векторной версии и запасной вариант,
+ * когда модуль {@code jdk.incubator.vector} не подключён.
+ * Векторная реализация добивает ими хвосты короче вектора.
+ */
+final class ScalarPcmKernels implements PcmKernels {
+
+    static final ScalarPcmKernels INSTANCE = new ScalarPcmKernels();
+
+    private ScalarPcmKernels() {
+    }
+
+    @Override
+    public void toShorts(byte[] src, int srcOffset, short[] dst, int dstOffset, int samples) {
+        for (int i = 0; i < samples; i++) {
+            int b = srcOffset + i * 2;
+            dst[dstOffset + i] = (short) ((src[b + 1] << 8) | (src[b] & 0xFF));
+        }
+    }
+
+    @Override
+    public void toBytes(short[] src, int srcOffset, byte[] dst, int dstOffset, int samples) {
+        for (int i = 0; i < samples; i++) {
+            short s = src[srcOffset + i];
+            int b = dstOffset + i * 2;
+            dst[b] = (byte) s;
+            dst[b + 1] = (byte) (s >> 8);
+        }
+    }
+
+    @Override
+    public void toFloats(short[] src, int srcOffset, float[] dst, int dstOffset, int samples) {
+        for (int i = 0; i < samples; i++) {
+            dst[dstOffset + i] = src[srcOffset + i] * FLOAT_SCALE;
+        }
+    }
+
+    @Override
+    public void fromFloats(float[] src, int srcOffset, short[] dst, int dstOffset, int samples) {
+        for (int i = 0; i < samples; i++) {
+            dst[dstOffset + i] = PcmOps.clip((int) (src[srcOffset + i] * 32768.0f));
+        }
+    }
+
+    @Override
+    public void applyGain(short[] samples, int offset, int length, float gain) {
+        for (int i = offset; i < offset + length; i++) {
+            samples[i] = PcmOps.clip((int) (samples[i] * gain));
+        }
+    }
+
+    @Override
+    public void applyGain(byte[] pcm, int offset, int lengthBytes, float gain) {
+        int end = offset + (lengthBytes & ~1);
+        for (int b = offset; b < end; b += 2) {
+            short s = (short) ((pcm[b + 1] << 8) | (pcm[b] & 0xFF));
+            int v = PcmOps.clip((int) (s * gain));
+            pcm[b] = (byte) v;
+            pcm[b + 1] = (byte) (v >> 8);
+        }
+    }
+
+    @Override
+    public void mix(short[] src, int srcOffset, short[] dst, int dstOffset, int length, float gain) {
+        for (int i = 0; i < length; i++) {
+            dst[dstOffset + i] = PcmOps.clip(dst[dstOffset + i] + (int) (src[srcOffset + i] * gain));
+        }
+    }
+
+    @Override
+    public double rms(short[] samples, int offset, int length) {
+        if (length <= 0) {
+            return 0;
+        }
+        long sum = 0;
+        for (int i = offset; i < offset + length; i++) {
+            sum += samples[i] * samples[i];
+        }
+        return Math.sqrt((double) sum / length);
+    }
+
+    @Override
+    public int peak(short[] samples, int offset, int length) {
+        int peak = 0;
+        for (int i = offset; i < offset + length; i++) {
+            peak = Math.max(peak, Math.abs(samples[i]));
+        }
+        return peak;
+    }
+
+    @Override
+    public void downmixStereo(short[] stereo, int stereoOffset, short[] mono, int monoOffset, int frames) {
+        for (int i = 0; i < frames; i++) {
+            int l = stereo[stereoOffset + i * 2];
+            int r = stereo[stereoOffset + i * 2 + 1];
+            mono[monoOffset + i] = (short) ((l + r) >> 1);
+        }
+    }
+
+    @Override
+    public void upmixMono(short[] mono, int monoOffset, short[] stereo, int stereoOffset, int frames) {
+        for (int i = 0; i < frames; i++) {
+            short s = mono[monoOffset + i];
+            stereo[stereoOffset + i * 2] = s;
+            stereo[stereoOffset + i * 2 + 1] = s;
+        }
+    }
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+}
@@ -0,0 +1,222 @@
+package at.nexus.dsp;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Векторные ядра на {@code jdk.incubator.vector}.
+ *
+ * Ширина берётся предпочтительная для процессора (AVX2 - 256 бит,
+ * AVX-512 - 512, NEON - 128). Арифметика идёт в float/int лейнах,
+ * поэтому рядом живут виды с одинаковым числом лейнов: short половинной
+ * ширины, float и int полной. Байты и сэмплы переинтерпретируются
+ * без перестановок, что верно только на little-endian - на остальных
+ * платформах {@link PcmOps} выбирает скалярную версию.
+ *
+ * Хвост короче вектора обрабатывается скалярными ядрами.
+ * Загружается только при подключённом модуле.
+ */
+final class VectorPcmKernels implements PcmKernels {
+
+    // Полная ширина: сэмплы и байты при преобразовании форматов
+    private static final VectorSpecies<Short> SHORTS = ShortVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Byte> BYTES = VectorSpecies.of(byte.class, SHORTS.vectorShape());
+    // Арифметика: float/int полной ширины и столько же сэмплов половинной
+    private static final VectorSpecies<Float> FLOATS = FloatVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Integer> INTS = VectorSpecies.of(int.class, FLOATS.vectorShape());
+    private static final VectorSpecies<Short> HALF_SHORTS = VectorSpecies.of(short.class,
+            VectorShape.forBitSize(FLOATS.vectorBitSize() / 2));
+    private static final VectorSpecies<Byte> HALF_BYTES = VectorSpecies.of(byte.class, HALF_SHORTS.vectorShape());
+
+    private static final ScalarPcmKernels SCALAR = ScalarPcmKernels.INSTANCE;
+    private static final int RMS_BLOCK = 16;
+
+    static final VectorPcmKernels INSTANCE = new VectorPcmKernels();
+
+    private VectorPcmKernels() {
+    }
+
+    @Override
+    public void toShorts(byte[] src, int srcOffset, short[] dst, int dstOffset, int samples) {
+        int upper = SHORTS.loopBound(samples);
+        int i = 0;
+        for (; i < upper; i += SHORTS.length()) {
+            ByteVector.fromArray(BYTES, src, srcOffset + i * 2)
+                    .reinterpretAsShorts()
+                    .intoArray(dst, dstOffset + i);
+        }
+        SCALAR.toShorts(src, srcOffset + i * 2, dst, dstOffset + i, samples - i);
+    }
+
+    @Override
+    public void toBytes(short[] src, int srcOffset, byte[] dst, int dstOffset, int samples) {
+        int upper = SHORTS.loopBound(samples);
+        int i = 0;
+        for (; i < upper; i += SHORTS.length()) {
+            ShortVector.fromArray(SHORTS, src, srcOffset + i)
+                    .reinterpretAsBytes()
+                    .intoArray(dst, dstOffset + i * 2);
+        }
+        SCALAR.toBytes(src, srcOffset + i, dst, dstOffset + i * 2, samples - i);
+    }
+
+    @Override
+    public void toFloats(short[] src, int srcOffset, float[] dst, int dstOffset, int samples) {
+        int upper = FLOATS.loopBound(samples);
+        int i = 0;
+        for (; i < upper; i += FLOATS.length()) {
+            toFloat(ShortVector.fromArray(HALF_SHORTS, src, srcOffset + i))
+                    .mul(FLOAT_SCALE)
+                    .intoArray(dst, dstOffset + i);
+        }
+        SCALAR.toFloats(src, srcOffset + i, dst, dstOffset + i, samples - i);
+    }
+
+    @Override
+    public void fromFloats(float[] src, int srcOffset, short[] dst, int dstOffset, int samples) {
+        int upper = FLOATS.loopBound(samples);
+        int i = 0;
+        for (; i < upper; i += FLOATS.length()) {
+            saturate(FloatVector.fromArray(FLOATS, src, srcOffset + i).mul(32768.0f))
+                    .intoArray(dst, dstOffset + i);
+        }
+        SCALAR.fromFloats(src, srcOffset + i, dst, dstOffset + i, samples - i);
+    }
+
+    @Override
+    public void applyGain(short[] samples, int offset, int length, float gain) {
+        int upper = FLOATS.loopBound(length);
+        int i = 0;
+        for (; i < upper; i += FLOATS.length()) {
+            saturate(toFloat(ShortVector.fromArray(HALF_SHORTS, samples, offset + i)).mul(gain))
+                    .intoArray(samples, offset + i);
+        }
+        SCALAR.applyGain(samples, offset + i, length - i, gain);
+    }
+
+    @Override
+    public void applyGain(byte[] pcm, int offset, int lengthBytes, float gain) {
+        int samples = lengthBytes / 2;
+        int upper = FLOATS.loopBound(samples);
+        int i = 0;
+        for (; i < upper; i += FLOATS.length()) {
+            int b = offset + i * 2;
+            ShortVector s = ByteVector.fromArray(HALF_BYTES, pcm, b).reinterpretAsShorts();
+            saturate(toFloat(s).mul(gain)).reinterpretAsBytes().intoArray(pcm, b);
+        }
+        SCALAR.applyGain(pcm, offset + i * 2, lengthBytes - i * 2, gain);
+    }
+
+    @Override
+    public void mix(short[] src, int srcOffset, short[] dst, int dstOffset, int length, float gain) {
+        int upper = FLOATS.loopBound(length);
+        int i = 0;
+        for (; i < upper; i += FLOATS.length()) {
+            // (int) (src * gain) как в скалярной версии, сумма в int, затем насыщение
+            IntVector add = (IntVector) toFloat(ShortVector.fromArray(HALF_SHORTS, src, srcOffset + i))
+                    .mul(gain)
+                    .convertShape(VectorOperators.F2I, INTS, 0);
+            IntVector sum = ((IntVector) ShortVector.fromArray(HALF_SHORTS, dst, dstOffset + i)
+                    .convertShape(VectorOperators.S2I, INTS, 0))
+                    .add(add)
+                    .max(Short.MIN_VALUE)
+                    .min(Short.MAX_VALUE);
+            ((ShortVector) sum.convertShape(VectorOperators.I2S, HALF_SHORTS, 0)).intoArray(dst, dstOffset + i);
+        }
+        SCALAR.mix(src, srcOffset + i, dst, dstOffset + i, length - i, gain);
+    }
+
+    @Override
+    public double rms(short[] samples, int offset, int length) {
+        if (length <= 0) {
+            return 0;
+        }
+        int upper = FLOATS.loopBound(length);
+        int i = 0;
+        // Квадраты и суммы в float (относительная погрешность ~1e-7 на шаг);
+        // в лейнах копится не больше RMS_BLOCK квадратов, дальше - в double
+        double sum = 0;
+        while (i < upper) {
+            int blockEnd = Math.min(upper, i + RMS_BLOCK * FLOATS.length());
+            FloatVector acc = FloatVector.zero(FLOATS);
+            for (; i < blockEnd; i += FLOATS.length()) {
+                FloatVector v = toFloat(ShortVector.fromArray(HALF_SHORTS, samples, offset + i));
+                acc = v.fma(v, acc);
+            }
+            sum += acc.reduceLanes(VectorOperators.ADD);
+        }
+        for (; i < length; i++) {
+            int s = samples[offset + i];
+            sum += s * s;
+        }
+        return Math.sqrt(sum / length);
+    }
+
+    @Override
+    public int peak(short[] samples, int offset, int length) {
+        int upper = SHORTS.loopBound(length);
+        int i = 0;
+        // |−32768| не помещается в short, поэтому копим максимум и минимум отдельно
+        ShortVector max = ShortVector.zero(SHORTS);
+        ShortVector min = ShortVector.zero(SHORTS);
+        for (; i < upper; i += SHORTS.length()) {
+            ShortVector v = ShortVector.fromArray(SHORTS, samples, offset + i);
+            max = max.max(v);
+            min = min.min(v);
+        }
+        int peak = Math.max(max.reduceLanes(VectorOperators.MAX), -min.reduceLanes(VectorOperators.MIN));
+        return Math.max(peak, SCALAR.peak(samples, offset + i, length - i));
+    }
+
+    @Override
+    public void downmixStereo(short[] stereo, int stereoOffset, short[] mono, int monoOffset, int frames) {
+        // Пара L,R читается как один int: L - младшие 16 бит, R - старшие
+        int upper = INTS.loopBound(frames);
+        int i = 0;
+        for (; i < upper; i += INTS.length()) {
+            IntVector pair = ShortVector.fromArray(SHORTS, stereo, stereoOffset + i * 2).reinterpretAsInts();
+            IntVector left = pair.lanewise(VectorOperators.LSHL, 16).lanewise(VectorOperators.ASHR, 16);
+            IntVector right = pair.lanewise(VectorOperators.ASHR, 16);
+            IntVector mean = left.add(right).lanewise(VectorOperators.ASHR, 1);
+            ((ShortVector) mean.convertShape(VectorOperators.I2S, HALF_SHORTS, 0)).intoArray(mono, monoOffset + i);
+        }
+        SCALAR.downmixStereo(stereo, stereoOffset + i * 2, mono, monoOffset + i, frames - i);
+    }
+
+    @Override
+    public void upmixMono(short[] mono, int monoOffset, short[] stereo, int stereoOffset, int frames) {
+        int upper = INTS.loopBound(frames);
+        int i = 0;
+        for (; i < upper; i += INTS.length()) {
+            IntVector s = (IntVector) ShortVector.fromArray(HALF_SHORTS, mono, monoOffset + i)
+                    .convertShape(VectorOperators.S2I, INTS, 0);
+            s.and(0xFFFF).or(s.lanewise(VectorOperators.LSHL, 16))
+                    .reinterpretAsShorts()
+                    .intoArray(stereo, stereoOffset + i * 2);
+        }
+        SCALAR.upmixMono(mono, monoOffset + i, stereo, stereoOffset + i * 2, frames - i);
+    }
+
+    @Override
+    public String name() {
+        return "vector " + FLOATS.vectorBitSize() + " бит";
+    }
+
+    private static FloatVector toFloat(ShortVector samples) {
+        return (FloatVector) samples.convertShape(VectorOperators.S2F, FLOATS, 0);
+    }
+
+    /**
+     * Ограничить диапазоном 16-bit и преобразовать с отбрасыванием дробной
+     * части, как {@code clip((int) x)}; NaN даёт 0
+     */
+    private static ShortVector saturate(FloatVector values) {
+        return (ShortVector) values.max(Short.MIN_VALUE).min(Short.MAX_VALUE)
+                .convertShape(VectorOperators.F2S, HALF_SHORTS, 0);
+    }
+}
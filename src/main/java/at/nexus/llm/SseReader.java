@@ -0,0 +1,72 @@
+package at.nexus.llm;
+
+import okio.BufferedSource;
+
+import java.io.IOException;
+
+/**
+ * Разбор потока Server-Sent Events (text/event-stream) построчно.
+ *
+ * Поля {@code data:} одного события склеиваются через перевод строки,
+ * событие отдаётся на пустой строке; комментарии ({@code :}) и
+ * {@code id:}/{@code retry:} пропускаются - переподключения нет,
+ * ответ LLM одноразовый.
+ */
+final class SseReader {
+
+    interface Handler {
+
+        /**
+         * Очередное событие
+         * @param event имя из {@code event:}, по умолчанию {@code "message"}
+         * @return false - дальше не читать
+         */
+        boolean onEvent(String event, String data) throws InterruptedException;
+    }
+
+    private SseReader() {
+    }
+
+    /**
+     * Читать события до конца потока или пока {@code handler} не откажется
+     */
+    static void read(BufferedSource source, Handler handler) throws IOException, InterruptedException {
+        StringBuilder data = new StringBuilder();
+        String event = "message";
+        boolean hasData = false;
+        String line;
+        while ((line = source.readUtf8Line()) != null) {
+            if (line.isEmpty()) {
+                if (hasData && !handler.onEvent(event, data.toString())) {
+                    return;
+                }
+                data.setLength(0);
+                event = "message";
+                hasData = false;
+                continue;
+            }
+            if (line.startsWith(":")) {
+                continue;
+            }
+            int colon = line.indexOf(':');
+            String field = colon < 0 ? line : line.substring(0, colon);
+            String value = colon < 0 ? "" : line.substring(colon + 1);
+            if (value.startsWith(" ")) {
+                value = value.substring(1);
+            }
+            switch (field) {
+                case "data" -> {
+                    if (hasData) {
+                        data.append('\n');
+                    }
+                    data.append(value);
+                    hasData = true;
+                }
+                case "event" -> event = value;
+                default -> {
+                }
+            }
+        }
+        // Последнее событие без пустой строки в конце - по спецификации не отдаётся
+    }
+}
@@ -0,0 +1,170 @@
+package at.nexus.llm;
+
+import at.nexus.server.LanguageModel;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Потоковый клиент LLM: токены ответа по мере генерации через SSE.
+ *
+ * Протокол - chat completions в стиле OpenAI с {@code "stream":true}:
+ * <pre>
+ *   -> POST {"model":"...","stream":true,"messages":[{"role":"user","content":"..."}]}
+ *   <- data: {"choices":[{"delta":{"content":"При"}}]}
+ *   <- data: {"choices":[{"delta":{"content":"вет"}}]}
+ *   <- data: [DONE]
+ * </pre>
+ * Соединения держит пул OkHttp, так что второй и дальнейшие запросы
+ * не платят за TCP/TLS. Прерывание потока (barge-in) закрывает ответ:
+ * на виртуальном потоке блокирующее чтение сокета обрывается сразу,
+ * на обычном - на следующем событии. Потокобезопасен.
+ */
+public class StreamingLlmClient implements LanguageModel {
+    private static final Logger log = LoggerFactory.getLogger(StreamingLlmClient.class);
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final MediaType JSON = MediaType.get("application/json");
+    private static final String DONE = "[DONE]";
+    private static final int WARM_UP_TOKENS = 100;
+
+    private final OkHttpClient http;
+    private final String url;
+    private final String model;
+    private final String apiKey;
+    private final String systemPrompt;
+
+    /**
+     * @param url          адрес chat completions, например {@code http://localhost:8080/v1/chat/completions}
+     * @param apiKey       ключ для {@code Authorization: Bearer}, null - без заголовка
+     * @param systemPrompt системное сообщение, null - без него
+     */
+    public StreamingLlmClient(String url, String model, String apiKey, String systemPrompt) {
+        this(new OkHttpClient.Builder()
+                .connectTimeout(5, TimeUnit.SECONDS)
+                // Между токенами дольше этого - сервер завис
+                .readTimeout(30, TimeUnit.SECONDS)
+                .build(), url, model, apiKey, systemPrompt);
+    }
+
+    /**
+     * С общим {@link OkHttpClient} (один пул соединений и потоков на приложение)
+     */
+    public StreamingLlmClient(OkHttpClient http, String url, String model, String apiKey, String systemPrompt) {
+        this.http = http;
+        this.url = url;
+        this.model = model;
+        this.apiKey = apiKey;
+        this.systemPrompt = systemPrompt;
+    }
+
+    /**
+     * @throws IllegalStateException сервер ответил ошибкой
+     * @throws UncheckedIOException  сеть
+     */
+    @Override
+    public void reply(String prompt, TokenSink sink) throws InterruptedException {
+        try (Response response = http.newCall(request(prompt)).execute()) {
+            ResponseBody body = response.body();
+            if (!response.isSuccessful() || body == null) {
+                throw new IllegalStateException("LLM: HTTP " + response.code() + " "
+                        + (body != null ? body.string() : ""));
+            }
+            SseReader.read(body.source(), (event, data) -> {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedException();
+                }
+                if (data.equals(DONE)) {
+                    return false;
+                }
+                String token = token(data);
+                if (!token.isEmpty()) {
+                    sink.accept(token);
+                }
+                return true;
+            });
+        } catch (IOException e) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException(); // сокет закрыт прерыванием
+            }
+            throw new UncheckedIOException("LLM: " + url, e);
+        }
+    }
+
+    /**
+     * Собрать запрос и разобрать заготовку потока SSE из {@value #WARM_UP_TOKENS}
+     * токенов - без сети
+     */
+    @Override
+    public void warmUp() {
+        request("Прогрев");
+        Buffer events = new Buffer();
+        for (int i = 0; i < WARM_UP_TOKENS; i++) {
+            events.writeUtf8("data: {\"choices\":[{\"delta\":{\"content\":\"слово" + i + " \"}}]}\n\n");
+        }
+        events.writeUtf8("data: " + DONE + "\n\n");
+        try {
+            SseReader.read(events, (event, data) -> !data.equals(DONE) && token(data) != null);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // буфер в памяти
+        }
+    }
+
+    private Request request(String prompt) {
+        Request.Builder request = new Request.Builder()
+                .url(url)
+                .header("Accept", "text/event-stream")
+                .post(RequestBody.create(body(prompt), JSON));
+        if (apiKey != null) {
+            request.header("Authorization", "Bearer " + apiKey);
+        }
+        return request.build();
+    }
+
+    private String body(String prompt) {
+        ObjectNode root = mapper.createObjectNode()
+                .put("model", model)
+                .put("stream", true);
+        ArrayNode messages = root.putArray("messages");
+        if (systemPrompt != null) {
+            messages.addObject().put("role", "system").put("content", systemPrompt);
+        }
+        messages.addObject().put("role", "user").put("content", prompt);
+        return root.toString();
+    }
+
+    /**
+     * Текст из {@code choices[0].delta.content}, пустая строка для
+     * служебных событий (роль, причина остановки)
+     */
+    private static String token(String data) {
+        try {
+            JsonNode node = mapper.readTree(data);
+            return node.path("choices").path(0).path("delta").path("content").asText("");
+        } catch (IOException e) {
+            log.warn("LLM: непонятное событие {}", data);
+            return "";
+        }
+    }
+
+    @Override
+    public String toString() {
+        return model + " @ " + url;
+    }
+}
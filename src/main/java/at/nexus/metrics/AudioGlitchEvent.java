@@ -0,0 +1,25 @@
+package at.nexus.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Потеря звука: переполнение, недогруз, выкинутые кадры
+ */
+@Name("at.nexus.AudioGlitch")
+@Label("Audio Glitch")
+@Description("Переполнение, недогруз или потеря кадров в аудио конвейере")
+@Category({"Nexus", "Audio"})
+@StackTrace(false)
+final class AudioGlitchEvent extends Event {
+
+    @Label("Counter")
+    String counter;
+
+    @Label("Delta")
+    long delta;
+}
@@ -0,0 +1,30 @@
+package at.nexus.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Задержка одного кадра на одном этапе. Событий десятки в секунду
+ * на этап, поэтому по умолчанию выключено.
+ */
+@Name("at.nexus.FrameStage")
+@Label("Audio Frame Stage")
+@Description("Задержка кадра на этапе аудио конвейера")
+@Category({"Nexus", "Audio"})
+@Enabled(false)
+@StackTrace(false)
+final class FrameStageEvent extends Event {
+
+    @Label("Stage")
+    String stage;
+
+    @Label("Latency")
+    @Timespan(Timespan.NANOSECONDS)
+    long latency;
+}
@@ -0,0 +1,69 @@
+package at.nexus.metrics;
+
+import java.util.Map;
+
+/**
+ * Снимок {@link PipelineMetrics} на момент {@code timestampNanos}.
+ * Значения не меняются после создания.
+ */
+public record MetricsSnapshot(long timestampNanos,
+                              Map<PipelineMetrics.Stage, Latency> latencies,
+                              Map<PipelineMetrics.Counter, Long> counters,
+                              Map<PipelineMetrics.Gauge, Long> gauges) {
+
+    public MetricsSnapshot {
+        latencies = Map.copyOf(latencies);
+        counters = Map.copyOf(counters);
+        gauges = Map.copyOf(gauges);
+    }
+
+    public Latency latency(PipelineMetrics.Stage stage) {
+        return latencies.get(stage);
+    }
+
+    public long count(PipelineMetrics.Counter counter) {
+        return counters.get(counter);
+    }
+
+    public long gauge(PipelineMetrics.Gauge gauge) {
+        return gauges.get(gauge);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (PipelineMetrics.Stage stage : PipelineMetrics.Stage.values()) {
+            Latency latency = latencies.get(stage);
+            if (latency.count() > 0) {
+                sb.append(stage).append(' ').append(latency).append("; ");
+            }
+        }
+        for (PipelineMetrics.Gauge gauge : PipelineMetrics.Gauge.values()) {
+            sb.append(gauge).append('=').append(gauges.get(gauge)).append(' ');
+        }
+        for (PipelineMetrics.Counter counter : PipelineMetrics.Counter.values()) {
+            long value = counters.get(counter);
+            if (value > 0) {
+                sb.append(counter).append('=').append(value).append(' ');
+            }
+        }
+        return sb.toString().trim();
+    }
+
+    /**
+     * Сводка гистограммы задержки, нс
+     */
+    public record Latency(long count, long p50Nanos, long p90Nanos, long p99Nanos, long maxNanos) {
+
+        static Latency of(LatencyHistogram histogram) {
+            return new Latency(histogram.getCount(), histogram.percentile(50), histogram.percentile(90),
+                    histogram.percentile(99), histogram.getMaxNanos());
+        }
+
+        @Override
+        public String toString() {
+            return String.format("n=%d p50=%.2fms p99=%.2fms max=%.2fms",
+                    count, p50Nanos / 1e6, p99Nanos / 1e6, maxNanos / 1e6);
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package at.nexus.metrics;
+
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Метрики аудио конвейера: где тратятся миллисекунды на пути
+ * микрофон -> обработка -> динамики.
+ *
+ * Три вида значений:
+ * <ul>
+ *   <li>задержки по этапам ({@link Stage}) - гистограммы, запись из
+ *       потоков конвейера без блокировок и аллокаций;</li>
+ *   <li>счётчики потерь ({@link Counter}) - переполнения, недогрузы,
+ *       выкинутые кадры;</li>
+ *   <li>текущие значения ({@link Gauge}) - глубина очередей, их
+ *       регистрируют менеджеры.</li>
+ * </ul>
+ *
+ * Читать можно двумя способами: pull через {@link #snapshot()} или
+ * поток событий JFR. Задержка каждого кадра уходит событием
+ * {@code at.nexus.FrameStage} (по умолчанию выключено - включается
+ * в настройках записи), потери - {@code at.nexus.AudioGlitch}, а после
+ * {@link #attachJfr()} раз в секунду пишется сводка {@code at.nexus.PipelineStats}.
+ */
+public class PipelineMetrics {
+
+    /**
+     * Этапы, задержка которых пишется в гистограмму
+     */
+    public enum Stage {
+        /** Сколько блокируется чтение источника (микрофона) */
+        CAPTURE_READ,
+        /** Захват -> кадр забран из буфера захвата */
+        CAPTURE_QUEUE,
+        /** Эхоподавление кадра */
+        AEC,
+        /** Шумоподавление и АРУ кадра */
+        CONDITIONING,
+        /** Поиск ключевого слова в кадре */
+        WAKE_WORD,
+        /** VAD кадра */
+        VAD,
+        /** Захват -> кадр прошёл все этапы обработки */
+        CAPTURE_TO_PROCESSED,
+        /** Постановка в очередь вывода -> передача приёмнику */
+        PLAYBACK_QUEUE,
+        /** Сколько блокируется запись в приёмник (динамики) */
+        PLAYBACK_WRITE
+    }
+
+    /**
+     * Счётчики потерь
+     */
+    public enum Counter {
+        /** Переполнения буфера захвата (потребитель не успевал) */
+        CAPTURE_OVERRUNS,
+        /** Сэмплы, потерянные при переполнениях буфера захвата */
+        CAPTURE_DROPPED_SAMPLES,
+        /** Кадры, потерянные пулом захвата */
+        DROPPED_FRAMES,
+        /** Недогрузы потокового воспроизведения */
+        PLAYBACK_UNDERRUNS,
+        /** Сэмплы вывода, выкинутые при перебивании */
+        PLAYBACK_DISCARDED_SAMPLES
+    }
+
+    /**
+     * Текущие значения, которые отдают менеджеры
+     */
+    public enum Gauge {
+        /** Звук в буфере захвата, ms */
+        CAPTURE_QUEUE_MILLIS,
+        /** Звук в очереди вывода (включая потоковый ответ), ms */
+        PLAYBACK_QUEUE_MILLIS,
+        /** Оценка расхождения часов: насколько запись в очередь вывода быстрее воспроизведения, ppm */
+        PLAYBACK_DRIFT_PPM
+    }
+
+    private static final EventType FRAME_STAGE_EVENT = EventType.getEventType(FrameStageEvent.class);
+    private static final EventType GLITCH_EVENT = EventType.getEventType(AudioGlitchEvent.class);
+
+    private final Map<Stage, LatencyHistogram> stages = new EnumMap<>(Stage.class);
+    private final Map<Counter, AtomicLong> counters = new EnumMap<>(Counter.class);
+    private final Map<Gauge, LongSupplier> gauges = new EnumMap<>(Gauge.class);
+    private final Runnable jfrHook = this::emitStats;
+
+    public PipelineMetrics() {
+        for (Stage stage : Stage.values()) {
+            stages.put(stage, new LatencyHistogram());
+        }
+        for (Counter counter : Counter.values()) {
+            counters.put(counter, new AtomicLong());
+        }
+    }
+
+    /**
+     * Записать задержку этапа для одного кадра
+     */
+    public void record(Stage stage, long nanos) {
+        stages.get(stage).record(nanos);
+        if (FRAME_STAGE_EVENT.isEnabled()) {
+            FrameStageEvent event = new FrameStageEvent();
+            event.stage = stage.name();
+            event.latency = nanos;
+            event.commit();
+        }
+    }
+
+    /**
+     * Увеличить счётчик потерь
+     */
+    public void add(Counter counter, long delta) {
+        if (delta == 0) {
+            return;
+        }
+        counters.get(counter).addAndGet(delta);
+        if (GLITCH_EVENT.isEnabled()) {
+            AudioGlitchEvent event = new AudioGlitchEvent();
+            event.counter = counter.name();
+            event.delta = delta;
+            event.commit();
+        }
+    }
+
+    /**
+     * Зарегистрировать источник текущего значения (заменяет прежний)
+     */
+    public synchronized void gauge(Gauge gauge, LongSupplier supplier) {
+        gauges.put(gauge, supplier);
+    }
+
+    public LatencyHistogram get(Stage stage) {
+        return stages.get(stage);
+    }
+
+    public long getCount(Counter counter) {
+        return counters.get(counter).get();
+    }
+
+    /**
+     * Текущее значение или 0, если его никто не отдаёт
+     */
+    public synchronized long getGauge(Gauge gauge) {
+        LongSupplier supplier = gauges.get(gauge);
+        return supplier != null ? supplier.getAsLong() : 0;
+    }
+
+    /**
+     * Снимок всех метрик (pull API)
+     */
+    public MetricsSnapshot snapshot() {
+        Map<Stage, MetricsSnapshot.Latency> latencies = new EnumMap<>(Stage.class);
+        stages.forEach((stage, histogram) -> latencies.put(stage, MetricsSnapshot.Latency.of(histogram)));
+        Map<Counter, Long> counts = new EnumMap<>(Counter.class);
+        counters.forEach((counter, value) -> counts.put(counter, value.get()));
+        Map<Gauge, Long> values = new EnumMap<>(Gauge.class);
+        for (Gauge gauge : Gauge.values()) {
+            values.put(gauge, getGauge(gauge));
+        }
+        return new MetricsSnapshot(System.nanoTime(), latencies, counts, values);
+    }
+
+    /**
+     * Обнулить гистограммы и счётчики (между интервалами замера)
+     */
+    public void reset() {
+        stages.values().forEach(LatencyHistogram::reset);
+        counters.values().forEach(counter -> counter.set(0));
+    }
+
+    /**
+     * Писать сводку {@code at.nexus.PipelineStats} в JFR с периодом из настроек записи
+     */
+    public void attachJfr() {
+        FlightRecorder.addPeriodicEvent(PipelineStatsEvent.class, jfrHook);
+    }
+
+    public void detachJfr() {
+        FlightRecorder.removePeriodicEvent(jfrHook);
+    }
+
+    private void emitStats() {
+        PipelineStatsEvent event = new PipelineStatsEvent();
+        event.captureQueueMillis = getGauge(Gauge.CAPTURE_QUEUE_MILLIS);
+        event.playbackQueueMillis = getGauge(Gauge.PLAYBACK_QUEUE_MILLIS);
+        event.playbackDriftPpm = getGauge(Gauge.PLAYBACK_DRIFT_PPM);
+        event.captureReadP99 = get(Stage.CAPTURE_READ).percentile(99);
+        event.captureQueueP99 = get(Stage.CAPTURE_QUEUE).percentile(99);
+        event.captureToProcessedP99 = get(Stage.CAPTURE_TO_PROCESSED).percentile(99);
+        event.playbackQueueP99 = get(Stage.PLAYBACK_QUEUE).percentile(99);
+        event.playbackWriteP99 = get(Stage.PLAYBACK_WRITE).percentile(99);
+        event.captureDroppedSamples = getCount(Counter.CAPTURE_DROPPED_SAMPLES);
+        event.droppedFrames = getCount(Counter.DROPPED_FRAMES);
+        event.playbackUnderruns = getCount(Counter.PLAYBACK_UNDERRUNS);
+        event.commit();
+    }
+
+    @Override
+    public String toString() {
+        return snapshot().toString();
+    }
+}
@@ -0,0 +1,61 @@
+package at.nexus.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Периодическая сводка {@link PipelineMetrics}: глубина очередей,
+ * p99 задержек (с начала замера) и счётчики потерь
+ */
+@Name("at.nexus.PipelineStats")
+@Label("Audio Pipeline Stats")
+@Description("Сводка метрик аудио конвейера")
+@Category({"Nexus", "Audio"})
+@Period("1 s")
+@StackTrace(false)
+final class PipelineStatsEvent extends Event {
+
+    @Label("Capture Queue (ms)")
+    long captureQueueMillis;
+
+    @Label("Playback Queue (ms)")
+    long playbackQueueMillis;
+
+    @Label("Playback Clock Drift (ppm)")
+    long playbackDriftPpm;
+
+    @Label("Capture Read p99")
+    @Timespan(Timespan.NANOSECONDS)
+    long captureReadP99;
+
+    @Label("Capture Queue p99")
+    @Timespan(Timespan.NANOSECONDS)
+    long captureQueueP99;
+
+    @Label("Capture To Processed p99")
+    @Timespan(Timespan.NANOSECONDS)
+    long captureToProcessedP99;
+
+    @Label("Playback Queue p99")
+    @Timespan(Timespan.NANOSECONDS)
+    long playbackQueueP99;
+
+    @Label("Playback Write p99")
+    @Timespan(Timespan.NANOSECONDS)
+    long playbackWriteP99;
+
+    @Label("Capture Dropped Samples")
+    long captureDroppedSamples;
+
+    @Label("Dropped Frames")
+    long droppedFrames;
+
+    @Label("Playback Underruns")
+    long playbackUnderruns;
+}
@@ -0,0 +1,75 @@
+package at.nexus.metrics;
+
+/**
+ * Метки времени для сэмплов, идущих через {@link at.nexus.audio.PcmRingBuffer}.
+ *
+ * Кольцевой буфер не хранит кадры как объекты, поэтому время захвата
+ * привязывается к позиции: производитель после каждой записи отмечает
+ * {@code (позиция конца, момент)}, потребитель по позиции прочитанного
+ * сэмпла находит момент, когда тот попал в буфер. Разница - время в очереди.
+ *
+ * Один производитель и один потребитель, без блокировок и аллокаций.
+ * Хранится последние {@code capacity} меток - этого должно хватать
+ * на весь объём буфера.
+ */
+public final class SampleTimeline {
+
+    private final long[] positions;
+    private final long[] times;
+    private final int mask;
+    // Опубликованные метки; запись volatile публикует содержимое слота
+    private volatile long marks;
+    // Потребитель: первая метка, которая ещё может понадобиться
+    private long cursor;
+
+    public SampleTimeline(int minCapacity) {
+        int capacity = Integer.highestOneBit(Math.max(2, minCapacity) - 1) << 1;
+        this.positions = new long[capacity];
+        this.times = new long[capacity];
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Производитель: сэмплы до {@code endPosition} (не включая) записаны в момент {@code nanos}
+     */
+    public void mark(long endPosition, long nanos) {
+        long m = marks;
+        int index = (int) (m & mask);
+        positions[index] = endPosition;
+        times[index] = nanos;
+        marks = m + 1;
+    }
+
+    /**
+     * Потребитель: когда был записан сэмпл {@code position - 1}, то есть
+     * последний из прочитанных до позиции {@code position}.
+     * Позиции должны расти от вызова к вызову.
+     * @return момент ({@link System#nanoTime()}) или 0, если метки нет
+     */
+    public long timeOf(long position) {
+        while (true) {
+            long m = marks;
+            if (m - cursor > positions.length) {
+                cursor = m - positions.length; // потребитель сильно отстал
+            }
+            while (cursor < m && positions[(int) (cursor & mask)] < position) {
+                cursor++;
+            }
+            if (cursor == m) {
+                return 0;
+            }
+            long time = times[(int) (cursor & mask)];
+            // Слот могли перезаписать, пока читали
+            if (marks - cursor <= positions.length) {
+                return time;
+            }
+        }
+    }
+
+    /**
+     * Забыть метки (буфер очищен или перезапущен)
+     */
+    public void reset() {
+        cursor = marks;
+    }
+}
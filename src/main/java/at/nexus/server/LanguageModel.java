@@ -0,0 +1,25 @@
+package at.nexus.server;
+
+/**
+ * Генерация ответа по распознанному тексту, токенами по мере готовности.
+ * Реализация общая для всех сессий и должна быть потокобезопасной.
+ */
+public interface LanguageModel {
+
+    /**
+     * Сгенерировать ответ. Прерывание потока (barge-in) останавливает генерацию
+     */
+    void reply(String prompt, TokenSink sink) throws InterruptedException;
+
+    /**
+     * Прогреть при старте без запроса к модели: загрузить классы и прогнать
+     * разбор ответа на заготовке, чтобы первая реплика не платила за JIT
+     */
+    default void warmUp() {
+    }
+
+    @FunctionalInterface
+    interface TokenSink {
+        void accept(String token) throws InterruptedException;
+    }
+}
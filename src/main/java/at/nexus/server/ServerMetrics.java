@@ -0,0 +1,142 @@
+package at.nexus.server;
+
+import at.nexus.metrics.LatencyHistogram;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Метрики сервера, общие для всех сессий: задержки по этапам конвейера
+ * и счётчики сессий. Запись из любых потоков без блокировок.
+ */
+public class ServerMetrics {
+
+    /**
+     * Этапы, задержка которых пишется в гистограмму
+     */
+    public enum Stage {
+        /** Отставание обработки от входа: непрочитанный звук после взятия кадра */
+        BACKLOG,
+        /** Обработка кадра в потоке сессии (VAD и передача в STT) */
+        FRAME,
+        /** Конец речи -> финальный текст */
+        STT,
+        /** Текст -> первый токен ответа */
+        LLM,
+        /** Кусок текста ответа -> первый звук его синтеза */
+        TTS,
+        /** Конец речи -> первый звук ответа отправлен клиенту */
+        RESPONSE
+    }
+
+    private final Map<Stage, LatencyHistogram> stages = new EnumMap<>(Stage.class);
+    private final AtomicInteger activeSessions = new AtomicInteger();
+    private final AtomicLong totalSessions = new AtomicLong();
+    private final AtomicLong replies = new AtomicLong();
+    private final AtomicLong bargeIns = new AtomicLong();
+    private final AtomicLong droppedSamples = new AtomicLong();
+    private final AtomicLong receivedBytes = new AtomicLong();
+    private final AtomicLong sentBytes = new AtomicLong();
+
+    public ServerMetrics() {
+        for (Stage stage : Stage.values()) {
+            stages.put(stage, new LatencyHistogram());
+        }
+    }
+
+    public void record(Stage stage, long nanos) {
+        stages.get(stage).record(nanos);
+    }
+
+    public LatencyHistogram get(Stage stage) {
+        return stages.get(stage);
+    }
+
+    void sessionOpened() {
+        activeSessions.incrementAndGet();
+        totalSessions.incrementAndGet();
+    }
+
+    void sessionClosed(long dropped) {
+        activeSessions.decrementAndGet();
+        droppedSamples.addAndGet(dropped);
+    }
+
+    void replyStarted() {
+        replies.incrementAndGet();
+    }
+
+    void bargeIn() {
+        bargeIns.incrementAndGet();
+    }
+
+    void audioReceived(int bytes) {
+        receivedBytes.addAndGet(bytes);
+    }
+
+    void audioSent(int bytes) {
+        sentBytes.addAndGet(bytes);
+    }
+
+    public int getActiveSessions() {
+        return activeSessions.get();
+    }
+
+    public long getTotalSessions() {
+        return totalSessions.get();
+    }
+
+    public long getReplies() {
+        return replies.get();
+    }
+
+    public long getBargeIns() {
+        return bargeIns.get();
+    }
+
+    /**
+     * Сэмплов входа потеряно закрытыми сессиями (поток сессии не успевал)
+     */
+    public long getDroppedSamples() {
+        return droppedSamples.get();
+    }
+
+    /**
+     * Байт звука от клиентов (PCM или пакеты кодека, как пришло по сети)
+     */
+    public long getReceivedBytes() {
+        return receivedBytes.get();
+    }
+
+    /**
+     * Байт звука ответов клиентам
+     */
+    public long getSentBytes() {
+        return sentBytes.get();
+    }
+
+    /**
+     * Обнулить гистограммы и счётчики (кроме активных сессий)
+     */
+    public void reset() {
+        stages.values().forEach(LatencyHistogram::reset);
+        totalSessions.set(0);
+        replies.set(0);
+        bargeIns.set(0);
+        droppedSamples.set(0);
+        receivedBytes.set(0);
+        sentBytes.set(0);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder(String.format(
+                "сессий %d (всего %d), ответов %d, перебиваний %d, потеряно %d сэмплов, звук %d/%d КБ принято/отправлено",
+                getActiveSessions(), getTotalSessions(), getReplies(), getBargeIns(), getDroppedSamples(),
+                getReceivedBytes() / 1024, getSentBytes() / 1024));
+        stages.forEach((stage, histogram) -> out.append("\n  ").append(stage).append(": ").append(histogram));
+        return out.toString();
+    }
+}
@@ -0,0 +1,18 @@
+package at.nexus.server;
+
+/**
+ * Движки, общие для всех сессий сервера
+ */
+public record SessionServices(SpeechRecognizer recognizer, LanguageModel languageModel,
+                              SpeechSynthesizer synthesizer) {
+
+    /**
+     * Заглушки с типичными задержками облачных сервисов
+     */
+    public static SessionServices stubs(int sampleRate) {
+        return new SessionServices(
+                StubEngines.recognizer(150),
+                StubEngines.languageModel(250, 25),
+                StubEngines.synthesizer(sampleRate, 120));
+    }
+}
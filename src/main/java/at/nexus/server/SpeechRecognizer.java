@@ -0,0 +1,31 @@
+package at.nexus.server;
+
+import at.nexus.audio.AudioConfig;
+
+/**
+ * Распознавание речи для сессии сервера.
+ *
+ * Одна фраза - один {@link Recognition}: кадры фразы подаются по мере
+ * поступления из потока сессии, финал забирается отдельно и может ждать
+ * движок. Реализация общая для всех сессий и должна быть потокобезопасной.
+ */
+public interface SpeechRecognizer {
+
+    /**
+     * Начать фразу в формате конвейера
+     */
+    Recognition begin(AudioConfig config);
+
+    interface Recognition {
+
+        /**
+         * Очередной кадр фразы (массив переиспользуется вызывающим)
+         */
+        void accept(short[] samples, int offset, int length);
+
+        /**
+         * Финальный текст фразы; вызывается после последнего кадра
+         */
+        String finish() throws InterruptedException;
+    }
+}
@@ -0,0 +1,32 @@
+package at.nexus.server;
+
+/**
+ * Синтез речи кусками: первый кусок отдаётся, не дожидаясь конца фразы.
+ * Моно 16-bit с частотой {@link #sampleRate()}. Реализация общая для всех
+ * сессий и должна быть потокобезопасной.
+ */
+public interface SpeechSynthesizer {
+
+    int sampleRate();
+
+    /**
+     * Синтезировать текст. Прерывание потока (barge-in) останавливает синтез
+     */
+    void synthesize(String text, ChunkSink sink) throws InterruptedException;
+
+    /**
+     * Прогреть при старте без запроса к синтезу: загрузить классы и прогнать
+     * декодирование ответа на заготовке, чтобы первая фраза не платила за JIT
+     */
+    default void warmUp() {
+    }
+
+    @FunctionalInterface
+    interface ChunkSink {
+
+        /**
+         * Кусок звука; массив только для чтения и может быть общим
+         */
+        void accept(short[] samples, int offset, int length) throws InterruptedException;
+    }
+}
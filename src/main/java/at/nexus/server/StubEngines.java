@@ -0,0 +1,109 @@
+package at.nexus.server;
+
+import at.nexus.audio.AudioConfig;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Заглушки STT/LLM/TTS для сервера без внешних сервисов: ничего
+ * не распознают и не генерируют, только выдерживают задержки
+ * и объём данных, похожие на настоящие движки.
+ */
+public final class StubEngines {
+
+    private static final int WORD_MILLIS = 400;
+    private static final int CHUNK_MILLIS = 20;
+
+    private StubEngines() {
+    }
+
+    /**
+     * Распознавание: "слово" на каждые 400ms речи, финал через {@code finalDelayMillis}
+     */
+    public static SpeechRecognizer recognizer(long finalDelayMillis) {
+        return config -> new SpeechRecognizer.Recognition() {
+            private long samples;
+
+            @Override
+            public void accept(short[] frame, int offset, int length) {
+                samples += length;
+            }
+
+            @Override
+            public String finish() throws InterruptedException {
+                TimeUnit.MILLISECONDS.sleep(finalDelayMillis);
+                long words = Math.max(1, samples / config.samplesForMillis(WORD_MILLIS));
+                StringBuilder text = new StringBuilder();
+                for (long i = 1; i <= words; i++) {
+                    text.append(i == 1 ? "" : " ").append("слово").append(i);
+                }
+                return text.toString();
+            }
+        };
+    }
+
+    /**
+     * Ответ из двух предложений: первый токен через {@code firstTokenMillis},
+     * следующие - каждые {@code tokenMillis}
+     */
+    public static LanguageModel languageModel(long firstTokenMillis, long tokenMillis) {
+        return (prompt, sink) -> {
+            int words = prompt.isBlank() ? 0 : prompt.split(" ").length;
+            String[] tokens = ("Вы сказали " + words + " слов. "
+                    + "Это ответ заглушки, он нужен только для нагрузки на синтез.").split("(?<= )");
+            TimeUnit.MILLISECONDS.sleep(firstTokenMillis);
+            for (int i = 0; i < tokens.length; i++) {
+                if (i > 0) {
+                    TimeUnit.MILLISECONDS.sleep(tokenMillis);
+                }
+                sink.accept(tokens[i]);
+            }
+        };
+    }
+
+    /**
+     * Синтез: 250ms тона на слово кусками по 20ms, первый кусок
+     * через {@code firstChunkMillis}, дальше быстрее реального времени
+     */
+    public static SpeechSynthesizer synthesizer(int sampleRate, long firstChunkMillis) {
+        return new ToneSynthesizer(sampleRate, firstChunkMillis);
+    }
+
+    private static final class ToneSynthesizer implements SpeechSynthesizer {
+        private final int sampleRate;
+        private final long firstChunkMillis;
+        private final int chunk;
+        private final int wordSamples;
+        // Один тон на все сессии: куски отдаются прямо из него
+        private final short[] tone;
+
+        ToneSynthesizer(int sampleRate, long firstChunkMillis) {
+            this.sampleRate = sampleRate;
+            this.firstChunkMillis = firstChunkMillis;
+            AudioConfig format = new AudioConfig(sampleRate, 1, CHUNK_MILLIS, CHUNK_MILLIS, CHUNK_MILLIS);
+            this.chunk = format.frameSamples();
+            this.wordSamples = format.samplesForMillis(250);
+            this.tone = new short[wordSamples];
+            for (int i = 0; i < tone.length; i++) {
+                double envelope = Math.sin(Math.PI * i / tone.length);
+                tone[i] = (short) (Math.sin(2 * Math.PI * 220 * i / sampleRate) * 6000 * envelope);
+            }
+        }
+
+        @Override
+        public int sampleRate() {
+            return sampleRate;
+        }
+
+        @Override
+        public void synthesize(String text, ChunkSink sink) throws InterruptedException {
+            TimeUnit.MILLISECONDS.sleep(firstChunkMillis);
+            int words = Math.max(1, text.trim().split("\\s+").length);
+            for (int w = 0; w < words; w++) {
+                for (int offset = 0; offset < wordSamples; offset += chunk) {
+                    sink.accept(tone, offset, Math.min(chunk, wordSamples - offset));
+                }
+            }
+        }
+    }
+}
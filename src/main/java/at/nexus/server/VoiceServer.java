@@ -0,0 +1,121 @@
+package at.nexus.server;
+
+import at.nexus.audio.AudioConfig;
+import at.nexus.vad.VadConfig;
+import org.java_websocket.WebSocket;
+import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.server.WebSocketServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Голосовой сервер: много клиентов в одной JVM.
+ *
+ * Протокол поверх WebSocket:
+ * <pre>
+ *   -> {"type":"start","sampleRate":48000,"channels":2,"encoding":"opus"}
+ *   <- {"type":"ready","sampleRate":16000,"channels":1,"encoding":"opus"}
+ *   -> бинарные кадры в формате start: PCM 16-bit little-endian
+ *      ("pcm_s16le", по умолчанию) или по одному пакету Opus ("opus")
+ *   <- {"type":"speech_start"} / {"type":"transcript","text":"..."} / {"type":"reply","text":"..."}
+ *   <- бинарные кадры ответа в формате ready, в темпе воспроизведения
+ *   <- {"type":"interrupt"} - ответ прерван речью, сбросить буфер вывода
+ *   <- {"type":"reply_end"}
+ *   -> {"type":"end"}
+ *   <- {"type":"done"}
+ * </pre>
+ *
+ * Кодек ответа - тот же, что у клиента, если он поддерживает частоту
+ * синтеза, иначе PCM; его называет {@code ready}. Если запрошенный кодек
+ * на сервере недоступен, клиент получает {@code error} и может повторить
+ * {@code start} с PCM.
+ *
+ * Потоки WebSocket только раскладывают звук по буферам сессий; вся
+ * обработка - на виртуальных потоках {@link VoiceSession}, поэтому число
+ * сессий ограничено CPU, а не количеством потоков. Конфигурация, движки
+ * STT/LLM/TTS и таблицы фильтров общие для всех сессий.
+ */
+public class VoiceServer extends WebSocketServer {
+    private static final Logger log = LoggerFactory.getLogger(VoiceServer.class);
+
+    // Очередь непринятых соединений: системной по умолчанию (~50) не хватает,
+    // когда клиенты подключаются волной (старт, переподключение после сбоя)
+    private static final int MAX_PENDING_CONNECTIONS = 1024;
+
+    private final AudioConfig config;
+    private final VadConfig vadConfig;
+    private final SessionServices services;
+    private final ServerMetrics metrics = new ServerMetrics();
+    private final AtomicLong sessionIds = new AtomicLong();
+    private final CountDownLatch started = new CountDownLatch(1);
+
+    /**
+     * @param config формат конвейера (обычно 16kHz моно, кадр 10-30ms для VAD)
+     */
+    public VoiceServer(InetSocketAddress address, AudioConfig config, VadConfig vadConfig,
+                       SessionServices services) {
+        super(address);
+        this.config = config;
+        this.vadConfig = vadConfig;
+        this.services = services;
+        setReuseAddr(true);
+        setTcpNoDelay(true); // кадры маленькие, Nagle добавил бы задержку
+        setMaxPendingConnections(MAX_PENDING_CONNECTIONS);
+    }
+
+    @Override
+    public void onOpen(WebSocket conn, ClientHandshake handshake) {
+        metrics.sessionOpened();
+        conn.setAttachment(new VoiceSession(sessionIds.incrementAndGet(), conn, config, vadConfig,
+                services, metrics));
+    }
+
+    @Override
+    public void onMessage(WebSocket conn, String message) {
+        VoiceSession session = conn.getAttachment();
+        session.onControl(message);
+    }
+
+    @Override
+    public void onMessage(WebSocket conn, ByteBuffer message) {
+        VoiceSession session = conn.getAttachment();
+        session.onAudio(message);
+    }
+
+    @Override
+    public void onClose(WebSocket conn, int code, String reason, boolean remote) {
+        VoiceSession session = conn.getAttachment();
+        if (session != null) {
+            session.close();
+        }
+    }
+
+    @Override
+    public void onError(WebSocket conn, Exception ex) {
+        log.error("Ошибка сервера{}", conn == null ? "" : " (" + conn.getRemoteSocketAddress() + ")", ex);
+    }
+
+    @Override
+    public void onStart() {
+        log.info("Голосовой сервер слушает {}: {}Hz, кадр {}ms", getAddress(),
+                config.sampleRate(), config.frameMillis());
+        started.countDown();
+    }
+
+    /**
+     * Дождаться, пока сервер начнёт принимать соединения
+     */
+    public boolean awaitStarted(long timeout, TimeUnit unit) throws InterruptedException {
+        return started.await(timeout, unit);
+    }
+
+    public ServerMetrics getMetrics() {
+        return metrics;
+    }
+}
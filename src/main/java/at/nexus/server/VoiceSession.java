@@ -0,0 +1,418 @@
+package at.nexus.server;
+
+import at.nexus.audio.AudioConfig;
+import at.nexus.audio.PcmRingBuffer;
+import at.nexus.audio.PcmWriter;
+import at.nexus.audio.io.FormatAdapter;
+import at.nexus.codec.AudioCodec;
+import at.nexus.codec.AudioDecoder;
+import at.nexus.codec.CodecConfig;
+import at.nexus.codec.EncoderStage;
+import at.nexus.server.ServerMetrics.Stage;
+import at.nexus.tts.SentenceChunker;
+import at.nexus.vad.VadConfig;
+import at.nexus.vad.VadListener;
+import at.nexus.vad.VadStage;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.java_websocket.WebSocket;
+import org.java_websocket.exceptions.WebsocketNotConnectedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Голосовая сессия одного клиента сервера.
+ *
+ * Звук клиента приходит в потоке WebSocket сервера, приводится
+ * к формату конвейера (пакеты кодека декодируются сразу в него)
+ * и кладётся в кольцевой буфер. Дальше всё
+ * на виртуальных потоках:
+ * <ul>
+ *   <li>поток сессии - кадры из буфера через VAD в распознавание;</li>
+ *   <li>поток ответа (на каждую фразу) - финал STT, токены LLM,
+ *       синтез по предложениям и отправка звука клиенту в темпе
+ *       воспроизведения, не больше чем на {@code MAX_LEAD} вперёд.</li>
+ * </ul>
+ * Начало новой речи во время ответа прерывает его (barge-in),
+ * клиент получает {@code interrupt} и сбрасывает свой буфер.
+ */
+final class VoiceSession implements VadListener {
+    private static final Logger log = LoggerFactory.getLogger(VoiceSession.class);
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private static final int INPUT_BUFFER_MILLIS = 1000;
+    private static final long IDLE_CHECK_MILLIS = 100;
+    // Поток сессии будит unpark от записи в буфер; таймаут только страхует.
+    // Сотни ждущих сессий с 1 ms по умолчанию просыпаются вхолостую и
+    // съедают больше половины ядра, с 50 ms - единицы процентов
+    private static final long INPUT_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    // Сколько звука ответа отправлять вперёд воспроизведения клиента
+    private static final long MAX_LEAD_NANOS = TimeUnit.MILLISECONDS.toNanos(200);
+
+    private final long id;
+    private final WebSocket connection;
+    private final AudioConfig config;
+    private final SessionServices services;
+    private final ServerMetrics metrics;
+
+    private final PcmRingBuffer input;
+    private final PcmWriter inputWriter;
+    private final short[] frame;
+    private final VadStage vad;
+    // Только поток WebSocket сервера
+    private FormatAdapter inputAdapter;
+    // Декодер входа, если клиент шлёт пакеты кодека; закрывается под блокировкой сессии
+    private AudioDecoder inputDecoder;
+    private short[] decoded;
+    // Кодек звука ответов, задаётся в start
+    private AudioCodec outputCodec = AudioCodec.PCM;
+
+    private volatile Thread worker;
+    private volatile Thread reply;
+    private volatile boolean inputEnded;
+    private volatile boolean closed;
+
+    // Только поток сессии
+    private SpeechRecognizer.Recognition recognition;
+
+    VoiceSession(long id, WebSocket connection, AudioConfig config, VadConfig vadConfig,
+                 SessionServices services, ServerMetrics metrics) {
+        this.id = id;
+        this.connection = connection;
+        this.config = config;
+        this.services = services;
+        this.metrics = metrics;
+        this.input = new PcmRingBuffer(config.samplesForMillis(INPUT_BUFFER_MILLIS),
+                PcmRingBuffer.OverflowPolicy.DROP_OLDEST, INPUT_PARK_NANOS);
+        this.inputWriter = input::writeBytes;
+        this.frame = new short[config.frameSamples()];
+        this.vad = new VadStage(config, vadConfig);
+        vad.addListener(this);
+    }
+
+    // ========== Поток WebSocket сервера ==========
+
+    /**
+     * Управляющее сообщение клиента:
+     * {@code {"type":"start","sampleRate":48000,"channels":2,"encoding":"opus"}}
+     * или {@code {"type":"end"}}; без {@code encoding} - PCM
+     */
+    void onControl(String message) {
+        try {
+            JsonNode node = mapper.readTree(message);
+            switch (node.path("type").asText()) {
+                case "start" -> start(node.path("sampleRate").asInt(config.sampleRate()),
+                        node.path("channels").asInt(config.channels()),
+                        AudioCodec.fromEncoding(node.path("encoding").asText(AudioCodec.PCM.encoding())));
+                case "end" -> inputEnded = true;
+                default -> log.warn("Сессия {}: неизвестное сообщение {}", id, message);
+            }
+        } catch (Exception e) {
+            log.warn("Сессия {}: ошибка разбора {}", id, message, e);
+            send(event("error").put("text", e.getMessage()));
+        }
+    }
+
+    private void start(int sampleRate, int channels, AudioCodec codec) {
+        if (worker != null) {
+            log.warn("Сессия {}: повторный start игнорируется", id);
+            return;
+        }
+        if (!codec.isAvailable()) {
+            log.warn("Сессия {}: кодек {} недоступен", id, codec.encoding());
+            send(event("error").put("text", "Кодек " + codec.encoding() + " недоступен на сервере"));
+            return;
+        }
+        if (codec == AudioCodec.PCM) {
+            AudioConfig client = config.withFormat(sampleRate, channels);
+            inputAdapter = client.equals(config) ? null : FormatAdapter.capture(client, config);
+        } else {
+            // Пакет сам знает свою частоту: декодер сразу отдаёт формат конвейера
+            inputDecoder = codec.decoder(CodecConfig.voice(config));
+            decoded = new short[inputDecoder.maxFrameSamples()];
+        }
+        int outputRate = services.synthesizer().sampleRate();
+        outputCodec = codec.supports(CodecConfig.voice(outputRate, 1)) ? codec : AudioCodec.PCM;
+        send(event("ready")
+                .put("sampleRate", outputRate)
+                .put("channels", 1)
+                .put("encoding", outputCodec.encoding()));
+        worker = Thread.ofVirtual().name("session-" + id).start(this::run);
+        log.debug("Сессия {}: старт, вход {}Hz/{} кан. {}, ответ {}", id, sampleRate, channels,
+                codec.encoding(), outputCodec.encoding());
+    }
+
+    /**
+     * Звук клиента: PCM 16-bit little-endian в его формате
+     * или один пакет кодека
+     */
+    void onAudio(ByteBuffer message) {
+        if (worker == null) {
+            return; // до start формат неизвестен
+        }
+        byte[] data;
+        int offset;
+        int length = message.remaining();
+        if (message.hasArray()) {
+            data = message.array();
+            offset = message.arrayOffset() + message.position();
+        } else {
+            data = new byte[length];
+            message.get(data);
+            offset = 0;
+        }
+        metrics.audioReceived(length);
+        if (inputDecoder != null) {
+            decode(data, offset, length);
+        } else if (inputAdapter != null) {
+            inputAdapter.write(inputWriter, data, offset, length);
+        } else {
+            input.writeBytes(data, offset, length);
+        }
+    }
+
+    private synchronized void decode(byte[] data, int offset, int length) {
+        if (closed) {
+            return;
+        }
+        int samples;
+        try {
+            samples = inputDecoder.decode(data, offset, length, decoded, 0);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            // Битый пакет - как потерянный
+            log.debug("Сессия {}: пакет {} байт не декодирован: {}", id, length, e.getMessage());
+            samples = inputDecoder.conceal(decoded, 0);
+        }
+        input.write(decoded, 0, samples);
+    }
+
+    /**
+     * Соединение закрыто: остановить потоки сессии
+     */
+    void close() {
+        synchronized (this) {
+            closed = true;
+            if (inputDecoder != null) {
+                inputDecoder.close();
+            }
+        }
+        interrupt(worker);
+        interrupt(reply);
+        metrics.sessionClosed(input.getDroppedSamples());
+    }
+
+    // ========== Поток сессии ==========
+
+    private void run() {
+        long nanosPerSample = TimeUnit.SECONDS.toNanos(1) / ((long) config.sampleRate() * config.channels());
+        try {
+            while (!closed) {
+                if (!input.awaitAvailable(frame.length, IDLE_CHECK_MILLIS, TimeUnit.MILLISECONDS)) {
+                    if (inputEnded) {
+                        break;
+                    }
+                    continue;
+                }
+                int count = input.read(frame, 0, frame.length);
+                metrics.record(Stage.BACKLOG, input.available() * nanosPerSample);
+
+                long start = System.nanoTime();
+                vad.process(frame, 0, count);
+                metrics.record(Stage.FRAME, System.nanoTime() - start);
+            }
+            vad.flush();
+            Thread current = reply;
+            if (current != null) {
+                current.join();
+            }
+            send(event("done"));
+        } catch (InterruptedException e) {
+            log.debug("Сессия {}: поток остановлен", id);
+        }
+    }
+
+    @Override
+    public void onSpeechStart(long samplePosition) {
+        Thread current = reply;
+        if (current != null && current.isAlive()) {
+            current.interrupt();
+            metrics.bargeIn();
+            send(event("interrupt"));
+        }
+        recognition = services.recognizer().begin(config);
+        send(event("speech_start"));
+    }
+
+    @Override
+    public void onVoicedFrame(short[] samples, int offset, int length) {
+        if (recognition != null) {
+            recognition.accept(samples, offset, length);
+        }
+    }
+
+    @Override
+    public void onSpeechEnd(long samplePosition) {
+        SpeechRecognizer.Recognition utterance = recognition;
+        recognition = null;
+        if (utterance == null || closed) {
+            return;
+        }
+        Reply next = new Reply(utterance, System.nanoTime());
+        metrics.replyStarted();
+        reply = Thread.ofVirtual().name("session-" + id + "-reply").start(next::run);
+    }
+
+    // ========== Отправка ==========
+
+    private ObjectNode event(String type) {
+        return mapper.createObjectNode().put("type", type);
+    }
+
+    private void send(ObjectNode message) {
+        try {
+            connection.send(message.toString());
+        } catch (WebsocketNotConnectedException e) {
+            // клиент ушёл - сессию закроет onClose
+        }
+    }
+
+    private static void interrupt(Thread thread) {
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    /**
+     * Ответ на одну фразу: STT -> LLM -> TTS -> клиент, в своём виртуальном потоке.
+     * Со сжатием у ответа свой кодер: пакеты одного ответа - один поток кодека
+     */
+    private final class Reply implements LanguageModel.TokenSink, SpeechSynthesizer.ChunkSink {
+        private final SpeechRecognizer.Recognition utterance;
+        private final long speechEndNanos;
+        private final int outputRate = services.synthesizer().sampleRate();
+        private final ByteBuffer chunk = ByteBuffer.allocate(outputRate / 10 * 2).order(ByteOrder.LITTLE_ENDIAN);
+        private final SentenceChunker chunker = new SentenceChunker(this::speak);
+        private final EncoderStage encoder;
+        private final ByteBuffer packet;
+
+        private long requestNanos;
+        private boolean awaitingToken = true;
+        private long sentenceNanos;
+        private boolean awaitingChunk;
+        private long playbackStartNanos;
+        private long sentSamples;
+
+        Reply(SpeechRecognizer.Recognition utterance, long speechEndNanos) {
+            this.utterance = utterance;
+            this.speechEndNanos = speechEndNanos;
+            if (outputCodec == AudioCodec.PCM) {
+                this.encoder = null;
+                this.packet = null;
+            } else {
+                this.encoder = new EncoderStage(outputCodec.encoder(CodecConfig.voice(outputRate, 1)));
+                this.packet = ByteBuffer.allocate(encoder.getEncoder().maxPacketBytes());
+                encoder.addListener(this::sendPacket);
+            }
+        }
+
+        void run() {
+            try {
+                String text = utterance.finish();
+                metrics.record(Stage.STT, System.nanoTime() - speechEndNanos);
+                send(event("transcript").put("text", text));
+
+                requestNanos = System.nanoTime();
+                services.languageModel().reply(text, this);
+                chunker.flush();
+                if (encoder != null) {
+                    encoder.flush();
+                }
+                send(event("reply_end"));
+            } catch (InterruptedException e) {
+                log.debug("Сессия {}: ответ прерван", id);
+            } catch (WebsocketNotConnectedException e) {
+                // клиент ушёл посреди ответа
+            } finally {
+                if (encoder != null) {
+                    encoder.close();
+                }
+            }
+        }
+
+        @Override
+        public void accept(String token) throws InterruptedException {
+            if (awaitingToken) {
+                awaitingToken = false;
+                metrics.record(Stage.LLM, System.nanoTime() - requestNanos);
+            }
+            chunker.append(token);
+        }
+
+        private void speak(String text) throws InterruptedException {
+            send(event("reply").put("text", text));
+            sentenceNanos = System.nanoTime();
+            awaitingChunk = true;
+            services.synthesizer().synthesize(text, this);
+        }
+
+        @Override
+        public void accept(short[] samples, int offset, int length) throws InterruptedException {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedException();
+            }
+            long now = System.nanoTime();
+            if (awaitingChunk) {
+                awaitingChunk = false;
+                metrics.record(Stage.TTS, now - sentenceNanos);
+            }
+            if (playbackStartNanos == 0) {
+                metrics.record(Stage.RESPONSE, now - speechEndNanos);
+                playbackStartNanos = now;
+            }
+
+            // Клиент играет в реальном времени: держим отправленное
+            // не дальше MAX_LEAD впереди, а после паузы синтеза (клиент
+            // доиграл и молчал) отсчитываем заново
+            long sentNanos = sentSamples * TimeUnit.SECONDS.toNanos(1) / outputRate;
+            long lead = sentNanos - (now - playbackStartNanos);
+            if (lead < 0) {
+                playbackStartNanos = now - sentNanos;
+            } else if (lead > MAX_LEAD_NANOS) {
+                TimeUnit.NANOSECONDS.sleep(lead - MAX_LEAD_NANOS);
+            }
+
+            if (encoder != null) {
+                encoder.process(samples, offset, length);
+            } else {
+                for (int done = 0; done < length; ) {
+                    int n = Math.min(length - done, chunk.capacity() / 2);
+                    chunk.clear();
+                    for (int i = 0; i < n; i++) {
+                        chunk.putShort(samples[offset + done + i]);
+                    }
+                    chunk.flip();
+                    connection.send(chunk); // библиотека копирует данные в свой фрейм
+                    metrics.audioSent(n * 2);
+                    done += n;
+                }
+            }
+            sentSamples += length;
+        }
+
+        /**
+         * Один пакет кодека - одно бинарное сообщение
+         */
+        private void sendPacket(byte[] data, int length, long samplePosition) {
+            packet.clear();
+            packet.put(data, 0, length).flip();
+            connection.send(packet);
+            metrics.audioSent(length);
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package at.nexus.stt;
+
+import at.nexus.audio.AudioConfig;
+import at.nexus.codec.AudioCodec;
+import at.nexus.codec.CodecConfig;
+import at.nexus.codec.EncoderStage;
+import at.nexus.vad.VadListener;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.java_websocket.WebSocket;
+import org.java_websocket.WebSocketImpl;
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.handshake.ServerHandshake;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Потоковый клиент распознавания речи через WebSocket.
+ *
+ * Подключается к {@link at.nexus.vad.VadStage} как слушатель и отправляет
+ * каждый кадр речи сразу, без накопления фразы целиком:
+ * <pre>
+ *   -> {"type":"start","sampleRate":16000,"channels":1,"encoding":"pcm_s16le"}
+ *   -> бинарные кадры PCM 16-bit little-endian
+ *   -> {"type":"end"}
+ *   <- {"type":"partial","text":"..."} / {"type":"final","text":"..."}
+ * </pre>
+ * С {@link AudioCodec#OPUS} в start {@code "encoding":"opus"}, а вместо
+ * кадров PCM - пакеты по 20ms, один пакет на сообщение; конец фразы
+ * дописывается тишиной до целого пакета. Без libopus - PCM.
+ *
+ * Если сервер или сеть не успевают и очередь отправки сокета превышает
+ * {@code maxQueuedFrames}, новые кадры выкидываются (счётчик в
+ * {@link SttMetrics}), чтобы задержка не копилась бесконечно.
+ */
+public class StreamingSttClient implements VadListener, AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(StreamingSttClient.class);
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private final AudioConfig config;
+    private final SttListener listener;
+    private final int maxQueuedFrames;
+    private final SttMetrics metrics = new SttMetrics();
+    private final Connection connection;
+    private final AudioCodec codec;
+
+    // Буферы переиспользуются: библиотека копирует данные в свой фрейм при send
+    private final ByteBuffer frameBuffer;
+    // Только со сжатием: кадры -> пакеты кодека
+    private final EncoderStage encoder;
+    private final ByteBuffer packetBuffer;
+
+    private volatile long utteranceStartNanos;
+    private volatile long utteranceEndNanos;
+    private volatile boolean awaitingFirstPartial;
+    private volatile boolean inUtterance;
+
+    public StreamingSttClient(URI serverUri, AudioConfig config, SttListener listener, int maxQueuedFrames) {
+        this(serverUri, config, listener, maxQueuedFrames, AudioCodec.PCM);
+    }
+
+    /**
+     * @param codec как слать звук; недоступный кодек или формат, который
+     *              он не поддерживает, заменяется на PCM
+     */
+    public StreamingSttClient(URI serverUri, AudioConfig config, SttListener listener, int maxQueuedFrames,
+                              AudioCodec codec) {
+        this.config = config;
+        this.listener = listener;
+        this.maxQueuedFrames = maxQueuedFrames;
+        this.connection = new Connection(serverUri);
+        this.frameBuffer = ByteBuffer.allocate(config.frameBytes()).order(ByteOrder.LITTLE_ENDIAN);
+
+        CodecConfig codecConfig = CodecConfig.voice(config);
+        if (codec != AudioCodec.PCM && !(codec.isAvailable() && codec.supports(codecConfig))) {
+            log.warn("Кодек {} для STT недоступен, звук уходит в PCM", codec.encoding());
+            codec = AudioCodec.PCM;
+        }
+        this.codec = codec;
+        if (codec == AudioCodec.PCM) {
+            this.encoder = null;
+            this.packetBuffer = null;
+        } else {
+            this.encoder = new EncoderStage(codec.encoder(codecConfig));
+            this.packetBuffer = ByteBuffer.allocate(encoder.getEncoder().maxPacketBytes());
+            encoder.addListener(this::sendPacket);
+        }
+    }
+
+    /**
+     * Подключиться к серверу распознавания
+     * @return true если соединение установлено
+     */
+    public boolean connect(long timeout, TimeUnit unit) throws InterruptedException {
+        boolean connected = connection.connectBlocking(timeout, unit);
+        if (connected) {
+            log.info("STT подключён: {}", connection.getURI());
+        } else {
+            log.error("Не удалось подключиться к STT: {}", connection.getURI());
+        }
+        return connected;
+    }
+
+    public boolean isConnected() {
+        return connection.isOpen();
+    }
+
+    @Override
+    public void close() {
+        try {
+            connection.closeBlocking();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (encoder != null) {
+            encoder.close();
+        }
+        log.info("STT отключён: {}", metrics);
+    }
+
+    public SttMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Кодек, которым звук реально уходит на сервер
+     */
+    public AudioCodec getCodec() {
+        return codec;
+    }
+
+    // ========== VadListener ==========
+
+    @Override
+    public void onSpeechStart(long samplePosition) {
+        if (!connection.isOpen()) {
+            return;
+        }
+        ObjectNode start = mapper.createObjectNode()
+                .put("type", "start")
+                .put("sampleRate", config.sampleRate())
+                .put("channels", config.channels())
+                .put("encoding", codec.encoding());
+        connection.send(start.toString());
+        if (encoder != null) {
+            encoder.reset();
+        }
+
+        inUtterance = true;
+        awaitingFirstPartial = true;
+        utteranceStartNanos = System.nanoTime();
+    }
+
+    @Override
+    public void onVoicedFrame(short[] samples, int offset, int length) {
+        sendFrame(samples, offset, length);
+    }
+
+    @Override
+    public void onSpeechEnd(long samplePosition) {
+        if (!inUtterance || !connection.isOpen()) {
+            return;
+        }
+        inUtterance = false;
+        if (encoder != null) {
+            encoder.flush();
+        }
+        utteranceEndNanos = System.nanoTime();
+        connection.send("{\"type\":\"end\"}");
+    }
+
+    /**
+     * Отправить кадр речи (выкидывается, если очередь сокета переполнена).
+     * Кадр длиннее кадра {@link AudioConfig} уходит несколькими сообщениями;
+     * со сжатием - копится в кодере и уходит целыми пакетами
+     * @return true если кадр поставлен в отправку
+     */
+    public boolean sendFrame(short[] samples, int offset, int length) {
+        if (!inUtterance || !connection.isOpen() || queuedFrames() >= maxQueuedFrames) {
+            metrics.recordDropped();
+            return false;
+        }
+        if (encoder != null) {
+            encoder.process(samples, offset, length);
+            metrics.recordSent(0); // байты считает sendPacket
+            return true;
+        }
+
+        int piece = frameBuffer.capacity() / 2;
+        for (int done = 0; done < length; done += piece) {
+            int n = Math.min(piece, length - done);
+            frameBuffer.clear();
+            for (int i = 0; i < n; i++) {
+                frameBuffer.putShort(samples[offset + done + i]);
+            }
+            frameBuffer.flip();
+            connection.send(frameBuffer);
+        }
+        metrics.recordSent(length * 2);
+        return true;
+    }
+
+    private void sendPacket(byte[] packet, int length, long samplePosition) {
+        packetBuffer.clear();
+        packetBuffer.put(packet, 0, length).flip();
+        connection.send(packetBuffer);
+        metrics.recordSentBytes(length);
+    }
+
+    /**
+     * Сколько фреймов ждёт отправки в сокет
+     */
+    public int queuedFrames() {
+        WebSocket socket = connection.getConnection();
+        if (socket instanceof WebSocketImpl impl) {
+            return impl.outQueue.size();
+        }
+        return 0;
+    }
+
+    private void handleMessage(String message) {
+        try {
+            JsonNode node = mapper.readTree(message);
+            String type = node.path("type").asText();
+            String text = node.path("text").asText("");
+
+            switch (type) {
+                case "partial" -> {
+                    if (awaitingFirstPartial) {
+                        awaitingFirstPartial = false;
+                        metrics.recordFirstPartial(System.nanoTime() - utteranceStartNanos);
+                    }
+                    listener.onPartial(text);
+                }
+                case "final" -> {
+                    if (utteranceEndNanos != 0) {
+                        metrics.recordFinal(System.nanoTime() - utteranceEndNanos);
+                        utteranceEndNanos = 0;
+                    }
+                    listener.onFinal(text);
+                }
+                case "error" -> listener.onError(new IllegalStateException("Ошибка STT сервера: " + text));
+                default -> log.warn("Неизвестное сообщение STT: {}", message);
+            }
+        } catch (Exception e) {
+            log.error("Ошибка разбора ответа STT: {}", message, e);
+            listener.onError(e);
+        }
+    }
+
+    /**
+     * WebSocket соединение, события передаются во внешний класс
+     */
+    private class Connection extends WebSocketClient {
+
+        Connection(URI serverUri) {
+            super(serverUri);
+            setTcpNoDelay(true); // кадры маленькие, Nagle добавил бы задержку
+        }
+
+        @Override
+        public void onOpen(ServerHandshake handshake) {
+            log.debug("STT соединение открыто");
+        }
+
+        @Override
+        public void onMessage(String message) {
+            handleMessage(message);
+        }
+
+        @Override
+        public void onClose(int code, String reason, boolean remote) {
+            inUtterance = false;
+            log.info("STT соединение закрыто: {} {}", code, reason);
+        }
+
+        @Override
+        public void onError(Exception e) {
+            log.error("Ошибка STT соединения", e);
+            listener.onError(e);
+        }
+    }
+}
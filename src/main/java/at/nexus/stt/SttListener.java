@@ -0,0 +1,25 @@
+package at.nexus.stt;
+
+/**
+ * Получатель результатов распознавания.
+ *
+ * Вызывается из потока WebSocket клиента.
+ */
+public interface SttListener {
+
+    /**
+     * Промежуточная гипотеза (может меняться до финала)
+     */
+    void onPartial(String text);
+
+    /**
+     * Финальный текст фразы
+     */
+    void onFinal(String text);
+
+    /**
+     * Ошибка соединения или протокола
+     */
+    default void onError(Exception e) {
+    }
+}
@@ -0,0 +1,115 @@
+package at.nexus.stt;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Метрики задержки распознавания, которые ощущает пользователь.
+ *
+ * <ul>
+ *   <li>time-to-first-partial - от первого отправленного кадра фразы
+ *       до первой промежуточной гипотезы;</li>
+ *   <li>time-to-final - от конца речи (отправки конца фразы)
+ *       до финального текста.</li>
+ * </ul>
+ */
+public class SttMetrics {
+
+    private final Stat firstPartial = new Stat();
+    private final Stat finalResult = new Stat();
+    private final AtomicLong sentFrames = new AtomicLong();
+    private final AtomicLong droppedFrames = new AtomicLong();
+    private final AtomicLong sentBytes = new AtomicLong();
+
+    void recordFirstPartial(long nanos) {
+        firstPartial.record(nanos);
+    }
+
+    void recordFinal(long nanos) {
+        finalResult.record(nanos);
+    }
+
+    void recordSent(int bytes) {
+        sentFrames.incrementAndGet();
+        sentBytes.addAndGet(bytes);
+    }
+
+    /**
+     * Байты без нового кадра: пакеты кодека уходят не в такт кадрам
+     */
+    void recordSentBytes(int bytes) {
+        sentBytes.addAndGet(bytes);
+    }
+
+    void recordDropped() {
+        droppedFrames.incrementAndGet();
+    }
+
+    public Stat getTimeToFirstPartial() {
+        return firstPartial;
+    }
+
+    public Stat getTimeToFinal() {
+        return finalResult;
+    }
+
+    public long getSentFrames() {
+        return sentFrames.get();
+    }
+
+    /**
+     * Кадров выкинуто из-за переполнения буфера отправки
+     */
+    public long getDroppedFrames() {
+        return droppedFrames.get();
+    }
+
+    public long getSentBytes() {
+        return sentBytes.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("first-partial %s, final %s, кадров отправлено %d, выкинуто %d",
+                firstPartial, finalResult, getSentFrames(), getDroppedFrames());
+    }
+
+    /**
+     * Простая статистика задержки: последнее, среднее и максимум
+     */
+    public static class Stat {
+        private long count;
+        private long totalNanos;
+        private long maxNanos;
+        private long lastNanos;
+
+        synchronized void record(long nanos) {
+            count++;
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+            lastNanos = nanos;
+        }
+
+        public synchronized long getCount() {
+            return count;
+        }
+
+        public synchronized long getLastMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(lastNanos);
+        }
+
+        public synchronized long getAverageMillis() {
+            return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalNanos / count);
+        }
+
+        public synchronized long getMaxMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(maxNanos);
+        }
+
+        @Override
+        public synchronized String toString() {
+            return String.format("n=%d avg=%dms max=%dms last=%dms",
+                    count, getAverageMillis(), getMaxMillis(), getLastMillis());
+        }
+    }
+}
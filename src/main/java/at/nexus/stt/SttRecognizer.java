@@ -0,0 +1,118 @@
+package at.nexus.stt;
+
+import at.nexus.audio.AudioConfig;
+import at.nexus.codec.AudioCodec;
+import at.nexus.server.SpeechRecognizer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Распознавание для сервера через {@link StreamingSttClient}.
+ *
+ * Клиент ведёт одну фразу за раз, поэтому у каждой фразы своё соединение:
+ * открывается в {@link #begin}, закрывается после финала. Кадры уходят
+ * на сервер сразу, финал ждётся не дольше {@code finalTimeoutMillis}.
+ * Сервер недоступен или не ответил - пустой текст, сессия продолжает
+ * работу. Потокобезопасен.
+ */
+public class SttRecognizer implements SpeechRecognizer {
+    private static final Logger log = LoggerFactory.getLogger(SttRecognizer.class);
+
+    private static final int MAX_QUEUED_FRAMES = 50;
+
+    private final URI serverUri;
+    private final AudioCodec codec;
+    private final long connectTimeoutMillis;
+    private final long finalTimeoutMillis;
+
+    public SttRecognizer(URI serverUri, AudioCodec codec) {
+        this(serverUri, codec, 2000, 5000);
+    }
+
+    /**
+     * @param codec как слать звук, см. {@link StreamingSttClient}
+     */
+    public SttRecognizer(URI serverUri, AudioCodec codec, long connectTimeoutMillis, long finalTimeoutMillis) {
+        this.serverUri = serverUri;
+        if (!codec.isAvailable()) {
+            // Проверка один раз, а не предупреждение клиента на каждой фразе
+            log.warn("Кодек {} для STT недоступен, звук уходит в PCM", codec.encoding());
+            codec = AudioCodec.PCM;
+        }
+        this.codec = codec;
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.finalTimeoutMillis = finalTimeoutMillis;
+    }
+
+    @Override
+    public Recognition begin(AudioConfig config) {
+        Utterance utterance = new Utterance(config);
+        try {
+            // Поток сессии ждёт соединения; кадры за это время копятся в его буфере
+            if (utterance.client.connect(connectTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                utterance.client.onSpeechStart(0);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return utterance;
+    }
+
+    @Override
+    public String toString() {
+        return "SttRecognizer[" + serverUri + ", " + codec.encoding() + "]";
+    }
+
+    private final class Utterance implements Recognition, SttListener {
+        private final CompletableFuture<String> result = new CompletableFuture<>();
+        private final StreamingSttClient client;
+
+        Utterance(AudioConfig config) {
+            this.client = new StreamingSttClient(serverUri, config, this, MAX_QUEUED_FRAMES, codec);
+        }
+
+        @Override
+        public void accept(short[] samples, int offset, int length) {
+            client.sendFrame(samples, offset, length);
+        }
+
+        @Override
+        public String finish() throws InterruptedException {
+            try {
+                if (!client.isConnected()) {
+                    return "";
+                }
+                client.onSpeechEnd(0);
+                return result.get(finalTimeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (ExecutionException e) {
+                log.warn("STT без финала: {}", e.getCause().toString());
+                return "";
+            } catch (TimeoutException e) {
+                log.warn("STT не прислал финал за {}ms", finalTimeoutMillis);
+                return "";
+            } finally {
+                client.close();
+            }
+        }
+
+        @Override
+        public void onPartial(String text) {
+        }
+
+        @Override
+        public void onFinal(String text) {
+            result.complete(text);
+        }
+
+        @Override
+        public void onError(Exception e) {
+            result.completeExceptionally(e);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package at.nexus.tts;
+
+import at.nexus.audio.PcmWriter;
+
+/**
+ * G.711 (mu-law / A-law): один байт на сэмпл, расширение через таблицу
+ * на 256 значений. Выход - вдвое больше входа, кусками по блоку.
+ */
+public class G711StreamDecoder implements StreamDecoder {
+
+    public enum Law {
+        MU_LAW,
+        A_LAW
+    }
+
+    private static final int BLOCK_SAMPLES = 2048;
+    private static final short[] MU_LAW_TABLE = new short[256];
+    private static final short[] A_LAW_TABLE = new short[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            MU_LAW_TABLE[i] = muLawToLinear((byte) i);
+            A_LAW_TABLE[i] = aLawToLinear((byte) i);
+        }
+    }
+
+    private final Law law;
+    private final short[] table;
+    private final int sampleRate;
+    private final int channels;
+    private final byte[] pcm;
+    // Байты неполного кадра (многоканальный поток)
+    private int pendingSamples;
+
+    public G711StreamDecoder(Law law, int sampleRate, int channels) {
+        if (sampleRate <= 0 || channels <= 0) {
+            throw new IllegalArgumentException("Недопустимый формат G.711: " + sampleRate + "Hz/" + channels);
+        }
+        this.law = law;
+        this.table = law == Law.MU_LAW ? MU_LAW_TABLE : A_LAW_TABLE;
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+        this.pcm = new byte[(BLOCK_SAMPLES + channels) * 2];
+    }
+
+    @Override
+    public void decode(byte[] data, int offset, int length, PcmWriter out) {
+        int i = 0;
+        while (i < length) {
+            int n = Math.min(BLOCK_SAMPLES, length - i);
+            int p = pendingSamples * 2;
+            for (int k = 0; k < n; k++) {
+                short s = table[data[offset + i + k] & 0xFF];
+                pcm[p++] = (byte) s;
+                pcm[p++] = (byte) (s >> 8);
+            }
+            i += n;
+            int samples = pendingSamples + n;
+            int whole = samples / channels * channels;
+            if (whole > 0) {
+                out.write(pcm, 0, whole * 2);
+            }
+            pendingSamples = samples - whole;
+            System.arraycopy(pcm, whole * 2, pcm, 0, pendingSamples * 2);
+        }
+    }
+
+    /**
+     * mu-law -> 16-bit линейный (ITU-T G.711)
+     */
+    static short muLawToLinear(byte value) {
+        int u = ~value & 0xFF;
+        int t = ((u & 0x0F) << 3) + 0x84;
+        t <<= (u & 0x70) >> 4;
+        return (short) ((u & 0x80) != 0 ? 0x84 - t : t - 0x84);
+    }
+
+    /**
+     * A-law -> 16-bit линейный (ITU-T G.711)
+     */
+    static short aLawToLinear(byte value) {
+        int a = (value ^ 0x55) & 0xFF;
+        int t = (a & 0x0F) << 4;
+        int segment = (a & 0x70) >> 4;
+        if (segment == 0) {
+            t += 8;
+        } else {
+            t = (t + 0x108) << (segment - 1);
+        }
+        return (short) ((a & 0x80) != 0 ? t : -t);
+    }
+
+    @Override
+    public int sampleRate() {
+        return sampleRate;
+    }
+
+    @Override
+    public int channels() {
+        return channels;
+    }
+
+    @Override
+    public void reset() {
+        pendingSamples = 0;
+    }
+
+    @Override
+    public String toString() {
+        return (law == Law.MU_LAW ? "G.711 mu-law " : "G.711 A-law ") + sampleRate + "Hz/" + channels;
+    }
+}
@@ -0,0 +1,195 @@
+package at.nexus.tts;
+
+import at.nexus.audio.AudioConfig;
+import at.nexus.audio.PcmWriter;
+import at.nexus.audio.io.FormatAdapter;
+import at.nexus.dsp.PcmOps;
+import at.nexus.server.SpeechSynthesizer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Синтез речи через HTTP: звук отдаётся кусками по мере прихода ответа.
+ *
+ * Запрос в стиле OpenAI {@code /v1/audio/speech}:
+ * {@code {"model":"...","voice":"...","input":"текст","response_format":"wav"}}.
+ * Формат ответа определяется по Content-Type ({@link StreamDecoder#forContentType}),
+ * звук приводится к {@link #sampleRate()} моно. Прерывание потока
+ * обрывает ответ, как в {@link at.nexus.llm.StreamingLlmClient}. Потокобезопасен.
+ */
+public class HttpSpeechSynthesizer implements SpeechSynthesizer {
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final MediaType JSON = MediaType.get("application/json");
+    private static final int READ_BYTES = 4096;
+    private static final int ADAPTER_FRAMES = 1024;
+    // Прогрев: типичный ответ TTS - WAV 24000Hz моно
+    private static final int WARM_UP_RATE = 24000;
+    private static final int WARM_UP_MILLIS = 1000;
+
+    private final OkHttpClient http;
+    private final String url;
+    private final String model;
+    private final String voice;
+    private final int sampleRate;
+
+    /**
+     * @param sampleRate частота, в которой звук отдаётся получателю
+     */
+    public HttpSpeechSynthesizer(String url, String model, String voice, int sampleRate) {
+        this(new OkHttpClient.Builder()
+                .connectTimeout(5, TimeUnit.SECONDS)
+                .readTimeout(10, TimeUnit.SECONDS)
+                .build(), url, model, voice, sampleRate);
+    }
+
+    public HttpSpeechSynthesizer(OkHttpClient http, String url, String model, String voice, int sampleRate) {
+        this.http = http;
+        this.url = url;
+        this.model = model;
+        this.voice = voice;
+        this.sampleRate = sampleRate;
+    }
+
+    @Override
+    public int sampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * @throws IllegalStateException    сервер ответил ошибкой
+     * @throws IllegalArgumentException неподдерживаемый формат ответа
+     * @throws UncheckedIOException     сеть
+     */
+    @Override
+    public void synthesize(String text, ChunkSink sink) throws InterruptedException {
+        try (Response response = http.newCall(request(text)).execute()) {
+            ResponseBody body = response.body();
+            if (!response.isSuccessful() || body == null) {
+                throw new IllegalStateException("TTS: HTTP " + response.code() + " "
+                        + (body != null ? body.string() : ""));
+            }
+            String type = response.header("Content-Type", "audio/wav");
+            Conversion conversion = new Conversion(StreamDecoder.forContentType(type));
+            InputStream in = body.byteStream();
+            byte[] buffer = new byte[READ_BYTES];
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedException();
+                }
+                conversion.decode(buffer, n);
+                if (conversion.length > 0) {
+                    sink.accept(conversion.samples, 0, conversion.length);
+                }
+            }
+        } catch (IOException e) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            throw new UncheckedIOException("TTS: " + url, e);
+        }
+    }
+
+    /**
+     * Собрать запрос и прогнать через декодер и преобразование частоты
+     * заготовку WAV {@value #WARM_UP_RATE}Hz кусками, как из сети, - без сети
+     */
+    @Override
+    public void warmUp() {
+        request("Прогрев");
+        int samples = WARM_UP_RATE * WARM_UP_MILLIS / 1000;
+        ByteBuffer wav = ByteBuffer.allocate(44 + samples * AudioConfig.BYTES_PER_SAMPLE).order(ByteOrder.LITTLE_ENDIAN);
+        wav.put("RIFF".getBytes(StandardCharsets.US_ASCII)).putInt(-1)
+                .put("WAVEfmt ".getBytes(StandardCharsets.US_ASCII)).putInt(16)
+                .putShort((short) 1).putShort((short) 1).putInt(WARM_UP_RATE).putInt(WARM_UP_RATE * 2)
+                .putShort((short) 2).putShort((short) 16)
+                .put("data".getBytes(StandardCharsets.US_ASCII)).putInt(-1);
+        for (int i = 0; i < samples; i++) {
+            wav.putShort((short) (3000 * Math.sin(2 * Math.PI * 220 * i / WARM_UP_RATE)));
+        }
+        byte[] bytes = wav.array();
+        Conversion conversion = new Conversion(StreamDecoder.forContentType("audio/wav"));
+        byte[] buffer = new byte[READ_BYTES];
+        for (int offset = 0; offset < bytes.length; offset += READ_BYTES) {
+            int n = Math.min(READ_BYTES, bytes.length - offset);
+            System.arraycopy(bytes, offset, buffer, 0, n);
+            conversion.decode(buffer, n);
+        }
+    }
+
+    private Request request(String text) {
+        String json = mapper.createObjectNode()
+                .put("model", model)
+                .put("voice", voice)
+                .put("input", text)
+                .put("response_format", "wav")
+                .toString();
+        return new Request.Builder().url(url).post(RequestBody.create(json, JSON)).build();
+    }
+
+    /**
+     * Декодер ответа -> (частота, каналы) -> сэмплы одного куска сети
+     */
+    private final class Conversion implements PcmWriter {
+        private final StreamDecoder decoder;
+        private final PcmWriter decoded = this::onDecoded;
+        private FormatAdapter adapter;
+        private boolean formatChecked;
+        private short[] samples = new short[READ_BYTES];
+        private int length;
+
+        Conversion(StreamDecoder decoder) {
+            this.decoder = decoder;
+        }
+
+        void decode(byte[] data, int count) {
+            length = 0;
+            decoder.decode(data, 0, count, decoded);
+        }
+
+        private int onDecoded(byte[] pcm, int offset, int bytes) {
+            if (!formatChecked) {
+                formatChecked = true;
+                if (decoder.sampleRate() != sampleRate || decoder.channels() != 1) {
+                    adapter = new FormatAdapter(decoder.sampleRate(), decoder.channels(), sampleRate, 1,
+                            ADAPTER_FRAMES);
+                }
+            }
+            return adapter != null ? adapter.write(this, pcm, offset, bytes) : write(pcm, offset, bytes);
+        }
+
+        /**
+         * PCM уже в формате выхода
+         */
+        @Override
+        public int write(byte[] pcm, int offset, int bytes) {
+            int count = bytes / AudioConfig.BYTES_PER_SAMPLE;
+            if (length + count > samples.length) {
+                samples = Arrays.copyOf(samples, Math.max(samples.length * 2, length + count));
+            }
+            PcmOps.toShorts(pcm, offset, samples, length, count);
+            length += count;
+            return count * AudioConfig.BYTES_PER_SAMPLE;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return voice + " @ " + url;
+    }
+}
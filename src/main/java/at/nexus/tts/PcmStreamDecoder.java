@@ -0,0 +1,92 @@
+package at.nexus.tts;
+
+import at.nexus.audio.AudioConfig;
+import at.nexus.audio.PcmWriter;
+
+/**
+ * Сырой 16-bit PCM. Little-endian проходит без копирования (кроме кадра,
+ * разрезанного между кусками), big-endian переставляет байты.
+ */
+public class PcmStreamDecoder implements StreamDecoder {
+
+    private static final int BLOCK_BYTES = 4096;
+
+    private final int sampleRate;
+    private final int channels;
+    private final boolean bigEndian;
+    private final int frameBytes;
+    // Неполный кадр с конца прошлого куска
+    private final byte[] partial;
+    private int partialLength;
+    private final byte[] swapped;
+
+    public PcmStreamDecoder(int sampleRate, int channels, boolean bigEndian) {
+        if (sampleRate <= 0 || channels <= 0) {
+            throw new IllegalArgumentException("Недопустимый формат PCM: " + sampleRate + "Hz/" + channels);
+        }
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+        this.bigEndian = bigEndian;
+        this.frameBytes = channels * AudioConfig.BYTES_PER_SAMPLE;
+        this.partial = new byte[frameBytes];
+        this.swapped = bigEndian ? new byte[BLOCK_BYTES / frameBytes * frameBytes] : null;
+    }
+
+    @Override
+    public void decode(byte[] data, int offset, int length, PcmWriter out) {
+        int end = offset + length;
+        if (partialLength > 0) {
+            int n = Math.min(frameBytes - partialLength, length);
+            System.arraycopy(data, offset, partial, partialLength, n);
+            partialLength += n;
+            offset += n;
+            if (partialLength < frameBytes) {
+                return;
+            }
+            emit(partial, 0, frameBytes, out);
+            partialLength = 0;
+        }
+        int whole = (end - offset) / frameBytes * frameBytes;
+        if (whole > 0) {
+            emit(data, offset, whole, out);
+        }
+        partialLength = end - offset - whole;
+        System.arraycopy(data, offset + whole, partial, 0, partialLength);
+    }
+
+    private void emit(byte[] data, int offset, int length, PcmWriter out) {
+        if (!bigEndian) {
+            out.write(data, offset, length);
+            return;
+        }
+        for (int done = 0; done < length; ) {
+            int n = Math.min(swapped.length, length - done);
+            for (int i = 0; i < n; i += 2) {
+                swapped[i] = data[offset + done + i + 1];
+                swapped[i + 1] = data[offset + done + i];
+            }
+            out.write(swapped, 0, n);
+            done += n;
+        }
+    }
+
+    @Override
+    public int sampleRate() {
+        return sampleRate;
+    }
+
+    @Override
+    public int channels() {
+        return channels;
+    }
+
+    @Override
+    public void reset() {
+        partialLength = 0;
+    }
+
+    @Override
+    public String toString() {
+        return "PCM " + sampleRate + "Hz/" + channels + (bigEndian ? " BE" : " LE");
+    }
+}
@@ -0,0 +1,89 @@
+package at.nexus.tts;
+
+import at.nexus.metrics.LatencyHistogram;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Метрики потокового воспроизведения TTS, общие для всех ответов.
+ *
+ * <ul>
+ *   <li>time-to-first-audio - от запроса синтеза (создания
+ *       {@link TtsStreamPlayer}) до первого звука в выводе;</li>
+ *   <li>buffering - от первых байт ответа до первого звука,
+ *       то есть цена запаса jitter-буфера;</li>
+ *   <li>недогрузы и суммарная пауза на повторное накопление.</li>
+ * </ul>
+ */
+public class PlaybackMetrics {
+
+    private final LatencyHistogram timeToFirstAudio = new LatencyHistogram();
+    private final LatencyHistogram buffering = new LatencyHistogram();
+    private final AtomicLong streams = new AtomicLong();
+    private final AtomicLong cancelled = new AtomicLong();
+    private final AtomicLong underruns = new AtomicLong();
+    private final AtomicLong rebufferMillis = new AtomicLong();
+    private final AtomicLong playedMillis = new AtomicLong();
+
+    void recordStream() {
+        streams.incrementAndGet();
+    }
+
+    void recordFirstAudio(long requestNanos, long bufferingNanos) {
+        timeToFirstAudio.record(requestNanos);
+        buffering.record(bufferingNanos);
+    }
+
+    void recordUnderrun() {
+        underruns.incrementAndGet();
+    }
+
+    void recordFinished(long played, long rebuffer, boolean wasCancelled) {
+        playedMillis.addAndGet(played);
+        rebufferMillis.addAndGet(rebuffer);
+        if (wasCancelled) {
+            cancelled.incrementAndGet();
+        }
+    }
+
+    public LatencyHistogram getTimeToFirstAudio() {
+        return timeToFirstAudio;
+    }
+
+    public LatencyHistogram getBuffering() {
+        return buffering;
+    }
+
+    public long getStreams() {
+        return streams.get();
+    }
+
+    /**
+     * Потоков, прерванных до конца (barge-in, новый ответ)
+     */
+    public long getCancelled() {
+        return cancelled.get();
+    }
+
+    public long getUnderruns() {
+        return underruns.get();
+    }
+
+    /**
+     * Суммарная пауза на повторное накопление после недогрузов, ms
+     */
+    public long getRebufferMillis() {
+        return rebufferMillis.get();
+    }
+
+    public long getPlayedMillis() {
+        return playedMillis.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("потоков %d (прервано %d), first-audio %s, buffering %s, недогрузов %d, пауз %d ms на %d ms звука",
+                getStreams(), getCancelled(), timeToFirstAudio, buffering, getUnderruns(),
+                getRebufferMillis(), getPlayedMillis());
+    }
+}
@@ -0,0 +1,175 @@
+package at.nexus.tts;
+
+/**
+ * Нарезка потока токенов LLM на куски, которые можно отдавать в синтез.
+ *
+ * Синтез целой реплики ждал бы конца генерации, синтез по токену
+ * звучит рвано. Кусок отдаётся на границе:
+ * <ul>
+ *   <li>предложения ({@code . ! ? …}, перевод строки) - всегда;</li>
+ *   <li>части предложения ({@code , ; : —}) - если набрано не меньше
+ *       {@code clauseChars}; для первого куска порог ниже
+ *       ({@code firstClauseChars}) - от него зависит, когда зазвучит ответ;</li>
+ *   <li>по последнему пробелу, если кусок длиннее {@code maxChars}.</li>
+ * </ul>
+ * Граница засчитывается, только когда за знаком пришёл пробел: так
+ * не режутся {@code 3.14}, {@code т.е.}, инициалы и номера пунктов
+ * списка. Разметка Markdown ({@code * # `}) выкидывается - синтез
+ * прочитал бы её вслух. Не потокобезопасен.
+ */
+public class SentenceChunker {
+
+    public static final int FIRST_CLAUSE_CHARS = 24;
+    public static final int CLAUSE_CHARS = 60;
+    public static final int MAX_CHARS = 250;
+
+    @FunctionalInterface
+    public interface Listener {
+
+        /**
+         * Готов кусок текста (без пробелов по краям, не пустой)
+         */
+        void onChunk(String text) throws InterruptedException;
+    }
+
+    private final Listener listener;
+    private final int firstClauseChars;
+    private final int clauseChars;
+    private final int maxChars;
+
+    private final StringBuilder text = new StringBuilder();
+    // До этой позиции границы уже искали
+    private int scanned;
+    private int chunks;
+
+    public SentenceChunker(Listener listener) {
+        this(listener, FIRST_CLAUSE_CHARS, CLAUSE_CHARS, MAX_CHARS);
+    }
+
+    public SentenceChunker(Listener listener, int firstClauseChars, int clauseChars, int maxChars) {
+        if (firstClauseChars <= 0 || clauseChars <= 0 || maxChars < Math.max(firstClauseChars, clauseChars)) {
+            throw new IllegalArgumentException("Нужно 0 < пороги частей <= maxChars, получено "
+                    + firstClauseChars + "/" + clauseChars + "/" + maxChars);
+        }
+        this.listener = listener;
+        this.firstClauseChars = firstClauseChars;
+        this.clauseChars = clauseChars;
+        this.maxChars = maxChars;
+    }
+
+    /**
+     * Очередной токен; готовые куски уходят слушателю сразу
+     */
+    public void append(CharSequence token) throws InterruptedException {
+        for (int i = 0; i < token.length(); i++) {
+            char c = token.charAt(i);
+            if (c != '*' && c != '#' && c != '`') {
+                text.append(c);
+            }
+        }
+        split();
+    }
+
+    /**
+     * Генерация закончилась: отдать остаток
+     */
+    public void flush() throws InterruptedException {
+        emit(text.length());
+        scanned = 0;
+    }
+
+    /**
+     * Начать новую реплику, выкинув недосказанное
+     */
+    public void reset() {
+        text.setLength(0);
+        scanned = 0;
+        chunks = 0;
+    }
+
+    /**
+     * Сколько кусков отдано с последнего {@link #reset()}
+     */
+    public int getChunks() {
+        return chunks;
+    }
+
+    private void split() throws InterruptedException {
+        // Знаку нужен следующий символ: на последнем останавливаемся и ждём токена
+        int i = scanned;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            int end = i + 1;
+            // Закрывающие кавычки и скобки остаются в куске
+            while (end < text.length() && isCloser(text.charAt(end))) {
+                end++;
+            }
+            if (end == text.length()) {
+                break;
+            }
+            boolean boundary = Character.isWhitespace(text.charAt(end));
+            if (c == '\n' || boundary && isSentenceEnd(c) && !isAbbreviation(i)
+                    || boundary && isClauseEnd(c) && end >= (chunks == 0 ? firstClauseChars : clauseChars)) {
+                emit(end);
+                i = 0;
+            } else {
+                i++;
+            }
+        }
+        scanned = i;
+        while (text.length() > maxChars) {
+            int space = text.lastIndexOf(" ", maxChars);
+            emit(space > 0 ? space : maxChars);
+        }
+    }
+
+    private void emit(int end) throws InterruptedException {
+        String chunk = text.substring(0, end).strip();
+        text.delete(0, end);
+        scanned = 0;
+        if (!chunk.isEmpty()) {
+            chunks++;
+            listener.onChunk(chunk);
+        }
+    }
+
+    /**
+     * Точка после заглавной буквы, слова с точкой внутри или числа в начале
+     * строки - инициал, сокращение или номер пункта, а не конец предложения
+     */
+    private boolean isAbbreviation(int dot) {
+        if (text.charAt(dot) != '.') {
+            return false;
+        }
+        int start = dot;
+        while (start > 0 && !Character.isWhitespace(text.charAt(start - 1))) {
+            start--;
+        }
+        int length = dot - start;
+        if (length == 0) {
+            return false;
+        }
+        boolean digits = true;
+        for (int i = start; i < dot; i++) {
+            char c = text.charAt(i);
+            if (c == '.') {
+                return true;
+            }
+            digits &= Character.isDigit(c);
+        }
+        return digits && text.substring(0, start).isBlank()
+                || length == 1 && Character.isUpperCase(text.charAt(start));
+    }
+
+    private static boolean isSentenceEnd(char c) {
+        return c == '.' || c == '!' || c == '?' || c == '…';
+    }
+
+    private static boolean isClauseEnd(char c) {
+        return c == ',' || c == ';' || c == ':' || c == '—' || c == '–';
+    }
+
+    private static boolean isCloser(char c) {
+        return c == '"' || c == '»' || c == ')' || c == '\'' || c == '”';
+    }
+}
@@ -0,0 +1,73 @@
+package at.nexus.tts;
+
+import at.nexus.audio.PcmWriter;
+
+import java.util.Locale;
+
+/**
+ * Инкрементальный декодер аудио, приходящего по сети кусками.
+ *
+ * Кусок может резать заголовок или сэмпл где угодно - декодер держит
+ * остаток до следующего вызова. На выход идёт 16-bit little-endian PCM
+ * целыми кадрами; формат известен после первого выданного блока.
+ * Не потокобезопасен.
+ */
+public interface StreamDecoder {
+
+    /**
+     * Декодировать очередной кусок и отдать готовый PCM в {@code out}
+     * @throws IllegalArgumentException если данные не в ожидаемом формате
+     */
+    void decode(byte[] data, int offset, int length, PcmWriter out);
+
+    /**
+     * Частота выхода, 0 пока неизвестна (заголовок ещё не пришёл)
+     */
+    int sampleRate();
+
+    /**
+     * Число каналов выхода, 0 пока неизвестно
+     */
+    int channels();
+
+    /**
+     * Подготовиться к новому потоку
+     */
+    void reset();
+
+    /**
+     * Декодер по MIME-типу ответа TTS.
+     * <ul>
+     *   <li>{@code audio/wav}, {@code audio/x-wav}, {@code audio/wave} - формат из заголовка;</li>
+     *   <li>{@code audio/pcm} - 16-bit little-endian, {@code audio/L16} - big-endian (RFC 2586);</li>
+     *   <li>{@code audio/basic}, {@code audio/PCMU}, {@code audio/x-mulaw} - G.711 mu-law,
+     *       {@code audio/PCMA}, {@code audio/x-alaw} - A-law.</li>
+     * </ul>
+     * Параметры {@code rate} и {@code channels} берутся из типа,
+     * для сырого PCM по умолчанию 24000Hz моно, для G.711 - 8000Hz моно.
+     */
+    static StreamDecoder forContentType(String contentType) {
+        String[] parts = contentType.split(";");
+        String type = parts[0].trim().toLowerCase(Locale.ROOT);
+        int rate = 0;
+        int channels = 1;
+        for (int i = 1; i < parts.length; i++) {
+            String[] param = parts[i].trim().split("=", 2);
+            if (param.length == 2 && param[0].trim().equalsIgnoreCase("rate")) {
+                rate = Integer.parseInt(param[1].trim());
+            } else if (param.length == 2 && param[0].trim().equalsIgnoreCase("channels")) {
+                channels = Integer.parseInt(param[1].trim());
+            }
+        }
+        return switch (type) {
+            case "audio/wav", "audio/x-wav", "audio/wave", "audio/vnd.wave" -> new WavStreamDecoder();
+            case "audio/pcm", "audio/x-pcm" -> new PcmStreamDecoder(rate > 0 ? rate : 24000, channels, false);
+            case "audio/l16" -> new PcmStreamDecoder(rate > 0 ? rate : 24000, channels, true);
+            case "audio/basic", "audio/pcmu", "audio/x-mulaw", "audio/mulaw" ->
+                    new G711StreamDecoder(G711StreamDecoder.Law.MU_LAW, rate > 0 ? rate : 8000, channels);
+            case "audio/pcma", "audio/x-alaw", "audio/alaw" ->
+                    new G711StreamDecoder(G711StreamDecoder.Law.A_LAW, rate > 0 ? rate : 8000, channels);
+            default -> throw new IllegalArgumentException("Неподдерживаемый формат TTS: " + contentType);
+        };
+    }
+}
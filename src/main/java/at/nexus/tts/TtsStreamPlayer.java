@@ -0,0 +1,121 @@
+package at.nexus.tts;
+
+import at.nexus.audio.AudioConfig;
+import at.nexus.audio.AudioOutputManager;
+import at.nexus.audio.JitterBuffer;
+import at.nexus.audio.PcmWriter;
+import at.nexus.audio.io.FormatAdapter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Воспроизведение одного ответа TTS по мере прихода из сети.
+ *
+ * Куски ответа ({@link #write}) сразу декодируются {@link StreamDecoder},
+ * приводятся к формату вывода ({@link FormatAdapter}) и попадают
+ * в {@link JitterBuffer}, из которого играет {@link AudioOutputManager}.
+ * Звук начинается, как только набран минимальный безопасный запас,
+ * а не после загрузки всего ответа.
+ *
+ * Создавать в момент запроса синтеза - от него считается time-to-first-audio.
+ * {@link #write} и {@link #finish()} - из одного (сетевого) потока,
+ * {@link #cancel()} - из любого.
+ */
+public class TtsStreamPlayer implements JitterBuffer.Listener {
+    private static final Logger log = LoggerFactory.getLogger(TtsStreamPlayer.class);
+
+    public static final int MIN_LEAD_MILLIS = 60;
+    public static final int MAX_LEAD_MILLIS = 500;
+    // Ответ принимается впрок, дальше запись ждёт воспроизведения
+    private static final int CAPACITY_MILLIS = 10_000;
+    private static final int ADAPTER_FRAMES = 1024;
+
+    private final AudioConfig config;
+    private final StreamDecoder decoder;
+    private final PlaybackMetrics metrics;
+    private final JitterBuffer jitterBuffer;
+    private final long requestNanos;
+    private final PcmWriter decoded = this::onDecoded;
+    private FormatAdapter adapter;
+    private boolean formatChecked;
+
+    public TtsStreamPlayer(AudioOutputManager output, StreamDecoder decoder, PlaybackMetrics metrics) {
+        this(output, decoder, metrics, MIN_LEAD_MILLIS, MAX_LEAD_MILLIS);
+    }
+
+    /**
+     * @param minLeadMillis запас перед стартом (0 - играть сразу)
+     * @param maxLeadMillis предел адаптивного запаса после недогрузов
+     */
+    public TtsStreamPlayer(AudioOutputManager output, StreamDecoder decoder, PlaybackMetrics metrics,
+                           int minLeadMillis, int maxLeadMillis) {
+        this.requestNanos = System.nanoTime();
+        this.config = output.getConfig();
+        this.decoder = decoder;
+        this.metrics = metrics;
+        this.jitterBuffer = new JitterBuffer(config, minLeadMillis, maxLeadMillis, CAPACITY_MILLIS, this);
+        metrics.recordStream();
+        output.play(jitterBuffer);
+    }
+
+    /**
+     * Очередной кусок ответа. Ждёт, если впрок принято больше ёмкости буфера.
+     */
+    public void write(byte[] chunk, int offset, int length) {
+        if (jitterBuffer.isCancelled()) {
+            return;
+        }
+        decoder.decode(chunk, offset, length, decoded);
+    }
+
+    /**
+     * Ответ получен целиком: остаток доигрывается без ожидания запаса
+     */
+    public void finish() {
+        jitterBuffer.end();
+    }
+
+    /**
+     * Прервать ответ (barge-in, ошибка сети)
+     */
+    public void cancel() {
+        jitterBuffer.cancel();
+    }
+
+    public JitterBuffer getJitterBuffer() {
+        return jitterBuffer;
+    }
+
+    private int onDecoded(byte[] pcm, int offset, int length) {
+        if (!formatChecked) {
+            formatChecked = true;
+            if (decoder.sampleRate() != config.sampleRate() || decoder.channels() != config.channels()) {
+                adapter = new FormatAdapter(decoder.sampleRate(), decoder.channels(),
+                        config.sampleRate(), config.channels(), ADAPTER_FRAMES);
+                log.info("TTS {}: преобразование {}", decoder, adapter);
+            }
+        }
+        return adapter != null ? adapter.write(jitterBuffer, pcm, offset, length)
+                : jitterBuffer.write(pcm, offset, length);
+    }
+
+    // ========== JitterBuffer.Listener (поток воспроизведения) ==========
+
+    @Override
+    public void onFirstAudio(long bufferingNanos) {
+        long ttfa = System.nanoTime() - requestNanos;
+        metrics.recordFirstAudio(ttfa, bufferingNanos);
+        log.debug("TTS: первый звук через {} ms (запас копился {} ms)", ttfa / 1_000_000, bufferingNanos / 1_000_000);
+    }
+
+    @Override
+    public void onUnderrun(int targetLeadMillis) {
+        metrics.recordUnderrun();
+        log.debug("TTS: недогруз, запас увеличен до {} ms", targetLeadMillis);
+    }
+
+    @Override
+    public void onFinished(JitterBuffer buffer, boolean cancelled) {
+        metrics.recordFinished(buffer.getPlayedMillis(), buffer.getRebufferMillis(), cancelled);
+    }
+}
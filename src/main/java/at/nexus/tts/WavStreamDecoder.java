@@ -0,0 +1,171 @@
+package at.nexus.tts;
+
+import at.nexus.audio.PcmWriter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * WAV, который отдаётся потоком: заголовок разбирается по мере прихода,
+ * данные декодируются сразу за ним.
+ *
+ * Потоковые TTS не знают длину заранее и пишут в размер data-чанка
+ * 0 или 0xFFFFFFFF - такой размер считается "до конца потока".
+ * Чанки перед data (LIST, fact) пропускаются, после data - игнорируются.
+ * Поддерживаются 16-bit PCM и G.711 mu-law/A-law, в том числе
+ * в обёртке WAVE_FORMAT_EXTENSIBLE.
+ */
+public class WavStreamDecoder implements StreamDecoder {
+
+    private static final int FORMAT_PCM = 1;
+    private static final int FORMAT_ALAW = 6;
+    private static final int FORMAT_MULAW = 7;
+    private static final int FORMAT_EXTENSIBLE = 0xFFFE;
+    // Заголовок больше этого - не WAV или мусор перед данными
+    private static final int MAX_HEADER_BYTES = 64 * 1024;
+    private static final int HEADER_SLICE = 256;
+
+    private byte[] header = new byte[256];
+    private int headerLength;
+    private StreamDecoder data;
+    // Сколько байт данных осталось, -1 - до конца потока
+    private long remaining;
+
+    @Override
+    public void decode(byte[] chunk, int offset, int length, PcmWriter out) {
+        // Заголовок копится небольшими порциями, чтобы не копировать данные за ним
+        while (data == null && length > 0) {
+            int n = Math.min(length, HEADER_SLICE);
+            appendHeader(chunk, offset, n);
+            offset += n;
+            length -= n;
+            int dataStart = parseHeader();
+            if (dataStart >= 0) {
+                int tail = headerLength - dataStart;
+                headerLength = 0;
+                decodeData(header, dataStart, tail, out);
+            }
+        }
+        if (length > 0) {
+            decodeData(chunk, offset, length, out);
+        }
+    }
+
+    private void decodeData(byte[] chunk, int offset, int length, PcmWriter out) {
+        int n = remaining < 0 ? length : (int) Math.min(length, remaining);
+        if (n <= 0) {
+            return;
+        }
+        data.decode(chunk, offset, n, out);
+        if (remaining > 0) {
+            remaining -= n;
+        }
+    }
+
+    private void appendHeader(byte[] chunk, int offset, int length) {
+        if (headerLength + length > MAX_HEADER_BYTES) {
+            throw new IllegalArgumentException("WAV: не найден data-чанк в первых " + MAX_HEADER_BYTES + " байтах");
+        }
+        if (headerLength + length > header.length) {
+            header = Arrays.copyOf(header, Math.max(header.length * 2, headerLength + length));
+        }
+        System.arraycopy(chunk, offset, header, headerLength, length);
+        headerLength += length;
+    }
+
+    /**
+     * Разобрать накопленный заголовок
+     * @return смещение начала данных или -1, если заголовок ещё не пришёл целиком
+     */
+    private int parseHeader() {
+        if (headerLength < 12) {
+            return -1;
+        }
+        String riff = ascii(0);
+        if (!(riff.equals("RIFF") || riff.equals("RF64")) || !ascii(8).equals("WAVE")) {
+            throw new IllegalArgumentException("WAV: нет сигнатуры RIFF/WAVE");
+        }
+        StreamDecoder format = null;
+        int position = 12;
+        while (position + 8 <= headerLength) {
+            String id = ascii(position);
+            long size = le32(position + 4);
+            int body = position + 8;
+            if (id.equals("data")) {
+                if (format == null) {
+                    throw new IllegalArgumentException("WAV: data-чанк раньше fmt");
+                }
+                data = format;
+                // RF64 хранит размер в ds64, потоковые TTS - 0 или максимум
+                remaining = riff.equals("RF64") || size == 0 || size == 0xFFFFFFFFL ? -1 : size;
+                return body;
+            }
+            if (body + size > headerLength) {
+                return -1;
+            }
+            if (id.equals("fmt ")) {
+                format = parseFormat(body, (int) size);
+            }
+            position = body + (int) size + (int) (size & 1);
+        }
+        return -1;
+    }
+
+    private StreamDecoder parseFormat(int at, int size) {
+        if (size < 16) {
+            throw new IllegalArgumentException("WAV: короткий fmt-чанк (" + size + " байт)");
+        }
+        int tag = le16(at);
+        int channels = le16(at + 2);
+        int sampleRate = (int) le32(at + 4);
+        int bits = le16(at + 14);
+        if (tag == FORMAT_EXTENSIBLE && size >= 26) {
+            tag = le16(at + 24); // первые байты GUID подформата
+        }
+        return switch (tag) {
+            case FORMAT_PCM -> {
+                if (bits != 16) {
+                    throw new IllegalArgumentException("WAV: поддерживается только 16-bit PCM, получено " + bits);
+                }
+                yield new PcmStreamDecoder(sampleRate, channels, false);
+            }
+            case FORMAT_MULAW -> new G711StreamDecoder(G711StreamDecoder.Law.MU_LAW, sampleRate, channels);
+            case FORMAT_ALAW -> new G711StreamDecoder(G711StreamDecoder.Law.A_LAW, sampleRate, channels);
+            default -> throw new IllegalArgumentException("WAV: неподдерживаемый формат 0x" + Integer.toHexString(tag));
+        };
+    }
+
+    private String ascii(int at) {
+        return new String(header, at, 4, StandardCharsets.US_ASCII);
+    }
+
+    private int le16(int at) {
+        return (header[at] & 0xFF) | (header[at + 1] & 0xFF) << 8;
+    }
+
+    private long le32(int at) {
+        return le16(at) | (long) le16(at + 2) << 16;
+    }
+
+    @Override
+    public int sampleRate() {
+        return data != null ? data.sampleRate() : 0;
+    }
+
+    @Override
+    public int channels() {
+        return data != null ? data.channels() : 0;
+    }
+
+    @Override
+    public void reset() {
+        data = null;
+        headerLength = 0;
+        remaining = 0;
+    }
+
+    @Override
+    public String toString() {
+        return "WAV" + (data != null ? " (" + data + ")" : "");
+    }
+}
@@ -0,0 +1,114 @@
+package at.nexus.tts.cache;
+
+import at.nexus.server.SpeechSynthesizer;
+
+import java.util.Arrays;
+
+/**
+ * Синтез с кэшем: повторная фраза начинает звучать сразу, без запроса.
+ *
+ * При попадании звук из {@link TtsCache} отдаётся кусками по
+ * {@link #CHUNK_MILLIS} - получатель видит тот же поток кусков, что и
+ * от синтеза. При промахе куски проходят насквозь и попутно копятся;
+ * в кэш фраза попадает только целиком, после успешного конца синтеза.
+ * Прерванная или упавшая фраза не сохраняется. Потокобезопасен.
+ */
+public class CachingSpeechSynthesizer implements SpeechSynthesizer {
+
+    static final int CHUNK_MILLIS = 100;
+
+    private final SpeechSynthesizer inner;
+    private final TtsCache cache;
+    private final String voice;
+
+    /**
+     * @param voice всё, что определяет звучание {@code inner} кроме текста:
+     *              при смене модели или голоса старые записи не подходят
+     */
+    public CachingSpeechSynthesizer(SpeechSynthesizer inner, TtsCache cache, String voice) {
+        this.inner = inner;
+        this.cache = cache;
+        this.voice = voice;
+    }
+
+    @Override
+    public int sampleRate() {
+        return inner.sampleRate();
+    }
+
+    @Override
+    public void synthesize(String text, ChunkSink sink) throws InterruptedException {
+        TtsCacheKey key = TtsCacheKey.of(text, voice, inner.sampleRate());
+        short[] cached = cache.get(key);
+        if (cached != null) {
+            int chunk = Math.max(1, inner.sampleRate() * CHUNK_MILLIS / 1000);
+            for (int offset = 0; offset < cached.length; offset += chunk) {
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                sink.accept(cached, offset, Math.min(chunk, cached.length - offset));
+            }
+            return;
+        }
+        Collector collector = new Collector(sink);
+        inner.synthesize(text, collector);
+        cache.put(key, collector.toArray());
+    }
+
+    /**
+     * Синтезировать фразу заранее, без воспроизведения (например, приветствия при старте)
+     */
+    public void prefetch(String text) throws InterruptedException {
+        TtsCacheKey key = TtsCacheKey.of(text, voice, inner.sampleRate());
+        if (cache.contains(key)) {
+            return;
+        }
+        Collector collector = new Collector(null);
+        inner.synthesize(text, collector);
+        cache.put(key, collector.toArray());
+    }
+
+    @Override
+    public void warmUp() {
+        TtsCacheKey.of("Прогрев", voice, inner.sampleRate());
+        inner.warmUp();
+    }
+
+    public TtsCache getCache() {
+        return cache;
+    }
+
+    @Override
+    public String toString() {
+        return inner + " (кэш)";
+    }
+
+    /**
+     * Передаёт куски дальше и копит копию для кэша
+     */
+    private static final class Collector implements ChunkSink {
+        private final ChunkSink next;
+        private short[] samples = new short[8192];
+        private int length;
+
+        Collector(ChunkSink next) {
+            this.next = next;
+        }
+
+        @Override
+        public void accept(short[] chunk, int offset, int count) throws InterruptedException {
+            if (length + count > samples.length) {
+                samples = Arrays.copyOf(samples, Math.max(samples.length * 2, length + count));
+            }
+            System.arraycopy(chunk, offset, samples, length, count);
+            length += count;
+            if (next != null) {
+                next.accept(chunk, offset, count);
+            }
+        }
+
+        short[] toArray() {
+            return Arrays.copyOf(samples, length);
+        }
+    }
+}
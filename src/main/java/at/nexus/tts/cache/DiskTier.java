@@ -0,0 +1,277 @@
+package at.nexus.tts.cache;
+
+import at.nexus.audio.wav.WavReader;
+import at.nexus.audio.wav.WavWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Диск кэша: запись - WAV-файл с именем по хэшу ключа, LRU по байтам.
+ *
+ * Файлы пишутся и читаются через отображение в память
+ * ({@link WavWriter}, {@link WavReader}). Запись идёт во временный файл
+ * и переименовывается целиком, поэтому после падения процесса в кэше
+ * нет недописанных записей. Порядок LRU - время изменения файла, оно
+ * обновляется при попадании (в том числе в память, см. {@link #touch}),
+ * но не чаще раза в {@link #TOUCH_MILLIS}; при открытии каталог
+ * сканируется заново.
+ *
+ * Потокобезопасен. Место под запись занимается сразу ({@link #reserve}),
+ * а файл пишет один поток {@link TtsCache} без блокировки; под блокировкой
+ * только переименование и учёт записей.
+ */
+final class DiskTier {
+    private static final Logger log = LoggerFactory.getLogger(DiskTier.class);
+
+    private static final String SUFFIX = ".wav";
+    private static final String TEMP_SUFFIX = ".tmp";
+    static final long TOUCH_MILLIS = 60_000;
+
+    private static final class Entry {
+        long size;
+        long touchedMillis;
+        // Место занято, файл ещё пишется
+        boolean pending;
+
+        Entry(long size, long touchedMillis) {
+            this.size = size;
+            this.touchedMillis = touchedMillis;
+        }
+    }
+
+    private final Path directory;
+    private final long capacity;
+    private final MemoryTier.EvictionListener listener;
+    // Имя файла -> запись, от давно не нужных к свежим
+    private final Map<String, Entry> files = new LinkedHashMap<>();
+    private long bytes;
+
+    DiskTier(Path directory, long capacity, MemoryTier.EvictionListener listener) throws IOException {
+        this.directory = directory;
+        this.capacity = capacity;
+        this.listener = listener;
+        Files.createDirectories(directory);
+        load();
+    }
+
+    private void load() throws IOException {
+        record Found(String name, long size, FileTime modified) {
+        }
+        List<Found> found = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                if (name.endsWith(TEMP_SUFFIX)) {
+                    Files.deleteIfExists(path); // недописанное до падения
+                } else if (name.endsWith(SUFFIX)) {
+                    BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                    found.add(new Found(name, attributes.size(), attributes.lastModifiedTime()));
+                }
+            }
+        }
+        found.sort(Comparator.comparing(Found::modified));
+        for (Found file : found) {
+            files.put(file.name, new Entry(file.size, file.modified.toMillis()));
+            bytes += file.size;
+        }
+        trim();
+        log.info("Кэш TTS на диске: {} записей, {} КБ в {}", files.size(), bytes / 1024, directory);
+    }
+
+    /**
+     * @return звук или null, если записи нет (или она испорчена - тогда удаляется)
+     */
+    synchronized short[] get(TtsCacheKey key) {
+        String name = key.fileName();
+        Entry entry = files.get(name);
+        if (entry == null || entry.pending) {
+            return null;
+        }
+        Path path = directory.resolve(name);
+        try (WavReader reader = new WavReader(path)) {
+            if (reader.getSampleRate() != key.sampleRate() || reader.getChannels() != 1) {
+                throw new UnsupportedAudioFileException("формат " + reader.getSampleRate() + "Hz/"
+                        + reader.getChannels() + " вместо " + key.sampleRate() + "Hz/1");
+            }
+            short[] pcm = new short[(int) reader.getFrames()];
+            reader.read(pcm, 0, pcm.length);
+            touch(name);
+            return pcm;
+        } catch (IOException | UnsupportedAudioFileException | RuntimeException e) {
+            log.warn("Кэш TTS: запись {} испорчена, удаляю ({})", name, e.toString());
+            delete(name);
+            return null;
+        }
+    }
+
+    /**
+     * Отметить использование записи, найденной уровнем выше: иначе частые
+     * фразы, которые всегда находятся в памяти, вытеснялись бы с диска первыми
+     * @return false, если записи на диске нет
+     */
+    boolean touch(TtsCacheKey key) {
+        String name = key.fileName();
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            Entry entry = use(name);
+            if (entry == null) {
+                return false;
+            }
+            if (entry.pending || now - entry.touchedMillis < TOUCH_MILLIS) {
+                return true;
+            }
+            entry.touchedMillis = now;
+        }
+        // Время файла - вне блокировки, в порядке LRU запись уже свежая
+        setModified(name, now);
+        return true;
+    }
+
+    private void touch(String name) {
+        Entry entry = use(name);
+        long now = System.currentTimeMillis();
+        if (entry != null && now - entry.touchedMillis >= TOUCH_MILLIS) {
+            entry.touchedMillis = now;
+            setModified(name, now);
+        }
+    }
+
+    private Entry use(String name) {
+        Entry entry = files.remove(name);
+        if (entry != null) {
+            files.put(name, entry);
+        }
+        return entry;
+    }
+
+    private void setModified(String name, long millis) {
+        try {
+            Files.setLastModifiedTime(directory.resolve(name), FileTime.fromMillis(millis));
+        } catch (IOException e) {
+            log.debug("Кэш TTS: не удалось обновить время {} ({})", name, e.toString());
+        }
+    }
+
+    /**
+     * Занять место под запись сейчас, а файл записать потом ({@link #write}):
+     * место в порядке LRU - момент запроса, а не момент, когда дошла
+     * очередь записи
+     * @return false, если запись уже есть (или пишется) или не помещается
+     */
+    synchronized boolean reserve(TtsCacheKey key, short[] pcm) {
+        long size = (long) pcm.length * Short.BYTES;
+        String name = key.fileName();
+        if (size > capacity || files.containsKey(name)) {
+            return false;
+        }
+        Entry entry = new Entry(size, System.currentTimeMillis());
+        entry.pending = true;
+        files.put(name, entry);
+        bytes += size;
+        trim();
+        return true;
+    }
+
+    /**
+     * Записать занятую запись; файл пишется без блокировки. Если место
+     * уже вытеснено, записанное выбрасывается
+     */
+    void write(TtsCacheKey key, short[] pcm) {
+        String name = key.fileName();
+        Path temp = directory.resolve(name + TEMP_SUFFIX);
+        try {
+            synchronized (this) {
+                Entry entry = files.get(name);
+                if (entry == null || !entry.pending) {
+                    return;
+                }
+            }
+            try (WavWriter writer = new WavWriter(temp, key.sampleRate(), 1)) {
+                writer.write(pcm, 0, pcm.length);
+            }
+            long fileSize = Files.size(temp);
+            synchronized (this) {
+                Entry entry = files.get(name);
+                if (entry == null || !entry.pending) {
+                    Files.deleteIfExists(temp);
+                    return;
+                }
+                Files.move(temp, directory.resolve(name), StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+                entry.pending = false;
+                bytes += fileSize - entry.size;
+                entry.size = fileSize;
+                trim();
+            }
+        } catch (IOException e) {
+            log.warn("Кэш TTS: не удалось записать {} ({})", name, e.toString());
+            synchronized (this) {
+                Entry entry = files.get(name);
+                if (entry != null && entry.pending) {
+                    files.remove(name);
+                    bytes -= entry.size;
+                }
+            }
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private void trim() {
+        Iterator<Map.Entry<String, Entry>> it = files.entrySet().iterator();
+        while (bytes > capacity && it.hasNext()) {
+            Map.Entry<String, Entry> eldest = it.next();
+            it.remove();
+            bytes -= eldest.getValue().size;
+            deleteFile(eldest.getKey());
+            listener.onEvicted(null, eldest.getValue().size);
+        }
+    }
+
+    private void delete(String name) {
+        Entry entry = files.remove(name);
+        if (entry != null) {
+            bytes -= entry.size;
+        }
+        deleteFile(name);
+    }
+
+    private void deleteFile(String name) {
+        try {
+            Files.deleteIfExists(directory.resolve(name));
+        } catch (NoSuchFileException ignored) {
+        } catch (IOException e) {
+            log.warn("Кэш TTS: не удалось удалить {} ({})", name, e.toString());
+        }
+    }
+
+    synchronized boolean contains(TtsCacheKey key) {
+        return files.containsKey(key.fileName());
+    }
+
+    synchronized long bytes() {
+        return bytes;
+    }
+
+    synchronized int entries() {
+        return files.size();
+    }
+}
@@ -0,0 +1,199 @@
+package at.nexus.tts.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Память кэша с ограничением по байтам: W-TinyLFU или LRU.
+ *
+ * W-TinyLFU: новая запись попадает в маленькое LRU-окно (1% объёма),
+ * вытесненная из окна - кандидат в основную часть (SLRU: испытательный
+ * и защищённый сегменты, 20/80). Если основная часть переполнена,
+ * кандидат сравнивается по частоте ({@link FrequencySketch}) с самой
+ * старой испытательной записью, и уходит реже встречавшийся. Фразы,
+ * сказанные один раз, не вытесняют постоянные приветствия и
+ * подтверждения. В режиме LRU окно - весь объём.
+ *
+ * Вызовы синхронизированы снаружи ({@link TtsCache}).
+ */
+final class MemoryTier {
+
+    private static final double WINDOW_SHARE = 0.01;
+    private static final double PROTECTED_SHARE = 0.8;
+    // Для размера скетча: типичная запись - пара секунд речи
+    private static final int TYPICAL_ENTRY_BYTES = 64 * 1024;
+
+    private enum Segment { WINDOW, PROBATION, PROTECTED }
+
+    private static final class Node {
+        final TtsCacheKey key;
+        final short[] pcm;
+        final long weight;
+        Segment segment;
+
+        Node(TtsCacheKey key, short[] pcm) {
+            this.key = key;
+            this.pcm = pcm;
+            this.weight = (long) pcm.length * Short.BYTES;
+        }
+    }
+
+    interface EvictionListener {
+        void onEvicted(TtsCacheKey key, long bytes);
+    }
+
+    private final long capacity;
+    private final long windowCapacity;
+    private final long protectedCapacity;
+    private final FrequencySketch sketch;
+    private final EvictionListener listener;
+
+    // Порядок вставки - от старых к новым
+    private final Map<TtsCacheKey, Node> window = new LinkedHashMap<>();
+    private final Map<TtsCacheKey, Node> probation = new LinkedHashMap<>();
+    private final Map<TtsCacheKey, Node> protectedSegment = new LinkedHashMap<>();
+    private long windowBytes;
+    private long probationBytes;
+    private long protectedBytes;
+
+    MemoryTier(long capacity, boolean tinyLfu, EvictionListener listener) {
+        this.capacity = capacity;
+        this.windowCapacity = tinyLfu ? (long) (capacity * WINDOW_SHARE) : capacity;
+        this.protectedCapacity = (long) ((capacity - windowCapacity) * PROTECTED_SHARE);
+        this.sketch = new FrequencySketch((int) Math.min(1 << 20, Math.max(64, capacity / TYPICAL_ENTRY_BYTES)));
+        this.listener = listener;
+    }
+
+    short[] get(TtsCacheKey key) {
+        sketch.increment(key);
+        Node node = find(key);
+        if (node == null) {
+            return null;
+        }
+        switch (node.segment) {
+            case WINDOW -> touch(window, node);
+            case PROTECTED -> touch(protectedSegment, node);
+            case PROBATION -> {
+                // Повторное обращение - в защищённый сегмент
+                probation.remove(key);
+                probationBytes -= node.weight;
+                node.segment = Segment.PROTECTED;
+                protectedSegment.put(key, node);
+                protectedBytes += node.weight;
+                demoteProtected();
+            }
+        }
+        return node.pcm;
+    }
+
+    /**
+     * @return false, если запись больше всего объёма
+     */
+    boolean put(TtsCacheKey key, short[] pcm) {
+        Node node = new Node(key, pcm);
+        if (node.weight > capacity) {
+            return false;
+        }
+        remove(key);
+        node.segment = Segment.WINDOW;
+        window.put(key, node);
+        windowBytes += node.weight;
+        while (windowBytes > windowCapacity) {
+            Node candidate = removeEldest(window);
+            windowBytes -= candidate.weight;
+            admit(candidate);
+        }
+        return true;
+    }
+
+    /**
+     * Кандидат из окна в испытательный сегмент; пока основная часть
+     * переполнена, уходит реже встречавшийся из кандидата и старейшей записи
+     */
+    private void admit(Node candidate) {
+        candidate.segment = Segment.PROBATION;
+        probation.put(candidate.key, candidate);
+        probationBytes += candidate.weight;
+        while (mainBytes() > capacity - windowCapacity) {
+            Node victim = eldest(probation.isEmpty() ? protectedSegment : probation);
+            if (candidate != null && victim != candidate
+                    && sketch.frequency(candidate.key) <= sketch.frequency(victim.key)) {
+                victim = candidate;
+            }
+            if (victim == candidate) {
+                candidate = null;
+            }
+            evict(victim);
+        }
+    }
+
+    private void demoteProtected() {
+        while (protectedBytes > protectedCapacity) {
+            Node node = removeEldest(protectedSegment);
+            protectedBytes -= node.weight;
+            node.segment = Segment.PROBATION;
+            probation.put(node.key, node);
+            probationBytes += node.weight;
+        }
+    }
+
+    private void evict(Node node) {
+        remove(node.key);
+        listener.onEvicted(node.key, node.weight);
+    }
+
+    private void remove(TtsCacheKey key) {
+        Node node;
+        if ((node = window.remove(key)) != null) {
+            windowBytes -= node.weight;
+        } else if ((node = probation.remove(key)) != null) {
+            probationBytes -= node.weight;
+        } else if ((node = protectedSegment.remove(key)) != null) {
+            protectedBytes -= node.weight;
+        }
+    }
+
+    boolean contains(TtsCacheKey key) {
+        return find(key) != null;
+    }
+
+    private Node find(TtsCacheKey key) {
+        Node node = window.get(key);
+        if (node == null) {
+            node = probation.get(key);
+        }
+        if (node == null) {
+            node = protectedSegment.get(key);
+        }
+        return node;
+    }
+
+    private static void touch(Map<TtsCacheKey, Node> segment, Node node) {
+        segment.remove(node.key);
+        segment.put(node.key, node);
+    }
+
+    private static Node eldest(Map<TtsCacheKey, Node> segment) {
+        return segment.values().iterator().next();
+    }
+
+    private static Node removeEldest(Map<TtsCacheKey, Node> segment) {
+        Iterator<Node> it = segment.values().iterator();
+        Node node = it.next();
+        it.remove();
+        return node;
+    }
+
+    private long mainBytes() {
+        return probationBytes + protectedBytes;
+    }
+
+    long bytes() {
+        return windowBytes + mainBytes();
+    }
+
+    int entries() {
+        return window.size() + probation.size() + protectedSegment.size();
+    }
+}
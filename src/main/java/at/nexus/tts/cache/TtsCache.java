@@ -0,0 +1,195 @@
+package at.nexus.tts.cache;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Кэш синтезированной речи: память и (необязательно) диск.
+ *
+ * Поиск идёт сначала в памяти, затем на диске; найденное на диске
+ * поднимается в память. Запись кладётся в оба уровня, а вытесненная
+ * с диска частая фраза записывается снова при попадании в память, поэтому
+ * частые фразы переживают перезапуск процесса. Возвращаемые массивы
+ * общие и только для чтения. Потокобезопасен.
+ *
+ * Файлы на диск пишет отдельный поток, а не вызывающий: попадание в память
+ * не ждёт ни записи файла, ни чужого чтения с диска. Незаписанное
+ * к выходу процесса теряется - это кэш; {@link #close} дожидается записи.
+ * Пустой звук (синтез ничего не вернул) не кэшируется.
+ */
+public class TtsCache implements AutoCloseable {
+
+    /**
+     * Политика вытеснения из памяти
+     */
+    public enum Eviction {
+        /** Давно не использованная запись уходит первой */
+        LRU,
+        /** W-TinyLFU: редкие фразы не вытесняют частые */
+        TINY_LFU
+    }
+
+    private final MemoryTier memory;
+    private final DiskTier disk;
+    private final ExecutorService diskWriter;
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong memoryEvictions = new AtomicLong();
+    private final AtomicLong diskEvictions = new AtomicLong();
+
+    public TtsCache(long memoryBytes) {
+        this(memoryBytes, Eviction.TINY_LFU);
+    }
+
+    public TtsCache(long memoryBytes, Eviction eviction) {
+        this.memory = new MemoryTier(memoryBytes, eviction == Eviction.TINY_LFU,
+                (key, bytes) -> memoryEvictions.incrementAndGet());
+        this.disk = null;
+        this.diskWriter = null;
+    }
+
+    /**
+     * @param directory каталог WAV-файлов; создаётся, если его нет
+     */
+    public TtsCache(long memoryBytes, Eviction eviction, Path directory, long diskBytes) throws IOException {
+        this.memory = new MemoryTier(memoryBytes, eviction == Eviction.TINY_LFU,
+                (key, bytes) -> memoryEvictions.incrementAndGet());
+        this.disk = new DiskTier(directory, diskBytes, (key, bytes) -> diskEvictions.incrementAndGet());
+        this.diskWriter = Executors.newSingleThreadExecutor(Thread.ofVirtual().name("tts-cache-disk").factory());
+    }
+
+    /**
+     * @return звук или null, если фразы нет ни в памяти, ни на диске
+     */
+    public short[] get(TtsCacheKey key) {
+        short[] pcm;
+        synchronized (this) {
+            pcm = memory.get(key);
+        }
+        if (pcm != null) {
+            memoryHits.incrementAndGet();
+            // Частая фраза могла уйти с диска, пока жила в памяти - вернуть
+            if (disk != null && !disk.touch(key)) {
+                writeBehind(key, pcm);
+            }
+            return pcm;
+        }
+        if (disk != null && (pcm = disk.get(key)) != null) {
+            diskHits.incrementAndGet();
+            synchronized (this) {
+                memory.put(key, pcm);
+            }
+            return pcm;
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Сохранить фразу; массив дальше не изменяется. Пустой звук не сохраняется
+     */
+    public void put(TtsCacheKey key, short[] pcm) {
+        if (pcm.length == 0) {
+            return;
+        }
+        synchronized (this) {
+            memory.put(key, pcm);
+        }
+        if (disk != null) {
+            writeBehind(key, pcm);
+        }
+    }
+
+    /**
+     * Занять место на диске и поставить запись в очередь потока диска
+     */
+    private void writeBehind(TtsCacheKey key, short[] pcm) {
+        if (diskWriter.isShutdown() || !disk.reserve(key, pcm)) {
+            return;
+        }
+        try {
+            diskWriter.execute(() -> disk.write(key, pcm));
+        } catch (RejectedExecutionException e) {
+            // Закрыт между проверкой и записью: место пустует до перезапуска
+        }
+    }
+
+    public boolean contains(TtsCacheKey key) {
+        synchronized (this) {
+            if (memory.contains(key)) {
+                return true;
+            }
+        }
+        return disk != null && disk.contains(key);
+    }
+
+    public Stats getStats() {
+        long memoryBytes;
+        int memoryEntries;
+        synchronized (this) {
+            memoryBytes = memory.bytes();
+            memoryEntries = memory.entries();
+        }
+        return new Stats(memoryHits.get(), diskHits.get(), misses.get(), memoryBytes, memoryEntries,
+                disk != null ? disk.bytes() : 0, disk != null ? disk.entries() : 0,
+                memoryEvictions.get(), diskEvictions.get());
+    }
+
+    public void resetStats() {
+        memoryHits.set(0);
+        diskHits.set(0);
+        misses.set(0);
+        memoryEvictions.set(0);
+        diskEvictions.set(0);
+    }
+
+    /**
+     * Дождаться записи на диск того, что уже в очереди; дальше кэш
+     * работает только в памяти. Прерывание - выход без ожидания
+     * (флаг прерывания восстанавливается)
+     */
+    @Override
+    public void close() {
+        if (diskWriter != null) {
+            diskWriter.shutdown();
+            try {
+                diskWriter.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public record Stats(long memoryHits, long diskHits, long misses,
+                        long memoryBytes, int memoryEntries, long diskBytes, int diskEntries,
+                        long memoryEvictions, long diskEvictions) {
+
+        public long requests() {
+            return memoryHits + diskHits + misses;
+        }
+
+        /**
+         * Доля обращений, обслуженных без синтеза (память и диск)
+         */
+        public double hitRate() {
+            long requests = requests();
+            return requests == 0 ? 0 : (double) (memoryHits + diskHits) / requests;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("попаданий %.1f%% (память %d, диск %d, промахов %d); "
+                            + "память %d КБ/%d записей, диск %d КБ/%d записей; вытеснено %d/%d",
+                    hitRate() * 100, memoryHits, diskHits, misses,
+                    memoryBytes / 1024, memoryEntries, diskBytes / 1024, diskEntries,
+                    memoryEvictions, diskEvictions);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package at.nexus.tts.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.util.HexFormat;
+import java.util.Locale;
+
+/**
+ * Ключ кэша синтеза: нормализованный текст, голос и частота звука.
+ *
+ * Нормализация убирает то, что на звучание не влияет: регистр,
+ * пробелы по краям и повторные, формы записи Unicode. Знаки
+ * препинания остаются - от них зависит интонация.
+ *
+ * @param voice всё, что определяет звучание кроме текста (модель, голос, скорость)
+ */
+public record TtsCacheKey(String text, String voice, int sampleRate) {
+
+    public TtsCacheKey {
+        if (sampleRate <= 0) {
+            throw new IllegalArgumentException("Недопустимая частота: " + sampleRate);
+        }
+    }
+
+    /**
+     * Ключ с нормализованным текстом
+     */
+    public static TtsCacheKey of(String text, String voice, int sampleRate) {
+        return new TtsCacheKey(normalize(text), voice, sampleRate);
+    }
+
+    static String normalize(String text) {
+        return Normalizer.normalize(text, Normalizer.Form.NFC)
+                .strip()
+                .replaceAll("\\s+", " ")
+                .toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Имя файла на диске: SHA-256 всего ключа
+     */
+    String fileName() {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(text.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(voice.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(Integer.toString(sampleRate).getBytes(StandardCharsets.US_ASCII));
+            return HexFormat.of().formatHex(digest.digest()) + ".wav";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 недоступен", e);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package at.nexus.vad;
+
+/**
+ * Настройки детектора речи.
+ *
+ * @param marginDb            насколько энергия кадра должна превышать уровень шума
+ * @param minEnergyDb         абсолютный минимум энергии речи (dBFS)
+ * @param maxZeroCrossingRate доля переходов через ноль, выше которой
+ *                            слабый кадр считается шумом/шипением
+ * @param onsetMillis         сколько речи подряд нужно для начала фразы
+ * @param hangoverMillis      сколько тишины подряд нужно для конца фразы
+ * @param preRollMillis       сколько звука до начала фразы отдавать вместе с ней
+ */
+public record VadConfig(double marginDb, double minEnergyDb, double maxZeroCrossingRate,
+                        int onsetMillis, int hangoverMillis, int preRollMillis) {
+
+    public VadConfig {
+        if (onsetMillis < 0 || hangoverMillis < 0 || preRollMillis < 0) {
+            throw new IllegalArgumentException("Длительности VAD не могут быть отрицательными");
+        }
+    }
+
+    /**
+     * Значения, подобранные на записи речи 16kHz
+     */
+    public static VadConfig defaults() {
+        return new VadConfig(10.0, -55.0, 0.35, 40, 300, 200);
+    }
+
+    /**
+     * Перевести длительность в количество кадров (не меньше одного)
+     */
+    static int toFrames(int millis, int frameMillis) {
+        return Math.max(1, (millis + frameMillis - 1) / frameMillis);
+    }
+}
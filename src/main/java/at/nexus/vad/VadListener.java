@@ -0,0 +1,32 @@
+package at.nexus.vad;
+
+/**
+ * Получатель событий {@link VadStage}.
+ *
+ * Вызывается из потока, который кормит VAD кадрами, поэтому
+ * реализации не должны блокироваться надолго. Массив в
+ * {@link #onVoicedFrame} переиспользуется - данные нужно скопировать,
+ * если они нужны после возврата.
+ */
+public interface VadListener {
+
+    /**
+     * Началась фраза
+     * @param samplePosition позиция первого отдаваемого сэмпла (с учётом pre-roll)
+     */
+    default void onSpeechStart(long samplePosition) {
+    }
+
+    /**
+     * Кадр, относящийся к фразе (включая pre-roll и hangover)
+     */
+    default void onVoicedFrame(short[] samples, int offset, int length) {
+    }
+
+    /**
+     * Фраза закончилась
+     * @param samplePosition позиция сэмпла после последнего отданного
+     */
+    default void onSpeechEnd(long samplePosition) {
+    }
+}
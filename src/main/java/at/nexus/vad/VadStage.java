@@ -0,0 +1,194 @@
+package at.nexus.vad;
+
+import at.nexus.audio.AudioConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Потоковый этап VAD между захватом и потребителями (STT и т.д.).
+ *
+ * Принимает кадры PCM фиксированной длины, решает где начинается и
+ * заканчивается фраза и отдаёт слушателям только звук фраз:
+ * <ul>
+ *   <li>начало фразы - после {@code onsetMillis} речи подряд;</li>
+ *   <li>вместе с началом отдаётся pre-roll - звук перед фразой,
+ *       чтобы не срезать первые согласные;</li>
+ *   <li>конец фразы - после {@code hangoverMillis} тишины подряд,
+ *       короткие паузы внутри фразы не рвут её.</li>
+ * </ul>
+ *
+ * Все буферы выделяются в конструкторе, обработка кадра не аллоцирует.
+ * Класс не потокобезопасен: кадры подаются из одного потока.
+ */
+public class VadStage {
+    private static final Logger log = LoggerFactory.getLogger(VadStage.class);
+
+    private final VoiceActivityDetector detector;
+    private final int frameSamples;
+    private final int onsetFrames;
+    private final int hangoverFrames;
+
+    // Кольцо последних кадров тишины: pre-roll + кадры набора onset
+    private final short[][] history;
+    private final int[] historyLengths;
+    private int historyStart;
+    private int historyCount;
+
+    private volatile VadListener[] listeners = new VadListener[0];
+
+    private boolean inSpeech;
+    private int voicedRun;
+    private int silentRun;
+    private long position; // сэмплов обработано
+    private long historyPosition; // позиция первого кадра в history
+
+    private long totalFrames;
+    private long speechFrames;
+    private long segments;
+
+    public VadStage(AudioConfig audioConfig, VadConfig vadConfig) {
+        if (audioConfig.frameMillis() < 10 || audioConfig.frameMillis() > 30) {
+            log.warn("VAD рассчитан на кадры 10-30ms, задано {}ms", audioConfig.frameMillis());
+        }
+        this.detector = new VoiceActivityDetector(vadConfig, audioConfig.frameMillis());
+        this.frameSamples = audioConfig.frameSamples();
+        this.onsetFrames = VadConfig.toFrames(vadConfig.onsetMillis(), audioConfig.frameMillis());
+        this.hangoverFrames = VadConfig.toFrames(vadConfig.hangoverMillis(), audioConfig.frameMillis());
+
+        int preRollFrames = vadConfig.preRollMillis() == 0
+                ? 0 : VadConfig.toFrames(vadConfig.preRollMillis(), audioConfig.frameMillis());
+        int historyFrames = preRollFrames + onsetFrames;
+        this.history = new short[historyFrames][frameSamples];
+        this.historyLengths = new int[historyFrames];
+    }
+
+    /**
+     * Добавить слушателя событий
+     */
+    public synchronized void addListener(VadListener listener) {
+        VadListener[] current = listeners;
+        VadListener[] updated = new VadListener[current.length + 1];
+        System.arraycopy(current, 0, updated, 0, current.length);
+        updated[current.length] = listener;
+        listeners = updated;
+    }
+
+    /**
+     * Обработать один кадр (длина не больше размера кадра из AudioConfig)
+     */
+    public void process(short[] samples, int offset, int length) {
+        if (length > frameSamples) {
+            throw new IllegalArgumentException("Кадр " + length + " больше ожидаемого " + frameSamples);
+        }
+
+        boolean speech = detector.isSpeech(samples, offset, length);
+        totalFrames++;
+        VadListener[] targets = listeners;
+
+        if (inSpeech) {
+            emitFrame(targets, samples, offset, length);
+            silentRun = speech ? 0 : silentRun + 1;
+            if (silentRun >= hangoverFrames) {
+                endSpeech(targets, position + length);
+            }
+        } else {
+            remember(samples, offset, length);
+            voicedRun = speech ? voicedRun + 1 : 0;
+            if (voicedRun >= onsetFrames) {
+                startSpeech(targets);
+            }
+        }
+
+        position += length;
+    }
+
+    /**
+     * Завершить текущую фразу (например, при остановке захвата)
+     */
+    public void flush() {
+        if (inSpeech) {
+            endSpeech(listeners, position);
+        }
+    }
+
+    private void startSpeech(VadListener[] targets) {
+        inSpeech = true;
+        silentRun = 0;
+        voicedRun = 0;
+        segments++;
+
+        for (VadListener l : targets) {
+            l.onSpeechStart(historyPosition);
+        }
+
+        // Отдаём pre-roll вместе с кадрами, набравшими onset
+        for (int i = 0; i < historyCount; i++) {
+            int index = (historyStart + i) % history.length;
+            emitFrame(targets, history[index], 0, historyLengths[index]);
+        }
+        historyCount = 0;
+        historyStart = 0;
+    }
+
+    private void endSpeech(VadListener[] targets, long endPosition) {
+        inSpeech = false;
+        silentRun = 0;
+        for (VadListener l : targets) {
+            l.onSpeechEnd(endPosition);
+        }
+    }
+
+    private void emitFrame(VadListener[] targets, short[] samples, int offset, int length) {
+        speechFrames++;
+        for (VadListener l : targets) {
+            l.onVoicedFrame(samples, offset, length);
+        }
+    }
+
+    private void remember(short[] samples, int offset, int length) {
+        if (historyCount == 0) {
+            historyPosition = position;
+        }
+        int index;
+        if (historyCount < history.length) {
+            index = (historyStart + historyCount) % history.length;
+            historyCount++;
+        } else {
+            // Кольцо заполнено - вытесняем самый старый кадр
+            index = historyStart;
+            historyPosition += historyLengths[historyStart];
+            historyStart = (historyStart + 1) % history.length;
+        }
+        System.arraycopy(samples, offset, history[index], 0, length);
+        historyLengths[index] = length;
+    }
+
+    public boolean isInSpeech() {
+        return inSpeech;
+    }
+
+    public VoiceActivityDetector getDetector() {
+        return detector;
+    }
+
+    /**
+     * Всего обработано кадров
+     */
+    public long getTotalFrames() {
+        return totalFrames;
+    }
+
+    /**
+     * Кадров отдано слушателям (речь + pre-roll + hangover)
+     */
+    public long getSpeechFrames() {
+        return speechFrames;
+    }
+
+    /**
+     * Количество найденных фраз
+     */
+    public long getSegments() {
+        return segments;
+    }
+}
@@ -0,0 +1,145 @@
+package at.nexus.vad;
+
+import java.util.Arrays;
+
+/**
+ * Покадровый классификатор речь/не речь по энергии и переходам через ноль.
+ *
+ * Уровень шума отслеживается адаптивно: быстро опускается вслед
+ * за тихими кадрами и медленно поднимается, если фон стал громче.
+ * Кадры речи уровень не двигают, поэтому скачок ровного шума больше
+ * {@link VadConfig#marginDb()} выглядел бы бесконечной речью. На такой
+ * случай помнится минимум энергии за последние 2 s
+ * (minimum statistics): в настоящей речи есть паузы и минимум остаётся
+ * у шума, а под ровным шумом он и есть новый фон - тогда уровень медленно
+ * поднимается к нему и во время "речи".
+ * Сам по себе не хранит состояние фразы - этим занимается {@link VadStage}.
+ *
+ * Не аллоцирует, рассчитан на кадры 10-30ms.
+ */
+public class VoiceActivityDetector {
+
+    private static final double FULL_SCALE_SQ = 32768.0 * 32768.0;
+    private static final double INITIAL_NOISE_DB = -60.0;
+    private static final double MIN_NOISE_DB = -90.0;
+    private static final double NOISE_FALL = 0.2;   // скорость подстройки вниз
+    private static final double NOISE_RISE = 0.005; // скорость подстройки вверх
+    // Окно минимума энергии, по частям: минимум окна сдвигается раз в часть
+    private static final int MIN_WINDOW_MILLIS = 2000;
+    private static final int MIN_WINDOW_PARTS = 4;
+    private static final int DEFAULT_FRAME_MILLIS = 20;
+
+    private final VadConfig config;
+    private final int partFrames;
+    private final double[] partMinimums = new double[MIN_WINDOW_PARTS];
+    private int part;
+    private int partFrame;
+    private double noiseFloorDb = INITIAL_NOISE_DB;
+    private double lastEnergyDb;
+    private double lastZeroCrossingRate;
+
+    public VoiceActivityDetector(VadConfig config) {
+        this(config, DEFAULT_FRAME_MILLIS);
+    }
+
+    /**
+     * @param frameMillis длительность кадров, которые будут подаваться
+     */
+    public VoiceActivityDetector(VadConfig config, int frameMillis) {
+        this.config = config;
+        this.partFrames = Math.max(1, MIN_WINDOW_MILLIS / MIN_WINDOW_PARTS / Math.max(1, frameMillis));
+        resetMinimum();
+    }
+
+    /**
+     * Классифицировать кадр
+     * @return true если кадр похож на речь
+     */
+    public boolean isSpeech(short[] samples, int offset, int length) {
+        if (length <= 0) {
+            return false;
+        }
+
+        long sumSq = 0;
+        int crossings = 0;
+        int prev = samples[offset];
+        for (int i = offset; i < offset + length; i++) {
+            int s = samples[i];
+            sumSq += (long) s * s;
+            if ((s ^ prev) < 0) {
+                crossings++;
+            }
+            prev = s;
+        }
+
+        double energyDb = 10.0 * Math.log10(sumSq / (double) length / FULL_SCALE_SQ + 1e-12);
+        double zcr = crossings / (double) length;
+        lastEnergyDb = energyDb;
+        lastZeroCrossingRate = zcr;
+
+        boolean loud = energyDb > config.minEnergyDb() && energyDb > noiseFloorDb + config.marginDb();
+        // Очень громкий кадр - речь независимо от ZCR (шипящие),
+        // умеренный - только если не похож на шум
+        boolean speech = loud
+                && (zcr <= config.maxZeroCrossingRate() || energyDb > noiseFloorDb + 2 * config.marginDb());
+
+        double minimumDb = trackMinimum(energyDb);
+        if (!speech) {
+            updateNoiseFloor(energyDb);
+        } else if (minimumDb > noiseFloorDb) {
+            // Всё окно громче фона - фон вырос
+            noiseFloorDb += NOISE_RISE * (minimumDb - noiseFloorDb);
+        }
+        return speech;
+    }
+
+    /**
+     * @return минимум энергии за последние 3/4 окна и текущую часть
+     */
+    private double trackMinimum(double energyDb) {
+        partMinimums[part] = Math.min(partMinimums[part], energyDb);
+        if (++partFrame == partFrames) {
+            partFrame = 0;
+            part = (part + 1) % MIN_WINDOW_PARTS;
+            partMinimums[part] = Double.MAX_VALUE;
+        }
+        double minimum = Double.MAX_VALUE;
+        for (double m : partMinimums) {
+            minimum = Math.min(minimum, m);
+        }
+        return minimum;
+    }
+
+    private void updateNoiseFloor(double energyDb) {
+        double rate = energyDb < noiseFloorDb ? NOISE_FALL : NOISE_RISE;
+        noiseFloorDb += rate * (energyDb - noiseFloorDb);
+        noiseFloorDb = Math.max(MIN_NOISE_DB, noiseFloorDb);
+    }
+
+    /**
+     * Сбросить оценку шума (например, при смене микрофона)
+     */
+    public void reset() {
+        noiseFloorDb = INITIAL_NOISE_DB;
+        resetMinimum();
+    }
+
+    private void resetMinimum() {
+        // Пока окно не набрано, минимум не выше начального уровня - фон не поднимается
+        Arrays.fill(partMinimums, INITIAL_NOISE_DB);
+        part = 0;
+        partFrame = 0;
+    }
+
+    public double getNoiseFloorDb() {
+        return noiseFloorDb;
+    }
+
+    public double getLastEnergyDb() {
+        return lastEnergyDb;
+    }
+
+    public double getLastZeroCrossingRate() {
+        return lastZeroCrossingRate;
+    }
+}
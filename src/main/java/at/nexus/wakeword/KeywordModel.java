@@ -0,0 +1,42 @@
+package at.nexus.wakeword;
+
+import at.nexus.dsp.FeatureConfig;
+import at.nexus.dsp.FeatureHistory;
+
+/**
+ * Модель распознавания ключевого слова для {@link WakeWordStage}.
+ *
+ * Вызывается на каждый новый кадр признаков и возвращает уверенность,
+ * что слово закончилось на этом кадре. Контекст модель берёт из
+ * {@link FeatureHistory} (не глубже {@link #contextFrames()}), поэтому
+ * нейросеть со скользящим окном или потоковый DTW считают только новое.
+ * Должна укладываться в реальное время на одном ядре и не аллоцировать.
+ */
+public interface KeywordModel {
+
+    /**
+     * Какое слово распознаёт модель
+     */
+    String keyword();
+
+    /**
+     * Какие признаки нужны модели
+     */
+    FeatureConfig featureConfig();
+
+    /**
+     * Сколько последних кадров признаков нужно модели
+     */
+    int contextFrames();
+
+    /**
+     * Учесть новейший кадр признаков
+     * @return уверенность 0..1, что слово закончилось на этом кадре
+     */
+    double update(FeatureHistory features);
+
+    /**
+     * Забыть состояние (новый поток или после срабатывания)
+     */
+    void reset();
+}
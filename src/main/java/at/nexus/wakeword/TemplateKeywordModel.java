@@ -0,0 +1,229 @@
+package at.nexus.wakeword;
+
+import at.nexus.dsp.FeatureConfig;
+import at.nexus.dsp.FeatureHistory;
+import at.nexus.dsp.MelSpectrogram;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Ключевое слово по записанным образцам: потоковый DTW по MFCC.
+ *
+ * Из нескольких произнесений слова (enrollment) получаются шаблоны -
+ * последовательности MFCC без c0, так что громкость не влияет.
+ * Для каждого шаблона хранится последний столбец DTW с началом пути
+ * в любом месте потока; новый кадр обновляет столбец за O(длины
+ * шаблона) - прошлое не пересчитывается. Шаги пути: кадр потока на
+ * тот же кадр шаблона, на следующий или через один, то есть темп
+ * речи от половины до двойного. Путь выбирается по средней стоимости.
+ *
+ * Уверенность: {@code 1 - средняя дистанция / maxDistance}, не меньше 0.
+ * Не аллоцирует после создания, не потокобезопасен.
+ */
+public class TemplateKeywordModel implements KeywordModel {
+
+    /**
+     * Дистанция нулевой уверенности под {@link FeatureConfig#mfcc}: с порогом
+     * 0.5 слово проходит при средней дистанции до 5
+     */
+    public static final double DEFAULT_MAX_DISTANCE = 10.0;
+
+    private static final float INVALID = Float.POSITIVE_INFINITY;
+
+    private final String keyword;
+    private final FeatureConfig featureConfig;
+    private final float[][][] templates;
+    private final double maxDistance;
+
+    // Столбец DTW по каждому шаблону: сумма дистанций и длина пути
+    private final float[][] cost;
+    private final int[][] length;
+    private final float[][] nextCost;
+    private final int[][] nextLength;
+    private double lastDistance = Double.POSITIVE_INFINITY;
+
+    public TemplateKeywordModel(String keyword, FeatureConfig featureConfig, List<float[][]> templates) {
+        this(keyword, featureConfig, templates, DEFAULT_MAX_DISTANCE);
+    }
+
+    /**
+     * @param templates   последовательности MFCC образцов (кадр x коэффициент)
+     * @param maxDistance средняя дистанция, при которой уверенность падает до нуля
+     */
+    public TemplateKeywordModel(String keyword, FeatureConfig featureConfig, List<float[][]> templates,
+                                double maxDistance) {
+        if (featureConfig.mfccCoefficients() < 2) {
+            throw new IllegalArgumentException("Шаблонам нужны MFCC, а не log-mel");
+        }
+        if (templates.isEmpty()) {
+            throw new IllegalArgumentException("Нужен хотя бы один образец слова");
+        }
+        this.keyword = keyword;
+        this.featureConfig = featureConfig;
+        this.templates = templates.toArray(new float[0][][]);
+        this.maxDistance = maxDistance;
+        this.cost = new float[this.templates.length][];
+        this.length = new int[this.templates.length][];
+        this.nextCost = new float[this.templates.length][];
+        this.nextLength = new int[this.templates.length][];
+        for (int t = 0; t < this.templates.length; t++) {
+            int frames = this.templates[t].length;
+            cost[t] = new float[frames];
+            length[t] = new int[frames];
+            nextCost[t] = new float[frames];
+            nextLength[t] = new int[frames];
+        }
+        reset();
+    }
+
+    /**
+     * Шаблоны из записанных образцов (16-bit, частота из {@code featureConfig}).
+     * Образцы должны быть обрезаны по слову: тишина по краям попадёт в шаблон
+     */
+    public static List<float[][]> enroll(FeatureConfig featureConfig, List<short[]> examples) {
+        List<float[][]> templates = new ArrayList<>();
+        for (short[] example : examples) {
+            int frames = (example.length - featureConfig.windowSamples()) / featureConfig.hopSamples() + 1;
+            if (frames < 4) {
+                throw new IllegalArgumentException("Образец слишком короткий: " + example.length + " сэмплов");
+            }
+            MelSpectrogram features = new MelSpectrogram(featureConfig, frames);
+            features.process(example, 0, example.length);
+            FeatureHistory history = features.history();
+            float[][] template = new float[history.size()][];
+            for (int i = 0; i < template.length; i++) {
+                float[] frame = history.get(template.length - 1 - i);
+                template[i] = Arrays.copyOf(frame, frame.length);
+            }
+            templates.add(template);
+        }
+        return templates;
+    }
+
+    @Override
+    public double update(FeatureHistory features) {
+        float[] frame = features.get(0);
+        double best = Double.POSITIVE_INFINITY;
+        for (int t = 0; t < templates.length; t++) {
+            best = Math.min(best, step(t, frame));
+        }
+        lastDistance = best;
+        return Math.max(0, 1 - best / maxDistance);
+    }
+
+    /**
+     * Один столбец DTW для шаблона {@code t}
+     * @return средняя дистанция пути, закончившегося на последнем кадре шаблона
+     */
+    private double step(int t, float[] frame) {
+        float[][] template = templates[t];
+        float[] prevCost = cost[t];
+        int[] prevLength = length[t];
+        float[] newCost = nextCost[t];
+        int[] newLength = nextLength[t];
+        int maxPath = template.length * 2;
+
+        for (int j = 0; j < template.length; j++) {
+            float d = distance(frame, template[j]);
+            // Кандидаты: остаться на кадре шаблона, шаг на 1, шаг на 2 (или начать путь)
+            float bestCost = prevCost[j];
+            int bestLength = prevLength[j];
+            if (j == 0) {
+                if (bestLength == 0 || (bestCost + d) / (bestLength + 1) > d) {
+                    bestCost = 0;
+                    bestLength = 0;
+                }
+            } else {
+                if (better(prevCost[j - 1], prevLength[j - 1], bestCost, bestLength, d)) {
+                    bestCost = prevCost[j - 1];
+                    bestLength = prevLength[j - 1];
+                }
+                if (j >= 2 && better(prevCost[j - 2], prevLength[j - 2], bestCost, bestLength, d)) {
+                    bestCost = prevCost[j - 2];
+                    bestLength = prevLength[j - 2];
+                }
+            }
+            if (bestCost == INVALID || bestLength >= maxPath) {
+                newCost[j] = INVALID;
+                newLength[j] = 0;
+            } else {
+                newCost[j] = bestCost + d;
+                newLength[j] = bestLength + 1;
+            }
+        }
+
+        cost[t] = newCost;
+        length[t] = newLength;
+        nextCost[t] = prevCost;
+        nextLength[t] = prevLength;
+
+        int last = template.length - 1;
+        // Слишком короткий путь - шаблон "проскочили" быстрее двойного темпа
+        if (newCost[last] == INVALID || newLength[last] < template.length / 2) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return newCost[last] / newLength[last];
+    }
+
+    private static boolean better(float cost, int length, float bestCost, int bestLength, float d) {
+        if (cost == INVALID || length == 0) {
+            return false;
+        }
+        if (bestCost == INVALID || bestLength == 0) {
+            return true;
+        }
+        return (cost + d) / (length + 1) < (bestCost + d) / (bestLength + 1);
+    }
+
+    /**
+     * Евклидова дистанция без c0 (энергии кадра)
+     */
+    private static float distance(float[] a, float[] b) {
+        float sum = 0;
+        for (int i = 1; i < a.length; i++) {
+            float diff = a[i] - b[i];
+            sum += diff * diff;
+        }
+        return (float) Math.sqrt(sum);
+    }
+
+    @Override
+    public void reset() {
+        for (int t = 0; t < templates.length; t++) {
+            Arrays.fill(cost[t], INVALID);
+            Arrays.fill(length[t], 0);
+        }
+        lastDistance = Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Средняя дистанция лучшего пути на последнем кадре (для подбора порога)
+     */
+    public double getLastDistance() {
+        return lastDistance;
+    }
+
+    @Override
+    public String keyword() {
+        return keyword;
+    }
+
+    @Override
+    public FeatureConfig featureConfig() {
+        return featureConfig;
+    }
+
+    /**
+     * DTW держит своё состояние, из истории нужен только новейший кадр
+     */
+    @Override
+    public int contextFrames() {
+        return 1;
+    }
+
+    public int getTemplateCount() {
+        return templates.length;
+    }
+}
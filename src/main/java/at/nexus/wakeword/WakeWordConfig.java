@@ -0,0 +1,33 @@
+package at.nexus.wakeword;
+
+/**
+ * Настройки {@link WakeWordStage}.
+ *
+ * @param threshold        уверенность модели, с которой слово считается сказанным
+ * @param refractoryMillis сколько после срабатывания не срабатывать снова
+ *                         (одно слово даёт несколько соседних пиков)
+ * @param listenMillis     сколько звука пропускать дальше после слова,
+ *                         если потребитель не закроет шлюз раньше
+ */
+public record WakeWordConfig(double threshold, int refractoryMillis, int listenMillis) {
+
+    public WakeWordConfig {
+        if (threshold <= 0 || threshold > 1) {
+            throw new IllegalArgumentException("Порог должен быть в (0, 1]: " + threshold);
+        }
+        if (refractoryMillis < 0 || listenMillis < 0) {
+            throw new IllegalArgumentException("Длительности не могут быть отрицательными");
+        }
+    }
+
+    /**
+     * Порог под {@link TemplateKeywordModel}, восемь секунд на команду
+     */
+    public static WakeWordConfig defaults() {
+        return new WakeWordConfig(0.5, 1000, 8000);
+    }
+
+    public WakeWordConfig withThreshold(double threshold) {
+        return new WakeWordConfig(threshold, refractoryMillis, listenMillis);
+    }
+}
@@ -0,0 +1,32 @@
+package at.nexus.wakeword;
+
+/**
+ * Получатель событий {@link WakeWordStage}.
+ *
+ * Вызывается из потока, который кормит этап кадрами, поэтому
+ * реализации не должны блокироваться надолго. Массив в
+ * {@link #onGatedFrame} переиспользуется - данные нужно скопировать,
+ * если они нужны после возврата.
+ */
+public interface WakeWordListener {
+
+    /**
+     * Сказано ключевое слово, шлюз открыт
+     * @param samplePosition позиция сэмпла, на котором слово закончилось
+     */
+    default void onWakeWord(String keyword, double confidence, long samplePosition) {
+    }
+
+    /**
+     * Кадр после ключевого слова, пока шлюз открыт (дальше по конвейеру: VAD, STT)
+     */
+    default void onGatedFrame(short[] samples, int offset, int length) {
+    }
+
+    /**
+     * Шлюз закрылся: по таймауту или {@link WakeWordStage#closeGate()}
+     * @param samplePosition позиция сэмпла после последнего пропущенного
+     */
+    default void onGateClosed(long samplePosition) {
+    }
+}
@@ -0,0 +1,193 @@
+package at.nexus.wakeword;
+
+import at.nexus.audio.AudioConfig;
+import at.nexus.dsp.FeatureConfig;
+import at.nexus.dsp.MelSpectrogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Постоянное прослушивание: шлюз перед остальным конвейером.
+ *
+ * Принимает все кадры захвата, считает признаки ({@link MelSpectrogram})
+ * и гонит их через модели ключевых слов. Пока слово не сказано, дальше
+ * ничего не уходит; после срабатывания кадры отдаются слушателям,
+ * пока потребитель не закроет шлюз ({@link #closeGate()}, например по
+ * концу фразы от VAD) или не выйдет {@code listenMillis}.
+ *
+ * Все модели должны хотеть одни и те же признаки. Буферы выделяются
+ * в конструкторе, обработка кадра не аллоцирует (если не аллоцируют
+ * модели). Не потокобезопасен: кадры подаются из одного потока,
+ * {@link #closeGate()} - из него же (из слушателя).
+ */
+public class WakeWordStage {
+    private static final Logger log = LoggerFactory.getLogger(WakeWordStage.class);
+
+    private final KeywordModel[] models;
+    private final MelSpectrogram features;
+    private final WakeWordConfig config;
+    private final int frameSamples;
+    private final long refractorySamples;
+    private final long listenSamples;
+
+    private volatile WakeWordListener[] listeners = new WakeWordListener[0];
+
+    private long position; // сэмплов обработано
+    private long lastDetection = -1; // позиция последнего срабатывания, -1 - не было
+    private boolean gateOpen;
+    private long gateClosesAt;
+
+    private long detections;
+    private long featureFrames;
+    private long gatedFrames;
+
+    public WakeWordStage(AudioConfig audioConfig, WakeWordConfig config, KeywordModel... models) {
+        if (models.length == 0) {
+            throw new IllegalArgumentException("Нужна хотя бы одна модель");
+        }
+        if (audioConfig.channels() != 1) {
+            throw new IllegalArgumentException("Ключевые слова ищутся в моно, каналов: " + audioConfig.channels());
+        }
+        FeatureConfig featureConfig = models[0].featureConfig();
+        int context = 1;
+        for (KeywordModel model : models) {
+            if (!model.featureConfig().equals(featureConfig)) {
+                throw new IllegalArgumentException("Модели хотят разные признаки: "
+                        + featureConfig + " vs " + model.featureConfig());
+            }
+            context = Math.max(context, model.contextFrames());
+        }
+        if (featureConfig.sampleRate() != audioConfig.sampleRate()) {
+            throw new IllegalArgumentException("Признаки для " + featureConfig.sampleRate()
+                    + "Hz, захват " + audioConfig.sampleRate() + "Hz");
+        }
+        this.models = models.clone();
+        this.features = new MelSpectrogram(featureConfig, context);
+        this.config = config;
+        this.frameSamples = audioConfig.frameSamples();
+        this.refractorySamples = (long) audioConfig.sampleRate() * config.refractoryMillis() / 1000;
+        this.listenSamples = (long) audioConfig.sampleRate() * config.listenMillis() / 1000;
+    }
+
+    /**
+     * Добавить слушателя событий
+     */
+    public synchronized void addListener(WakeWordListener listener) {
+        WakeWordListener[] current = listeners;
+        WakeWordListener[] updated = new WakeWordListener[current.length + 1];
+        System.arraycopy(current, 0, updated, 0, current.length);
+        updated[current.length] = listener;
+        listeners = updated;
+    }
+
+    /**
+     * Обработать один кадр захвата (длина не больше кадра из AudioConfig)
+     */
+    public void process(short[] samples, int offset, int length) {
+        if (length > frameSamples) {
+            throw new IllegalArgumentException("Кадр " + length + " больше ожидаемого " + frameSamples);
+        }
+        WakeWordListener[] targets = listeners;
+
+        if (gateOpen) {
+            gatedFrames++;
+            for (WakeWordListener l : targets) {
+                l.onGatedFrame(samples, offset, length);
+            }
+            if (gateOpen && position + length >= gateClosesAt) {
+                closeGate(targets, position + length);
+            }
+        }
+
+        // Признаки считаются всегда: слово может прозвучать и при открытом шлюзе.
+        // Кадр захвата подаётся по шагу признаков: за шаг появляется не больше
+        // одного кадра, и модели видят каждый кадр, пока он новейший в истории
+        int hop = features.getConfig().hopSamples();
+        for (int done = 0; done < length; done += hop) {
+            int n = Math.min(hop, length - done);
+            if (features.process(samples, offset + done, n) == 0) {
+                continue;
+            }
+            featureFrames++;
+            long frameEnd = position + done + n;
+            for (KeywordModel model : models) {
+                double confidence = model.update(features.history());
+                if (confidence >= config.threshold()
+                        && (lastDetection < 0 || frameEnd - lastDetection >= refractorySamples)) {
+                    detect(targets, model, confidence, frameEnd);
+                }
+            }
+        }
+
+        position += length;
+    }
+
+    private void detect(WakeWordListener[] targets, KeywordModel model, double confidence, long samplePosition) {
+        detections++;
+        lastDetection = samplePosition;
+        gateOpen = true;
+        gateClosesAt = samplePosition + listenSamples;
+        for (KeywordModel m : models) {
+            m.reset(); // одно слово - одно срабатывание
+        }
+        log.debug("Ключевое слово '{}' (уверенность {}) на {} сэмпле", model.keyword(),
+                String.format("%.2f", confidence), samplePosition);
+        for (WakeWordListener l : targets) {
+            l.onWakeWord(model.keyword(), confidence, samplePosition);
+        }
+    }
+
+    /**
+     * Закрыть шлюз раньше таймаута (потребитель дослушал команду)
+     */
+    public void closeGate() {
+        if (gateOpen) {
+            closeGate(listeners, position);
+        }
+    }
+
+    private void closeGate(WakeWordListener[] targets, long samplePosition) {
+        gateOpen = false;
+        for (WakeWordListener l : targets) {
+            l.onGateClosed(samplePosition);
+        }
+    }
+
+    /**
+     * Забыть состояние (новый поток): признаки, модели, шлюз
+     */
+    public void reset() {
+        features.reset();
+        for (KeywordModel model : models) {
+            model.reset();
+        }
+        gateOpen = false;
+        lastDetection = -1;
+        position = 0;
+    }
+
+    public boolean isGateOpen() {
+        return gateOpen;
+    }
+
+    /**
+     * Сколько раз сработало ключевое слово
+     */
+    public long getDetections() {
+        return detections;
+    }
+
+    /**
+     * Кадров признаков посчитано
+     */
+    public long getFeatureFrames() {
+        return featureFrames;
+    }
+
+    /**
+     * Кадров захвата пропущено дальше
+     */
+    public long getGatedFrames() {
+        return gatedFrames;
+    }
+}
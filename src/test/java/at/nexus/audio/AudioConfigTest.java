@@ -0,0 +1,31 @@
+package at.nexus.audio;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * {@link AudioConfig#samplesForMillis}: всегда целое число кадров сэмплов
+ */
+class AudioConfigTest {
+
+    @Test
+    void samplesForMillisKeepsWholeFrames() {
+        AudioConfig config = LatencyProfile.LOW.toConfig(22050, 2);
+        assertEquals(440, config.samplesForMillis(10));
+        assertEquals(880, config.bytesForMillis(10));
+
+        int[] rates = {8000, 11025, 16000, 22050, 44100, 48000};
+        for (int rate : rates) {
+            for (int channels = 1; channels <= 8; channels++) {
+                AudioConfig c = LatencyProfile.LOW.toConfig(rate, channels);
+                for (int millis = 1; millis <= 100; millis++) {
+                    int samples = c.samplesForMillis(millis);
+                    String at = rate + "Hz, " + channels + " кан., " + millis + "ms";
+                    assertEquals(0, samples % channels, at);
+                    assertEquals((long) rate * millis / 1000, samples / channels, at);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package at.nexus.audio;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * {@link AudioFrame#release()}: второй возврат того же кадра - ошибка,
+ * а не второй экземпляр кадра в очереди свободных
+ */
+class FramePoolTest {
+
+    @Test
+    void doubleReleaseThrows() {
+        FramePool pool = new FramePool(2, 4);
+        PcmReader reader = (buffer, offset, length) -> length;
+        assertEquals(4, pool.capture(reader));
+        AudioFrame frame = pool.poll();
+        assertNotNull(frame);
+
+        frame.release();
+        assertThrows(IllegalStateException.class, frame::release);
+
+        // В пуле по-прежнему два кадра, каждый один раз
+        assertNotNull(pool.acquire());
+        assertNotNull(pool.acquire());
+        assertNull(pool.acquire());
+    }
+
+    @Test
+    void frameReusedAfterReleaseCanBeReleasedAgain() {
+        FramePool pool = new FramePool(1, 4);
+        PcmReader reader = (buffer, offset, length) -> length;
+        for (int i = 0; i < 3; i++) {
+            assertEquals(4, pool.capture(reader));
+            AudioFrame frame = pool.poll();
+            assertNotNull(frame, "цикл " + i);
+            frame.release();
+        }
+        assertEquals(0, pool.getDroppedFrames());
+    }
+}
@@ -0,0 +1,44 @@
+package at.nexus.audio;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link JitterBuffer}: чанк чтения больше ёмкости буфера
+ */
+class JitterBufferTest {
+
+    @Test
+    void readLargerThanCapacityDrainsStream() throws Exception {
+        AudioConfig config = LatencyProfile.LOW.toConfig(16000, 1);
+        JitterBuffer jitter = new JitterBuffer(config, 20, 60, 100, null);
+        byte[] stream = new byte[config.samplesForMillis(1000) * AudioConfig.BYTES_PER_SAMPLE];
+        for (int i = 0; i < stream.length; i++) {
+            stream[i] = (byte) i;
+        }
+        Thread producer = Thread.ofVirtual().start(() -> {
+            jitter.write(stream, 0, stream.length);
+            jitter.end();
+        });
+
+        // Весь поток одним чанком - в 10 раз больше ёмкости
+        byte[] chunk = new byte[stream.length];
+        int total = 0;
+        int n;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while ((n = jitter.read(chunk, 0, chunk.length, 20, TimeUnit.MILLISECONDS)) != JitterBuffer.END) {
+            for (int i = 0; i < n; i++) {
+                assertEquals(stream[total + i], chunk[i], "байт " + (total + i));
+            }
+            total += n;
+            assertTrue(System.nanoTime() < deadline, "поток не доигран, прочитано " + total);
+        }
+        producer.join();
+
+        assertEquals(stream.length, total);
+    }
+}
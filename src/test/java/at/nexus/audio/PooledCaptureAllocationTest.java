@@ -0,0 +1,113 @@
+package at.nexus.audio;
+
+import at.nexus.audio.io.AudioSource;
+import at.nexus.audio.io.ClockMode;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Захват через пул ({@link AudioInputManager#enablePooledCapture}) не аллоцирует
+ * в установившемся режиме: ни поток захвата, ни потребитель кадров.
+ * Источник - генератор без железа, байты считает счётчик аллокаций потока JVM.
+ */
+class PooledCaptureAllocationTest {
+
+    private static final int POOL_FRAMES = 8;
+    private static final int WARMUP_READS = 20_000;
+    private static final int MEASURED_READS = 100_000;
+
+    private static final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Test
+    void steadyStateCaptureDoesNotAllocate() throws Exception {
+        threads.setThreadAllocatedMemoryEnabled(true);
+        AudioConfig config = LatencyProfile.LOW.toConfig(16000, 1);
+        CountingSource source = new CountingSource();
+        AudioInputManager input = new AudioInputManager(config, source);
+        input.initialize();
+        input.enablePooledCapture(POOL_FRAMES);
+        FramePool pool = input.getFramePool();
+
+        input.startRecording();
+        long frames = 0;
+        long consumerBefore = -1;
+        long consumerAllocated = -1;
+        long checksum = 0;
+        try {
+            while (true) {
+                AudioFrame frame = pool.poll(10, TimeUnit.MILLISECONDS);
+                if (frame == null) {
+                    if (input.isSourceEnded() && pool.readyCount() == 0) {
+                        break;
+                    }
+                    continue;
+                }
+                checksum += frame.data()[0];
+                frame.release();
+                frames++;
+                source.consumed = frames;
+                if (frames == WARMUP_READS) {
+                    consumerBefore = threads.getCurrentThreadAllocatedBytes();
+                } else if (frames == WARMUP_READS + MEASURED_READS / 2) {
+                    consumerAllocated = threads.getCurrentThreadAllocatedBytes() - consumerBefore;
+                }
+            }
+        } finally {
+            input.close();
+        }
+
+        assertTrue(source.captureAllocated >= 0, "Источник не дошёл до конца замера");
+        assertEquals(0, source.captureAllocated,
+                "Поток захвата аллоцировал за " + MEASURED_READS + " чтений");
+        assertTrue(consumerAllocated >= 0, "Потребитель получил только " + frames + " кадров (checksum " + checksum + ")");
+        assertEquals(0, consumerAllocated, "Потребитель аллоцировал за " + MEASURED_READS / 2 + " кадров");
+    }
+
+    /**
+     * Пила без таймера: вместо темпа устройства ждёт, пока потребитель
+     * разберёт кадры, чтобы пул не терял их. Сама меряет аллокации
+     * потока, который её читает (поток захвата), между прогревом и концом замера
+     */
+    private static final class CountingSource implements AudioSource {
+        private long reads;
+        private short phase;
+        private long before;
+        volatile long consumed;
+        volatile long captureAllocated = -1;
+
+        @Override
+        public void open(AudioConfig config) {
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            while (reads - consumed >= POOL_FRAMES - 1) {
+                Thread.yield();
+            }
+            reads++;
+            if (reads == WARMUP_READS) {
+                before = threads.getCurrentThreadAllocatedBytes();
+            } else if (reads == WARMUP_READS + MEASURED_READS) {
+                captureAllocated = threads.getCurrentThreadAllocatedBytes() - before;
+                return END_OF_STREAM;
+            }
+            for (int i = offset; i < offset + length - 1; i += 2) {
+                phase += 300;
+                buffer[i] = (byte) phase;
+                buffer[i + 1] = (byte) (phase >> 8);
+            }
+            return length;
+        }
+
+        @Override
+        public ClockMode getClockMode() {
+            return ClockMode.AS_FAST_AS_POSSIBLE;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package at.nexus.audio.drift;
+
+import at.nexus.audio.AudioConfig;
+import at.nexus.audio.LatencyProfile;
+import at.nexus.audio.PcmRingBuffer;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.function.DoubleUnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Расхождение часов захвата и воспроизведения на виртуальных часах.
+ *
+ * Микрофон и динамики тактуются каждый своим кварцем с заданным
+ * уходом (ppm), который ещё и "плавает" от температуры и скачком
+ * меняется в середине суток. Производитель пишет в очередь кадр
+ * по своим часам, потребитель забирает кадр по своим; моменты
+ * доставки дрожат на несколько ms, изредка производитель застревает
+ * на 20 ms. Время виртуальное, так что часы считаются за секунды.
+ *
+ * Без подстройки очередь должна расползтись (иначе сценарий ничего
+ * не проверяет); с {@link DriftCompensator} после первого часа задержка
+ * остаётся в пределах, рывков нет, оценка дрейфа близка к настоящему.
+ * По умолчанию - 2 часа; сутки - тег {@code long} ({@code mvn test -Plong-tests}).
+ */
+class ClockDriftSimulationTest {
+
+    private static final int SAMPLE_RATE = 16000;
+    private static final int QUEUE_MILLIS = 4000; // как очередь AudioOutputManager
+    private static final double JITTER_MILLIS = 3;
+    private static final double STALL_MILLIS = 20;
+    private static final double STALLS_PER_HOUR = 6;
+    private static final double HOUR_NANOS = 3600e9;
+
+    // Пределы после выхода на режим (первый час)
+    private static final double MIN_QUEUE_MILLIS = 10;
+    private static final double MAX_QUEUE_MILLIS = 120;
+    private static final double MAX_PPM_ERROR = 75;
+
+    // Уход кварцев от номинала, ppm, по времени в часах
+    private static final Scenario FASTER = new Scenario(
+            h -> 60 + 25 * Math.sin(2 * Math.PI * h / 6),
+            h -> h < 12 ? -40 : -10);
+    private static final Scenario SLOWER = new Scenario(
+            h -> -70 + 15 * Math.sin(2 * Math.PI * h / 8),
+            h -> h < 12 ? 30 : 60);
+
+    private final AudioConfig config = LatencyProfile.LOW.toConfig(SAMPLE_RATE, 1);
+
+    @Test
+    void microphoneFaster() {
+        Result plain = simulate(FASTER, 2, false);
+        assertTrue(plain.finalQueueMillis > 500, "без подстройки очередь должна расти: " + plain);
+        assertCompensated(simulate(FASTER, 2, true));
+    }
+
+    @Test
+    void microphoneSlower() {
+        Result plain = simulate(SLOWER, 2, false);
+        assertTrue(plain.glitches > 0, "без подстройки звук должен рваться: " + plain);
+        assertCompensated(simulate(SLOWER, 2, true));
+    }
+
+    @Test
+    @Tag("long")
+    void fullDay() {
+        Result faster = simulate(FASTER, 24, false);
+        assertTrue(faster.overflowed, "без подстройки очередь должна переполниться: " + faster);
+        Result slower = simulate(SLOWER, 24, false);
+        assertTrue(slower.glitches > 0, "без подстройки звук должен рваться: " + slower);
+        assertCompensated(simulate(FASTER, 24, true));
+        assertCompensated(simulate(SLOWER, 24, true));
+    }
+
+    private static void assertCompensated(Result result) {
+        assertAll(result.toString(),
+                () -> assertEquals(0, result.glitches, "рывки"),
+                () -> assertTrue(result.minQueueMillis >= MIN_QUEUE_MILLIS, "очередь ниже предела"),
+                () -> assertTrue(result.maxQueueMillis <= MAX_QUEUE_MILLIS, "очередь выше предела"),
+                () -> assertTrue(result.worstPpmError <= MAX_PPM_ERROR, "ошибка оценки дрейфа"));
+    }
+
+    /**
+     * Уход часов производителя и потребителя, ppm, от времени в часах
+     */
+    private record Scenario(DoubleUnaryOperator producerPpm, DoubleUnaryOperator consumerPpm) {
+
+        /**
+         * Насколько производитель быстрее потребителя, ppm
+         */
+        double relativePpm(double hours) {
+            return ((1 + producerPpm.applyAsDouble(hours) / 1e6) / (1 + consumerPpm.applyAsDouble(hours) / 1e6) - 1)
+                    * 1e6;
+        }
+    }
+
+    /**
+     * Очередь и оценка после первого часа
+     */
+    private record Result(double minQueueMillis, double maxQueueMillis, double finalQueueMillis,
+                          long glitches, boolean overflowed, double worstPpmError) {
+    }
+
+    private Result simulate(Scenario scenario, int hours, boolean compensate) {
+        int frame = config.frameSamples();
+        double frameNanos = config.frameMillis() * 1e6;
+        double end = hours * HOUR_NANOS;
+        DriftConfig driftConfig = DriftConfig.defaults();
+        int target = config.samplesForMillis(driftConfig.targetMillis());
+        PcmRingBuffer queue = new PcmRingBuffer(config.samplesForMillis(QUEUE_MILLIS),
+                PcmRingBuffer.OverflowPolicy.DROP_OLDEST);
+        DriftCompensator compensator = compensate ? new DriftCompensator(config, driftConfig, queue) : null;
+        Random random = new Random(24);
+        short[] tone = tone();
+        short[] in = new short[frame];
+        short[] out = new short[frame];
+
+        double producerTick = 0;
+        double producerDelivery = 0;
+        double consumerTick = 0;
+        double consumerDelivery = 0;
+        long written = 0;
+        boolean playing = false;
+        long glitches = 0;
+        double minQueue = Double.MAX_VALUE;
+        double maxQueue = 0;
+        double worstPpmError = 0;
+
+        while (consumerTick < end) {
+            if (producerDelivery <= consumerDelivery) {
+                // Кадр захвата: непрерывный тон по часам микрофона
+                for (int i = 0; i < frame; i++) {
+                    in[i] = tone[(int) ((written + i) % tone.length)];
+                }
+                written += frame;
+                queue.write(in, 0, frame);
+                producerTick += frameNanos / (1 + scenario.producerPpm.applyAsDouble(producerTick / HOUR_NANOS) / 1e6);
+                double jitter = random.nextDouble() * JITTER_MILLIS * 1e6;
+                if (random.nextDouble() < STALLS_PER_HOUR * frameNanos / HOUR_NANOS) {
+                    jitter += STALL_MILLIS * 1e6;
+                }
+                // Доставка по порядку: застрявший кадр задерживает следующие
+                producerDelivery = Math.max(producerTick + jitter, producerDelivery);
+                continue;
+            }
+
+            double queuedMillis = queue.available() * 1000.0 / config.sampleRate();
+            int n;
+            if (compensate) {
+                n = compensator.read(out, 0, frame);
+                playing |= n > 0;
+            } else if (playing || queue.available() >= target) {
+                playing = true;
+                n = queue.read(out, 0, frame);
+            } else {
+                n = 0;
+            }
+            double hoursNow = consumerTick / HOUR_NANOS;
+            if (playing) {
+                if (n < frame) {
+                    glitches++;
+                }
+                if (hoursNow >= 1) {
+                    minQueue = Math.min(minQueue, queuedMillis);
+                    maxQueue = Math.max(maxQueue, queuedMillis);
+                    if (compensate) {
+                        worstPpmError = Math.max(worstPpmError,
+                                Math.abs(compensator.getDriftPpm() - scenario.relativePpm(hoursNow)));
+                    }
+                }
+            }
+
+            consumerTick += frameNanos / (1 + scenario.consumerPpm.applyAsDouble(hoursNow) / 1e6);
+            consumerDelivery = consumerTick + random.nextDouble() * 1e6;
+        }
+        return new Result(minQueue, maxQueue, queue.available() * 1000.0 / config.sampleRate(), glitches,
+                queue.getDroppedSamples() > 0, worstPpmError);
+    }
+
+    /**
+     * Секунда тона 440 Hz, повторяется без стыка
+     */
+    private static short[] tone() {
+        short[] out = new short[SAMPLE_RATE];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = (short) Math.round(8000 * Math.sin(2 * Math.PI * 440 * i / SAMPLE_RATE));
+        }
+        return out;
+    }
+}
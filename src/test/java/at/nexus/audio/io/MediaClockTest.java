@@ -0,0 +1,30 @@
+package at.nexus.audio.io;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * {@link MediaClock#nanosFor}: точно и без переполнения на многочасовом потоке
+ */
+class MediaClockTest {
+
+    @Test
+    void nanosForLongStreamDoesNotOverflow() {
+        long[] rates = {32_000, 44_100 * 4, 48_000 * 2 * 2, 192_000 * 8 * 2};
+        long[] hours = {0, 1, 80, 81, 1000, 100_000};
+        for (long rate : rates) {
+            for (long h : hours) {
+                for (long extra : new long[] {0, 1, rate / 3, rate - 1}) {
+                    long bytes = h * 3600 * rate + extra;
+                    long expected = BigInteger.valueOf(bytes).multiply(BigInteger.valueOf(1_000_000_000L))
+                            .divide(BigInteger.valueOf(rate)).longValueExact();
+                    assertEquals(expected, MediaClock.nanosFor(bytes, rate),
+                            rate + " байт/с, " + h + " ч + " + extra + " байт");
+                }
+            }
+        }
+    }
+}
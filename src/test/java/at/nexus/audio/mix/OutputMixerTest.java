@@ -0,0 +1,62 @@
+package at.nexus.audio.mix;
+
+import at.nexus.audio.AudioConfig;
+import at.nexus.audio.LatencyProfile;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * {@link OutputMixer#remix}: кадр без речи - тот же кадр минус речь,
+ * сигналы и фон с теми же громкостями (в том числе в кадре с рампой)
+ */
+class OutputMixerTest {
+
+    private static final short SPEECH = 5000;
+    private static final short BACKGROUND = 1000;
+    private static final short EARCON = 300;
+
+    @Test
+    void remixWithoutSpeechKeepsOtherStreams() {
+        AudioConfig config = LatencyProfile.LOW.toConfig(16000, 1);
+        int frame = config.frameSamples();
+        OutputMixer mixer = new OutputMixer(config, MixerConfig.defaults());
+        mixer.add(MixerStream.of(constant(BACKGROUND, frame * 10), StreamPriority.BACKGROUND));
+        mixer.add(MixerStream.of(constant(EARCON, frame * 10), StreamPriority.EARCON));
+        mixer.add(MixerStream.of(constant(SPEECH, frame * 10), StreamPriority.SPEECH));
+
+        short[] full = new short[frame];
+        short[] remixed = new short[frame];
+        // Первый кадр - без рампы, дальше фон плавно приглушается
+        for (int f = 0; f < 3; f++) {
+            assertEquals(frame, mixer.render(full));
+            assertEquals(frame, mixer.remix(remixed, StreamPriority.SPEECH));
+            for (int i = 0; i < frame; i++) {
+                assertEquals(full[i] - SPEECH, remixed[i], "кадр " + f + ", сэмпл " + i);
+            }
+        }
+    }
+
+    @Test
+    void remixOfSpeechOnlyIsSilent() {
+        AudioConfig config = LatencyProfile.LOW.toConfig(16000, 1);
+        int frame = config.frameSamples();
+        OutputMixer mixer = new OutputMixer(config, MixerConfig.defaults());
+        mixer.add(MixerStream.of(constant(SPEECH, frame * 2), StreamPriority.SPEECH));
+
+        short[] out = new short[frame];
+        assertEquals(frame, mixer.render(out));
+        assertEquals(0, mixer.remix(out, StreamPriority.SPEECH));
+        for (short sample : out) {
+            assertEquals(0, sample);
+        }
+    }
+
+    private static short[] constant(short value, int length) {
+        short[] samples = new short[length];
+        Arrays.fill(samples, value);
+        return samples;
+    }
+}
@@ -0,0 +1,51 @@
+package at.nexus.audio.wav;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+/**
+ * {@link WavWriter}: сэмпл на границе отображённого окна
+ */
+class WavWriterTest {
+
+    @Test
+    void samplesAfterOddByteCrossRegionBoundary(@TempDir Path directory) throws Exception {
+        Path path = directory.resolve("odd.wav");
+        // Один байт сдвигает сэмплы: перед концом окна остаётся ровно 1 свободный байт
+        int samples = (int) (WavWriter.REGION_BYTES / Short.BYTES) + 10;
+        short[] pcm = new short[samples];
+        for (int i = 0; i < samples; i++) {
+            pcm[i] = (short) (i * 7);
+        }
+        byte[] expected = new byte[1 + samples * Short.BYTES + 1];
+        expected[0] = 42;
+        for (int i = 0; i < samples; i++) {
+            expected[1 + 2 * i] = (byte) pcm[i];
+            expected[2 + 2 * i] = (byte) (pcm[i] >> 8);
+        }
+        expected[expected.length - 1] = 43;
+
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            try (WavWriter writer = new WavWriter(path, 16000, 1)) {
+                writer.write(new byte[] {42}, 0, 1);
+                writer.write(pcm, 0, samples);
+                writer.write(new byte[] {43}, 0, 1);
+            }
+        });
+
+        try (WavReader reader = new WavReader(path)) {
+            assertEquals(expected.length, reader.getDataBytes());
+            byte[] data = new byte[expected.length];
+            assertEquals(data.length, reader.read(data, 0, data.length));
+            for (int i = 0; i < data.length; i++) {
+                assertEquals(expected[i], data[i], "байт " + i);
+            }
+        }
+    }
+}
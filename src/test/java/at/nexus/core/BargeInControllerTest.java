@@ -0,0 +1,180 @@
+package at.nexus.core;
+
+import at.nexus.audio.AudioConfig;
+import at.nexus.audio.AudioOutputManager;
+import at.nexus.audio.LatencyProfile;
+import at.nexus.audio.io.AudioSink;
+import at.nexus.metrics.PipelineMetrics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Barge-in через {@link BargeInController} против вывода в память: сколько
+ * звука выкинуто при перебивании и что следующий ответ играет сразу и целиком.
+ *
+ * Приёмник пропускает кадр, только получив разрешение от теста, поэтому
+ * момент перебивания известен точно: столько-то кадров записано, ещё
+ * один висит в записи.
+ */
+class BargeInControllerTest {
+
+    private static final short FIRST_REPLY = 1000;
+    private static final short SECOND_REPLY = 2000;
+    private static final long TIMEOUT_MILLIS = 5000;
+
+    private AudioConfig config;
+    private GatedSink sink;
+    private AudioOutputManager output;
+    private BargeInController bargeIn;
+    private PipelineMetrics metrics;
+
+    @BeforeEach
+    void setUp() {
+        config = LatencyProfile.LOW.toConfig(16000, 1);
+        sink = new GatedSink();
+        output = new AudioOutputManager(config, sink);
+        metrics = new PipelineMetrics();
+        output.setMetrics(metrics);
+        bargeIn = new BargeInController(output);
+        output.startPlayback();
+    }
+
+    @AfterEach
+    void tearDown() {
+        sink.permits.release(Integer.MAX_VALUE / 2);
+        output.close();
+    }
+
+    @Test
+    void speechStartDiscardsQueueAndNextReplyPlays() throws Exception {
+        int frame = config.frameSamples();
+        int replySamples = config.samplesForMillis(1000);
+        output.enqueueAudio(constant(FIRST_REPLY, replySamples), 0, replySamples);
+
+        int played = 5;
+        sink.permits.release(played);
+        // Пять кадров записано, шестой уже смешан и ждёт в приёмнике
+        await(() -> sink.waiting && sink.frames() == played);
+
+        bargeIn.onSpeechStart(0);
+
+        assertEquals(1, bargeIn.getBargeIns());
+        assertEquals(1, sink.flushes);
+        assertEquals(replySamples - (played + 1) * frame,
+                metrics.getCount(PipelineMetrics.Counter.PLAYBACK_DISCARDED_SAMPLES),
+                "выкинуто всё, что не ушло в приёмник");
+        assertEquals(0, output.getRingBuffer().available(), "очередь пуста после перебивания");
+
+        // Новый ответ играет сразу: после зависшего кадра только он
+        output.enqueueAudio(constant(SECOND_REPLY, replySamples), 0, replySamples);
+        sink.permits.release(Integer.MAX_VALUE / 2);
+        int total = (played + 1) * frame + replySamples;
+        await(() -> sink.samples().length >= total);
+        short[] written = Arrays.copyOf(sink.samples(), total);
+
+        for (int i = 0; i < (played + 1) * frame; i++) {
+            assertEquals(FIRST_REPLY, written[i], "сэмпл " + i + " первого ответа");
+        }
+        for (int i = (played + 1) * frame; i < total; i++) {
+            assertEquals(SECOND_REPLY, written[i], "сэмпл " + i + " второго ответа");
+        }
+    }
+
+    @Test
+    void interruptReportsDiscardedSamples() throws Exception {
+        int frame = config.frameSamples();
+        int replySamples = config.samplesForMillis(1000);
+        output.enqueueAudio(constant(FIRST_REPLY, replySamples), 0, replySamples);
+
+        sink.permits.release(2);
+        await(() -> sink.waiting && sink.frames() == 2);
+
+        assertEquals(replySamples - 3 * frame, output.interrupt());
+        assertEquals(0, output.interrupt(), "повторное перебивание выкидывать нечего");
+    }
+
+    @Test
+    void disabledControllerKeepsPlaying() throws Exception {
+        int replySamples = config.samplesForMillis(500);
+        output.enqueueAudio(constant(FIRST_REPLY, replySamples), 0, replySamples);
+        sink.permits.release(1);
+        await(() -> sink.waiting && sink.frames() == 1);
+
+        bargeIn.setEnabled(false);
+        bargeIn.onSpeechStart(0);
+
+        assertEquals(0, bargeIn.getBargeIns());
+        assertEquals(0, sink.flushes);
+        sink.permits.release(Integer.MAX_VALUE / 2);
+        await(() -> sink.samples().length >= replySamples);
+        for (short sample : Arrays.copyOf(sink.samples(), replySamples)) {
+            assertEquals(FIRST_REPLY, sample);
+        }
+    }
+
+    private static short[] constant(short value, int length) {
+        short[] samples = new short[length];
+        Arrays.fill(samples, value);
+        return samples;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MILLIS);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                fail("Не дождались за " + TIMEOUT_MILLIS + " ms");
+            }
+            Thread.sleep(1);
+        }
+    }
+
+    /**
+     * Вывод в память: каждый кадр ждёт разрешения теста (тишину менеджер не пишет)
+     */
+    private static final class GatedSink implements AudioSink {
+        final Semaphore permits = new Semaphore(0);
+        private final ByteArrayOutputStream written = new ByteArrayOutputStream();
+        private int frames;
+        volatile boolean waiting;
+        volatile int flushes;
+
+        @Override
+        public int write(byte[] buffer, int offset, int length) {
+            waiting = true;
+            permits.acquireUninterruptibly();
+            waiting = false;
+            synchronized (this) {
+                written.write(buffer, offset, length);
+                frames++;
+            }
+            return length;
+        }
+
+        @Override
+        public void flush() {
+            flushes++;
+        }
+
+        synchronized int frames() {
+            return frames;
+        }
+
+        synchronized short[] samples() {
+            short[] samples = new short[written.size() / Short.BYTES];
+            ByteBuffer.wrap(written.toByteArray()).order(ByteOrder.LITTLE_ENDIAN).asShortBuffer().get(samples);
+            return samples;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package at.nexus.dsp;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link AdaptiveResampler}: прозрачность до 0.9 Найквиста и точный
+ * расход входа при подстройке отношения.
+ */
+class AdaptiveResamplerTest {
+
+    private static final int SAMPLE_RATE = 16000;
+    private static final int FRAME = 320;
+    // Потолок - округление до 16 бит, около 90 dB
+    private static final double MIN_SNR_DB = 85;
+
+    @Test
+    void transparentUpToNineTenthsOfNyquist() {
+        for (double hz : new double[] {440, 1000, 4000, 6000, 7200}) {
+            for (double ratio : new double[] {1 - 1000e-6, 1 + 100e-6, 1 + 1000e-6}) {
+                double snr = snr(hz, ratio);
+                assertTrue(snr >= MIN_SNR_DB, String.format("%.0f Hz, отношение %.4f: SNR %.1f dB", hz, ratio, snr));
+            }
+        }
+    }
+
+    @Test
+    void inputFramesForGivesExactlyRequestedOutput() {
+        AdaptiveResampler resampler = new AdaptiveResampler(2, FRAME * 2);
+        short[] in = new short[FRAME * 4];
+        short[] out = new short[FRAME * 2];
+        for (int f = 0; f < 1000; f++) {
+            resampler.setRatio(1 + 0.005 * Math.sin(f * 0.1));
+            int needed = resampler.inputFramesFor(FRAME);
+            assertEquals(FRAME, resampler.process(in, 0, needed, out, 0, FRAME), "кадр " + f);
+        }
+    }
+
+    @Test
+    void rejectsRatioOutsideLimit() {
+        AdaptiveResampler resampler = new AdaptiveResampler(1, FRAME);
+        assertThrows(IllegalArgumentException.class, () -> resampler.setRatio(1 + 2 * AdaptiveResampler.MAX_DEVIATION));
+        assertThrows(IllegalArgumentException.class, () -> resampler.setRatio(Double.NaN));
+    }
+
+    /**
+     * Сигнал/шум передискретизации синуса против точного синуса
+     * в выходных моментах времени
+     */
+    private static double snr(double hz, double ratio) {
+        AdaptiveResampler resampler = new AdaptiveResampler(1, FRAME * 2);
+        resampler.setRatio(ratio);
+        short[] in = new short[FRAME * 2];
+        short[] out = new short[FRAME];
+        long inputPosition = 0;
+        long outputPosition = 0;
+        double signal = 0;
+        double noise = 0;
+        for (int f = 0; f < 200; f++) {
+            int needed = resampler.inputFramesFor(FRAME);
+            for (int i = 0; i < needed; i++) {
+                in[i] = (short) Math.round(16000 * Math.sin(2 * Math.PI * hz * (inputPosition + i) / SAMPLE_RATE));
+            }
+            inputPosition += needed;
+            int n = resampler.process(in, 0, needed, out, 0, FRAME);
+            for (int i = 0; i < n; i++) {
+                // Выход n - вход в момент n * ratio; первые выходы захватывают тишину перед началом
+                double expected = 16000 * Math.sin(2 * Math.PI * hz * (outputPosition + i) * ratio / SAMPLE_RATE);
+                if (outputPosition + i >= 64) {
+                    signal += expected * expected;
+                    noise += (out[i] - expected) * (out[i] - expected);
+                }
+            }
+            outputPosition += n;
+        }
+        return 10 * Math.log10(signal / noise);
+    }
+}
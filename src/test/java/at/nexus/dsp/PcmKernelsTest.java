@@ -0,0 +1,236 @@
+package at.nexus.dsp;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Векторные PCM ядра против скалярного эталона: побитово, кроме RMS.
+ *
+ * Длины - до нескольких векторов подряд и вокруг кратных ширине
+ * (8-64 элемента в зависимости от платформы), с нечётными хвостами;
+ * смещения ненулевые; данные с -32768 и 32767; усиления с насыщением.
+ * Без модуля {@code jdk.incubator.vector} тест пропускается.
+ */
+class PcmKernelsTest {
+
+    private static final int[] OFFSETS = {0, 1, 3};
+    private static final float[] GAINS = {0f, 0.5f, 1f, 2f, 7.3f, 40f, -1.5f, -40f, Float.NaN};
+    private static final double RMS_TOLERANCE = 1e-5;
+
+    private final Random random = new Random(10);
+    private PcmKernels scalar;
+    private PcmKernels vector;
+
+    @BeforeEach
+    void setUp() {
+        scalar = PcmOps.scalar();
+        vector = PcmOps.vectorized();
+        assumeTrue(vector != null, "векторные ядра недоступны (нужен --add-modules jdk.incubator.vector)");
+    }
+
+    @Test
+    void byteShortConversions() {
+        for (int length : lengths()) {
+            for (int offset : OFFSETS) {
+                String at = at(length, offset);
+                byte[] bytes = randomBytes((length + offset) * 2 + 1);
+                short[] s1 = new short[length + offset];
+                short[] s2 = new short[length + offset];
+                scalar.toShorts(bytes, offset + 1, s1, offset, length);
+                vector.toShorts(bytes, offset + 1, s2, offset, length);
+                assertArrayEquals(s1, s2, "toShorts " + at);
+
+                short[] samples = randomSamples(length + offset);
+                byte[] b1 = new byte[(length + offset) * 2 + 1];
+                byte[] b2 = new byte[b1.length];
+                scalar.toBytes(samples, offset, b1, offset + 1, length);
+                vector.toBytes(samples, offset, b2, offset + 1, length);
+                assertArrayEquals(b1, b2, "toBytes " + at);
+            }
+        }
+    }
+
+    @Test
+    void floatConversions() {
+        for (int length : lengths()) {
+            for (int offset : OFFSETS) {
+                String at = at(length, offset);
+                short[] samples = randomSamples(length + offset);
+                float[] f1 = new float[length + offset];
+                float[] f2 = new float[length + offset];
+                scalar.toFloats(samples, offset, f1, offset, length);
+                vector.toFloats(samples, offset, f2, offset, length);
+                assertArrayEquals(f1, f2, "toFloats " + at);
+
+                float[] floats = randomFloats(length + offset);
+                short[] s1 = new short[length + offset];
+                short[] s2 = new short[length + offset];
+                scalar.fromFloats(floats, offset, s1, offset, length);
+                vector.fromFloats(floats, offset, s2, offset, length);
+                assertArrayEquals(s1, s2, "fromFloats " + at);
+            }
+        }
+    }
+
+    @Test
+    void fromFloatsSpecialValues() {
+        float[] special = {Float.NaN, Float.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY, 1f, -1f, 1.5f, -1.5f,
+                Float.MAX_VALUE, -Float.MAX_VALUE, Float.MIN_VALUE, -0f, 32767f / 32768, -32769f / 32768};
+        for (int length : lengths()) {
+            float[] floats = new float[length + 1];
+            for (int i = 0; i < floats.length; i++) {
+                floats[i] = special[i % special.length];
+            }
+            short[] s1 = new short[length];
+            short[] s2 = new short[length];
+            scalar.fromFloats(floats, 1, s1, 0, length);
+            vector.fromFloats(floats, 1, s2, 0, length);
+            assertArrayEquals(s1, s2, "fromFloats, длина " + length);
+        }
+        short[] out = new short[3];
+        scalar.fromFloats(new float[] {Float.NaN, Float.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY}, 0, out, 0, 3);
+        assertArrayEquals(new short[] {0, Short.MAX_VALUE, Short.MIN_VALUE}, out, "эталон: NaN -> 0, ±Inf -> края");
+    }
+
+    @Test
+    void gainAndMix() {
+        for (float gain : GAINS) {
+            for (int length : lengths()) {
+                for (int offset : OFFSETS) {
+                    String at = at(length, offset) + ", усиление " + gain;
+                    short[] samples = randomSamples(length + offset);
+                    short[] g1 = samples.clone();
+                    short[] g2 = samples.clone();
+                    scalar.applyGain(g1, offset, length, gain);
+                    vector.applyGain(g2, offset, length, gain);
+                    assertArrayEquals(g1, g2, "applyGain(short) " + at);
+
+                    // Нечётный хвостовой байт не трогается
+                    byte[] bytes = randomBytes((length + offset) * 2 + 1);
+                    byte[] b1 = bytes.clone();
+                    byte[] b2 = bytes.clone();
+                    scalar.applyGain(b1, offset, length * 2 + 1, gain);
+                    vector.applyGain(b2, offset, length * 2 + 1, gain);
+                    assertArrayEquals(b1, b2, "applyGain(byte) " + at);
+
+                    short[] other = randomSamples(length + offset);
+                    short[] m1 = other.clone();
+                    short[] m2 = other.clone();
+                    scalar.mix(samples, offset, m1, offset, length, gain);
+                    vector.mix(samples, offset, m2, offset, length, gain);
+                    assertArrayEquals(m1, m2, "mix " + at);
+                }
+            }
+        }
+    }
+
+    @Test
+    void saturatingGainClipsToEdges() {
+        short[] edges = {Short.MIN_VALUE, Short.MAX_VALUE, 20000, -20000};
+        short[] samples = new short[67];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = edges[i % edges.length];
+        }
+        short[] g1 = samples.clone();
+        short[] g2 = samples.clone();
+        scalar.applyGain(g1, 0, g1.length, 3f);
+        vector.applyGain(g2, 0, g2.length, 3f);
+        assertArrayEquals(g1, g2);
+        assertEquals(Short.MIN_VALUE, g2[0]);
+        assertEquals(Short.MAX_VALUE, g2[1]);
+    }
+
+    @Test
+    void rmsAndPeak() {
+        for (int length : lengths()) {
+            for (int offset : OFFSETS) {
+                String at = at(length, offset);
+                short[] samples = randomSamples(length + offset);
+                double r1 = scalar.rms(samples, offset, length);
+                double r2 = vector.rms(samples, offset, length);
+                assertTrue(Math.abs(r1 - r2) <= RMS_TOLERANCE * Math.max(1, r1),
+                        "rms " + at + ": " + r1 + " против " + r2);
+                assertEquals(scalar.peak(samples, offset, length), vector.peak(samples, offset, length), "peak " + at);
+            }
+        }
+        short[] minimum = new short[100];
+        Arrays.fill(minimum, Short.MIN_VALUE);
+        assertEquals(32768, vector.peak(minimum, 1, 99));
+    }
+
+    @Test
+    void channelConversions() {
+        for (int length : lengths()) {
+            for (int offset : OFFSETS) {
+                String at = at(length, offset);
+                short[] stereo = randomSamples(length * 2 + offset);
+                short[] mono1 = new short[length + offset];
+                short[] mono2 = new short[length + offset];
+                scalar.downmixStereo(stereo, offset, mono1, offset, length);
+                vector.downmixStereo(stereo, offset, mono2, offset, length);
+                assertArrayEquals(mono1, mono2, "downmixStereo " + at);
+
+                short[] mono = randomSamples(length + offset);
+                short[] st1 = new short[length * 2 + offset];
+                short[] st2 = new short[length * 2 + offset];
+                scalar.upmixMono(mono, offset, st1, offset, length);
+                vector.upmixMono(mono, offset, st2, offset, length);
+                assertArrayEquals(st1, st2, "upmixMono " + at);
+            }
+        }
+    }
+
+    /**
+     * 0-300 подряд и вокруг кратных 8-64 (ширина вектора зависит от платформы)
+     */
+    private static int[] lengths() {
+        IntStream around = IntStream.of(8, 16, 32, 64)
+                .flatMap(width -> IntStream.of(width * 5, width * 9, width * 17))
+                .flatMap(n -> IntStream.of(n - 1, n, n + 1, n + 3));
+        return IntStream.concat(IntStream.rangeClosed(0, 300), around).distinct().toArray();
+    }
+
+    private static String at(int length, int offset) {
+        return "(длина " + length + ", смещение " + offset + ")";
+    }
+
+    private short[] randomSamples(int length) {
+        short[] out = new short[length];
+        for (int i = 0; i < length; i++) {
+            out[i] = switch (random.nextInt(16)) {
+                case 0 -> Short.MIN_VALUE;
+                case 1 -> Short.MAX_VALUE;
+                default -> (short) random.nextInt(65536);
+            };
+        }
+        return out;
+    }
+
+    private byte[] randomBytes(int length) {
+        byte[] out = new byte[length];
+        random.nextBytes(out);
+        return out;
+    }
+
+    private float[] randomFloats(int length) {
+        float[] out = new float[length];
+        for (int i = 0; i < length; i++) {
+            out[i] = switch (random.nextInt(20)) {
+                case 0 -> Float.NaN;
+                case 1 -> Float.POSITIVE_INFINITY;
+                case 2 -> Float.NEGATIVE_INFINITY;
+                default -> (float) (random.nextDouble() * 3 - 1.5);
+            };
+        }
+        return out;
+    }
+}
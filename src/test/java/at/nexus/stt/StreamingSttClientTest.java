@@ -0,0 +1,122 @@
+package at.nexus.stt;
+
+import at.nexus.audio.AudioConfig;
+import at.nexus.audio.LatencyProfile;
+import at.nexus.codec.AudioCodec;
+import at.nexus.demo.SttStandInServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * {@link StreamingSttClient} против локальной заглушки сервера
+ */
+class StreamingSttClientTest {
+
+    private final AudioConfig config = LatencyProfile.LOW.toConfig(16000, 1);
+    private SttStandInServer server;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new SttStandInServer(0, 1000, 0);
+        server.start();
+        assertTrue(server.awaitStarted(5, TimeUnit.SECONDS), "заглушка STT не запустилась");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        server.stop(1000);
+    }
+
+    @Test
+    void frameLongerThanConfigFrameIsSentWhole() throws Exception {
+        CompletableFuture<String> result = new CompletableFuture<>();
+        try (StreamingSttClient client = new StreamingSttClient(
+                URI.create("ws://127.0.0.1:" + server.getPort()), config, finalTo(result), 1000)) {
+            assertTrue(client.connect(5, TimeUnit.SECONDS));
+            int samples = config.frameSamples() * 5 + 7;
+            client.onSpeechStart(0);
+            assertTrue(client.sendFrame(new short[samples], 0, samples));
+            client.onSpeechEnd(samples);
+            result.get(5, TimeUnit.SECONDS);
+
+            assertEquals((long) samples * AudioConfig.BYTES_PER_SAMPLE, server.getReceivedBytes(),
+                    "сервер получил не весь кадр");
+            assertEquals((long) samples * AudioConfig.BYTES_PER_SAMPLE, client.getMetrics().getSentBytes());
+            assertEquals(1, client.getMetrics().getSentFrames());
+        }
+    }
+
+    @Test
+    void opusPacketsAreDecodedByServer() throws Exception {
+        assumeTrue(AudioCodec.OPUS.isAvailable(), "libopus не установлена");
+        CompletableFuture<String> result = new CompletableFuture<>();
+        try (StreamingSttClient client = new StreamingSttClient(
+                URI.create("ws://127.0.0.1:" + server.getPort()), config, finalTo(result), 1000, AudioCodec.OPUS)) {
+            assertEquals(AudioCodec.OPUS, client.getCodec());
+            assertTrue(client.connect(5, TimeUnit.SECONDS));
+            // 2.5 секунды тона: у заглушки "слово" на секунду звука
+            short[] frame = new short[config.frameSamples()];
+            client.onSpeechStart(0);
+            for (int i = 0, n = config.samplesForMillis(2500) / frame.length; i < n; i++) {
+                for (int j = 0; j < frame.length; j++) {
+                    frame[j] = (short) (8000 * Math.sin((i * frame.length + j) * 0.1));
+                }
+                assertTrue(client.sendFrame(frame, 0, frame.length));
+            }
+            client.onSpeechEnd(0);
+
+            assertEquals("слово1 слово2 слово3", result.get(5, TimeUnit.SECONDS));
+            long pcmBytes = (long) config.samplesForMillis(2500) * AudioConfig.BYTES_PER_SAMPLE;
+            assertTrue(server.getReceivedBytes() < pcmBytes / 4,
+                    "пакеты не сжаты: " + server.getReceivedBytes() + " байт");
+            assertEquals(server.getReceivedBytes(), client.getMetrics().getSentBytes());
+        }
+    }
+
+    @Test
+    void opusWithoutLibraryFallsBackToPcm() throws Exception {
+        assumeFalse(AudioCodec.OPUS.isAvailable(), "libopus установлена");
+        CompletableFuture<String> result = new CompletableFuture<>();
+        try (StreamingSttClient client = new StreamingSttClient(
+                URI.create("ws://127.0.0.1:" + server.getPort()), config, finalTo(result), 1000, AudioCodec.OPUS)) {
+            assertEquals(AudioCodec.PCM, client.getCodec());
+            assertTrue(client.connect(5, TimeUnit.SECONDS));
+            int samples = config.frameSamples() * 3;
+            client.onSpeechStart(0);
+            assertTrue(client.sendFrame(new short[samples], 0, samples));
+            client.onSpeechEnd(0);
+
+            assertFalse(result.get(5, TimeUnit.SECONDS).isBlank());
+            assertEquals((long) samples * AudioConfig.BYTES_PER_SAMPLE, server.getReceivedBytes());
+        }
+    }
+
+    private static SttListener finalTo(CompletableFuture<String> result) {
+        return new SttListener() {
+            @Override
+            public void onPartial(String text) {
+            }
+
+            @Override
+            public void onFinal(String text) {
+                result.complete(text);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                result.completeExceptionally(e);
+            }
+        };
+    }
+}
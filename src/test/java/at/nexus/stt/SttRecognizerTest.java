@@ -0,0 +1,60 @@
+package at.nexus.stt;
+
+import at.nexus.audio.AudioConfig;
+import at.nexus.audio.LatencyProfile;
+import at.nexus.codec.AudioCodec;
+import at.nexus.demo.SttStandInServer;
+import at.nexus.server.SpeechRecognizer;
+import org.junit.jupiter.api.Test;
+
+import java.net.ServerSocket;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link SttRecognizer}: фраза за фразой через заглушку сервера,
+ * недоступный сервер - пустой текст
+ */
+class SttRecognizerTest {
+
+    private final AudioConfig config = LatencyProfile.LOW.toConfig(16000, 1);
+
+    @Test
+    void eachUtteranceGetsFinal() throws Exception {
+        SttStandInServer server = new SttStandInServer(0, 100, 0);
+        server.start();
+        try {
+            assertTrue(server.awaitStarted(5, TimeUnit.SECONDS), "заглушка STT не запустилась");
+            SttRecognizer recognizer = new SttRecognizer(URI.create("ws://127.0.0.1:" + server.getPort()), AudioCodec.PCM);
+            short[] frame = new short[config.frameSamples()];
+            int frames = config.samplesForMillis(500) / frame.length;
+            for (int utterance = 0; utterance < 2; utterance++) {
+                SpeechRecognizer.Recognition recognition = recognizer.begin(config);
+                for (int i = 0; i < frames; i++) {
+                    recognition.accept(frame, 0, frame.length);
+                }
+                String text = recognition.finish();
+                assertFalse(text.isBlank(), "фраза " + utterance + " без текста");
+            }
+            assertEquals(2L * frames * config.frameBytes(), server.getReceivedBytes());
+        } finally {
+            server.stop(1000);
+        }
+    }
+
+    @Test
+    void unreachableServerGivesEmptyText() throws Exception {
+        int port;
+        try (ServerSocket free = new ServerSocket(0)) {
+            port = free.getLocalPort();
+        }
+        SttRecognizer recognizer = new SttRecognizer(URI.create("ws://127.0.0.1:" + port), AudioCodec.PCM, 500, 500);
+        SpeechRecognizer.Recognition recognition = recognizer.begin(config);
+        recognition.accept(new short[config.frameSamples()], 0, config.frameSamples());
+        assertEquals("", recognition.finish());
+    }
+}
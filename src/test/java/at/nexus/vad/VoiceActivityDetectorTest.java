@@ -0,0 +1,92 @@
+package at.nexus.vad;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link VoiceActivityDetector}: скачок ровного шума не держит детектор
+ * в речи, а фразы с паузами не поднимают уровень шума
+ */
+class VoiceActivityDetectorTest {
+
+    private static final int SAMPLE_RATE = 16000;
+    private static final int FRAME_MILLIS = 20;
+    private static final int FRAME = SAMPLE_RATE * FRAME_MILLIS / 1000;
+
+    private final Random random = new Random(4);
+    // Низкочастотный шум (вентилятор, гул): мало переходов через ноль
+    private double lowPassed;
+
+    @Test
+    void noiseStepAboveMarginIsLearned() {
+        VoiceActivityDetector detector = new VoiceActivityDetector(VadConfig.defaults(), FRAME_MILLIS);
+        short[] frame = new short[FRAME];
+        for (int f = 0; f < seconds(3); f++) {
+            noise(frame, 100);
+            detector.isSpeech(frame, 0, FRAME);
+        }
+        // Шум стал громче на 20 dB: сначала похоже на речь, потом должно пройти
+        int tailSpeech = 0;
+        for (int f = 0; f < seconds(15); f++) {
+            noise(frame, 1000);
+            boolean speech = detector.isSpeech(frame, 0, FRAME);
+            if (f >= seconds(10) && speech) {
+                tailSpeech++;
+            }
+        }
+        assertEquals(0, tailSpeech, "после скачка шума всё ещё речь, кадров из " + seconds(5)
+                + "; уровень " + detector.getNoiseFloorDb() + " dB");
+    }
+
+    @Test
+    void speechWithPausesKeepsNoiseFloor() {
+        VoiceActivityDetector detector = new VoiceActivityDetector(VadConfig.defaults(), FRAME_MILLIS);
+        short[] frame = new short[FRAME];
+        for (int f = 0; f < seconds(3); f++) {
+            noise(frame, 100);
+            detector.isSpeech(frame, 0, FRAME);
+        }
+        double floor = detector.getNoiseFloorDb();
+        // 20 секунд "слов": 400 ms тона на 30 dB громче шума, 150 ms паузы
+        int words = 0;
+        int detected = 0;
+        for (int f = 0; f < seconds(20); f++) {
+            boolean word = f % 28 < 20;
+            if (word) {
+                tone(frame, f, 3000);
+            } else {
+                noise(frame, 100);
+            }
+            boolean speech = detector.isSpeech(frame, 0, FRAME);
+            if (word) {
+                words++;
+                detected += speech ? 1 : 0;
+            }
+        }
+        assertTrue(detected >= words * 0.98, "речь пропущена: " + detected + " из " + words);
+        assertTrue(detector.getNoiseFloorDb() < floor + 3,
+                "уровень шума поднялся под речью: " + floor + " -> " + detector.getNoiseFloorDb());
+    }
+
+    private static int seconds(int seconds) {
+        return seconds * 1000 / FRAME_MILLIS;
+    }
+
+    private void noise(short[] frame, double amplitude) {
+        for (int i = 0; i < frame.length; i++) {
+            lowPassed = 0.95 * lowPassed + 0.05 * random.nextGaussian();
+            frame[i] = (short) Math.round(amplitude * 4 * lowPassed);
+        }
+    }
+
+    private void tone(short[] frame, int index, double amplitude) {
+        for (int i = 0; i < frame.length; i++) {
+            double t = (index * (double) FRAME + i) / SAMPLE_RATE;
+            frame[i] = (short) Math.round(amplitude * Math.sin(2 * Math.PI * 200 * t) + 100 * random.nextGaussian());
+        }
+    }
+}